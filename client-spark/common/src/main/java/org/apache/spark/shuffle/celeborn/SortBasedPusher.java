@@ -35,6 +35,7 @@ import org.apache.spark.unsafe.memory.MemoryBlock;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.apache.celeborn.client.PushContext;
 import org.apache.celeborn.client.ShuffleClient;
 import org.apache.celeborn.client.write.DataPusher;
 import org.apache.celeborn.client.write.PushTask;
@@ -57,14 +58,10 @@ public class SortBasedPusher extends MemoryConsumer {
   private long pageCursor = -1;
 
   private final ShuffleClient shuffleClient;
+  private final PushContext pushContext;
   private DataPusher dataPusher;
   private final int pushBufferMaxSize;
   private final long pushSortMemoryThreshold;
-  private final int shuffleId;
-  private final int mapId;
-  private final int attemptNumber;
-  private final int numMappers;
-  private final int numPartitions;
   private final Consumer<Integer> afterPush;
   private final LongAdder[] mapStatusLengths;
   // this lock is shared between different SortBasedPushers to synchronize pushData
@@ -97,12 +94,9 @@ public class SortBasedPusher extends MemoryConsumer {
         memoryManager.getTungstenMemoryMode());
 
     this.shuffleClient = shuffleClient;
-
-    this.shuffleId = shuffleId;
-    this.mapId = mapId;
-    this.attemptNumber = attemptNumber;
-    this.numMappers = numMappers;
-    this.numPartitions = numPartitions;
+    this.pushContext =
+        shuffleClient.createPushContext(
+            shuffleId, mapId, attemptNumber, numMappers, numPartitions);
 
     if (conf.clientPushSortRandomizePartitionIdEnabled()) {
       shuffledPartitions = new int[numPartitions];
@@ -164,16 +158,7 @@ public class SortBasedPusher extends MemoryConsumer {
             currentPartition = partition;
           } else {
             int bytesWritten =
-                shuffleClient.mergeData(
-                    shuffleId,
-                    mapId,
-                    attemptNumber,
-                    currentPartition,
-                    dataBuf,
-                    0,
-                    offSet,
-                    numMappers,
-                    numPartitions);
+                shuffleClient.mergeData(pushContext, currentPartition, dataBuf, 0, offSet);
             mapStatusLengths[currentPartition].add(bytesWritten);
             afterPush.accept(bytesWritten);
             currentPartition = partition;
@@ -48,6 +48,7 @@ import org.apache.spark.unsafe.Platform;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.apache.celeborn.client.PushContext;
 import org.apache.celeborn.client.ShuffleClient;
 import org.apache.celeborn.client.write.DataPusher;
 import org.apache.celeborn.client.write.PushTask;
@@ -70,6 +71,7 @@ public class HashBasedShuffleWriter<K, V, C> extends ShuffleWriter<K, V> {
   private final int mapId;
   private final TaskContext taskContext;
   private final ShuffleClient shuffleClient;
+  private final PushContext pushContext;
   private final int numMappers;
   private final int numPartitions;
 
@@ -119,6 +121,9 @@ public class HashBasedShuffleWriter<K, V, C> extends ShuffleWriter<K, V> {
     this.numPartitions = dep.partitioner().numPartitions();
 
     this.shuffleClient = client;
+    this.pushContext =
+        client.createPushContext(
+            shuffleId, mapId, taskContext.attemptNumber(), numMappers, numPartitions);
 
     unsafeRowFastWrite = conf.clientPushUnsafeRowFastWrite();
     serBuffer = new OpenByteArrayOutputStream(DEFAULT_INITIAL_SER_BUFFER_SIZE);
@@ -268,17 +273,7 @@ public class HashBasedShuffleWriter<K, V, C> extends ShuffleWriter<K, V> {
 
   private void pushGiantRecord(int partitionId, byte[] buffer, int numBytes) throws IOException {
     logger.debug("Push giant record for partition {}, size {}.", partitionId, numBytes);
-    int bytesWritten =
-        shuffleClient.pushData(
-            shuffleId,
-            mapId,
-            taskContext.attemptNumber(),
-            partitionId,
-            buffer,
-            0,
-            numBytes,
-            numMappers,
-            numPartitions);
+    int bytesWritten = shuffleClient.pushData(pushContext, partitionId, buffer, 0, numBytes);
     mapStatusLengths[partitionId].add(bytesWritten);
     writeMetrics.incBytesWritten(bytesWritten);
   }
@@ -325,17 +320,7 @@ public class HashBasedShuffleWriter<K, V, C> extends ShuffleWriter<K, V> {
     for (int i = 0; i < sendBuffers.length; i++) {
       final int size = sendOffsets[i];
       if (size > 0) {
-        int bytesWritten =
-            shuffleClient.mergeData(
-                shuffleId,
-                mapId,
-                taskContext.attemptNumber(),
-                i,
-                sendBuffers[i],
-                0,
-                size,
-                numMappers,
-                numPartitions);
+        int bytesWritten = shuffleClient.mergeData(pushContext, i, sendBuffers[i], 0, size);
         // free buffer
         sendBuffers[i] = null;
         mapStatusLengths[i].add(bytesWritten);
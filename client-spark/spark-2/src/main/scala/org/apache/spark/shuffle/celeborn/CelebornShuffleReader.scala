@@ -27,6 +27,7 @@ import org.apache.celeborn.client.ShuffleClient
 import org.apache.celeborn.client.read.CelebornInputStream
 import org.apache.celeborn.client.read.MetricsCallback
 import org.apache.celeborn.common.CelebornConf
+import org.apache.celeborn.common.protocol.PartitionLocation
 
 class CelebornShuffleReader[K, C](
     handle: CelebornShuffleHandle[K, _, C],
@@ -50,6 +51,12 @@ class CelebornShuffleReader[K, C](
 
     val serializerInstance = dep.serializer.newInstance()
 
+    // The chunk fetches from the workers have no task metric, so they are logged when the task
+    // completes, like the fetches of the Spark shuffle reader.
+    var chunkFetchTime = 0L
+    var minFetchWindow = Int.MaxValue
+    var maxFetchWindow = 0
+
     // Update the context task metrics for each record read.
     val readMetrics = context.taskMetrics.createTempShuffleReadMetrics()
     val metricsCallback = new MetricsCallback {
@@ -58,6 +65,21 @@ class CelebornShuffleReader[K, C](
 
       override def incReadTime(time: Long): Unit =
         readMetrics.incFetchWaitTime(time)
+
+      override def incChunkFetchTime(time: Long): Unit =
+        chunkFetchTime += time
+
+      override def updateFetchWindow(location: PartitionLocation, window: Int): Unit = {
+        minFetchWindow = math.min(minFetchWindow, window)
+        maxFetchWindow = math.max(maxFetchWindow, window)
+      }
+    }
+    context.addTaskCompletionListener { _ =>
+      if (maxFetchWindow > 0) {
+        logDebug(s"Fetched chunks of shuffle ${handle.shuffleId} partitions " +
+          s"[$startPartition, $endPartition) from workers in $chunkFetchTime ms, with " +
+          s"$minFetchWindow to $maxFetchWindow fetch requests in flight per location.")
+      }
     }
 
     val recordIter = (startPartition until endPartition).iterator.map(partitionId => {
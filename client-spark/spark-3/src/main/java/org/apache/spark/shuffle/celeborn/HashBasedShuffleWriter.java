@@ -51,6 +51,7 @@ import org.apache.spark.unsafe.Platform;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.apache.celeborn.client.PushContext;
 import org.apache.celeborn.client.ShuffleClient;
 import org.apache.celeborn.client.write.DataPusher;
 import org.apache.celeborn.client.write.PushTask;
@@ -74,6 +75,7 @@ public class HashBasedShuffleWriter<K, V, C> extends ShuffleWriter<K, V> {
   private final int mapId;
   private final TaskContext taskContext;
   private final ShuffleClient shuffleClient;
+  private final PushContext pushContext;
   private final int numMappers;
   private final int numPartitions;
 
@@ -140,6 +142,9 @@ public class HashBasedShuffleWriter<K, V, C> extends ShuffleWriter<K, V> {
     this.numMappers = handle.numMappers();
     this.numPartitions = dep.partitioner().numPartitions();
     this.shuffleClient = client;
+    this.pushContext =
+        client.createPushContext(
+            shuffleId, mapId, taskContext.attemptNumber(), numMappers, numPartitions);
     this.conf = conf;
 
     unsafeRowFastWrite = conf.clientPushUnsafeRowFastWrite();
@@ -345,17 +350,7 @@ public class HashBasedShuffleWriter<K, V, C> extends ShuffleWriter<K, V> {
 
   private void pushGiantRecord(int partitionId, byte[] buffer, int numBytes) throws IOException {
     logger.debug("Push giant record, size {}.", numBytes);
-    int bytesWritten =
-        shuffleClient.pushData(
-            shuffleId,
-            mapId,
-            taskContext.attemptNumber(),
-            partitionId,
-            buffer,
-            0,
-            numBytes,
-            numMappers,
-            numPartitions);
+    int bytesWritten = shuffleClient.pushData(pushContext, partitionId, buffer, 0, numBytes);
     mapStatusLengths[partitionId].add(bytesWritten);
     writeMetrics.incBytesWritten(bytesWritten);
   }
@@ -399,17 +394,7 @@ public class HashBasedShuffleWriter<K, V, C> extends ShuffleWriter<K, V> {
         if (dataSize != null) {
           dataSize.add(buffers.length);
         }
-        int bytesWritten =
-            shuffleClient.mergeData(
-                shuffleId,
-                mapId,
-                taskContext.attemptNumber(),
-                i,
-                buffers,
-                0,
-                buffers.length,
-                numMappers,
-                numPartitions);
+        int bytesWritten = shuffleClient.mergeData(pushContext, i, buffers, 0, buffers.length);
         // free buffer
         celebornBatchBuilders[i] = null;
         mapStatusLengths[i].add(bytesWritten);
@@ -425,17 +410,7 @@ public class HashBasedShuffleWriter<K, V, C> extends ShuffleWriter<K, V> {
     for (int i = 0; i < numPartitions; i++) {
       final int size = sendOffsets[i];
       if (size > 0) {
-        int bytesWritten =
-            shuffleClient.mergeData(
-                shuffleId,
-                mapId,
-                taskContext.attemptNumber(),
-                i,
-                sendBuffers[i],
-                0,
-                size,
-                numMappers,
-                numPartitions);
+        int bytesWritten = shuffleClient.mergeData(pushContext, i, sendBuffers[i], 0, size);
         // free buffer
         sendBuffers[i] = null;
         mapStatusLengths[i].add(bytesWritten);
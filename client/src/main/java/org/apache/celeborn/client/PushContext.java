@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.celeborn.client;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.celeborn.common.protocol.PartitionLocation;
+import org.apache.celeborn.common.write.PushState;
+
+/**
+ * The pushes of a map task, obtained once per task from {@link ShuffleClient#createPushContext(int,
+ * int, int, int, int)}. The keys and the state of the task are resolved when it is created, so
+ * pushing through it builds no key and looks up no map keyed by strings.
+ */
+public class PushContext {
+  final int shuffleId;
+  final int mapId;
+  final int attemptId;
+  final int numMappers;
+  final int numPartitions;
+
+  final String mapKey;
+  final String shuffleKey;
+  final PushState pushState;
+
+  // The locations of the partitions of the shuffle, resolved by the first push of the task, which
+  // registers the shuffle if needed. Revives update them in place.
+  volatile ConcurrentHashMap<Integer, PartitionLocation> partitionLocations;
+
+  PushContext(
+      int shuffleId,
+      int mapId,
+      int attemptId,
+      int numMappers,
+      int numPartitions,
+      String mapKey,
+      String shuffleKey,
+      PushState pushState) {
+    this.shuffleId = shuffleId;
+    this.mapId = mapId;
+    this.attemptId = attemptId;
+    this.numMappers = numMappers;
+    this.numPartitions = numPartitions;
+    this.mapKey = mapKey;
+    this.shuffleKey = shuffleKey;
+    this.pushState = pushState;
+  }
+
+  public int getShuffleId() {
+    return shuffleId;
+  }
+
+  public int getMapId() {
+    return mapId;
+  }
+
+  public int getAttemptId() {
+    return attemptId;
+  }
+
+  public int getNumMappers() {
+    return numMappers;
+  }
+
+  public int getNumPartitions() {
+    return numPartitions;
+  }
+}
@@ -27,6 +27,7 @@ import org.slf4j.LoggerFactory;
 import org.apache.celeborn.client.read.CelebornInputStream;
 import org.apache.celeborn.common.CelebornConf;
 import org.apache.celeborn.common.identity.UserIdentifier;
+import org.apache.celeborn.common.oss.ObjectStore;
 import org.apache.celeborn.common.protocol.PartitionLocation;
 import org.apache.celeborn.common.rpc.RpcEndpointRef;
 import org.apache.celeborn.common.util.CelebornHadoopUtils;
@@ -40,6 +41,7 @@ public abstract class ShuffleClient {
   private static volatile ShuffleClient _instance;
   private static volatile boolean initialized = false;
   private static volatile FileSystem hdfsFs;
+  private static volatile ObjectStore objectStore;
   private static Logger logger = LoggerFactory.getLogger(ShuffleClient.class);
 
   // for testing
@@ -47,6 +49,7 @@ public abstract class ShuffleClient {
     _instance = null;
     initialized = false;
     hdfsFs = null;
+    objectStore = null;
   }
 
   protected ShuffleClient() {}
@@ -95,6 +98,17 @@ public abstract class ShuffleClient {
     return hdfsFs;
   }
 
+  public static ObjectStore getObjectStore(CelebornConf conf) throws IOException {
+    if (null == objectStore) {
+      synchronized (ShuffleClient.class) {
+        if (null == objectStore) {
+          objectStore = ObjectStore.instantiate(conf);
+        }
+      }
+    }
+    return objectStore;
+  }
+
   public abstract void setupLifecycleManagerRef(String host, int port);
 
   public abstract void setupLifecycleManagerRef(RpcEndpointRef endpointRef);
@@ -112,6 +126,28 @@ public abstract class ShuffleClient {
       int numPartitions)
       throws IOException;
 
+  // Create the context through which a map task pushes its data
+  public PushContext createPushContext(
+      int shuffleId, int mapId, int attemptId, int numMappers, int numPartitions) {
+    return new PushContext(
+        shuffleId, mapId, attemptId, numMappers, numPartitions, null, null, null);
+  }
+
+  // Write data to a specific reduce partition through the context of the map task
+  public int pushData(PushContext context, int partitionId, byte[] data, int offset, int length)
+      throws IOException {
+    return pushData(
+        context.shuffleId,
+        context.mapId,
+        context.attemptId,
+        partitionId,
+        data,
+        offset,
+        length,
+        context.numMappers,
+        context.numPartitions);
+  }
+
   public abstract void prepareForMergeData(int shuffleId, int mapId, int attemptId)
       throws IOException;
 
@@ -127,6 +163,20 @@ public abstract class ShuffleClient {
       int numPartitions)
       throws IOException;
 
+  public int mergeData(PushContext context, int partitionId, byte[] data, int offset, int length)
+      throws IOException {
+    return mergeData(
+        context.shuffleId,
+        context.mapId,
+        context.attemptId,
+        partitionId,
+        data,
+        offset,
+        length,
+        context.numMappers,
+        context.numPartitions);
+  }
+
   public abstract void pushMergedData(int shuffleId, int mapId, int attemptId) throws IOException;
 
   // Report partition locations written by the completed map task of ReducePartition Shuffle Type
@@ -19,6 +19,7 @@ package org.apache.celeborn.client;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.*;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
@@ -28,18 +29,23 @@ import java.util.concurrent.TimeUnit;
 import scala.reflect.ClassTag$;
 
 import com.google.common.annotations.VisibleForTesting;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
 import io.netty.buffer.CompositeByteBuf;
 import io.netty.buffer.Unpooled;
+import io.netty.buffer.UnpooledByteBufAllocator;
 import org.apache.commons.lang3.tuple.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import org.apache.celeborn.client.compress.Compressor;
 import org.apache.celeborn.client.read.CelebornInputStream;
+import org.apache.celeborn.client.read.DfsReadScheduler;
 import org.apache.celeborn.common.CelebornConf;
 import org.apache.celeborn.common.exception.CelebornIOException;
 import org.apache.celeborn.common.identity.UserIdentifier;
 import org.apache.celeborn.common.network.TransportContext;
+import org.apache.celeborn.common.network.buffer.ManagedBuffer;
 import org.apache.celeborn.common.network.buffer.NettyManagedBuffer;
 import org.apache.celeborn.common.network.client.RpcResponseCallback;
 import org.apache.celeborn.common.network.client.TransportClient;
@@ -85,6 +91,12 @@ public class ShuffleClientImpl extends ShuffleClient {
 
   protected final int BATCH_HEADER_SIZE = 4 * 4;
 
+  private static final boolean NATIVE_LITTLE_ENDIAN =
+      ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN;
+
+  // allocates the bodies of the batches pushed one by one
+  private final ByteBufAllocator pushBufferAllocator;
+
   // key: shuffleId, value: (partitionId, PartitionLocation)
   final Map<Integer, ConcurrentHashMap<Integer, PartitionLocation>> reducePartitionMap =
       JavaUtils.newConcurrentHashMap();
@@ -108,6 +120,9 @@ public class ShuffleClientImpl extends ShuffleClient {
   private final ExecutorService pushDataRetryPool;
 
   private final ExecutorService partitionSplitPool;
+  // null if the look-ahead of fetched locations is disabled
+  private final ExecutorService fetchPrefetchPool;
+  private final DfsReadScheduler dfsReadScheduler;
   private final Map<Integer, Set<Integer>> splitting = JavaUtils.newConcurrentHashMap();
 
   protected final String appUniqueId;
@@ -181,6 +196,11 @@ public class ShuffleClientImpl extends ShuffleClient {
         new TransportContext(
             dataTransportConf, new BaseMessageHandler(), conf.clientCloseIdleConnections());
     dataClientFactory = context.createClientFactory();
+    if (conf.clientPushPooledBufferEnabled()) {
+      pushBufferAllocator = dataClientFactory.getPooledAllocator();
+    } else {
+      pushBufferAllocator = new UnpooledByteBufAllocator(false);
+    }
 
     int pushDataRetryThreads = conf.clientPushRetryThreads();
     pushDataRetryPool =
@@ -190,6 +210,14 @@ public class ShuffleClientImpl extends ShuffleClient {
     partitionSplitPool =
         ThreadUtils.newDaemonCachedThreadPool(
             "celeborn-shuffle-split", pushSplitPartitionThreads, 60);
+    if (conf.clientFetchPrefetchLocations() > 0) {
+      fetchPrefetchPool =
+          ThreadUtils.newDaemonCachedThreadPool(
+              "celeborn-fetch-prefetcher", conf.clientFetchPrefetchThreads(), 60);
+    } else {
+      fetchPrefetchPool = null;
+    }
+    dfsReadScheduler = new DfsReadScheduler(conf);
     reviveManager = new ReviveManager(this, conf);
 
     logger.info("Created ShuffleClientImpl, appUniqueId: {}", appUniqueId);
@@ -214,7 +242,7 @@ public class ShuffleClientImpl extends ShuffleClient {
 
   private void submitRetryPushData(
       int shuffleId,
-      byte[] body,
+      ByteBuf body,
       int batchId,
       PushDataRpcResponseCallback pushDataRpcResponseCallback,
       PushState pushState,
@@ -249,6 +277,7 @@ public class ShuffleClientImpl extends ShuffleClient {
           batchId,
           loc);
       pushState.removeBatch(batchId, loc.hostAndPushPort());
+      body.release();
     } else if (request.reviveStatus != StatusCode.SUCCESS.getValue()) {
       pushDataRpcResponseCallback.onFailure(
           new CelebornIOException(
@@ -277,7 +306,7 @@ public class ShuffleClientImpl extends ShuffleClient {
           if (!testRetryRevive || remainReviveTimes < 1) {
             TransportClient client =
                 dataClientFactory.createClient(newLoc.getHost(), newLoc.getPushPort(), partitionId);
-            NettyManagedBuffer newBuffer = new NettyManagedBuffer(Unpooled.wrappedBuffer(body));
+            ManagedBuffer newBuffer = new BatchBodyBuffer(body);
             String shuffleKey = Utils.makeShuffleKey(appUniqueId, shuffleId);
             PushData newPushData =
                 new PushData(PRIMARY_MODE, shuffleKey, newLoc.getUniqueId(), newBuffer);
@@ -773,8 +802,23 @@ public class ShuffleClientImpl extends ShuffleClient {
       int numPartitions,
       boolean doPush)
       throws IOException {
-    // mapKey
-    final String mapKey = Utils.makeMapKey(shuffleId, mapId, attemptId);
+    return pushOrMergeData(
+        createPushContext(shuffleId, mapId, attemptId, numMappers, numPartitions),
+        partitionId,
+        data,
+        offset,
+        length,
+        doPush);
+  }
+
+  private int pushOrMergeData(
+      PushContext context, int partitionId, byte[] data, int offset, int length, boolean doPush)
+      throws IOException {
+    final int shuffleId = context.shuffleId;
+    final int mapId = context.mapId;
+    final int attemptId = context.attemptId;
+    final String mapKey = context.mapKey;
+    final PushState pushState = context.pushState;
     // return if shuffle stage already ended
     if (mapperEnded(shuffleId, mapId)) {
       logger.debug(
@@ -783,18 +827,18 @@ public class ShuffleClientImpl extends ShuffleClient {
           mapId,
           attemptId,
           partitionId);
-      PushState pushState = pushStates.get(mapKey);
-      if (pushState != null) {
-        pushState.cleanup();
-      }
+      pushState.cleanup();
+      pushStates.remove(mapKey, pushState);
       return 0;
     }
     // register shuffle if not registered
-    final ConcurrentHashMap<Integer, PartitionLocation> map =
-        getPartitionLocation(shuffleId, numMappers, numPartitions);
-
+    ConcurrentHashMap<Integer, PartitionLocation> map = context.partitionLocations;
     if (map == null) {
-      throw new CelebornIOException("Register shuffle failed for shuffle " + shuffleId + ".");
+      map = getPartitionLocation(shuffleId, context.numMappers, context.numPartitions);
+      if (map == null) {
+        throw new CelebornIOException("Register shuffle failed for shuffle " + shuffleId + ".");
+      }
+      context.partitionLocations = map;
     }
 
     // get location
@@ -821,10 +865,8 @@ public class ShuffleClientImpl extends ShuffleClient {
           mapId,
           attemptId,
           partitionId);
-      PushState pushState = pushStates.get(mapKey);
-      if (pushState != null) {
-        pushState.cleanup();
-      }
+      pushState.cleanup();
+      pushStates.remove(mapKey, pushState);
       return 0;
     }
 
@@ -835,39 +877,23 @@ public class ShuffleClientImpl extends ShuffleClient {
               "Partition location for shuffle %s partition %d is NULL!", shuffleId, partitionId));
     }
 
-    PushState pushState = getPushState(mapKey);
-
     // increment batchId
     final int nextBatchId = pushState.nextBatchId();
 
-    if (shuffleCompressionEnabled) {
-      // compress data
-      final Compressor compressor = compressorThreadLocal.get();
-      compressor.compress(data, offset, length);
-
-      data = compressor.getCompressedBuffer();
-      offset = 0;
-      length = compressor.getCompressedTotalSize();
-    }
-
-    final byte[] body = new byte[BATCH_HEADER_SIZE + length];
-    Platform.putInt(body, Platform.BYTE_ARRAY_OFFSET, mapId);
-    Platform.putInt(body, Platform.BYTE_ARRAY_OFFSET + 4, attemptId);
-    Platform.putInt(body, Platform.BYTE_ARRAY_OFFSET + 8, nextBatchId);
-    Platform.putInt(body, Platform.BYTE_ARRAY_OFFSET + 12, length);
-    System.arraycopy(data, offset, body, BATCH_HEADER_SIZE, length);
-
     if (doPush) {
       // check limit
       limitMaxInFlight(mapKey, pushState, loc.hostAndPushPort());
 
+      // the batch holds the body until its push is done, sending it only retains duplicates
+      final ByteBuf body = createBatchBody(mapId, attemptId, nextBatchId, data, offset, length);
+      final int bodySize = body.readableBytes();
+
       // add inFlight requests
       pushState.addBatch(nextBatchId, loc.hostAndPushPort());
 
       // build PushData request
-      NettyManagedBuffer buffer = new NettyManagedBuffer(Unpooled.wrappedBuffer(body));
-      final String shuffleKey = Utils.makeShuffleKey(appUniqueId, shuffleId);
-      PushData pushData = new PushData(PRIMARY_MODE, shuffleKey, loc.getUniqueId(), buffer);
+      ManagedBuffer buffer = new BatchBodyBuffer(body);
+      PushData pushData = new PushData(PRIMARY_MODE, context.shuffleKey, loc.getUniqueId(), buffer);
 
       // build callback
       RpcResponseCallback callback =
@@ -885,6 +911,7 @@ public class ShuffleClientImpl extends ShuffleClient {
                   attemptId,
                   partitionId,
                   nextBatchId);
+              body.release();
             }
 
             @Override
@@ -894,6 +921,7 @@ public class ShuffleClientImpl extends ShuffleClient {
                       "Push data to %s failed for shuffle %d map %d attempt %d partition %d batch %d.",
                       loc, shuffleId, mapId, attemptId, partitionId, nextBatchId);
               pushState.exception.compareAndSet(null, new CelebornIOException(errorMsg, e));
+              body.release();
             }
           };
 
@@ -1004,6 +1032,7 @@ public class ShuffleClientImpl extends ShuffleClient {
               StatusCode cause = getPushDataFailCause(e.getMessage());
 
               if (pushState.exception.get() != null) {
+                body.release();
                 return;
               }
 
@@ -1051,6 +1080,7 @@ public class ShuffleClientImpl extends ShuffleClient {
                             dueTime));
               } else {
                 pushState.removeBatch(nextBatchId, latest.hostAndPushPort());
+                body.release();
                 logger.info(
                     "Push data to {} failed but mapper already ended for shuffle {} map {} attempt {} partition {} batch {}, remain revive times {}.",
                     latest.hostAndPushPort(),
@@ -1091,7 +1121,25 @@ public class ShuffleClientImpl extends ShuffleClient {
         wrappedCallback.onFailure(
             new CelebornIOException(StatusCode.PUSH_DATA_CREATE_CONNECTION_FAIL_PRIMARY, e));
       }
+      return bodySize;
     } else {
+      if (shuffleCompressionEnabled) {
+        // compress data
+        final Compressor compressor = compressorThreadLocal.get();
+        compressor.compress(data, offset, length);
+
+        data = compressor.getCompressedBuffer();
+        offset = 0;
+        length = compressor.getCompressedTotalSize();
+      }
+
+      final byte[] body = new byte[BATCH_HEADER_SIZE + length];
+      Platform.putInt(body, Platform.BYTE_ARRAY_OFFSET, mapId);
+      Platform.putInt(body, Platform.BYTE_ARRAY_OFFSET + 4, attemptId);
+      Platform.putInt(body, Platform.BYTE_ARRAY_OFFSET + 8, nextBatchId);
+      Platform.putInt(body, Platform.BYTE_ARRAY_OFFSET + 12, length);
+      System.arraycopy(data, offset, body, BATCH_HEADER_SIZE, length);
+
       // add batch data
       logger.debug("Merge batch {}.", nextBatchId);
       Pair<String, String> addressPair = genAddressPair(loc);
@@ -1108,9 +1156,67 @@ public class ShuffleClientImpl extends ShuffleClient {
             pushState,
             maxReviveTimes);
       }
+      return body.length;
+    }
+  }
+
+  /**
+   * Builds the body of a batch pushed alone in a buffer of the push buffer allocator, into which
+   * the data is compressed in place.
+   */
+  private ByteBuf createBatchBody(
+      int mapId, int attemptId, int batchId, byte[] data, int offset, int length) {
+    ByteBuf body;
+    if (shuffleCompressionEnabled) {
+      Compressor compressor = compressorThreadLocal.get();
+      body =
+          pushBufferAllocator.buffer(BATCH_HEADER_SIZE + compressor.maxCompressedTotalSize(length));
+      try {
+        body.writerIndex(BATCH_HEADER_SIZE);
+        compressor.compress(data, offset, length, body);
+      } catch (Throwable e) {
+        body.release();
+        throw e;
+      }
+    } else {
+      body = pushBufferAllocator.buffer(BATCH_HEADER_SIZE + length);
+      body.writerIndex(BATCH_HEADER_SIZE);
+      body.writeBytes(data, offset, length);
+    }
+    // the header is read with Platform.getInt, in the native byte order
+    setNativeInt(body, 0, mapId);
+    setNativeInt(body, 4, attemptId);
+    setNativeInt(body, 8, batchId);
+    setNativeInt(body, 12, body.readableBytes() - BATCH_HEADER_SIZE);
+    return body;
+  }
+
+  private static void setNativeInt(ByteBuf buf, int index, int value) {
+    if (NATIVE_LITTLE_ENDIAN) {
+      buf.setIntLE(index, value);
+    } else {
+      buf.setInt(index, value);
+    }
+  }
+
+  /**
+   * Lends the body of a batch to a push. The batch keeps the body until its push is done, while the
+   * message sent only retains a duplicate of it until it is written.
+   */
+  private static class BatchBodyBuffer extends NettyManagedBuffer {
+    BatchBodyBuffer(ByteBuf body) {
+      super(body);
     }
 
-    return body.length;
+    @Override
+    public ManagedBuffer retain() {
+      return this;
+    }
+
+    @Override
+    public ManagedBuffer release() {
+      return this;
+    }
   }
 
   private void splitPartition(int shuffleId, int partitionId, PartitionLocation loc) {
@@ -1165,6 +1271,28 @@ public class ShuffleClientImpl extends ShuffleClient {
         true);
   }
 
+  @Override
+  public PushContext createPushContext(
+      int shuffleId, int mapId, int attemptId, int numMappers, int numPartitions) {
+    final String mapKey = Utils.makeMapKey(shuffleId, mapId, attemptId);
+    // the pushes of an ended mapper are ignored, so its push state is not kept
+    return new PushContext(
+        shuffleId,
+        mapId,
+        attemptId,
+        numMappers,
+        numPartitions,
+        mapKey,
+        Utils.makeShuffleKey(appUniqueId, shuffleId),
+        mapperEnded(shuffleId, mapId) ? new PushState(conf) : getPushState(mapKey));
+  }
+
+  @Override
+  public int pushData(PushContext context, int partitionId, byte[] data, int offset, int length)
+      throws IOException {
+    return pushOrMergeData(context, partitionId, data, offset, length, true);
+  }
+
   @Override
   public void prepareForMergeData(int shuffleId, int mapId, int attemptId) throws IOException {
     final String mapKey = Utils.makeMapKey(shuffleId, mapId, attemptId);
@@ -1199,6 +1327,12 @@ public class ShuffleClientImpl extends ShuffleClient {
         false);
   }
 
+  @Override
+  public int mergeData(PushContext context, int partitionId, byte[] data, int offset, int length)
+      throws IOException {
+    return pushOrMergeData(context, partitionId, data, offset, length, false);
+  }
+
   public void pushMergedData(int shuffleId, int mapId, int attemptId) throws IOException {
     final String mapKey = Utils.makeMapKey(shuffleId, mapId, attemptId);
     PushState pushState = pushStates.get(mapKey);
@@ -1606,7 +1740,9 @@ public class ShuffleClientImpl extends ShuffleClient {
           attemptNumber,
           startMapIndex,
           endMapIndex,
-          fetchExcludedWorkers);
+          fetchExcludedWorkers,
+          fetchPrefetchPool,
+          dfsReadScheduler);
     }
   }
 
@@ -1629,6 +1765,12 @@ public class ShuffleClientImpl extends ShuffleClient {
     if (null != partitionSplitPool) {
       partitionSplitPool.shutdown();
     }
+    if (null != fetchPrefetchPool) {
+      fetchPrefetchPool.shutdown();
+    }
+    if (null != dfsReadScheduler) {
+      dfsReadScheduler.shutdown();
+    }
     if (null != lifecycleManagerRef) {
       lifecycleManagerRef = null;
     }
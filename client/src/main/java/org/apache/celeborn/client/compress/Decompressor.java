@@ -17,6 +17,8 @@
 
 package org.apache.celeborn.client.compress;
 
+import java.nio.ByteBuffer;
+
 import org.apache.celeborn.common.CelebornConf;
 import org.apache.celeborn.common.protocol.CompressionCodec;
 
@@ -26,6 +28,15 @@ public interface Decompressor {
 
   int getOriginalLen(byte[] src);
 
+  /**
+   * Decompresses the block starting at the position of src into dst starting at its position, so
+   * that a block can be decompressed straight out of a (direct) network buffer. dst must have
+   * capacity for the original length. The positions and limits of both buffers are not changed.
+   */
+  int decompress(ByteBuffer src, ByteBuffer dst);
+
+  int getOriginalLen(ByteBuffer src);
+
   default int readIntLE(byte[] buf, int i) {
     return (buf[i] & 0xFF)
         | ((buf[i + 1] & 0xFF) << 8)
@@ -33,6 +44,23 @@ public interface Decompressor {
         | ((buf[i + 3] & 0xFF) << 24);
   }
 
+  default int readIntLE(ByteBuffer buf, int i) {
+    return (buf.get(i) & 0xFF)
+        | ((buf.get(i + 1) & 0xFF) << 8)
+        | ((buf.get(i + 2) & 0xFF) << 16)
+        | ((buf.get(i + 3) & 0xFF) << 24);
+  }
+
+  default void copyRaw(ByteBuffer src, int srcOff, ByteBuffer dst, int dstOff, int length) {
+    ByteBuffer from = src.duplicate();
+    from.limit(srcOff + length);
+    from.position(srcOff);
+    ByteBuffer to = dst.duplicate();
+    to.limit(to.capacity());
+    to.position(dstOff);
+    to.put(from);
+  }
+
   static Decompressor getDecompressor(CelebornConf conf) {
     CompressionCodec codec = conf.shuffleCompressionCodec();
     switch (codec) {
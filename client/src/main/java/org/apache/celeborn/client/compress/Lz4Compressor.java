@@ -17,8 +17,10 @@
 
 package org.apache.celeborn.client.compress;
 
+import java.nio.ByteBuffer;
 import java.util.zip.Checksum;
 
+import io.netty.buffer.ByteBuf;
 import net.jpountz.lz4.LZ4Compressor;
 import net.jpountz.lz4.LZ4Factory;
 import net.jpountz.xxhash.XXHashFactory;
@@ -70,6 +72,40 @@ public class Lz4Compressor extends Lz4Trait implements Compressor {
     compressedTotalSize = HEADER_LENGTH + compressedLength;
   }
 
+  @Override
+  public int maxCompressedTotalSize(int length) {
+    return HEADER_LENGTH + compressor.maxCompressedLength(length);
+  }
+
+  /** Compresses the data right into dest, without going through the compressed buffer. */
+  @Override
+  public void compress(byte[] data, int offset, int length, ByteBuf dest) {
+    checksum.reset();
+    checksum.update(data, offset, length);
+    final int check = (int) checksum.getValue();
+    int maxDestLength = compressor.maxCompressedLength(length);
+    dest.ensureWritable(HEADER_LENGTH + maxDestLength);
+    int headerIndex = dest.writerIndex();
+    ByteBuffer compressed = dest.nioBuffer(headerIndex + HEADER_LENGTH, maxDestLength);
+    int compressedLength =
+        compressor.compress(ByteBuffer.wrap(data), offset, length, compressed, 0, maxDestLength);
+    final int compressMethod;
+    if (compressedLength >= length) {
+      compressMethod = COMPRESSION_METHOD_RAW;
+      compressedLength = length;
+      dest.setBytes(headerIndex + HEADER_LENGTH, data, offset, length);
+    } else {
+      compressMethod = COMPRESSION_METHOD_LZ4;
+    }
+
+    dest.setBytes(headerIndex, MAGIC);
+    dest.setByte(headerIndex + MAGIC_LENGTH, compressMethod);
+    dest.setIntLE(headerIndex + MAGIC_LENGTH + 1, compressedLength);
+    dest.setIntLE(headerIndex + MAGIC_LENGTH + 5, length);
+    dest.setIntLE(headerIndex + MAGIC_LENGTH + 9, check);
+    dest.writerIndex(headerIndex + HEADER_LENGTH + compressedLength);
+  }
+
   @Override
   public int getCompressedTotalSize() {
     return compressedTotalSize;
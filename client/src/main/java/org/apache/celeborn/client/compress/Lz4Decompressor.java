@@ -17,10 +17,12 @@
 
 package org.apache.celeborn.client.compress;
 
+import java.nio.ByteBuffer;
 import java.util.zip.Checksum;
 
 import net.jpountz.lz4.LZ4Factory;
 import net.jpountz.lz4.LZ4FastDecompressor;
+import net.jpountz.xxhash.XXHash32;
 import net.jpountz.xxhash.XXHashFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -29,10 +31,14 @@ public class Lz4Decompressor extends Lz4Trait implements Decompressor {
   private static final Logger logger = LoggerFactory.getLogger(Lz4Decompressor.class);
   private final LZ4FastDecompressor decompressor;
   private final Checksum checksum;
+  // One-shot xxhash of a single block, equal to the streaming checksum fed with the same block
+  // except that the Checksum view of the streaming hash only keeps the low 28 bits.
+  private final XXHash32 hash32;
 
   public Lz4Decompressor() {
     decompressor = LZ4Factory.fastestInstance().fastDecompressor();
     checksum = XXHashFactory.fastestInstance().newStreamingHash32(DEFAULT_SEED).asChecksum();
+    hash32 = XXHashFactory.fastestInstance().hash32();
   }
 
   @Override
@@ -71,4 +77,43 @@ public class Lz4Decompressor extends Lz4Trait implements Decompressor {
 
     return originalLen;
   }
+
+  @Override
+  public int getOriginalLen(ByteBuffer src) {
+    return readIntLE(src, src.position() + MAGIC_LENGTH + 5);
+  }
+
+  @Override
+  public int decompress(ByteBuffer src, ByteBuffer dst) {
+    int srcOff = src.position();
+    int dstOff = dst.position();
+    int compressionMethod = src.get(srcOff + MAGIC_LENGTH) & 0xFF;
+    int compressedLen = readIntLE(src, srcOff + MAGIC_LENGTH + 1);
+    int originalLen = readIntLE(src, srcOff + MAGIC_LENGTH + 5);
+    int check = readIntLE(src, srcOff + MAGIC_LENGTH + 9);
+
+    switch (compressionMethod) {
+      case COMPRESSION_METHOD_RAW:
+        copyRaw(src, srcOff + HEADER_LENGTH, dst, dstOff, originalLen);
+        break;
+      case COMPRESSION_METHOD_LZ4:
+        int compressedLen2 =
+            decompressor.decompress(src, srcOff + HEADER_LENGTH, dst, dstOff, originalLen);
+        if (compressedLen != compressedLen2) {
+          logger.error(
+              "Compressed length corrupted! expected: {}, actual: {}.",
+              compressedLen,
+              compressedLen2);
+          return -1;
+        }
+    }
+
+    int actual = hash32.hash(dst, dstOff, originalLen, DEFAULT_SEED) & 0xFFFFFFF;
+    if (actual != check) {
+      logger.error("Checksum not equal! expected: {}, actual: {}.", check, actual);
+      return -1;
+    }
+
+    return originalLen;
+  }
 }
@@ -77,6 +77,11 @@ public class ZstdCompressor extends ZstdTrait implements Compressor {
     compressedTotalSize = HEADER_LENGTH + compressedLength;
   }
 
+  @Override
+  public int maxCompressedTotalSize(int length) {
+    return HEADER_LENGTH + (int) Zstd.compressBound(length);
+  }
+
   @Override
   public int getCompressedTotalSize() {
     return compressedTotalSize;
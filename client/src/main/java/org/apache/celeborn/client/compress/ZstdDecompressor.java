@@ -17,6 +17,7 @@
 
 package org.apache.celeborn.client.compress;
 
+import java.nio.ByteBuffer;
 import java.util.zip.CRC32;
 import java.util.zip.Checksum;
 
@@ -72,4 +73,76 @@ public class ZstdDecompressor extends ZstdTrait implements Decompressor {
     }
     return originalLen;
   }
+
+  @Override
+  public int getOriginalLen(ByteBuffer src) {
+    return readIntLE(src, src.position() + MAGIC_LENGTH + 5);
+  }
+
+  @Override
+  public int decompress(ByteBuffer src, ByteBuffer dst) {
+    int srcOff = src.position();
+    int dstOff = dst.position();
+    int compressionMethod = src.get(srcOff + MAGIC_LENGTH) & 0xFF;
+    int compressedLen = readIntLE(src, srcOff + MAGIC_LENGTH + 1);
+    int originalLen = readIntLE(src, srcOff + MAGIC_LENGTH + 5);
+    int check = readIntLE(src, srcOff + MAGIC_LENGTH + 9);
+
+    switch (compressionMethod) {
+      case COMPRESSION_METHOD_RAW:
+        copyRaw(src, srcOff + HEADER_LENGTH, dst, dstOff, originalLen);
+        break;
+      case COMPRESSION_METHOD_ZSTD:
+        int originalLen2 =
+            decompressZstd(src, srcOff + HEADER_LENGTH, compressedLen, dst, dstOff, originalLen);
+        if (originalLen != originalLen2) {
+          logger.error(
+              "Original length corrupted! expected: {}, actual: {}.", originalLen, originalLen2);
+          return -1;
+        }
+        break;
+      default:
+        logger.error("Unknown compression method whose decimal number is {} .", compressionMethod);
+        return -1;
+    }
+
+    ByteBuffer decompressed = dst.duplicate();
+    decompressed.limit(dstOff + originalLen);
+    decompressed.position(dstOff);
+    checksum.reset();
+    checksum.update(decompressed);
+    if ((int) checksum.getValue() != check) {
+      logger.error("Checksum not equal! expected: {}, actual: {}.", check, checksum.getValue());
+      return -1;
+    }
+    return originalLen;
+  }
+
+  private int decompressZstd(
+      ByteBuffer src, int srcOff, int srcLen, ByteBuffer dst, int dstOff, int dstLen) {
+    if (src.isDirect() && dst.isDirect()) {
+      return (int) Zstd.decompressDirectByteBuffer(dst, dstOff, dstLen, src, srcOff, srcLen);
+    }
+    if (src.hasArray() && dst.hasArray()) {
+      return (int)
+          Zstd.decompressByteArray(
+              dst.array(),
+              dst.arrayOffset() + dstOff,
+              dstLen,
+              src.array(),
+              src.arrayOffset() + srcOff,
+              srcLen);
+    }
+    // zstd-jni can't mix direct and heap buffers, which only happens for unusual callers
+    byte[] compressed = new byte[srcLen];
+    ByteBuffer from = src.duplicate();
+    from.position(srcOff);
+    from.get(compressed);
+    byte[] original = new byte[dstLen];
+    int originalLen = (int) Zstd.decompressByteArray(original, 0, dstLen, compressed, 0, srcLen);
+    if (originalLen == dstLen) {
+      copyRaw(ByteBuffer.wrap(original), 0, dst, dstOff, dstLen);
+    }
+    return originalLen;
+  }
 }
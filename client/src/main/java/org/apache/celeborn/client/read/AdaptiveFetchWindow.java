@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.celeborn.client.read;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Number of chunk fetch requests a reader may have in flight, adapted to the observed round trip
+ * time of the chunks. Like the BBR congestion control, the minimum round trip time of a recent
+ * period is taken as the latency of an idle worker: while chunks keep arriving close to it, the
+ * window grows by one per window of chunks; once they take much longer, the worker (or its disk, or
+ * its memory limit on sending) is saturated and the window is halved.
+ */
+class AdaptiveFetchWindow {
+  // round trips up to this ratio of the minimum count as flat latency
+  static final double FLAT_RTT_RATIO = 1.25;
+  // round trips beyond this ratio of the minimum count as a saturated worker
+  static final double SLOW_RTT_RATIO = 2.0;
+  static final long MIN_RTT_EXPIRE_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+  private final int minWindow;
+  private final int maxWindow;
+  private volatile int window;
+
+  private long minRttNanos = Long.MAX_VALUE;
+  private long minRttTimestamp;
+  private int chunksSinceUpdate;
+
+  AdaptiveFetchWindow(int initialWindow, int minWindow, int maxWindow) {
+    this.minWindow = minWindow;
+    this.maxWindow = Math.max(minWindow, maxWindow);
+    this.window = Math.min(Math.max(initialWindow, minWindow), this.maxWindow);
+  }
+
+  int get() {
+    return window;
+  }
+
+  /**
+   * Records the round trip of a fetched chunk.
+   *
+   * @param consumerBehind whether enough chunks are queued already, in which case the reader is
+   *     bound by its consumer rather than by the window, and the window is not widened.
+   */
+  synchronized void onChunkFetched(long rttNanos, long nowNanos, boolean consumerBehind) {
+    if (rttNanos <= minRttNanos || nowNanos - minRttTimestamp > MIN_RTT_EXPIRE_NANOS) {
+      minRttNanos = rttNanos;
+      minRttTimestamp = nowNanos;
+    }
+    chunksSinceUpdate++;
+    if (chunksSinceUpdate < window) {
+      return;
+    }
+    if (rttNanos > minRttNanos * SLOW_RTT_RATIO) {
+      window = Math.max(minWindow, window / 2);
+      chunksSinceUpdate = 0;
+    } else if (rttNanos <= minRttNanos * FLAT_RTT_RATIO && !consumerBehind) {
+      window = Math.min(maxWindow, window + 1);
+      chunksSinceUpdate = 0;
+    }
+  }
+}
@@ -19,8 +19,13 @@ package org.apache.celeborn.client.read;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.LongAdder;
@@ -40,6 +45,7 @@ import org.apache.celeborn.common.protocol.CompressionCodec;
 import org.apache.celeborn.common.protocol.PartitionLocation;
 import org.apache.celeborn.common.protocol.StorageInfo;
 import org.apache.celeborn.common.protocol.TransportModuleConstants;
+import org.apache.celeborn.common.read.BatchDeduplicator;
 import org.apache.celeborn.common.unsafe.Platform;
 import org.apache.celeborn.common.util.Utils;
 
@@ -55,7 +61,9 @@ public abstract class CelebornInputStream extends InputStream {
       int attemptNumber,
       int startMapIndex,
       int endMapIndex,
-      ConcurrentHashMap<String, Long> fetchExcludedWorkers)
+      ConcurrentHashMap<String, Long> fetchExcludedWorkers,
+      ExecutorService prefetchPool,
+      DfsReadScheduler dfsReadScheduler)
       throws IOException {
     if (locations == null || locations.length == 0) {
       return emptyInputStream;
@@ -69,7 +77,9 @@ public abstract class CelebornInputStream extends InputStream {
           attemptNumber,
           startMapIndex,
           endMapIndex,
-          fetchExcludedWorkers);
+          fetchExcludedWorkers,
+          prefetchPool,
+          dfsReadScheduler);
     }
   }
 
@@ -107,10 +117,24 @@ public abstract class CelebornInputStream extends InputStream {
     private final int startMapIndex;
     private final int endMapIndex;
 
-    private final Map<Integer, Set<Integer>> batchesRead = new HashMap<>();
-
-    private byte[] compressedBuf;
-    private byte[] rawDataBuf;
+    // null if the locations to read can't contain duplicated batches, see requireDeduplication
+    private final BatchDeduplicator batchDeduplicator;
+    // Without deduplication, a retried reader replays the same file from the beginning, so the
+    // batches consumed before the retry are skipped by position instead.
+    private long batchesConsumed = 0;
+    private long batchesSeenByReader = 0;
+
+    private static final ByteBuffer EMPTY_BUFFER = ByteBuffer.allocate(0);
+
+    private final int blockSize;
+    // The data of the batch being read, which is a slice of currentChunk (or of compressedBuf) if
+    // compression is off, or decompressedBuf otherwise.
+    private ByteBuffer rawData = EMPTY_BUFFER;
+    // Reused copy of a batch that can't be read in place, e.g. because it spans the components of
+    // a composite chunk. Same kind as decompressedBuf if compression is on.
+    private ByteBuffer compressedBuf;
+    // Direct or heap, as decided by the first chunk, for the life of the stream.
+    private ByteBuffer decompressedBuf;
     private Decompressor decompressor;
 
     private ByteBuf currentChunk;
@@ -119,8 +143,6 @@ public abstract class CelebornInputStream extends InputStream {
     private int fetchChunkRetryCnt = 0;
     int retryWaitMs;
     private int fileIndex;
-    private int position;
-    private int limit;
 
     private MetricsCallback callback;
 
@@ -136,6 +158,16 @@ public abstract class CelebornInputStream extends InputStream {
     private long fetchExcludedWorkerExpireTimeout;
     private final ConcurrentHashMap<String, Long> fetchExcludedWorkers;
 
+    // Look-ahead of the locations after the current one, null if disabled.
+    private final ExecutorService prefetchPool;
+    private final DfsReadScheduler dfsReadScheduler;
+    private final int prefetchLocations;
+    private final int prefetchMaxChunks;
+    private final int fetchMaxReqsInFlight;
+    private final ArrayDeque<PrefetchedReader> prefetchedReaders = new ArrayDeque<>();
+    private int prefetchIndex;
+    private int prefetchChunksGranted;
+
     CelebornInputStreamImpl(
         CelebornConf conf,
         TransportClientFactory clientFactory,
@@ -145,7 +177,9 @@ public abstract class CelebornInputStream extends InputStream {
         int attemptNumber,
         int startMapIndex,
         int endMapIndex,
-        ConcurrentHashMap<String, Long> fetchExcludedWorkers)
+        ConcurrentHashMap<String, Long> fetchExcludedWorkers,
+        ExecutorService prefetchPool,
+        DfsReadScheduler dfsReadScheduler)
         throws IOException {
       this.conf = conf;
       this.clientFactory = clientFactory;
@@ -162,16 +196,17 @@ public abstract class CelebornInputStream extends InputStream {
           !conf.shuffleCompressionCodec().equals(CompressionCodec.NONE);
       this.fetchExcludedWorkerExpireTimeout = conf.clientFetchExcludedWorkerExpireTimeout();
       this.fetchExcludedWorkers = fetchExcludedWorkers;
-
-      int blockSize = conf.clientPushBufferMaxSize();
+      this.prefetchLocations = conf.clientFetchPrefetchLocations();
+      this.prefetchPool = prefetchLocations > 0 ? prefetchPool : null;
+      this.dfsReadScheduler = dfsReadScheduler;
+      this.prefetchMaxChunks =
+          (int) Math.max(1, conf.clientFetchPrefetchMaxBytes() / conf.shuffleChunkSize());
+      this.fetchMaxReqsInFlight = conf.clientFetchMaxReqsInFlight();
+
+      blockSize = conf.clientPushBufferMaxSize();
       if (shuffleCompressionEnabled) {
-        int headerLen = Decompressor.getCompressionHeaderLength(conf);
-        blockSize += headerLen;
-        compressedBuf = new byte[blockSize];
-
         decompressor = Decompressor.getDecompressor(conf);
       }
-      rawDataBuf = new byte[blockSize];
 
       if (conf.clientPushReplicateEnabled()) {
         fetchChunkMaxRetry = conf.clientFetchMaxRetriesForEachReplica() * 2;
@@ -181,9 +216,28 @@ public abstract class CelebornInputStream extends InputStream {
       TransportConf transportConf =
           Utils.fromCelebornConf(conf, TransportModuleConstants.DATA_MODULE, 0);
       retryWaitMs = transportConf.ioRetryWaitTimeMs();
+      batchDeduplicator = requireDeduplication() ? new BatchDeduplicator(attempts.length) : null;
       moveToNextReader();
     }
 
+    /**
+     * Duplicated batches come from pushes retried to a revived location, which are read as another
+     * location, or from switching to the peer replica, whose batches are in a different order. When
+     * at most one location without peer is read, neither can happen, and the batches replayed by a
+     * retried reader are skipped by position.
+     */
+    private boolean requireDeduplication() {
+      int locationsToRead = 0;
+      for (PartitionLocation location : locations) {
+        if (!skipLocation(startMapIndex, endMapIndex, location)) {
+          if (location.hasPeer() || ++locationsToRead > 1) {
+            return true;
+          }
+        }
+      }
+      return false;
+    }
+
     private boolean skipLocation(int startMapIndex, int endMapIndex, PartitionLocation location) {
       if (!rangeReadFilter) {
         return false;
@@ -232,7 +286,7 @@ public abstract class CelebornInputStream extends InputStream {
       if (currentLocation == null) {
         return;
       }
-      currentReader = createReaderWithRetry(currentLocation);
+      currentReader = openReader(currentLocation);
       fileIndex++;
       while (!currentReader.hasNext()) {
         currentReader.close();
@@ -241,12 +295,103 @@ public abstract class CelebornInputStream extends InputStream {
         if (currentLocation == null) {
           return;
         }
-        currentReader = createReaderWithRetry(currentLocation);
+        currentReader = openReader(currentLocation);
         fileIndex++;
       }
       currentChunk = getNextChunk();
     }
 
+    private PartitionReader openReader(PartitionLocation location) throws IOException {
+      PartitionReader reader = takePrefetchedReader();
+      if (reader == null) {
+        reader = createReaderWithRetry(location);
+      }
+      reader.setCallback(callback);
+      schedulePrefetch();
+      return reader;
+    }
+
+    /** Returns the prefetched reader of the location at fileIndex, or null if there is none. */
+    private PartitionReader takePrefetchedReader() throws IOException {
+      PrefetchedReader prefetched = prefetchedReaders.peek();
+      if (prefetched == null || prefetched.fileIndex != fileIndex) {
+        return null;
+      }
+      prefetchedReaders.poll();
+      // the chunks of the reader become part of the fetch window of the current reader
+      prefetchChunksGranted -= prefetched.chunks;
+      try {
+        return prefetched.reader.get();
+      } catch (ExecutionException e) {
+        logger.warn(
+            "Prefetch location {} failed, create the reader again.",
+            prefetched.location,
+            e.getCause());
+        return null;
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new CelebornIOException("Interrupted while waiting for prefetched reader", e);
+      }
+    }
+
+    /**
+     * Opens the readers of the next prefetchLocations locations after the one at fileIndex in the
+     * background, and grants them chunks to fetch in advance as long as the budget of the stream
+     * allows. Locations on DFS are read on demand, since their readers fetch on their own.
+     */
+    private void schedulePrefetch() {
+      if (prefetchPool == null) {
+        return;
+      }
+      prefetchIndex = Math.max(prefetchIndex, fileIndex + 1);
+      while (prefetchedReaders.size() < prefetchLocations && prefetchIndex < locations.length) {
+        PartitionLocation location = locations[prefetchIndex];
+        StorageInfo.Type type = location.getStorageInfo().getType();
+        if ((type == StorageInfo.Type.MEMORY
+                || type == StorageInfo.Type.HDD
+                || type == StorageInfo.Type.SSD)
+            && !skipLocation(startMapIndex, endMapIndex, location)) {
+          int chunks = Math.min(fetchMaxReqsInFlight, prefetchMaxChunks - prefetchChunksGranted);
+          prefetchChunksGranted += chunks;
+          CompletableFuture<PartitionReader> reader =
+              CompletableFuture.supplyAsync(() -> prefetchReader(location, chunks), prefetchPool);
+          prefetchedReaders.add(new PrefetchedReader(prefetchIndex, location, chunks, reader));
+        }
+        prefetchIndex++;
+      }
+    }
+
+    private PartitionReader prefetchReader(PartitionLocation location, int chunks) {
+      PartitionReader reader = null;
+      try {
+        if (isExcluded(location)) {
+          throw new CelebornIOException("Fetch data from excluded worker! " + location);
+        }
+        reader = createReader(location, 0, fetchChunkMaxRetry);
+        if (chunks > 0) {
+          reader.prefetch(chunks);
+        }
+        return reader;
+      } catch (Exception e) {
+        if (reader != null) {
+          reader.close();
+        }
+        throw new CompletionException(e);
+      }
+    }
+
+    private void closePrefetchedReaders() {
+      for (PrefetchedReader prefetched : prefetchedReaders) {
+        prefetched.reader.whenComplete(
+            (reader, e) -> {
+              if (reader != null) {
+                reader.close();
+              }
+            });
+      }
+      prefetchedReaders.clear();
+    }
+
     private void excludeFailedLocation(PartitionLocation location, Exception e) {
       if (pushReplicateEnabled && fetchExcludeWorkerOnFailureEnabled && isCriticalCause(e)) {
         fetchExcludedWorkers.put(location.hostAndFetchPort(), System.currentTimeMillis());
@@ -372,6 +517,8 @@ public abstract class CelebornInputStream extends InputStream {
               Uninterruptibles.sleepUninterruptibly(retryWaitMs, TimeUnit.MILLISECONDS);
               currentReader = createReaderWithRetry(currentReader.getLocation());
             }
+            currentReader.setCallback(callback);
+            batchesSeenByReader = 0;
           }
         }
       }
@@ -392,7 +539,8 @@ public abstract class CelebornInputStream extends InputStream {
       logger.debug("create reader for location {}", location);
 
       StorageInfo storageInfo = location.getStorageInfo();
-      if (storageInfo.getType() == StorageInfo.Type.HDD
+      if (storageInfo.getType() == StorageInfo.Type.MEMORY
+          || storageInfo.getType() == StorageInfo.Type.HDD
           || storageInfo.getType() == StorageInfo.Type.SSD) {
         return new WorkerPartitionReader(
             conf,
@@ -404,9 +552,16 @@ public abstract class CelebornInputStream extends InputStream {
             fetchChunkRetryCnt,
             fetchChunkMaxRetry);
       }
-      if (storageInfo.getType() == StorageInfo.Type.HDFS) {
+      if (storageInfo.getType() == StorageInfo.Type.HDFS
+          || storageInfo.getType() == StorageInfo.Type.OSS) {
         return new DfsPartitionReader(
-            conf, shuffleKey, location, clientFactory, startMapIndex, endMapIndex);
+            conf,
+            shuffleKey,
+            location,
+            clientFactory,
+            dfsReadScheduler,
+            startMapIndex,
+            endMapIndex);
       }
 
       throw new CelebornIOException(
@@ -416,26 +571,25 @@ public abstract class CelebornInputStream extends InputStream {
     public void setCallback(MetricsCallback callback) {
       // callback must set before read()
       this.callback = callback;
+      if (currentReader != null) {
+        currentReader.setCallback(callback);
+      }
     }
 
     @Override
     public int read() throws IOException {
-      if (position < limit) {
-        int b = rawDataBuf[position];
-        position++;
-        return b & 0xFF;
+      if (rawData.hasRemaining()) {
+        return rawData.get() & 0xFF;
       }
 
       if (!fillBuffer()) {
         return -1;
       }
 
-      if (position >= limit) {
+      if (!rawData.hasRemaining()) {
         return read();
       } else {
-        int b = rawDataBuf[position];
-        position++;
-        return b & 0xFF;
+        return rawData.get() & 0xFF;
       }
     }
 
@@ -451,15 +605,14 @@ public abstract class CelebornInputStream extends InputStream {
 
       int readBytes = 0;
       while (readBytes < len) {
-        while (position >= limit) {
+        while (!rawData.hasRemaining()) {
           if (!fillBuffer()) {
             return readBytes > 0 ? readBytes : -1;
           }
         }
 
-        int bytesToRead = Math.min(limit - position, len - readBytes);
-        System.arraycopy(rawDataBuf, position, b, off + readBytes, bytesToRead);
-        position += bytesToRead;
+        int bytesToRead = Math.min(rawData.remaining(), len - readBytes);
+        rawData.get(b, off + readBytes, bytesToRead);
         readBytes += bytesToRead;
       }
 
@@ -474,6 +627,7 @@ public abstract class CelebornInputStream extends InputStream {
           locationsCount,
           locationsCount - skipCount.sum(),
           skipCount.sum());
+      rawData = EMPTY_BUFFER;
       if (currentChunk != null) {
         logger.debug("Release chunk {}", currentChunk);
         currentChunk.release();
@@ -484,6 +638,7 @@ public abstract class CelebornInputStream extends InputStream {
         currentReader.close();
         currentReader = null;
       }
+      closePrefetchedReaders();
     }
 
     private boolean moveToNextChunk() throws IOException {
@@ -519,44 +674,27 @@ public abstract class CelebornInputStream extends InputStream {
         int attemptId = Platform.getInt(sizeBuf, Platform.BYTE_ARRAY_OFFSET + 4);
         int batchId = Platform.getInt(sizeBuf, Platform.BYTE_ARRAY_OFFSET + 8);
         int size = Platform.getInt(sizeBuf, Platform.BYTE_ARRAY_OFFSET + 12);
-
-        if (shuffleCompressionEnabled) {
-          if (size > compressedBuf.length) {
-            compressedBuf = new byte[size];
-          }
-
-          currentChunk.readBytes(compressedBuf, 0, size);
-        } else {
-          if (size > rawDataBuf.length) {
-            rawDataBuf = new byte[size];
-          }
-
-          currentChunk.readBytes(rawDataBuf, 0, size);
-        }
+        int batchIndex = currentChunk.readerIndex();
+        currentChunk.skipBytes(size);
 
         // de-duplicate
+        boolean replayed = isReplayedBatch();
         if (attemptId == attempts[mapId]) {
-          if (!batchesRead.containsKey(mapId)) {
-            Set<Integer> batchSet = new HashSet<>();
-            batchesRead.put(mapId, batchSet);
-          }
-          Set<Integer> batchSet = batchesRead.get(mapId);
-          if (!batchSet.contains(batchId)) {
-            batchSet.add(batchId);
+          if (!replayed && (batchDeduplicator == null || batchDeduplicator.add(mapId, batchId))) {
             if (callback != null) {
               callback.incBytesRead(BATCH_HEADER_SIZE + size);
             }
+            ByteBuffer batch = getBatch(batchIndex, size);
             if (shuffleCompressionEnabled) {
               // decompress data
-              int originalLength = decompressor.getOriginalLen(compressedBuf);
-              if (rawDataBuf.length < originalLength) {
-                rawDataBuf = new byte[originalLength];
-              }
-              limit = decompressor.decompress(compressedBuf, rawDataBuf, 0);
+              int originalLength = decompressor.getOriginalLen(batch);
+              ByteBuffer target = getDecompressedBuf(originalLength);
+              int decompressedLength = decompressor.decompress(batch, target);
+              target.limit(Math.max(decompressedLength, 0));
+              rawData = target;
             } else {
-              limit = size;
+              rawData = batch;
             }
-            position = 0;
             hasData = true;
             break;
           } else {
@@ -574,5 +712,72 @@ public abstract class CelebornInputStream extends InputStream {
       }
       return hasData;
     }
+
+    /**
+     * Returns the batch at index of currentChunk, read in place if the chunk is a single buffer of
+     * the kind decompressed from, which stays alive until rawData is drained, or copied into
+     * compressedBuf otherwise.
+     */
+    private ByteBuffer getBatch(int index, int size) {
+      boolean direct = shuffleCompressionEnabled && isDirectStream();
+      if (currentChunk.nioBufferCount() == 1
+          && (!shuffleCompressionEnabled || currentChunk.isDirect() == direct)) {
+        return currentChunk.nioBuffer(index, size);
+      }
+      if (compressedBuf == null || compressedBuf.capacity() < size) {
+        int capacity = Math.max(blockSize, size);
+        compressedBuf =
+            direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+      }
+      compressedBuf.clear().limit(size);
+      currentChunk.getBytes(index, compressedBuf);
+      compressedBuf.flip();
+      return compressedBuf;
+    }
+
+    private boolean isDirectStream() {
+      return decompressedBuf == null ? currentChunk.isDirect() : decompressedBuf.isDirect();
+    }
+
+    private ByteBuffer getDecompressedBuf(int length) {
+      if (decompressedBuf == null || decompressedBuf.capacity() < length) {
+        boolean direct = isDirectStream();
+        int capacity = Math.max(blockSize, length);
+        decompressedBuf =
+            direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+      }
+      decompressedBuf.clear();
+      return decompressedBuf;
+    }
+
+    private boolean isReplayedBatch() {
+      if (batchDeduplicator != null) {
+        return false;
+      }
+      batchesSeenByReader++;
+      if (batchesSeenByReader <= batchesConsumed) {
+        return true;
+      }
+      batchesConsumed++;
+      return false;
+    }
+
+    private static class PrefetchedReader {
+      final int fileIndex;
+      final PartitionLocation location;
+      final int chunks;
+      final CompletableFuture<PartitionReader> reader;
+
+      PrefetchedReader(
+          int fileIndex,
+          PartitionLocation location,
+          int chunks,
+          CompletableFuture<PartitionReader> reader) {
+        this.fileIndex = fileIndex;
+        this.location = location;
+        this.chunks = chunks;
+        this.reader = reader;
+      }
+    }
   }
 }
@@ -17,12 +17,14 @@
 
 package org.apache.celeborn.client.read;
 
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 
 import io.netty.buffer.ByteBuf;
@@ -39,40 +41,78 @@ import org.apache.celeborn.common.network.client.TransportClient;
 import org.apache.celeborn.common.network.client.TransportClientFactory;
 import org.apache.celeborn.common.network.protocol.Message;
 import org.apache.celeborn.common.network.protocol.OpenStream;
+import org.apache.celeborn.common.oss.ObjectStore;
 import org.apache.celeborn.common.protocol.PartitionLocation;
+import org.apache.celeborn.common.protocol.StorageInfo;
 import org.apache.celeborn.common.util.ShuffleBlockInfoUtils;
+import org.apache.celeborn.common.util.ShuffleBlockInfoUtils.ShuffleBlockInfo;
 import org.apache.celeborn.common.util.Utils;
 
+/**
+ * Reads the chunks of a location stored on HDFS or on the object store. The reads are run by the
+ * threads of the {@link DfsReadScheduler} shared by all the readers, one read of the location at a
+ * time: each read covers the chunks which fit in the fetch window and which the {@link
+ * DfsReadPlanner} groups together, and is sliced into the chunks without copying. The next read is
+ * scheduled once a chunk is consumed, so a full window doesn't hold any thread.
+ *
+ * <p>Each read of an object is a single ranged read. Objects are not sorted, so the range reads of
+ * an object read the blocks of the map ids out of the block index written along with it.
+ */
 public class DfsPartitionReader implements PartitionReader {
   private static Logger logger = LoggerFactory.getLogger(DfsPartitionReader.class);
+  // queued after the chunks read so far when a read fails, to wake up the consumer
+  private final ByteBuf readFailed = Unpooled.buffer(0);
   PartitionLocation location;
+  private final CelebornConf conf;
+  private final DfsReadScheduler scheduler;
   private final int shuffleChunkSize;
   private final int fetchMaxReqsInFlight;
   private final LinkedBlockingQueue<ByteBuf> results;
   private final AtomicReference<IOException> exception = new AtomicReference<>();
+  private final String dataFilePath;
+  // null if the location is stored on HDFS
+  private final ObjectStore objectStore;
   private volatile boolean closed = false;
-  private Thread fetchThread;
   private FSDataInputStream hdfsInputStream;
+  private long[] chunkStarts = new long[0];
+  private long[] chunkEnds = new long[0];
   private int numChunks = 0;
   private int returnedChunks = 0;
-  private int currentChunkIndex = 0;
+  // guarded by this
+  private int nextChunkToRead = 0;
+  private boolean reading = false;
 
   public DfsPartitionReader(
       CelebornConf conf,
       String shuffleKey,
       PartitionLocation location,
       TransportClientFactory clientFactory,
+      DfsReadScheduler scheduler,
       int startMapIndex,
       int endMapIndex)
       throws IOException {
+    this.conf = conf;
+    this.scheduler = scheduler;
     shuffleChunkSize = (int) conf.shuffleChunkSize();
     fetchMaxReqsInFlight = conf.clientFetchMaxReqsInFlight();
     results = new LinkedBlockingQueue<>();
 
     this.location = location;
 
-    final List<Long> chunkOffsets = new ArrayList<>();
-    if (endMapIndex != Integer.MAX_VALUE) {
+    final List<ShuffleBlockInfo> chunks;
+    String filePath = location.getStorageInfo().getFilePath();
+    if (location.getStorageInfo().getType() == StorageInfo.Type.OSS) {
+      objectStore = ShuffleClient.getObjectStore(conf);
+      dataFilePath = filePath;
+      if (endMapIndex != Integer.MAX_VALUE) {
+        chunks =
+            getChunksFromBlockIndex(
+                Utils.getShuffleBlockIndexFilePath(filePath), startMapIndex, endMapIndex);
+      } else {
+        chunks = getChunksFromUnsortedIndex(conf, location);
+      }
+    } else if (endMapIndex != Integer.MAX_VALUE) {
+      objectStore = null;
       long fetchTimeoutMs = conf.clientFetchTimeoutMs();
       try {
         TransportClient client =
@@ -88,115 +128,188 @@ public class DfsPartitionReader implements PartitionReader {
                 + location.getStorageInfo().getFilePath(),
             e);
       }
-      hdfsInputStream =
-          ShuffleClient.getHdfsFs(conf)
-              .open(new Path(Utils.getSortedFilePath(location.getStorageInfo().getFilePath())));
-      chunkOffsets.addAll(
-          getChunkOffsetsFromSortedIndex(conf, location, startMapIndex, endMapIndex));
+      dataFilePath = Utils.getSortedFilePath(filePath);
+      chunks =
+          getChunksFromBlockIndex(Utils.getIndexFilePath(filePath), startMapIndex, endMapIndex);
     } else {
-      hdfsInputStream =
-          ShuffleClient.getHdfsFs(conf).open(new Path(location.getStorageInfo().getFilePath()));
-      chunkOffsets.addAll(getChunkOffsetsFromUnsortedIndex(conf, location));
-    }
-    logger.debug(
-        "DFS {} index count:{} offsets:{}",
-        location.getStorageInfo().getFilePath(),
-        chunkOffsets.size(),
-        chunkOffsets);
-    if (chunkOffsets.size() > 1) {
-      numChunks = chunkOffsets.size() - 1;
-      fetchThread =
-          new Thread(
-              () -> {
-                try {
-                  while (!closed && currentChunkIndex < numChunks) {
-                    while (results.size() >= fetchMaxReqsInFlight) {
-                      Thread.sleep(50);
-                    }
-                    long offset = chunkOffsets.get(currentChunkIndex);
-                    long length = chunkOffsets.get(currentChunkIndex + 1) - offset;
-                    logger.debug("read {} offset {} length {}", currentChunkIndex, offset, length);
-                    byte[] buffer = new byte[(int) length];
-                    try {
-                      hdfsInputStream.readFully(offset, buffer);
-                    } catch (IOException e) {
-                      logger.warn(
-                          "read HDFS {} failed will retry, error detail {}",
-                          location.getStorageInfo().getFilePath(),
-                          e);
-                      try {
-                        hdfsInputStream.close();
-                        hdfsInputStream =
-                            ShuffleClient.getHdfsFs(conf)
-                                .open(
-                                    new Path(
-                                        Utils.getSortedFilePath(
-                                            location.getStorageInfo().getFilePath())));
-                        hdfsInputStream.readFully(offset, buffer);
-                      } catch (IOException ex) {
-                        logger.warn(
-                            "retry read HDFS {} failed, error detail {} ",
-                            location.getStorageInfo().getFilePath(),
-                            e);
-                        exception.set(ex);
-                        break;
-                      }
-                    }
-                    results.put(Unpooled.wrappedBuffer(buffer));
-                    logger.debug("add index {} to results", currentChunkIndex++);
-                  }
-                } catch (Exception e) {
-                  logger.warn("Fetch thread is cancelled.", e);
-                  // cancel a task for speculative, ignore this exception
-                }
-                logger.debug("fetch {} is done.", location.getStorageInfo().getFilePath());
-              },
-              "Dfs-fetch-thread" + location.getStorageInfo().getFilePath());
-      fetchThread.setUncaughtExceptionHandler(
-          new Thread.UncaughtExceptionHandler() {
-            @Override
-            public void uncaughtException(Thread t, Throwable e) {
-              logger.error("thread {} failed with exception {}", t, e);
-            }
-          });
-      fetchThread.start();
+      objectStore = null;
+      dataFilePath = filePath;
+      chunks = getChunksFromUnsortedIndex(conf, location);
+    }
+    if (objectStore == null) {
+      hdfsInputStream = ShuffleClient.getHdfsFs(conf).open(new Path(dataFilePath));
+    }
+    logger.debug("DFS {} chunk count:{}", filePath, chunks.size());
+    if (!chunks.isEmpty()) {
+      numChunks = chunks.size();
+      chunkStarts = new long[numChunks];
+      chunkEnds = new long[numChunks];
+      for (int i = 0; i < numChunks; i++) {
+        chunkStarts[i] = chunks.get(i).offset;
+        chunkEnds[i] = chunks.get(i).offset + chunks.get(i).length;
+      }
+      maybeScheduleRead();
       logger.debug("Start dfs read on location {}", location);
     }
   }
 
-  private List<Long> getChunkOffsetsFromUnsortedIndex(CelebornConf conf, PartitionLocation location)
-      throws IOException {
-    FSDataInputStream indexInputStream =
-        ShuffleClient.getHdfsFs(conf)
-            .open(new Path(Utils.getIndexFilePath(location.getStorageInfo().getFilePath())));
-    List<Long> offsets = new ArrayList<>();
-    int offsetCount = indexInputStream.readInt();
-    for (int i = 0; i < offsetCount; i++) {
-      offsets.add(indexInputStream.readLong());
+  /**
+   * Schedules the read of the next chunks if no read is running and the window of chunks read ahead
+   * of the consumer isn't full.
+   */
+  private synchronized void maybeScheduleRead() {
+    if (closed || reading || nextChunkToRead >= numChunks || exception.get() != null) {
+      return;
     }
-    indexInputStream.close();
-    return offsets;
+    int window = fetchMaxReqsInFlight - (nextChunkToRead - returnedChunks);
+    if (window <= 0) {
+      return;
+    }
+    int start = nextChunkToRead;
+    int end = scheduler.planner.planRead(chunkStarts, chunkEnds, start, window);
+    nextChunkToRead = end;
+    reading = true;
+    scheduler.submit(() -> readChunks(start, end));
   }
 
-  private List<Long> getChunkOffsetsFromSortedIndex(
-      CelebornConf conf, PartitionLocation location, int startMapIndex, int endMapIndex)
-      throws IOException {
+  private void readChunks(int start, int end) {
+    long offset = chunkStarts[start];
+    int length = (int) (chunkEnds[end - 1] - offset);
+    logger.debug("read chunks [{}, {}) offset {} length {}", start, end, offset, length);
+    List<ByteBuf> chunks = new ArrayList<>(end - start);
+    ByteBuf buffer = scheduler.allocate(length);
+    try {
+      readFully(offset, buffer, length);
+      for (int i = start; i < end; i++) {
+        chunks.add(DfsReadPlanner.slice(buffer, offset, chunkStarts[i], chunkEnds[i]));
+      }
+    } catch (IOException e) {
+      if (!closed) {
+        logger.warn("retry read HDFS {} failed, error detail {} ", dataFilePath, e);
+        exception.set(e);
+        results.add(readFailed);
+      }
+    } catch (Throwable t) {
+      logger.error("read HDFS {} failed.", dataFilePath, t);
+      exception.set(new IOException(t));
+      results.add(readFailed);
+    } finally {
+      buffer.release();
+    }
+    synchronized (this) {
+      reading = false;
+      if (closed) {
+        chunks.forEach(ReferenceCounted::release);
+        return;
+      }
+      results.addAll(chunks);
+    }
+    logger.debug("add chunks [{}, {}) to results", start, end);
+    maybeScheduleRead();
+  }
+
+  private void readFully(long offset, ByteBuf buffer, int length) throws IOException {
+    if (objectStore != null) {
+      readObjectFully(offset, buffer, length);
+      return;
+    }
+    try {
+      hdfsInputStream.readFully(offset, buffer.array(), buffer.arrayOffset(), length);
+    } catch (IOException e) {
+      if (closed) {
+        throw e;
+      }
+      logger.warn("read HDFS {} failed will retry, error detail {}", dataFilePath, e);
+      FSDataInputStream reopened = ShuffleClient.getHdfsFs(conf).open(new Path(dataFilePath));
+      synchronized (this) {
+        closeInputStream();
+        hdfsInputStream = reopened;
+        if (closed) {
+          closeInputStream();
+          throw e;
+        }
+      }
+      reopened.readFully(offset, buffer.array(), buffer.arrayOffset(), length);
+    }
+    buffer.writerIndex(length);
+  }
+
+  private void readObjectFully(long offset, ByteBuf buffer, int length) throws IOException {
+    try {
+      objectStore.readObject(dataFilePath, offset, buffer.array(), buffer.arrayOffset(), length);
+    } catch (IOException e) {
+      if (closed) {
+        throw e;
+      }
+      logger.warn("read object {} failed will retry, error detail {}", dataFilePath, e);
+      objectStore.readObject(dataFilePath, offset, buffer.array(), buffer.arrayOffset(), length);
+    }
+    buffer.writerIndex(length);
+  }
+
+  private List<ShuffleBlockInfo> getChunksFromUnsortedIndex(
+      CelebornConf conf, PartitionLocation location) throws IOException {
     String indexPath = Utils.getIndexFilePath(location.getStorageInfo().getFilePath());
-    FSDataInputStream indexInputStream = ShuffleClient.getHdfsFs(conf).open(new Path(indexPath));
-    logger.debug("read sorted index {}", indexPath);
-    long indexSize = ShuffleClient.getHdfsFs(conf).getFileStatus(new Path(indexPath)).getLen();
-    // Index size won't be large, so it's safe to do the conversion.
-    byte[] indexBuffer = new byte[(int) indexSize];
-    indexInputStream.readFully(0L, indexBuffer);
-    List<Long> offsets =
-        new ArrayList<>(
-            ShuffleBlockInfoUtils.getChunkOffsetsFromShuffleBlockInfos(
-                startMapIndex,
-                endMapIndex,
-                shuffleChunkSize,
-                ShuffleBlockInfoUtils.parseShuffleBlockInfosFromByteBuffer(indexBuffer)));
+    DataInputStream indexInputStream =
+        objectStore != null
+            ? new DataInputStream(new ByteArrayInputStream(readIndex(indexPath)))
+            : ShuffleClient.getHdfsFs(conf).open(new Path(indexPath));
+    List<ShuffleBlockInfo> chunks = new ArrayList<>();
+    int offsetCount = indexInputStream.readInt();
+    long offset = offsetCount > 0 ? indexInputStream.readLong() : 0;
+    for (int i = 1; i < offsetCount; i++) {
+      ShuffleBlockInfo chunk = new ShuffleBlockInfo();
+      chunk.offset = offset;
+      offset = indexInputStream.readLong();
+      chunk.length = offset - chunk.offset;
+      chunks.add(chunk);
+    }
     indexInputStream.close();
-    return offsets;
+    return chunks;
+  }
+
+  /** Reads the whole index, which is small enough to fit in an array. */
+  private byte[] readIndex(String indexPath) throws IOException {
+    if (objectStore != null) {
+      byte[] indexBuffer = new byte[(int) objectStore.getObjectLength(indexPath)];
+      objectStore.readObject(indexPath, 0, indexBuffer, 0, indexBuffer.length);
+      return indexBuffer;
+    }
+    try (FSDataInputStream indexInputStream =
+        ShuffleClient.getHdfsFs(conf).open(new Path(indexPath))) {
+      long indexSize = ShuffleClient.getHdfsFs(conf).getFileStatus(new Path(indexPath)).getLen();
+      byte[] indexBuffer = new byte[(int) indexSize];
+      indexInputStream.readFully(0L, indexBuffer);
+      return indexBuffer;
+    }
+  }
+
+  /**
+   * Returns the ranges of the data file holding the blocks of [startMapIndex, endMapIndex), in
+   * chunks of about the shuffle chunk size. The index is the one of the sorted file, or the block
+   * index of an object. The ranges of a chunk which aren't adjacent become chunks of their own, the
+   * reads merge them back if they are close enough.
+   */
+  private List<ShuffleBlockInfo> getChunksFromBlockIndex(
+      String indexPath, int startMapIndex, int endMapIndex) throws IOException {
+    logger.debug("read block index {}", indexPath);
+    byte[] indexBuffer;
+    try {
+      indexBuffer = readIndex(indexPath);
+    } catch (FileNotFoundException e) {
+      throw new FileNotFoundException(
+          "Block index " + indexPath + " needed by the range read of " + location + " not found");
+    }
+    List<ShuffleBlockInfo> chunks = new ArrayList<>();
+    for (List<ShuffleBlockInfo> segments :
+        ShuffleBlockInfoUtils.getChunkSegmentsFromShuffleBlockInfos(
+            startMapIndex,
+            endMapIndex,
+            shuffleChunkSize,
+            ShuffleBlockInfoUtils.parseShuffleBlockInfosFromByteBuffer(indexBuffer))) {
+      chunks.addAll(segments);
+    }
+    return chunks;
   }
 
   @Override
@@ -207,41 +320,44 @@ public class DfsPartitionReader implements PartitionReader {
 
   @Override
   public ByteBuf next() throws IOException, InterruptedException {
-    ByteBuf chunk = null;
+    ByteBuf chunk;
     try {
-      while (chunk == null) {
-        checkException();
-        chunk = results.poll(500, TimeUnit.MILLISECONDS);
-        logger.debug("poll result with result size: {}", results.size());
-      }
+      chunk = results.take();
     } catch (InterruptedException e) {
       logger.error("PartitionReader thread interrupted while fetching data.");
       throw e;
     }
-    returnedChunks++;
-    return chunk;
-  }
-
-  private void checkException() throws IOException {
-    IOException e = exception.get();
-    if (e != null) {
-      throw e;
+    if (chunk == readFailed) {
+      // keep failing on later calls
+      results.add(readFailed);
+      throw exception.get();
+    }
+    synchronized (this) {
+      returnedChunks++;
     }
+    maybeScheduleRead();
+    return chunk;
   }
 
-  @Override
-  public void close() {
-    closed = true;
-    if (fetchThread != null) {
-      fetchThread.interrupt();
+  private void closeInputStream() {
+    if (hdfsInputStream == null) {
+      return;
     }
     try {
       hdfsInputStream.close();
     } catch (IOException e) {
       logger.warn("close HDFS input stream failed.", e);
     }
-    if (results.size() > 0) {
-      results.forEach(ReferenceCounted::release);
+  }
+
+  @Override
+  public synchronized void close() {
+    closed = true;
+    closeInputStream();
+    for (ByteBuf chunk : results) {
+      if (chunk != readFailed) {
+        chunk.release();
+      }
     }
     results.clear();
   }
@@ -0,0 +1,58 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.celeborn.client.read;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * Groups the chunks of a location into reads. A chunk is a range [start, end) of the file, the
+ * chunks being ordered by offset. Consecutive chunks are read together as long as the gap between
+ * two of them is at most maxGap bytes, and the read is at most maxReadSize bytes, the bytes of the
+ * gaps are read and dropped. A single chunk larger than maxReadSize is read on its own.
+ */
+class DfsReadPlanner {
+  private final long maxGap;
+  private final long maxReadSize;
+
+  DfsReadPlanner(long maxGap, long maxReadSize) {
+    this.maxGap = maxGap;
+    this.maxReadSize = maxReadSize;
+  }
+
+  /**
+   * Returns the end (exclusive) of the chunks read together with the chunk {@code from}, taking at
+   * most maxChunks chunks.
+   */
+  int planRead(long[] chunkStarts, long[] chunkEnds, int from, int maxChunks) {
+    int end = from + 1;
+    int limit = (int) Math.min(chunkStarts.length, (long) from + Math.max(maxChunks, 1));
+    while (end < limit) {
+      long gap = chunkStarts[end] - chunkEnds[end - 1];
+      if (gap < 0 || gap > maxGap || chunkEnds[end] - chunkStarts[from] > maxReadSize) {
+        break;
+      }
+      end++;
+    }
+    return end;
+  }
+
+  /** Returns the chunk [start, end) out of the buffer read from readOffset, without copying. */
+  static ByteBuf slice(ByteBuf read, long readOffset, long start, long end) {
+    return read.retainedSlice((int) (start - readOffset), (int) (end - start));
+  }
+}
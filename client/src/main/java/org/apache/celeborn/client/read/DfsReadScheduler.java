@@ -0,0 +1,84 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.celeborn.client.read;
+
+import java.util.concurrent.ExecutorService;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+
+import org.apache.celeborn.common.CelebornConf;
+import org.apache.celeborn.common.util.ThreadUtils;
+
+/**
+ * Threads and buffers shared by all the {@link DfsPartitionReader}s of a shuffle client, so that
+ * the number of threads reading HDFS doesn't grow with the number of locations being read. It is
+ * owned by the shuffle client, which shuts it down.
+ *
+ * <p>The buffers are pooled heap buffers: the positional reads of the Hadoop versions we build
+ * against only fill byte arrays. The thread-local caches of the pool are disabled because the
+ * chunks are released by the task threads rather than by the read threads. The chunks of the pool
+ * are large enough for the largest read, which would otherwise be an unpooled allocation.
+ */
+public class DfsReadScheduler {
+  // the largest order the pooled allocator accepts
+  private static final int MAX_ORDER = 14;
+
+  private final ExecutorService readThreads;
+  final PooledByteBufAllocator allocator;
+  final DfsReadPlanner planner;
+
+  public DfsReadScheduler(CelebornConf conf) {
+    int numThreads = conf.clientFetchDfsReadThreads();
+    readThreads = ThreadUtils.newDaemonCachedThreadPool("celeborn-dfs-reader", numThreads, 60);
+    // a read is up to the max read size, or a single chunk larger than that
+    long maxReadSize = Math.max(conf.clientFetchDfsMaxReadSize(), conf.shuffleChunkSize());
+    int pageSize = PooledByteBufAllocator.defaultPageSize();
+    allocator =
+        new PooledByteBufAllocator(
+            false,
+            Math.min(PooledByteBufAllocator.defaultNumHeapArena(), numThreads),
+            0,
+            pageSize,
+            maxOrder(pageSize, maxReadSize),
+            0,
+            0,
+            false);
+    planner = new DfsReadPlanner(conf.clientFetchDfsMaxReadGap(), conf.clientFetchDfsMaxReadSize());
+  }
+
+  static int maxOrder(int pageSize, long maxReadSize) {
+    int maxOrder = PooledByteBufAllocator.defaultMaxOrder();
+    while (maxOrder < MAX_ORDER && ((long) pageSize << maxOrder) < maxReadSize) {
+      maxOrder++;
+    }
+    return maxOrder;
+  }
+
+  void submit(Runnable read) {
+    readThreads.execute(read);
+  }
+
+  ByteBuf allocate(int length) {
+    return allocator.heapBuffer(length, length);
+  }
+
+  public void shutdown() {
+    readThreads.shutdownNow();
+  }
+}
@@ -17,8 +17,19 @@
 
 package org.apache.celeborn.client.read;
 
+import org.apache.celeborn.common.protocol.PartitionLocation;
+
 public interface MetricsCallback {
   void incBytesRead(long bytesRead);
 
   void incReadTime(long time);
+
+  /**
+   * Time in milliseconds between sending chunk fetch requests and receiving their chunks, which
+   * overlaps when several requests are in flight.
+   */
+  default void incChunkFetchTime(long time) {}
+
+  /** Number of chunk fetch requests the reader of the location may have in flight. */
+  default void updateFetchWindow(PartitionLocation location, int window) {}
 }
@@ -28,6 +28,11 @@ public interface PartitionReader {
 
   ByteBuf next() throws IOException, InterruptedException;
 
+  /** Starts fetching up to maxChunks chunks ahead of the first call to {@link #next()}. */
+  default void prefetch(int maxChunks) throws IOException, InterruptedException {}
+
+  default void setCallback(MetricsCallback callback) {}
+
   void close();
 
   PartitionLocation getLocation();
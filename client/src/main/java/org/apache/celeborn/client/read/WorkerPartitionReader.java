@@ -21,6 +21,7 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
 import io.netty.buffer.ByteBuf;
@@ -58,6 +59,13 @@ public class WorkerPartitionReader implements PartitionReader {
   private final long fetchTimeoutMs;
   private boolean closed = false;
 
+  // null if the fetch window is fixed to fetchMaxReqsInFlight
+  private final AdaptiveFetchWindow adaptiveWindow;
+  private final long[] fetchStartNanos;
+  private final AtomicLong pendingFetchTimeNanos = new AtomicLong();
+  private MetricsCallback metricsCallback;
+  private int reportedWindow;
+
   // for test
   private int fetchChunkRetryCnt;
   private int fetchChunkMaxRetry;
@@ -89,6 +97,7 @@ public class WorkerPartitionReader implements PartitionReader {
                 results.add(buf);
               }
             }
+            onChunkFetched(chunkIndex);
           }
 
           @Override
@@ -109,6 +118,14 @@ public class WorkerPartitionReader implements PartitionReader {
         new OpenStream(shuffleKey, location.getFileName(), startMapIndex, endMapIndex);
     ByteBuffer response = client.sendRpcSync(openBlocks.toByteBuffer(), fetchTimeoutMs);
     streamHandle = (StreamHandle) Message.decode(response);
+    fetchStartNanos = new long[streamHandle.numChunks];
+    if (conf.clientFetchAdaptiveWindowEnabled()) {
+      adaptiveWindow =
+          new AdaptiveFetchWindow(
+              fetchMaxReqsInFlight, 1, conf.clientFetchAdaptiveWindowMaxReqsInFlight());
+    } else {
+      adaptiveWindow = null;
+    }
 
     this.location = location;
     this.clientFactory = clientFactory;
@@ -137,9 +154,55 @@ public class WorkerPartitionReader implements PartitionReader {
       throw e;
     }
     returnedChunks++;
+    reportMetrics();
     return chunk;
   }
 
+  @Override
+  public void setCallback(MetricsCallback callback) {
+    this.metricsCallback = callback;
+  }
+
+  private int fetchWindow() {
+    return adaptiveWindow != null ? adaptiveWindow.get() : fetchMaxReqsInFlight;
+  }
+
+  // called by the threads receiving chunks
+  private void onChunkFetched(int chunkIndex) {
+    long now = System.nanoTime();
+    long rttNanos = now - fetchStartNanos[chunkIndex];
+    pendingFetchTimeNanos.addAndGet(rttNanos);
+    if (adaptiveWindow != null) {
+      adaptiveWindow.onChunkFetched(rttNanos, now, results.size() >= adaptiveWindow.get());
+    }
+  }
+
+  // metrics are reported by the reading thread, as the callback may not be thread safe
+  private void reportMetrics() {
+    if (metricsCallback == null) {
+      return;
+    }
+    long fetchTimeMs = TimeUnit.NANOSECONDS.toMillis(pendingFetchTimeNanos.get());
+    if (fetchTimeMs > 0) {
+      pendingFetchTimeNanos.addAndGet(-TimeUnit.MILLISECONDS.toNanos(fetchTimeMs));
+      metricsCallback.incChunkFetchTime(fetchTimeMs);
+    }
+    int window = fetchWindow();
+    if (window != reportedWindow) {
+      reportedWindow = window;
+      metricsCallback.updateFetchWindow(location, window);
+    }
+  }
+
+  @Override
+  public void prefetch(int maxChunks) throws IOException, InterruptedException {
+    final int toFetch =
+        Math.min(Math.min(maxChunks, fetchWindow()), streamHandle.numChunks) - chunkIndex;
+    for (int i = 0; i < toFetch; i++) {
+      fetchChunk();
+    }
+  }
+
   public void close() {
     synchronized (this) {
       closed = true;
@@ -157,30 +220,35 @@ public class WorkerPartitionReader implements PartitionReader {
 
   private void fetchChunks() throws IOException, InterruptedException {
     final int inFlight = chunkIndex - returnedChunks;
-    if (inFlight < fetchMaxReqsInFlight) {
-      final int toFetch =
-          Math.min(fetchMaxReqsInFlight - inFlight + 1, streamHandle.numChunks - chunkIndex);
+    final int window = fetchWindow();
+    if (inFlight < window) {
+      final int toFetch = Math.min(window - inFlight + 1, streamHandle.numChunks - chunkIndex);
       for (int i = 0; i < toFetch; i++) {
-        if (testFetch && fetchChunkRetryCnt < fetchChunkMaxRetry - 1 && chunkIndex == 3) {
-          callback.onFailure(chunkIndex, new CelebornIOException("Test fetch chunk failure"));
-        } else {
-          try {
-            TransportClient client =
-                clientFactory.createClient(location.getHost(), location.getFetchPort());
-            client.fetchChunk(streamHandle.streamId, chunkIndex, fetchTimeoutMs, callback);
-            chunkIndex++;
-          } catch (IOException e) {
-            logger.error(
-                "fetchChunk for streamId: {}, chunkIndex: {} failed.",
-                streamHandle.streamId,
-                chunkIndex,
-                e);
-            ExceptionUtils.wrapAndThrowIOException(e);
-          } catch (InterruptedException e) {
-            logger.error("PartitionReader thread interrupted while fetching chunks.");
-            throw e;
-          }
-        }
+        fetchChunk();
+      }
+    }
+  }
+
+  private void fetchChunk() throws IOException, InterruptedException {
+    if (testFetch && fetchChunkRetryCnt < fetchChunkMaxRetry - 1 && chunkIndex == 3) {
+      callback.onFailure(chunkIndex, new CelebornIOException("Test fetch chunk failure"));
+    } else {
+      try {
+        TransportClient client =
+            clientFactory.createClient(location.getHost(), location.getFetchPort());
+        fetchStartNanos[chunkIndex] = System.nanoTime();
+        client.fetchChunk(streamHandle.streamId, chunkIndex, fetchTimeoutMs, callback);
+        chunkIndex++;
+      } catch (IOException e) {
+        logger.error(
+            "fetchChunk for streamId: {}, chunkIndex: {} failed.",
+            streamHandle.streamId,
+            chunkIndex,
+            e);
+        ExceptionUtils.wrapAndThrowIOException(e);
+      } catch (InterruptedException e) {
+        logger.error("PartitionReader thread interrupted while fetching chunks.");
+        throw e;
       }
     }
   }
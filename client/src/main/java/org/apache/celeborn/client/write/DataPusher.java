@@ -31,6 +31,7 @@ import java.util.function.Consumer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.apache.celeborn.client.PushContext;
 import org.apache.celeborn.client.ShuffleClient;
 import org.apache.celeborn.common.CelebornConf;
 import org.apache.celeborn.common.exception.CelebornIOException;
@@ -48,12 +49,8 @@ public class DataPusher {
 
   private final AtomicReference<IOException> exceptionRef = new AtomicReference<>();
 
-  private final int shuffleId;
-  private final int mapId;
-  private final int attemptId;
-  private final int numMappers;
-  private final int numPartitions;
   private final ShuffleClient client;
+  private final PushContext pushContext;
   private final Consumer<Integer> afterPush;
 
   private volatile boolean terminated;
@@ -89,12 +86,9 @@ public class DataPusher {
       idleQueue.put(new PushTask(pushBufferMaxSize));
     }
 
-    this.shuffleId = shuffleId;
-    this.mapId = mapId;
-    this.attemptId = attemptId;
-    this.numMappers = numMappers;
-    this.numPartitions = numPartitions;
     this.client = client;
+    this.pushContext =
+        client.createPushContext(shuffleId, mapId, attemptId, numMappers, numPartitions);
     this.afterPush = afterPush;
     this.mapStatusLengths = mapStatusLengths;
 
@@ -195,16 +189,7 @@ public class DataPusher {
 
   private void pushData(PushTask task) throws IOException {
     int bytesWritten =
-        client.pushData(
-            shuffleId,
-            mapId,
-            attemptId,
-            task.getPartitionId(),
-            task.getBuffer(),
-            0,
-            task.getSize(),
-            numMappers,
-            numPartitions);
+        client.pushData(pushContext, task.getPartitionId(), task.getBuffer(), 0, task.getSize());
     afterPush.accept(bytesWritten);
     mapStatusLengths[task.getPartitionId()].add(bytesWritten);
   }
@@ -52,9 +52,10 @@ class ChangePartitionManager(
   private val inBatchPartitions = JavaUtils.newConcurrentHashMap[Int, JSet[Integer]]()
 
   private val batchHandleChangePartitionEnabled = conf.batchHandleChangePartitionEnabled
-  private val batchHandleChangePartitionExecutors = ThreadUtils.newDaemonCachedThreadPool(
+  private val batchHandleChangePartitionExecutors = ThreadUtils.newDaemonBlockingTaskExecutor(
     "celeborn-lifecycle-manager-change-partition-executor",
-    conf.batchHandleChangePartitionNumThreads)
+    conf.batchHandleChangePartitionNumThreads,
+    conf.clientVirtualThreadsEnabled)
   private val batchHandleChangePartitionRequestInterval =
     conf.batchHandleChangePartitionRequestInterval
   private val batchHandleChangePartitionSchedulerThread: Option[ScheduledExecutorService] =
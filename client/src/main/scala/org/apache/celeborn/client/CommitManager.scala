@@ -75,9 +75,10 @@ class CommitManager(appUniqueId: String, val conf: CelebornConf, lifecycleManage
   // shuffle id -> ShuffleCommittedInfo
   private val committedPartitionInfo = new CommittedPartitionInfo
   private val batchHandleCommitPartitionEnabled = conf.batchHandleCommitPartitionEnabled
-  private val batchHandleCommitPartitionExecutors = ThreadUtils.newDaemonCachedThreadPool(
+  private val batchHandleCommitPartitionExecutors = ThreadUtils.newDaemonBlockingTaskExecutor(
     "celeborn-lifecycle-manager-commit-partition-executor",
-    conf.batchHandleCommitPartitionNumThreads)
+    conf.batchHandleCommitPartitionNumThreads,
+    conf.clientVirtualThreadsEnabled)
   private val batchHandleCommitPartitionRequestInterval =
     conf.batchHandleCommitPartitionRequestInterval
   private val batchHandleCommitPartitionSchedulerThread: Option[ScheduledExecutorService] =
@@ -119,7 +120,8 @@ class CommitManager(appUniqueId: String, val conf: CelebornConf, lifecycleManage
                         ThreadUtils.parmap(
                           workerToRequests.to,
                           "CommitFiles",
-                          parallelism) {
+                          parallelism,
+                          conf.clientVirtualThreadsEnabled) {
                           case (worker, requests) =>
                             val workerInfo =
                               lifecycleManager.shuffleAllocatedWorkers
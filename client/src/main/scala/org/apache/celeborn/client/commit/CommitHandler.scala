@@ -199,7 +199,8 @@ abstract class CommitHandler(
     ThreadUtils.parmap(
       workerPartitionLocations.to,
       "CommitFiles",
-      parallelism) { case (worker, partitionLocationInfo) =>
+      parallelism,
+      conf.clientVirtualThreadsEnabled) { case (worker, partitionLocationInfo) =>
       val primaryParts =
         partitionLocationInfo.getPrimaryPartitions(partitionIdOpt)
       val replicaParts = partitionLocationInfo.getReplicaPartitions(partitionIdOpt)
@@ -24,6 +24,7 @@ import static org.mockito.Mockito.when;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
 import io.netty.channel.Channel;
@@ -43,6 +44,8 @@ import org.apache.celeborn.common.protocol.PartitionLocation;
 import org.apache.celeborn.common.protocol.message.ControlMessages.*;
 import org.apache.celeborn.common.protocol.message.StatusCode;
 import org.apache.celeborn.common.rpc.RpcEndpointRef;
+import org.apache.celeborn.common.util.Utils;
+import org.apache.celeborn.common.write.PushState;
 
 public class ShuffleClientSuiteJ {
 
@@ -166,6 +169,71 @@ public class ShuffleClientSuiteJ {
     }
   }
 
+  @Test
+  public void testPushAndMergeDataWithPushContext() throws IOException, InterruptedException {
+    setupEnv(CompressionCodec.NONE);
+
+    PushContext context =
+        shuffleClient.createPushContext(TEST_SHUFFLE_ID, TEST_ATTEMPT_ID, TEST_ATTEMPT_ID, 1, 1);
+    // the context holds the push state of the map task
+    assert (context.pushState
+        == shuffleClient.getPushState(
+            Utils.makeMapKey(TEST_SHUFFLE_ID, TEST_ATTEMPT_ID, TEST_ATTEMPT_ID)));
+
+    int pushDataLen =
+        shuffleClient.pushData(context, TEST_REDUCRE_ID, TEST_BUF1, 0, TEST_BUF1.length);
+    assert (pushDataLen == TEST_BUF1.length + BATCH_HEADER_SIZE);
+    assert (context.partitionLocations != null);
+
+    int mergeSize =
+        shuffleClient.mergeData(context, TEST_REDUCRE_ID, TEST_BUF1, 0, TEST_BUF1.length);
+    assert (mergeSize == TEST_BUF1.length + BATCH_HEADER_SIZE);
+  }
+
+  @Test
+  public void testPushAfterMapperEndedKeepsNoPushState() throws IOException, InterruptedException {
+    setupEnv(CompressionCodec.NONE);
+    String mapKey = Utils.makeMapKey(TEST_SHUFFLE_ID, TEST_ATTEMPT_ID, TEST_ATTEMPT_ID);
+    shuffleClient
+        .mapperEndMap
+        .computeIfAbsent(TEST_SHUFFLE_ID, id -> ConcurrentHashMap.newKeySet())
+        .add(TEST_ATTEMPT_ID);
+
+    int pushDataLen =
+        shuffleClient.pushData(
+            TEST_SHUFFLE_ID,
+            TEST_ATTEMPT_ID,
+            TEST_ATTEMPT_ID,
+            TEST_REDUCRE_ID,
+            TEST_BUF1,
+            0,
+            TEST_BUF1.length,
+            1,
+            1);
+    assert (pushDataLen == 0);
+    assert (!shuffleClient.pushStates.containsKey(mapKey));
+
+    PushContext context =
+        shuffleClient.createPushContext(TEST_SHUFFLE_ID, TEST_ATTEMPT_ID, TEST_ATTEMPT_ID, 1, 1);
+    assert (!shuffleClient.pushStates.containsKey(mapKey));
+    assert (shuffleClient.mergeData(context, TEST_REDUCRE_ID, TEST_BUF1, 0, TEST_BUF1.length) == 0);
+
+    // a push state created before the mapper ended is dropped by the ignored pushes
+    PushState pushState = shuffleClient.getPushState(mapKey);
+    context =
+        new PushContext(
+            TEST_SHUFFLE_ID,
+            TEST_ATTEMPT_ID,
+            TEST_ATTEMPT_ID,
+            1,
+            1,
+            mapKey,
+            Utils.makeShuffleKey(TEST_APPLICATION_ID, TEST_SHUFFLE_ID),
+            pushState);
+    assert (shuffleClient.pushData(context, TEST_REDUCRE_ID, TEST_BUF1, 0, TEST_BUF1.length) == 0);
+    assert (!shuffleClient.pushStates.containsKey(mapKey));
+  }
+
   private CelebornConf setupEnv(CompressionCodec codec) throws IOException, InterruptedException {
     CelebornConf conf = new CelebornConf();
     conf.set(CelebornConf.SHUFFLE_COMPRESSION_CODEC().key(), codec.name());
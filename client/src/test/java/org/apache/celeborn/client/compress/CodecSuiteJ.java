@@ -17,8 +17,11 @@
 
 package org.apache.celeborn.client.compress;
 
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
 import org.apache.commons.lang3.RandomStringUtils;
 import org.junit.Assert;
 import org.junit.Test;
@@ -63,4 +66,72 @@ public class CodecSuiteJ {
       Assert.assertArrayEquals(data, dst);
     }
   }
+
+  @Test
+  public void testDecompressByteBuffer() {
+    int blockSize = (new CelebornConf()).clientPushBufferMaxSize();
+    byte[] data = RandomStringUtils.random(1024).getBytes(StandardCharsets.UTF_8);
+    Compressor[] compressors =
+        new Compressor[] {new Lz4Compressor(blockSize), new ZstdCompressor(blockSize, 1)};
+    Decompressor[] decompressors =
+        new Decompressor[] {new Lz4Decompressor(), new ZstdDecompressor()};
+    for (int i = 0; i < compressors.length; i++) {
+      compressors[i].compress(data, 0, data.length);
+      int compressedSize = compressors[i].getCompressedTotalSize();
+      for (boolean directSrc : new boolean[] {true, false}) {
+        for (boolean directDst : new boolean[] {true, false}) {
+          // place the block at a non-zero position, as slices of a network buffer are
+          ByteBuffer src =
+              directSrc
+                  ? ByteBuffer.allocateDirect(compressedSize + 7)
+                  : ByteBuffer.allocate(compressedSize + 7);
+          src.position(7);
+          src.put(compressors[i].getCompressedBuffer(), 0, compressedSize);
+          src.position(7);
+          ByteBuffer dst =
+              directDst ? ByteBuffer.allocateDirect(data.length) : ByteBuffer.allocate(data.length);
+
+          Assert.assertEquals(data.length, decompressors[i].getOriginalLen(src));
+          Assert.assertEquals(data.length, decompressors[i].decompress(src, dst));
+          Assert.assertEquals(7, src.position());
+          Assert.assertEquals(0, dst.position());
+          byte[] decompressed = new byte[data.length];
+          dst.get(decompressed);
+          Assert.assertArrayEquals(data, decompressed);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testCompressToByteBuf() {
+    int blockSize = (new CelebornConf()).clientPushBufferMaxSize();
+    Compressor[] compressors =
+        new Compressor[] {new Lz4Compressor(blockSize), new ZstdCompressor(blockSize, 1)};
+    Decompressor[] decompressors =
+        new Decompressor[] {new Lz4Decompressor(), new ZstdDecompressor()};
+    byte[] random = RandomStringUtils.random(1024).getBytes(StandardCharsets.UTF_8);
+    // compressible and incompressible data
+    for (byte[] data : new byte[][] {new byte[4096], random}) {
+      for (int i = 0; i < compressors.length; i++) {
+        for (boolean direct : new boolean[] {true, false}) {
+          // the block is written after a header, as in the body of a pushed batch
+          ByteBuf dest =
+              direct
+                  ? PooledByteBufAllocator.DEFAULT.directBuffer(16)
+                  : PooledByteBufAllocator.DEFAULT.heapBuffer(16);
+          dest.writerIndex(16);
+          compressors[i].compress(data, 0, data.length, dest);
+          int compressedSize = dest.readableBytes() - 16;
+          Assert.assertTrue(compressedSize <= compressors[i].maxCompressedTotalSize(data.length));
+
+          ByteBuffer src = dest.nioBuffer(16, compressedSize);
+          ByteBuffer dst = ByteBuffer.allocate(data.length);
+          Assert.assertEquals(data.length, decompressors[i].decompress(src, dst));
+          Assert.assertArrayEquals(data, dst.array());
+          dest.release();
+        }
+      }
+    }
+  }
 }
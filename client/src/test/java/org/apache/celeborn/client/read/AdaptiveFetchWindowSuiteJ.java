@@ -0,0 +1,65 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.celeborn.client.read;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AdaptiveFetchWindowSuiteJ {
+
+  private static final long RTT = TimeUnit.MILLISECONDS.toNanos(10);
+
+  private void fetch(AdaptiveFetchWindow window, int chunks, long rtt, boolean consumerBehind) {
+    for (int i = 0; i < chunks; i++) {
+      window.onChunkFetched(rtt, 0, consumerBehind);
+    }
+  }
+
+  @Test
+  public void testGrowWhileLatencyIsFlat() {
+    AdaptiveFetchWindow window = new AdaptiveFetchWindow(3, 1, 5);
+    fetch(window, 3, RTT, false);
+    Assert.assertEquals(4, window.get());
+    fetch(window, 4, RTT, false);
+    Assert.assertEquals(5, window.get());
+    // capped by the max window
+    fetch(window, 20, RTT, false);
+    Assert.assertEquals(5, window.get());
+  }
+
+  @Test
+  public void testNotGrowWhenConsumerIsBehind() {
+    AdaptiveFetchWindow window = new AdaptiveFetchWindow(3, 1, 16);
+    fetch(window, 10, RTT, true);
+    Assert.assertEquals(3, window.get());
+  }
+
+  @Test
+  public void testShrinkWhenWorkerIsSlow() {
+    AdaptiveFetchWindow window = new AdaptiveFetchWindow(8, 1, 16);
+    fetch(window, 1, RTT, false);
+    fetch(window, 7, RTT * 3, false);
+    Assert.assertEquals(4, window.get());
+    fetch(window, 4, RTT * 3, false);
+    Assert.assertEquals(2, window.get());
+    fetch(window, 10, RTT * 3, false);
+    Assert.assertEquals(1, window.get());
+  }
+}
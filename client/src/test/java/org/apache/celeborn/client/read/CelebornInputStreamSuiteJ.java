@@ -0,0 +1,168 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.celeborn.client.read;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+import org.apache.commons.lang3.RandomStringUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.apache.celeborn.client.compress.Compressor;
+import org.apache.celeborn.common.CelebornConf;
+import org.apache.celeborn.common.network.buffer.NettyManagedBuffer;
+import org.apache.celeborn.common.network.client.ChunkReceivedCallback;
+import org.apache.celeborn.common.network.client.TransportClient;
+import org.apache.celeborn.common.network.client.TransportClientFactory;
+import org.apache.celeborn.common.network.protocol.StreamHandle;
+import org.apache.celeborn.common.protocol.CompressionCodec;
+import org.apache.celeborn.common.protocol.PartitionLocation;
+import org.apache.celeborn.common.unsafe.Platform;
+
+public class CelebornInputStreamSuiteJ {
+
+  private static final int BATCHES_PER_CHUNK = 20;
+  private static final int COMPONENT_SIZE = 100;
+
+  /**
+   * Builds the chunks of one location: a direct buffer, a composite of direct and heap components
+   * as assembled by the frame decoder, whose batches span components, and a heap buffer.
+   */
+  private ByteBuf[] buildChunks(CelebornConf conf, ByteArrayOutputStream expected) {
+    Compressor compressor =
+        conf.shuffleCompressionCodec() == CompressionCodec.NONE
+            ? null
+            : Compressor.getCompressor(conf);
+    Random random = new Random(42);
+    ByteBuf[] chunks = new ByteBuf[3];
+    int batchId = 0;
+    for (int c = 0; c < chunks.length; c++) {
+      ByteArrayOutputStream chunk = new ByteArrayOutputStream();
+      for (int i = 0; i < BATCHES_PER_CHUNK; i++) {
+        byte[] data =
+            RandomStringUtils.random(1000 + random.nextInt(2000), 0, 0, true, true, null, random)
+                .getBytes(StandardCharsets.UTF_8);
+        expected.write(data, 0, data.length);
+        byte[] body = data;
+        if (compressor != null) {
+          compressor.compress(data, 0, data.length);
+          body =
+              Arrays.copyOf(compressor.getCompressedBuffer(), compressor.getCompressedTotalSize());
+        }
+        byte[] header = new byte[16];
+        Platform.putInt(header, Platform.BYTE_ARRAY_OFFSET, 0);
+        Platform.putInt(header, Platform.BYTE_ARRAY_OFFSET + 4, 0);
+        Platform.putInt(header, Platform.BYTE_ARRAY_OFFSET + 8, batchId++);
+        Platform.putInt(header, Platform.BYTE_ARRAY_OFFSET + 12, body.length);
+        chunk.write(header, 0, header.length);
+        chunk.write(body, 0, body.length);
+      }
+      byte[] bytes = chunk.toByteArray();
+      if (c == 0) {
+        chunks[c] = Unpooled.directBuffer(bytes.length).writeBytes(bytes);
+      } else if (c == 1) {
+        CompositeByteBuf composite = Unpooled.compositeBuffer(Integer.MAX_VALUE);
+        for (int off = 0; off < bytes.length; off += COMPONENT_SIZE) {
+          int len = Math.min(COMPONENT_SIZE, bytes.length - off);
+          ByteBuf component =
+              (off / COMPONENT_SIZE) % 2 == 0 ? Unpooled.directBuffer(len) : Unpooled.buffer(len);
+          composite.addComponent(true, component.writeBytes(bytes, off, len));
+        }
+        Assert.assertTrue(composite.nioBufferCount() > 1);
+        chunks[c] = composite;
+      } else {
+        chunks[c] = Unpooled.buffer(bytes.length).writeBytes(bytes);
+      }
+    }
+    return chunks;
+  }
+
+  private CelebornInputStream newInputStream(CelebornConf conf, ByteBuf[] chunks) throws Exception {
+    TransportClient client = mock(TransportClient.class);
+    when(client.sendRpcSync(any(), anyLong()))
+        .thenReturn(new StreamHandle(1, chunks.length).toByteBuffer());
+    doAnswer(
+            invocation -> {
+              int chunkIndex = invocation.getArgument(1);
+              ChunkReceivedCallback callback = invocation.getArgument(3);
+              callback.onSuccess(chunkIndex, new NettyManagedBuffer(chunks[chunkIndex]));
+              chunks[chunkIndex].release();
+              return null;
+            })
+        .when(client)
+        .fetchChunk(anyLong(), anyInt(), anyLong(), any());
+    TransportClientFactory clientFactory = mock(TransportClientFactory.class);
+    when(clientFactory.createClient(anyString(), anyInt())).thenReturn(client);
+    PartitionLocation location =
+        new PartitionLocation(0, 0, "localhost", 1, 2, 3, 4, PartitionLocation.Mode.PRIMARY);
+    return CelebornInputStream.create(
+        conf,
+        clientFactory,
+        "app-1",
+        new PartitionLocation[] {location},
+        new int[] {0},
+        0,
+        0,
+        Integer.MAX_VALUE,
+        new ConcurrentHashMap<>(),
+        null,
+        null);
+  }
+
+  @Test
+  public void testReadCompositeChunks() throws Exception {
+    for (CompressionCodec codec :
+        new CompressionCodec[] {
+          CompressionCodec.LZ4, CompressionCodec.ZSTD, CompressionCodec.NONE
+        }) {
+      CelebornConf conf =
+          new CelebornConf().set(CelebornConf.SHUFFLE_COMPRESSION_CODEC().key(), codec.name());
+      ByteArrayOutputStream expected = new ByteArrayOutputStream();
+      ByteBuf[] chunks = buildChunks(conf, expected);
+      CelebornInputStream inputStream = newInputStream(conf, chunks);
+
+      ByteArrayOutputStream actual = new ByteArrayOutputStream();
+      byte[] buf = new byte[777];
+      int n;
+      while ((n = inputStream.read(buf, 0, buf.length)) != -1) {
+        actual.write(buf, 0, n);
+      }
+      inputStream.close();
+
+      Assert.assertArrayEquals(codec.name(), expected.toByteArray(), actual.toByteArray());
+      for (ByteBuf chunk : chunks) {
+        Assert.assertEquals(0, chunk.refCnt());
+      }
+    }
+  }
+}
@@ -0,0 +1,179 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.celeborn.client.read;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PoolArenaMetric;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.celeborn.client.ShuffleClient;
+import org.apache.celeborn.common.CelebornConf;
+import org.apache.celeborn.common.protocol.PartitionLocation;
+import org.apache.celeborn.common.protocol.StorageInfo;
+import org.apache.celeborn.common.util.Utils;
+
+public class DfsPartitionReaderSuiteJ {
+
+  private File tempDir;
+  private CelebornConf conf;
+  private DfsReadScheduler scheduler;
+
+  @Before
+  public void setUp() throws IOException {
+    tempDir = Files.createTempDirectory("celeborn-dfs-reader").toFile();
+    // serve the hdfs scheme with the local file system
+    conf =
+        new CelebornConf()
+            .set(CelebornConf.HDFS_DIR().key(), "hdfs://dfs-reader-test/celeborn")
+            .set("celeborn.hadoop.fs.hdfs.impl", "org.apache.hadoop.fs.RawLocalFileSystem")
+            .set("celeborn.hadoop.fs.hdfs.impl.disable.cache", "true")
+            .set(CelebornConf.CLIENT_FETCH_MAX_REQS_IN_FLIGHT().key(), "3")
+            .set(CelebornConf.CLIENT_FETCH_DFS_MAX_READ_SIZE().key(), "2k");
+    scheduler = new DfsReadScheduler(conf);
+    ShuffleClient.reset();
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    scheduler.shutdown();
+    ShuffleClient.reset();
+    FileUtils.deleteDirectory(tempDir);
+  }
+
+  private PartitionLocation writePartition(List<byte[]> chunks, long extraIndexBytes)
+      throws IOException {
+    File dataFile = new File(tempDir, "0-0");
+    long offset = 0;
+    try (FileOutputStream data = new FileOutputStream(dataFile);
+        DataOutputStream index =
+            new DataOutputStream(
+                new FileOutputStream(Utils.getIndexFilePath(dataFile.getAbsolutePath())))) {
+      index.writeInt(chunks.size() + 1);
+      index.writeLong(offset);
+      for (byte[] chunk : chunks) {
+        data.write(chunk);
+        offset += chunk.length;
+        index.writeLong(offset + extraIndexBytes);
+      }
+    }
+    PartitionLocation location =
+        new PartitionLocation(0, 0, "localhost", 0, 0, 0, 0, PartitionLocation.Mode.PRIMARY);
+    location.setStorageInfo(
+        new StorageInfo(StorageInfo.Type.HDFS, true, dataFile.getAbsolutePath()));
+    return location;
+  }
+
+  private List<byte[]> randomChunks(int numChunks) {
+    Random random = new Random(42);
+    List<byte[]> chunks = new ArrayList<>();
+    for (int i = 0; i < numChunks; i++) {
+      byte[] chunk = new byte[random.nextInt(1024) + 1];
+      random.nextBytes(chunk);
+      chunks.add(chunk);
+    }
+    return chunks;
+  }
+
+  private DfsPartitionReader newReader(PartitionLocation location) throws IOException {
+    return new DfsPartitionReader(conf, "app-1", location, null, scheduler, 0, Integer.MAX_VALUE);
+  }
+
+  @Test
+  public void testReadChunks() throws Exception {
+    List<byte[]> chunks = randomChunks(50);
+    DfsPartitionReader reader = newReader(writePartition(chunks, 0));
+    for (byte[] expected : chunks) {
+      Assert.assertTrue(reader.hasNext());
+      ByteBuf chunk = reader.next();
+      byte[] bytes = new byte[chunk.readableBytes()];
+      chunk.readBytes(bytes);
+      chunk.release();
+      Assert.assertArrayEquals(expected, bytes);
+    }
+    Assert.assertFalse(reader.hasNext());
+    reader.close();
+  }
+
+  @Test
+  public void testPoolLargestRead() {
+    CelebornConf largeReads =
+        new CelebornConf()
+            .set(CelebornConf.CLIENT_FETCH_DFS_MAX_READ_SIZE().key(), "8m")
+            .set(CelebornConf.SHUFFLE_CHUNK_SIZE().key(), "16m");
+    DfsReadScheduler largeReadScheduler = new DfsReadScheduler(largeReads);
+    try {
+      ByteBuf buffer = largeReadScheduler.allocate(16 * 1024 * 1024);
+      buffer.release();
+      Assert.assertEquals(
+          0,
+          largeReadScheduler.allocator.metric().heapArenas().stream()
+              .mapToLong(PoolArenaMetric::numHugeAllocations)
+              .sum());
+    } finally {
+      largeReadScheduler.shutdown();
+    }
+  }
+
+  @Test
+  public void testCloseReleasesChunksReadAhead() throws Exception {
+    DfsPartitionReader reader = newReader(writePartition(randomChunks(10), 0));
+    ByteBuf first = reader.next();
+    first.release();
+    ByteBuf second = reader.next();
+    reader.close();
+    Assert.assertEquals(1, second.refCnt());
+    second.release();
+  }
+
+  @Test
+  public void testReadFailure() throws Exception {
+    // the last chunk ends beyond the data file
+    DfsPartitionReader reader = newReader(writePartition(randomChunks(5), 1));
+    int chunksRead = 0;
+    try {
+      while (reader.hasNext()) {
+        reader.next().release();
+        chunksRead++;
+      }
+      Assert.fail("Reading beyond the data file should fail");
+    } catch (IOException e) {
+      Assert.assertTrue(chunksRead < 5);
+    }
+    // later calls fail as well rather than blocking
+    try {
+      reader.next();
+      Assert.fail("Reading beyond the data file should fail");
+    } catch (IOException e) {
+      // expected
+    }
+    reader.close();
+  }
+}
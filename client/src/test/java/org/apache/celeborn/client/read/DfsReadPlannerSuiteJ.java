@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.celeborn.client.read;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DfsReadPlannerSuiteJ {
+
+  @Test
+  public void testMergeAdjacentChunks() {
+    DfsReadPlanner planner = new DfsReadPlanner(0, 300);
+    long[] starts = new long[] {0, 100, 200, 300};
+    long[] ends = new long[] {100, 200, 300, 400};
+    Assert.assertEquals(3, planner.planRead(starts, ends, 0, 10));
+    Assert.assertEquals(4, planner.planRead(starts, ends, 3, 10));
+    // capped by the number of chunks
+    Assert.assertEquals(2, planner.planRead(starts, ends, 0, 2));
+  }
+
+  @Test
+  public void testMergeChunksWithinGap() {
+    DfsReadPlanner planner = new DfsReadPlanner(50, 1000);
+    long[] starts = new long[] {0, 150, 200, 400};
+    long[] ends = new long[] {100, 180, 300, 500};
+    // gaps of 50 and 20 are merged, the gap of 100 is not
+    Assert.assertEquals(3, planner.planRead(starts, ends, 0, 10));
+    Assert.assertEquals(4, planner.planRead(starts, ends, 3, 10));
+  }
+
+  @Test
+  public void testLargeChunkReadAlone() {
+    DfsReadPlanner planner = new DfsReadPlanner(0, 100);
+    long[] starts = new long[] {0, 500, 600};
+    long[] ends = new long[] {500, 600, 700};
+    Assert.assertEquals(1, planner.planRead(starts, ends, 0, 10));
+    Assert.assertEquals(2, planner.planRead(starts, ends, 1, 10));
+  }
+
+  @Test
+  public void testSliceWithoutCopy() {
+    ByteBuf read = Unpooled.buffer(100);
+    for (int i = 0; i < 100; i++) {
+      read.writeByte(i);
+    }
+    // the read starts at offset 1000 of the file
+    ByteBuf chunk = DfsReadPlanner.slice(read, 1000, 1040, 1060);
+    read.release();
+    Assert.assertEquals(20, chunk.readableBytes());
+    Assert.assertEquals(40, chunk.getByte(0));
+    Assert.assertEquals(59, chunk.getByte(19));
+    chunk.release();
+    Assert.assertEquals(0, read.refCnt());
+  }
+}
@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.celeborn.client.read;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.apache.celeborn.common.CelebornConf;
+import org.apache.celeborn.common.network.buffer.NettyManagedBuffer;
+import org.apache.celeborn.common.network.client.ChunkReceivedCallback;
+import org.apache.celeborn.common.network.client.TransportClient;
+import org.apache.celeborn.common.network.client.TransportClientFactory;
+import org.apache.celeborn.common.network.protocol.StreamHandle;
+import org.apache.celeborn.common.protocol.PartitionLocation;
+
+public class WorkerPartitionReaderSuiteJ {
+
+  private static final int NUM_CHUNKS = 10;
+  private static final long CHUNK_RTT_MS = 2;
+
+  private final PartitionLocation location =
+      new PartitionLocation(0, 0, "localhost", 1, 2, 3, 4, PartitionLocation.Mode.PRIMARY);
+
+  private static class RecordingCallback implements MetricsCallback {
+    long chunkFetchTime = 0;
+    final List<Integer> fetchWindows = new ArrayList<>();
+    final List<PartitionLocation> windowLocations = new ArrayList<>();
+
+    @Override
+    public void incBytesRead(long bytesRead) {}
+
+    @Override
+    public void incReadTime(long time) {}
+
+    @Override
+    public void incChunkFetchTime(long time) {
+      Assert.assertTrue(time > 0);
+      chunkFetchTime += time;
+    }
+
+    @Override
+    public void updateFetchWindow(PartitionLocation location, int window) {
+      windowLocations.add(location);
+      fetchWindows.add(window);
+    }
+  }
+
+  private WorkerPartitionReader newReader(CelebornConf conf) throws Exception {
+    TransportClient client = mock(TransportClient.class);
+    when(client.sendRpcSync(any(), anyLong()))
+        .thenReturn(new StreamHandle(1, NUM_CHUNKS).toByteBuffer());
+    // each chunk arrives CHUNK_RTT_MS after it is requested
+    doAnswer(
+            invocation -> {
+              Thread.sleep(CHUNK_RTT_MS);
+              ChunkReceivedCallback callback = invocation.getArgument(3);
+              ByteBuf chunk = Unpooled.buffer(1).writeByte(invocation.<Integer>getArgument(1));
+              callback.onSuccess(invocation.getArgument(1), new NettyManagedBuffer(chunk));
+              chunk.release();
+              return null;
+            })
+        .when(client)
+        .fetchChunk(anyLong(), anyInt(), anyLong(), any());
+    TransportClientFactory clientFactory = mock(TransportClientFactory.class);
+    when(clientFactory.createClient(anyString(), anyInt())).thenReturn(client);
+    return new WorkerPartitionReader(
+        conf, "app-1", location, clientFactory, 0, Integer.MAX_VALUE, 0, 0);
+  }
+
+  private long readAll(WorkerPartitionReader reader) throws Exception {
+    long start = System.nanoTime();
+    for (int i = 0; i < NUM_CHUNKS; i++) {
+      Assert.assertTrue(reader.hasNext());
+      ByteBuf chunk = reader.next();
+      Assert.assertEquals(i, chunk.readByte());
+      chunk.release();
+    }
+    Assert.assertFalse(reader.hasNext());
+    reader.close();
+    return (System.nanoTime() - start) / 1000000;
+  }
+
+  @Test
+  public void testReportFetchTimeAndFixedWindow() throws Exception {
+    CelebornConf conf =
+        new CelebornConf().set(CelebornConf.CLIENT_FETCH_MAX_REQS_IN_FLIGHT().key(), "3");
+    WorkerPartitionReader reader = newReader(conf);
+    RecordingCallback callback = new RecordingCallback();
+    reader.setCallback(callback);
+    long elapsedMs = readAll(reader);
+
+    // the fetch time is reported in whole milliseconds, less than one of which is left pending
+    Assert.assertTrue(callback.chunkFetchTime >= NUM_CHUNKS * CHUNK_RTT_MS - 1);
+    Assert.assertTrue(callback.chunkFetchTime <= elapsedMs);
+    // a fixed window is reported once
+    Assert.assertEquals(1, callback.fetchWindows.size());
+    Assert.assertEquals(3, (int) callback.fetchWindows.get(0));
+    Assert.assertSame(location, callback.windowLocations.get(0));
+  }
+
+  @Test
+  public void testReportAdaptiveWindowChanges() throws Exception {
+    CelebornConf conf =
+        new CelebornConf()
+            .set(CelebornConf.CLIENT_FETCH_MAX_REQS_IN_FLIGHT().key(), "3")
+            .set(CelebornConf.CLIENT_FETCH_ADAPTIVE_WINDOW_ENABLED().key(), "true")
+            .set(CelebornConf.CLIENT_FETCH_ADAPTIVE_WINDOW_MAX_REQS_IN_FLIGHT().key(), "8");
+    WorkerPartitionReader reader = newReader(conf);
+    RecordingCallback callback = new RecordingCallback();
+    reader.setCallback(callback);
+    readAll(reader);
+
+    // the window starts from maxReqsInFlight, and only its changes are reported
+    Assert.assertFalse(callback.fetchWindows.isEmpty());
+    Assert.assertEquals(3, (int) callback.fetchWindows.get(0));
+    for (int i = 0; i < callback.fetchWindows.size(); i++) {
+      int window = callback.fetchWindows.get(i);
+      Assert.assertTrue(window >= 1 && window <= 8);
+      if (i > 0) {
+        Assert.assertNotEquals(callback.fetchWindows.get(i - 1).intValue(), window);
+      }
+    }
+  }
+}
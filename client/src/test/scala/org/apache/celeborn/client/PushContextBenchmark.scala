@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.celeborn.client
+
+import java.nio.ByteBuffer
+
+import io.netty.channel.{Channel, ChannelFuture}
+import org.mockito.Mockito.mock
+
+import org.apache.celeborn.benchmark.{Benchmark, BenchmarkBase}
+import org.apache.celeborn.common.CelebornConf
+import org.apache.celeborn.common.identity.UserIdentifier
+import org.apache.celeborn.common.network.TransportContext
+import org.apache.celeborn.common.network.client.{RpcResponseCallback, TransportClient, TransportClientFactory, TransportResponseHandler}
+import org.apache.celeborn.common.network.protocol.PushData
+import org.apache.celeborn.common.network.server.BaseMessageHandler
+import org.apache.celeborn.common.protocol.{PartitionLocation, TransportModuleConstants}
+import org.apache.celeborn.common.util.{JavaUtils, Utils}
+
+/**
+ * Benchmark of the push path of [[ShuffleClientImpl]], pushing through a [[PushContext]] created
+ * once for the map task against pushing with the ids of the task, which builds the map and
+ * shuffle keys and looks up the push state of the task by its key for every push. The data is
+ * not compressed, and the pushes complete as soon as they are sent, so the cost of the push path
+ * on the client is measured.
+ * To run this benchmark:
+ * {{{
+ *   1. build/sbt "client/test:runMain <this class>"
+ *   2. generate result:
+ *      CELEBORN_GENERATE_BENCHMARK_FILES=1 build/sbt "client/test:runMain <this class>"
+ *      Results will be written to "benchmarks/PushContextBenchmark-results.txt".
+ * }}}
+ */
+object PushContextBenchmark extends BenchmarkBase {
+
+  private val shuffleId = 1
+  private val mapId = 7
+  private val attemptId = 0
+
+  // completes every push once it is sent
+  private class CompletingClient extends TransportClient(
+      mock(classOf[Channel]),
+      mock(classOf[TransportResponseHandler])) {
+    private val emptyResponse = ByteBuffer.allocate(0)
+
+    override def pushData(
+        pushData: PushData,
+        pushDataTimeout: Long,
+        callback: RpcResponseCallback): ChannelFuture = {
+      callback.onSuccess(emptyResponse.duplicate())
+      null
+    }
+  }
+
+  private def shuffleClient(numPartitions: Int): ShuffleClientImpl = {
+    val conf = new CelebornConf()
+      .set(CelebornConf.SHUFFLE_COMPRESSION_CODEC.key, "NONE")
+    val client =
+      new ShuffleClientImpl("application_1_0001", conf, new UserIdentifier("mock", "mock"))
+    val locations = JavaUtils.newConcurrentHashMap[Integer, PartitionLocation]()
+    (0 until numPartitions).foreach { id =>
+      locations.put(
+        id,
+        new PartitionLocation(
+          id,
+          0,
+          "localhost",
+          9097,
+          9098,
+          9099,
+          9100,
+          PartitionLocation.Mode.PRIMARY))
+    }
+    // the shuffle is registered already
+    client.reducePartitionMap.put(shuffleId, locations)
+    val transportConf = Utils.fromCelebornConf(conf, TransportModuleConstants.DATA_MODULE, 1)
+    val completingClient = new CompletingClient
+    client.dataClientFactory =
+      new TransportClientFactory(new TransportContext(transportConf, new BaseMessageHandler)) {
+        override def createClient(
+            remoteHost: String,
+            remotePort: Int,
+            partitionId: Int): TransportClient = completingClient
+      }
+    client
+  }
+
+  def test(numPushes: Int, numPartitions: Int, batchSize: Int): Unit = {
+    val name = s"push $numPushes batches of $batchSize bytes to $numPartitions partitions"
+    runBenchmark(name) {
+      val client = shuffleClient(numPartitions)
+      val data = new Array[Byte](batchSize)
+
+      val benchmark = new Benchmark(name, numPushes, output = output)
+      benchmark.addCase("push with the ids of the map task", 5) { _: Int =>
+        var i = 0
+        while (i < numPushes) {
+          client.pushData(
+            shuffleId,
+            mapId,
+            attemptId,
+            i % numPartitions,
+            data,
+            0,
+            batchSize,
+            1,
+            numPartitions)
+          i += 1
+        }
+      }
+      benchmark.addCase("push through the push context of the map task", 5) { _: Int =>
+        val context = client.createPushContext(shuffleId, mapId, attemptId, 1, numPartitions)
+        var i = 0
+        while (i < numPushes) {
+          client.pushData(context, i % numPartitions, data, 0, batchSize)
+          i += 1
+        }
+      }
+      benchmark.run()
+      client.shutdown()
+    }
+  }
+
+  override def runBenchmarkSuite(mainArgs: Array[String]): Unit = {
+    test(1000000, 100, 64)
+    test(1000000, 10000, 64)
+  }
+}
@@ -0,0 +1,174 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.celeborn.common.meta;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+
+import org.apache.celeborn.common.exception.CelebornIOException;
+
+/**
+ * The offsets of the chunks of a file, from the offset of the first chunk to the end of the last
+ * one, in a growable primitive array.
+ *
+ * <p>Offsets are appended by a single writer at a time, i.e. the flusher of the file, without
+ * locking. Readers never lock either: they see the offsets appended before the size they read, and
+ * {@link #toArray()} takes a snapshot of them for a stream.
+ *
+ * <p>The offsets are non-decreasing, so they are serialized as the varints of their deltas, which
+ * takes a few bytes per chunk.
+ */
+public class ChunkOffsets {
+  private static final int INITIAL_CAPACITY = 4;
+
+  private volatile long[] offsets;
+  // written after the offsets, so that a reader seeing a size sees the offsets below it
+  private volatile int size;
+
+  public ChunkOffsets() {
+    this(INITIAL_CAPACITY);
+  }
+
+  private ChunkOffsets(int capacity) {
+    offsets = new long[Math.max(capacity, 1)];
+  }
+
+  public static ChunkOffsets of(long... offsets) {
+    ChunkOffsets chunkOffsets = new ChunkOffsets(offsets.length);
+    System.arraycopy(offsets, 0, chunkOffsets.offsets, 0, offsets.length);
+    chunkOffsets.size = offsets.length;
+    return chunkOffsets;
+  }
+
+  public static ChunkOffsets of(List<Long> offsets) {
+    ChunkOffsets chunkOffsets = new ChunkOffsets(offsets.size());
+    for (int i = 0; i < offsets.size(); i++) {
+      chunkOffsets.offsets[i] = offsets.get(i);
+    }
+    chunkOffsets.size = offsets.size();
+    return chunkOffsets;
+  }
+
+  /** Appends an offset, which must not be called concurrently with another append. */
+  public void add(long offset) {
+    int n = size;
+    long[] current = offsets;
+    if (n == current.length) {
+      current = Arrays.copyOf(current, n * 2);
+      current[n] = offset;
+      offsets = current;
+    } else {
+      current[n] = offset;
+    }
+    size = n + 1;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  public long get(int index) {
+    int n = size;
+    if (index < 0 || index >= n) {
+      throw new IndexOutOfBoundsException("Index " + index + ", size " + n);
+    }
+    return offsets[index];
+  }
+
+  public long last() {
+    return get(size - 1);
+  }
+
+  /** Returns a snapshot of the offsets appended so far. */
+  public long[] toArray() {
+    int n = size;
+    return Arrays.copyOf(offsets, n);
+  }
+
+  public ByteString toByteString() {
+    long[] snapshot = toArray();
+    int length = CodedOutputStream.computeUInt32SizeNoTag(snapshot.length);
+    long previous = 0;
+    for (long offset : snapshot) {
+      length += CodedOutputStream.computeUInt64SizeNoTag(offset - previous);
+      previous = offset;
+    }
+    byte[] bytes = new byte[length];
+    CodedOutputStream output = CodedOutputStream.newInstance(bytes);
+    try {
+      output.writeUInt32NoTag(snapshot.length);
+      previous = 0;
+      for (long offset : snapshot) {
+        output.writeUInt64NoTag(offset - previous);
+        previous = offset;
+      }
+      output.checkNoSpaceLeft();
+    } catch (IOException e) {
+      // never happens when writing to an array of the computed size
+      throw new IllegalStateException(e);
+    }
+    return ByteString.copyFrom(bytes);
+  }
+
+  public static ChunkOffsets fromByteString(ByteString bytes) throws CelebornIOException {
+    CodedInputStream input = bytes.newCodedInput();
+    try {
+      int n = input.readUInt32();
+      ChunkOffsets chunkOffsets = new ChunkOffsets(n);
+      long offset = 0;
+      for (int i = 0; i < n; i++) {
+        offset += input.readUInt64();
+        chunkOffsets.offsets[i] = offset;
+      }
+      chunkOffsets.size = n;
+      return chunkOffsets;
+    } catch (IOException e) {
+      throw new CelebornIOException("Corrupted chunk offsets.", e);
+    }
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof ChunkOffsets)) {
+      return false;
+    }
+    return Arrays.equals(toArray(), ((ChunkOffsets) o).toArray());
+  }
+
+  @Override
+  public int hashCode() {
+    return Arrays.hashCode(toArray());
+  }
+
+  @Override
+  public String toString() {
+    return Arrays.toString(toArray());
+  }
+}
@@ -18,19 +18,20 @@
 package org.apache.celeborn.common.meta;
 
 import java.io.File;
-import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 
 import com.google.common.annotations.VisibleForTesting;
-import org.apache.commons.lang3.StringUtils;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import org.apache.celeborn.common.identity.UserIdentifier;
+import org.apache.celeborn.common.oss.ObjectStore;
 import org.apache.celeborn.common.protocol.PartitionType;
+import org.apache.celeborn.common.util.ShuffleBlockInfoUtils.ShuffleBlockInfo;
 import org.apache.celeborn.common.util.Utils;
 
 public class FileInfo {
@@ -39,9 +40,15 @@ public class FileInfo {
   private final String filePath;
   private final PartitionType partitionType;
   private final UserIdentifier userIdentifier;
+  // whether the file is an object of the object store, whose paths may look like HDFS paths
+  private boolean objectStored;
 
   // members for ReducePartition
-  private final List<Long> chunkOffsets;
+  private final ChunkOffsets chunkOffsets;
+  // segments of the unsorted file for each chunk, only set for virtually sorted ReducePartition
+  private List<List<ShuffleBlockInfo>> chunkSegments;
+  // data of a ReducePartition kept in memory by its writer, null if the data is on disk
+  private volatile CompositeByteBuf memoryBuffer;
 
   // members for MapPartition
   private int bufferSize;
@@ -50,12 +57,16 @@ public class FileInfo {
   private volatile long bytesFlushed;
 
   public FileInfo(String filePath, List<Long> chunkOffsets, UserIdentifier userIdentifier) {
+    this(filePath, ChunkOffsets.of(chunkOffsets), userIdentifier, PartitionType.REDUCE);
+  }
+
+  public FileInfo(String filePath, ChunkOffsets chunkOffsets, UserIdentifier userIdentifier) {
     this(filePath, chunkOffsets, userIdentifier, PartitionType.REDUCE);
   }
 
   public FileInfo(
       String filePath,
-      List<Long> chunkOffsets,
+      ChunkOffsets chunkOffsets,
       UserIdentifier userIdentifier,
       PartitionType partitionType) {
     this.filePath = filePath;
@@ -66,7 +77,16 @@ public class FileInfo {
 
   public FileInfo(
       String filePath,
-      List<Long> chunkOffsets,
+      ChunkOffsets chunkOffsets,
+      List<List<ShuffleBlockInfo>> chunkSegments,
+      UserIdentifier userIdentifier) {
+    this(filePath, chunkOffsets, userIdentifier, PartitionType.REDUCE);
+    this.chunkSegments = chunkSegments;
+  }
+
+  public FileInfo(
+      String filePath,
+      ChunkOffsets chunkOffsets,
       UserIdentifier userIdentifier,
       PartitionType partitionType,
       int bufferSize,
@@ -82,32 +102,35 @@ public class FileInfo {
   }
 
   public FileInfo(String filePath, UserIdentifier userIdentifier, PartitionType partitionType) {
-    this(filePath, new ArrayList(Arrays.asList(0L)), userIdentifier, partitionType);
+    this(filePath, ChunkOffsets.of(0L), userIdentifier, partitionType);
+  }
+
+  public FileInfo(
+      String filePath,
+      UserIdentifier userIdentifier,
+      PartitionType partitionType,
+      boolean objectStored) {
+    this(filePath, userIdentifier, partitionType);
+    this.objectStored = objectStored;
   }
 
   @VisibleForTesting
   public FileInfo(File file, UserIdentifier userIdentifier) {
-    this(
-        file.getAbsolutePath(),
-        new ArrayList(Arrays.asList(0L)),
-        userIdentifier,
-        PartitionType.REDUCE);
+    this(file.getAbsolutePath(), ChunkOffsets.of(0L), userIdentifier, PartitionType.REDUCE);
   }
 
-  public synchronized void addChunkOffset(long bytesFlushed) {
+  /** Called by the flusher of the file only, see {@link ChunkOffsets#add}. */
+  public void addChunkOffset(long bytesFlushed) {
     chunkOffsets.add(bytesFlushed);
   }
 
-  public synchronized int numChunks() {
-    if (!chunkOffsets.isEmpty()) {
-      return chunkOffsets.size() - 1;
-    } else {
-      return 0;
-    }
+  public int numChunks() {
+    int numOffsets = chunkOffsets.size();
+    return numOffsets > 0 ? numOffsets - 1 : 0;
   }
 
-  public synchronized long getLastChunkOffset() {
-    return chunkOffsets.get(chunkOffsets.size() - 1);
+  public long getLastChunkOffset() {
+    return chunkOffsets.last();
   }
 
   public long getFileLength() {
@@ -119,6 +142,33 @@ public class FileInfo {
     return bytesFlushed;
   }
 
+  public boolean isMemoryResident() {
+    return memoryBuffer != null;
+  }
+
+  /** Called by the writer of the file, which keeps the data in the given buffer. */
+  public synchronized void setMemoryBuffer(CompositeByteBuf memoryBuffer) {
+    this.memoryBuffer = memoryBuffer;
+  }
+
+  /**
+   * Returns a retained slice of the data kept in memory, which stays readable after the data is
+   * spilled to disk, or null if the data is on disk.
+   */
+  public synchronized ByteBuf retainedMemorySlice(long offset, long length) {
+    if (memoryBuffer == null) {
+      return null;
+    }
+    return memoryBuffer.retainedSlice((int) offset, (int) length);
+  }
+
+  /** Detaches the data kept in memory once it is on disk, the caller releases the buffer. */
+  public synchronized CompositeByteBuf removeMemoryBuffer() {
+    CompositeByteBuf buffer = memoryBuffer;
+    memoryBuffer = null;
+    return buffer;
+  }
+
   public File getFile() {
     return new File(filePath);
   }
@@ -135,6 +185,10 @@ public class FileInfo {
     return Utils.getIndexFilePath(filePath);
   }
 
+  public String getShuffleBlockIndexPath() {
+    return Utils.getShuffleBlockIndexFilePath(filePath);
+  }
+
   public Path getHdfsPath() {
     return new Path(filePath);
   }
@@ -147,6 +201,10 @@ public class FileInfo {
     return new Path(Utils.getSortedFilePath(filePath));
   }
 
+  public Path getHdfsShuffleBlockIndexPath() {
+    return new Path(Utils.getShuffleBlockIndexFilePath(filePath));
+  }
+
   public Path getHdfsWriterSuccessPath() {
     return new Path(Utils.getWriteSuccessFilePath(filePath));
   }
@@ -166,31 +224,56 @@ public class FileInfo {
         hdfsFs.delete(getHdfsWriterSuccessPath(), false);
         hdfsFs.delete(getHdfsIndexPath(), false);
         hdfsFs.delete(getHdfsSortedPath(), false);
+        hdfsFs.delete(getHdfsShuffleBlockIndexPath(), false);
       } catch (Exception e) {
         // ignore delete exceptions because some other workers might be deleting the directory
         logger.debug(
-            "delete HDFS file {},{},{},{} failed {}",
+            "delete HDFS file {},{},{},{},{} failed {}",
             getHdfsPath(),
             getHdfsWriterSuccessPath(),
             getHdfsIndexPath(),
             getHdfsSortedPath(),
+            getHdfsShuffleBlockIndexPath(),
             e);
       }
     } else {
       getFile().delete();
       new File(getIndexPath()).delete();
       new File(getSortedPath()).delete();
+      new File(getShuffleBlockIndexPath()).delete();
+    }
+  }
+
+  /** Deletes the object of a file stored on the object store, along with its sidecar objects. */
+  public void deleteAllObjects(ObjectStore objectStore) {
+    String[] paths = {
+      filePath, Utils.getWriteSuccessFilePath(filePath), getIndexPath(), getShuffleBlockIndexPath()
+    };
+    for (String path : paths) {
+      try {
+        objectStore.deleteObject(path);
+      } catch (Exception e) {
+        logger.debug("delete object {} failed", path, e);
+      }
     }
   }
 
   public boolean isHdfs() {
-    return Utils.isHdfsPath(filePath);
+    return !objectStored && Utils.isHdfsPath(filePath);
   }
 
-  public synchronized List<Long> getChunkOffsets() {
+  public boolean isOss() {
+    return objectStored;
+  }
+
+  public ChunkOffsets getChunkOffsets() {
     return chunkOffsets;
   }
 
+  public List<List<ShuffleBlockInfo>> getChunkSegments() {
+    return chunkSegments;
+  }
+
   public PartitionType getPartitionType() {
     return partitionType;
   }
@@ -201,7 +284,7 @@ public class FileInfo {
         + "file="
         + filePath
         + ", chunkOffsets="
-        + StringUtils.join(this.chunkOffsets, ",")
+        + chunkOffsets
         + ", userIdentifier="
         + userIdentifier.toString()
         + ", partitionType="
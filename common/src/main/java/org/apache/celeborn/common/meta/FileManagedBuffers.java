@@ -18,31 +18,39 @@
 package org.apache.celeborn.common.meta;
 
 import java.io.File;
+import java.util.Arrays;
 import java.util.List;
 
+import io.netty.buffer.ByteBuf;
+
 import org.apache.celeborn.common.network.buffer.FileSegmentManagedBuffer;
+import org.apache.celeborn.common.network.buffer.FileSegmentsManagedBuffer;
 import org.apache.celeborn.common.network.buffer.ManagedBuffer;
+import org.apache.celeborn.common.network.buffer.NettyManagedBuffer;
 import org.apache.celeborn.common.network.util.TransportConf;
+import org.apache.celeborn.common.util.ShuffleBlockInfoUtils.ShuffleBlockInfo;
 
 public class FileManagedBuffers {
+  private final FileInfo fileInfo;
   private final File file;
   private final long[] offsets;
   private final int numChunks;
+  private final List<List<ShuffleBlockInfo>> chunkSegments;
 
   private final TransportConf conf;
 
   public FileManagedBuffers(FileInfo fileInfo, TransportConf conf) {
+    this.fileInfo = fileInfo;
     file = fileInfo.getFile();
-    numChunks = fileInfo.numChunks();
-    if (numChunks > 0) {
-      offsets = new long[numChunks + 1];
-      List<Long> chunkOffsets = fileInfo.getChunkOffsets();
-      for (int i = 0; i <= numChunks; i++) {
-        offsets[i] = chunkOffsets.get(i);
-      }
+    long[] chunkOffsets = fileInfo.getChunkOffsets().toArray();
+    if (chunkOffsets.length > 1) {
+      numChunks = chunkOffsets.length - 1;
+      offsets = chunkOffsets;
     } else {
+      numChunks = 0;
       offsets = new long[] {0};
     }
+    chunkSegments = fileInfo.getChunkSegments();
     this.conf = conf;
   }
 
@@ -56,6 +64,47 @@ public class FileManagedBuffers {
     final long chunkLength = offsets[chunkIndex + 1] - chunkOffset;
     assert offset < chunkLength;
     long length = Math.min(chunkLength - offset, len);
+    if (fileInfo.isMemoryResident()) {
+      // served from memory unless the file is spilled to disk in the meantime
+      ByteBuf memorySlice = fileInfo.retainedMemorySlice(chunkOffset + offset, length);
+      if (memorySlice != null) {
+        return new NettyManagedBuffer(memorySlice);
+      }
+    }
+    if (chunkSegments != null) {
+      return segmentsChunk(chunkSegments.get(chunkIndex), offset, length);
+    }
     return new FileSegmentManagedBuffer(conf, file, chunkOffset + offset, length);
   }
+
+  private ManagedBuffer segmentsChunk(List<ShuffleBlockInfo> segments, long offset, long length) {
+    long[] segmentOffsets = new long[segments.size()];
+    long[] segmentLengths = new long[segments.size()];
+    int numSegments = 0;
+    long skip = offset;
+    long remaining = length;
+    for (ShuffleBlockInfo segment : segments) {
+      if (remaining == 0) {
+        break;
+      }
+      if (skip >= segment.length) {
+        skip -= segment.length;
+        continue;
+      }
+      long segmentLength = Math.min(segment.length - skip, remaining);
+      segmentOffsets[numSegments] = segment.offset + skip;
+      segmentLengths[numSegments] = segmentLength;
+      numSegments++;
+      remaining -= segmentLength;
+      skip = 0;
+    }
+    if (numSegments == 1) {
+      return new FileSegmentManagedBuffer(conf, file, segmentOffsets[0], segmentLengths[0]);
+    }
+    return new FileSegmentsManagedBuffer(
+        conf,
+        file,
+        Arrays.copyOf(segmentOffsets, numSegments),
+        Arrays.copyOf(segmentLengths, numSegments));
+  }
 }
@@ -0,0 +1,185 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.celeborn.common.network.buffer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import com.google.common.base.Objects;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.Unpooled;
+
+import org.apache.celeborn.common.network.util.AbstractFileRegion;
+import org.apache.celeborn.common.network.util.TransportConf;
+import org.apache.celeborn.common.util.JavaUtils;
+
+/**
+ * A {@link ManagedBuffer} backed by several segments of a file, which are exposed as one contiguous
+ * buffer in the given order.
+ */
+public final class FileSegmentsManagedBuffer extends ManagedBuffer {
+  private final TransportConf conf;
+  private final File file;
+  private final long[] offsets;
+  private final long[] lengths;
+  private final long size;
+
+  public FileSegmentsManagedBuffer(TransportConf conf, File file, long[] offsets, long[] lengths) {
+    this.conf = conf;
+    this.file = file;
+    this.offsets = offsets;
+    this.lengths = lengths;
+    long totalLength = 0;
+    for (long length : lengths) {
+      totalLength += length;
+    }
+    this.size = totalLength;
+  }
+
+  @Override
+  public long size() {
+    return size;
+  }
+
+  @Override
+  public ByteBuffer nioByteBuffer() throws IOException {
+    FileChannel channel = null;
+    try {
+      channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+      ByteBuffer buf = ByteBuffer.allocate((int) size);
+      for (int i = 0; i < offsets.length; i++) {
+        long position = offsets[i];
+        buf.limit(buf.position() + (int) lengths[i]);
+        while (buf.hasRemaining()) {
+          int read = channel.read(buf, position);
+          if (read == -1) {
+            throw new IOException(
+                String.format(
+                    "Reached EOF before filling buffer\n" + "offset=%s\nfile=%s\nbuf.remaining=%s",
+                    position, file.getAbsoluteFile(), buf.remaining()));
+          }
+          position += read;
+        }
+      }
+      buf.flip();
+      return buf;
+    } catch (IOException e) {
+      throw new IOException("Error in reading " + this, e);
+    } finally {
+      JavaUtils.closeQuietly(channel);
+    }
+  }
+
+  @Override
+  public InputStream createInputStream() throws IOException {
+    return new ByteBufInputStream(Unpooled.wrappedBuffer(nioByteBuffer()), true);
+  }
+
+  @Override
+  public ManagedBuffer retain() {
+    return this;
+  }
+
+  @Override
+  public ManagedBuffer release() {
+    return this;
+  }
+
+  @Override
+  public Object convertToNetty() throws IOException {
+    FileChannel fileChannel = null;
+    if (!conf.lazyFileDescriptor()) {
+      fileChannel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+    }
+    return new FileSegmentsRegion(file, fileChannel, offsets, lengths, size);
+  }
+
+  @Override
+  public String toString() {
+    return Objects.toStringHelper(this)
+        .add("file", file)
+        .add("offsets", Arrays.toString(offsets))
+        .add("lengths", Arrays.toString(lengths))
+        .toString();
+  }
+
+  /** A FileRegion which transfers the segments one after another. */
+  private static class FileSegmentsRegion extends AbstractFileRegion {
+    private final File file;
+    private final long[] offsets;
+    private final long[] lengths;
+    private final long count;
+    private FileChannel channel;
+    private long transferred;
+
+    FileSegmentsRegion(File file, FileChannel channel, long[] offsets, long[] lengths, long count) {
+      this.file = file;
+      this.channel = channel;
+      this.offsets = offsets;
+      this.lengths = lengths;
+      this.count = count;
+    }
+
+    @Override
+    public long position() {
+      return 0;
+    }
+
+    @Override
+    public long count() {
+      return count;
+    }
+
+    @Override
+    public long transferred() {
+      return transferred;
+    }
+
+    @Override
+    public long transferTo(WritableByteChannel target, long position) throws IOException {
+      if (position >= count) {
+        return 0;
+      }
+      if (channel == null) {
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+      }
+      int index = 0;
+      long positionInSegment = position;
+      while (positionInSegment >= lengths[index]) {
+        positionInSegment -= lengths[index];
+        index++;
+      }
+      long written =
+          channel.transferTo(
+              offsets[index] + positionInSegment, lengths[index] - positionInSegment, target);
+      transferred += written;
+      return written;
+    }
+
+    @Override
+    protected void deallocate() {
+      JavaUtils.closeQuietly(channel);
+    }
+  }
+}
@@ -35,6 +35,7 @@ import org.slf4j.LoggerFactory;
 
 import org.apache.celeborn.common.exception.CelebornIOException;
 import org.apache.celeborn.common.network.TransportContext;
+import org.apache.celeborn.common.network.protocol.PushKeyDictionary;
 import org.apache.celeborn.common.network.server.TransportChannelHandler;
 import org.apache.celeborn.common.network.util.*;
 import org.apache.celeborn.common.util.JavaUtils;
@@ -219,6 +220,9 @@ public class TransportClientFactory implements Closeable {
         new ChannelInitializer<SocketChannel>() {
           @Override
           public void initChannel(SocketChannel ch) {
+            if (conf.pushKeyDictionaryEnabled()) {
+              ch.attr(PushKeyDictionary.WRITER).set(new PushKeyDictionary.Writer());
+            }
             TransportChannelHandler clientHandler = context.initializePipeline(ch, decoder);
             clientRef.set(clientHandler.getClient());
             channelRef.set(ch);
@@ -266,4 +270,9 @@ public class TransportClientFactory implements Closeable {
   public TransportContext getContext() {
     return context;
   }
+
+  /** The allocator of the channels of the clients, which is shared with their callers. */
+  public ByteBufAllocator getPooledAllocator() {
+    return pooledAllocator;
+  }
 }
@@ -176,6 +176,15 @@ public abstract class Message implements Encodable {
   }
 
   public static Message decode(Type msgType, ByteBuf in, boolean decodeBody) {
+    return decode(msgType, in, decodeBody, null);
+  }
+
+  /**
+   * @param pushKeys the dictionary of push keys of the connection the message is received on, if
+   *     any, see {@link PushKeyDictionary}.
+   */
+  public static Message decode(
+      Type msgType, ByteBuf in, boolean decodeBody, PushKeyDictionary.Reader pushKeys) {
     switch (msgType) {
       case CHUNK_FETCH_REQUEST:
         return ChunkFetchRequest.decode(in);
@@ -205,10 +214,10 @@ public abstract class Message implements Encodable {
         return OneWayMessage.decode(in, decodeBody);
 
       case PUSH_DATA:
-        return PushData.decode(in, decodeBody);
+        return PushData.decode(in, decodeBody, pushKeys);
 
       case PUSH_MERGED_DATA:
-        return PushMergedData.decode(in, decodeBody);
+        return PushMergedData.decode(in, decodeBody, pushKeys);
 
       case REGION_START:
         return RegionStart.decode(in);
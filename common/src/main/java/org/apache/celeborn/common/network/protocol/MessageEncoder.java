@@ -73,14 +73,32 @@ public final class MessageEncoder extends MessageToMessageEncoder<Message> {
     }
 
     Message.Type msgType = in.type();
-    // message size, message type size, body size, message encoded length
-    int headerLength = 4 + msgType.encodedLength() + 4 + in.encodedLength();
-    ByteBuf header = ctx.alloc().heapBuffer(headerLength);
-    header.writeInt(in.encodedLength());
-    msgType.encode(header);
-    header.writeInt(bodyLength);
-    in.encode(header);
-    assert header.writableBytes() == 0;
+    PushKeyDictionary.Writer pushKeys =
+        in instanceof PushKeyDictionary.KeyedMessage
+            ? ctx.channel().attr(PushKeyDictionary.WRITER).get()
+            : null;
+    ByteBuf header;
+    if (pushKeys != null) {
+      // the length depends on which keys are already defined on the connection, so it is only
+      // known once the message is encoded
+      PushKeyDictionary.KeyedMessage keyedMessage = (PushKeyDictionary.KeyedMessage) in;
+      header =
+          ctx.alloc().heapBuffer(4 + msgType.encodedLength() + 4 + keyedMessage.maxEncodedLength());
+      header.writeInt(0);
+      msgType.encode(header);
+      header.writeInt(bodyLength);
+      keyedMessage.encode(header, pushKeys);
+      header.setInt(0, header.readableBytes() - 4 - msgType.encodedLength() - 4);
+    } else {
+      // message size, message type size, body size, message encoded length
+      int headerLength = 4 + msgType.encodedLength() + 4 + in.encodedLength();
+      header = ctx.alloc().heapBuffer(headerLength);
+      header.writeInt(in.encodedLength());
+      msgType.encode(header);
+      header.writeInt(bodyLength);
+      in.encode(header);
+      assert header.writableBytes() == 0;
+    }
 
     if (body != null) {
       // We transfer ownership of the reference on in.body() to MessageWithHeader.
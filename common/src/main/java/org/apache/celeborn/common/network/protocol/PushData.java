@@ -23,7 +23,7 @@ import io.netty.buffer.ByteBuf;
 import org.apache.celeborn.common.network.buffer.ManagedBuffer;
 import org.apache.celeborn.common.network.buffer.NettyManagedBuffer;
 
-public final class PushData extends RequestMessage {
+public final class PushData extends RequestMessage implements PushKeyDictionary.KeyedMessage {
   public long requestId;
 
   // 0 for primary, 1 for replica, see PartitionLocation.Mode
@@ -32,17 +32,30 @@ public final class PushData extends RequestMessage {
   public final String shuffleKey;
   public final String partitionUniqueId;
 
+  // Set when decoded from a frame whose keys are encoded with the dictionary of the connection:
+  // the dictionary and the id of the partition unique id in it.
+  public final PushKeyDictionary.Reader keyDictionary;
+  public final int partitionKeyId;
+
   public PushData(byte mode, String shuffleKey, String partitionUniqueId, ManagedBuffer body) {
-    this(0L, mode, shuffleKey, partitionUniqueId, body);
+    this(0L, mode, shuffleKey, partitionUniqueId, body, null, -1);
   }
 
   private PushData(
-      long requestId, byte mode, String shuffleKey, String partitionUniqueId, ManagedBuffer body) {
+      long requestId,
+      byte mode,
+      String shuffleKey,
+      String partitionUniqueId,
+      ManagedBuffer body,
+      PushKeyDictionary.Reader keyDictionary,
+      int partitionKeyId) {
     super(body);
     this.requestId = requestId;
     this.mode = mode;
     this.shuffleKey = shuffleKey;
     this.partitionUniqueId = partitionUniqueId;
+    this.keyDictionary = keyDictionary;
+    this.partitionKeyId = partitionKeyId;
   }
 
   @Override
@@ -66,22 +79,52 @@ public final class PushData extends RequestMessage {
     Encoders.Strings.encode(buf, partitionUniqueId);
   }
 
+  @Override
+  public int maxEncodedLength() {
+    // each key is preceded by its id when it is defined
+    return encodedLength() + 4 + 4;
+  }
+
+  @Override
+  public void encode(ByteBuf buf, PushKeyDictionary.Writer keys) {
+    keys.beginMessage(2);
+    buf.writeLong(requestId);
+    buf.writeByte(mode | PushKeyDictionary.ENCODED_FLAG);
+    PushKeyDictionary.ShuffleKeys shuffleKeys = keys.encodeShuffleKey(buf, shuffleKey);
+    keys.encodePartition(buf, shuffleKeys, partitionUniqueId);
+  }
+
   public static PushData decode(ByteBuf buf) {
     return decode(buf, true);
   }
 
   public static PushData decode(ByteBuf buf, boolean decodeBody) {
+    return decode(buf, decodeBody, null);
+  }
+
+  public static PushData decode(
+      ByteBuf buf, boolean decodeBody, PushKeyDictionary.Reader keyDictionary) {
     long requestId = buf.readLong();
     byte mode = buf.readByte();
-    String shuffleKey = Encoders.Strings.decode(buf);
-    String partitionUniqueId = Encoders.Strings.decode(buf);
-    if (decodeBody) {
-      return new PushData(
-          requestId, mode, shuffleKey, partitionUniqueId, new NettyManagedBuffer(buf));
+    String shuffleKey;
+    String partitionUniqueId;
+    int partitionKeyId = -1;
+    if (PushKeyDictionary.isEncoded(mode)) {
+      if (keyDictionary == null) {
+        throw new IllegalArgumentException("PushData encoded with a dictionary of push keys.");
+      }
+      mode = PushKeyDictionary.stripFlag(mode);
+      shuffleKey = keyDictionary.key(keyDictionary.decodeRef(buf));
+      partitionKeyId = keyDictionary.decodeRef(buf);
+      partitionUniqueId = keyDictionary.key(partitionKeyId);
     } else {
-      return new PushData(
-          requestId, mode, shuffleKey, partitionUniqueId, NettyManagedBuffer.EmptyBuffer);
+      keyDictionary = null;
+      shuffleKey = Encoders.Strings.decode(buf);
+      partitionUniqueId = Encoders.Strings.decode(buf);
     }
+    ManagedBuffer body = decodeBody ? new NettyManagedBuffer(buf) : NettyManagedBuffer.EmptyBuffer;
+    return new PushData(
+        requestId, mode, shuffleKey, partitionUniqueId, body, keyDictionary, partitionKeyId);
   }
 
   @Override
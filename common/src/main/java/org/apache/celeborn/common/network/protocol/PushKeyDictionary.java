@@ -0,0 +1,176 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.celeborn.common.network.protocol;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.util.AttributeKey;
+
+/**
+ * Per connection dictionary of the shuffle keys and partition unique ids referenced by {@link
+ * PushData} and {@link PushMergedData}, so that a push carries int ids instead of the strings.
+ *
+ * <p>The dictionary is built in band: the first time a key is referenced on a connection, the
+ * reference is followed by the key itself, and later references only carry the id. A connection
+ * delivers its frames in order to a single decoder, so a definition always arrives before the uses
+ * of its id, and no extra round trip is needed. Ids of partition unique ids are scoped by the
+ * shuffle key of the message defining them, hence an id alone identifies a partition location.
+ *
+ * <p>The {@link Writer} lives in the client side channel (see {@link #WRITER}) and is only used by
+ * its event loop. The {@link Reader} lives in the frame decoder of the server side channel, and
+ * besides the keys, keeps what the keys were resolved to by the handler of the channel.
+ */
+public final class PushKeyDictionary {
+
+  /** Channel attribute holding the {@link Writer} of a connection that encodes push keys. */
+  public static final AttributeKey<Writer> WRITER = AttributeKey.valueOf("celeborn.pushKeys");
+
+  /** Flag set in the mode byte of a push whose keys are encoded with the dictionary. */
+  static final byte ENCODED_FLAG = (byte) 0x80;
+
+  static final int DEFAULT_CAPACITY = 1 << 16;
+
+  private PushKeyDictionary() {}
+
+  static boolean isEncoded(byte mode) {
+    return (mode & ENCODED_FLAG) != 0;
+  }
+
+  static byte stripFlag(byte mode) {
+    return (byte) (mode & ~ENCODED_FLAG);
+  }
+
+  /** Messages that may encode their keys with the dictionary of the connection. */
+  interface KeyedMessage {
+    /** Upper bound of the length written by {@link #encode(ByteBuf, Writer)}. */
+    int maxEncodedLength();
+
+    void encode(ByteBuf buf, Writer keys);
+  }
+
+  /**
+   * Assigns the ids. Once the capacity is used up, the ids are reassigned from scratch, and as
+   * every key is defined again before its id is used, the reader simply overwrites its entries.
+   */
+  public static final class Writer {
+    private final int capacity;
+    private final HashMap<String, ShuffleKeys> shuffles = new HashMap<>();
+    private int nextId;
+
+    public Writer() {
+      this(DEFAULT_CAPACITY);
+    }
+
+    Writer(int capacity) {
+      this.capacity = capacity;
+    }
+
+    /** Makes sure the ids of a message referencing up to numKeys keys are not reassigned. */
+    void beginMessage(int numKeys) {
+      if (nextId + numKeys > capacity) {
+        shuffles.clear();
+        nextId = 0;
+      }
+    }
+
+    ShuffleKeys encodeShuffleKey(ByteBuf buf, String shuffleKey) {
+      ShuffleKeys keys = shuffles.get(shuffleKey);
+      if (keys == null) {
+        keys = new ShuffleKeys(nextId++);
+        shuffles.put(shuffleKey, keys);
+        define(buf, keys.id, shuffleKey);
+      } else {
+        buf.writeInt(keys.id);
+      }
+      return keys;
+    }
+
+    void encodePartition(ByteBuf buf, ShuffleKeys keys, String partitionUniqueId) {
+      Integer id = keys.partitions.get(partitionUniqueId);
+      if (id == null) {
+        id = nextId++;
+        keys.partitions.put(partitionUniqueId, id);
+        define(buf, id, partitionUniqueId);
+      } else {
+        buf.writeInt(id);
+      }
+    }
+
+    private static void define(ByteBuf buf, int id, String key) {
+      buf.writeInt(-id - 1);
+      Encoders.Strings.encode(buf, key);
+    }
+  }
+
+  static final class ShuffleKeys {
+    final int id;
+    final HashMap<String, Integer> partitions = new HashMap<>();
+
+    ShuffleKeys(int id) {
+      this.id = id;
+    }
+  }
+
+  /**
+   * The keys received on a connection, indexed by id. Each id can also cache the object it was
+   * resolved to, which stays valid as long as the version it was resolved at.
+   */
+  public static final class Reader {
+    private String[] keys = new String[0];
+    private Object[] resolved = new Object[0];
+    private long[] resolvedVersions = new long[0];
+
+    /** Reads a reference, registering the key if the reference defines it, and returns its id. */
+    int decodeRef(ByteBuf buf) {
+      int ref = buf.readInt();
+      if (ref >= 0) {
+        if (ref >= keys.length || keys[ref] == null) {
+          throw new IllegalStateException("Push key " + ref + " is not defined on the connection");
+        }
+        return ref;
+      }
+      int id = -ref - 1;
+      if (id >= keys.length) {
+        int length = Math.max(id + 1, Math.max(16, keys.length * 2));
+        keys = Arrays.copyOf(keys, length);
+        resolved = Arrays.copyOf(resolved, length);
+        resolvedVersions = Arrays.copyOf(resolvedVersions, length);
+      }
+      keys[id] = Encoders.Strings.decode(buf);
+      resolved[id] = null;
+      return id;
+    }
+
+    String key(int id) {
+      return keys[id];
+    }
+
+    /** Returns what the id was resolved to at the given version, or null. */
+    public Object resolved(int id, long version) {
+      Object value = resolved[id];
+      return value != null && resolvedVersions[id] == version ? value : null;
+    }
+
+    public void setResolved(int id, Object value, long version) {
+      resolved[id] = value;
+      resolvedVersions[id] = version;
+    }
+  }
+}
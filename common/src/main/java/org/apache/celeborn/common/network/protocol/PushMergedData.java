@@ -25,7 +25,7 @@ import io.netty.buffer.ByteBuf;
 import org.apache.celeborn.common.network.buffer.ManagedBuffer;
 import org.apache.celeborn.common.network.buffer.NettyManagedBuffer;
 
-public final class PushMergedData extends RequestMessage {
+public final class PushMergedData extends RequestMessage implements PushKeyDictionary.KeyedMessage {
   public long requestId;
 
   // 0 for primary, 1 for replica, see PartitionLocation.Mode
@@ -35,9 +35,14 @@ public final class PushMergedData extends RequestMessage {
   public final String[] partitionUniqueIds;
   public final int[] batchOffsets;
 
+  // Set when decoded from a frame whose keys are encoded with the dictionary of the connection:
+  // the dictionary and the ids of the partition unique ids in it.
+  public final PushKeyDictionary.Reader keyDictionary;
+  public final int[] partitionKeyIds;
+
   public PushMergedData(
       byte mode, String shuffleKey, String[] partitionIds, int[] batchOffsets, ManagedBuffer body) {
-    this(0L, mode, shuffleKey, partitionIds, batchOffsets, body);
+    this(0L, mode, shuffleKey, partitionIds, batchOffsets, body, null, null);
   }
 
   private PushMergedData(
@@ -46,13 +51,17 @@ public final class PushMergedData extends RequestMessage {
       String shuffleKey,
       String[] partitionUniqueIds,
       int[] batchOffsets,
-      ManagedBuffer body) {
+      ManagedBuffer body,
+      PushKeyDictionary.Reader keyDictionary,
+      int[] partitionKeyIds) {
     super(body);
     this.requestId = requestId;
     this.mode = mode;
     this.shuffleKey = shuffleKey;
     this.partitionUniqueIds = partitionUniqueIds;
     this.batchOffsets = batchOffsets;
+    this.keyDictionary = keyDictionary;
+    this.partitionKeyIds = partitionKeyIds;
   }
 
   @Override
@@ -78,23 +87,69 @@ public final class PushMergedData extends RequestMessage {
     Encoders.IntArrays.encode(buf, batchOffsets);
   }
 
+  @Override
+  public int maxEncodedLength() {
+    // each key is preceded by its id when it is defined
+    return encodedLength() + 4 + 4 * partitionUniqueIds.length;
+  }
+
+  @Override
+  public void encode(ByteBuf buf, PushKeyDictionary.Writer keys) {
+    keys.beginMessage(1 + partitionUniqueIds.length);
+    buf.writeLong(requestId);
+    buf.writeByte(mode | PushKeyDictionary.ENCODED_FLAG);
+    PushKeyDictionary.ShuffleKeys shuffleKeys = keys.encodeShuffleKey(buf, shuffleKey);
+    buf.writeInt(partitionUniqueIds.length);
+    for (String partitionUniqueId : partitionUniqueIds) {
+      keys.encodePartition(buf, shuffleKeys, partitionUniqueId);
+    }
+    Encoders.IntArrays.encode(buf, batchOffsets);
+  }
+
   public static PushMergedData decode(ByteBuf buf) {
     return decode(buf, true);
   }
 
   public static PushMergedData decode(ByteBuf buf, boolean decodeBody) {
+    return decode(buf, decodeBody, null);
+  }
+
+  public static PushMergedData decode(
+      ByteBuf buf, boolean decodeBody, PushKeyDictionary.Reader keyDictionary) {
     long requestId = buf.readLong();
     byte mode = buf.readByte();
-    String shuffleKey = Encoders.Strings.decode(buf);
-    String[] partitionIds = Encoders.StringArrays.decode(buf);
-    int[] batchOffsets = Encoders.IntArrays.decode(buf);
-    if (decodeBody) {
-      return new PushMergedData(
-          requestId, mode, shuffleKey, partitionIds, batchOffsets, new NettyManagedBuffer(buf));
+    String shuffleKey;
+    String[] partitionIds;
+    int[] partitionKeyIds = null;
+    if (PushKeyDictionary.isEncoded(mode)) {
+      if (keyDictionary == null) {
+        throw new IllegalArgumentException(
+            "PushMergedData encoded with a dictionary of push keys.");
+      }
+      mode = PushKeyDictionary.stripFlag(mode);
+      shuffleKey = keyDictionary.key(keyDictionary.decodeRef(buf));
+      partitionIds = new String[buf.readInt()];
+      partitionKeyIds = new int[partitionIds.length];
+      for (int i = 0; i < partitionIds.length; i++) {
+        partitionKeyIds[i] = keyDictionary.decodeRef(buf);
+        partitionIds[i] = keyDictionary.key(partitionKeyIds[i]);
+      }
     } else {
-      return new PushMergedData(
-          requestId, mode, shuffleKey, partitionIds, batchOffsets, NettyManagedBuffer.EmptyBuffer);
+      keyDictionary = null;
+      shuffleKey = Encoders.Strings.decode(buf);
+      partitionIds = Encoders.StringArrays.decode(buf);
     }
+    int[] batchOffsets = Encoders.IntArrays.decode(buf);
+    ManagedBuffer body = decodeBody ? new NettyManagedBuffer(buf) : NettyManagedBuffer.EmptyBuffer;
+    return new PushMergedData(
+        requestId,
+        mode,
+        shuffleKey,
+        partitionIds,
+        batchOffsets,
+        body,
+        keyDictionary,
+        partitionKeyIds);
   }
 
   @Override
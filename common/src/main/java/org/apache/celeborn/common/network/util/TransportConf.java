@@ -142,6 +142,10 @@ public class TransportConf {
     return celebornConf.pushDataTimeoutCheckInterval(module);
   }
 
+  public boolean pushKeyDictionaryEnabled() {
+    return celebornConf.pushKeyDictionaryEnabled(module);
+  }
+
   public int fetchDataTimeoutCheckerThreads() {
     return celebornConf.fetchDataTimeoutCheckerThreads(module);
   }
@@ -27,6 +27,7 @@ import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
 
 import org.apache.celeborn.common.network.protocol.Message;
+import org.apache.celeborn.common.network.protocol.PushKeyDictionary;
 
 /**
  * A customized frame decoder that allows intercepting raw data.
@@ -56,6 +57,8 @@ public class TransportFrameDecoder extends ChannelInboundHandlerAdapter implemen
   private long totalSize = 0;
   private long nextFrameSize = UNKNOWN_FRAME_SIZE;
 
+  private final PushKeyDictionary.Reader pushKeys = new PushKeyDictionary.Reader();
+
   @Override
   public void channelRead(ChannelHandlerContext ctx, Object data) {
     ByteBuf in = (ByteBuf) data;
@@ -67,7 +70,7 @@ public class TransportFrameDecoder extends ChannelInboundHandlerAdapter implemen
       if (frame == null) {
         break;
       }
-      Message msg = Message.decode(curType, frame);
+      Message msg = Message.decode(curType, frame, true, pushKeys);
       if (msg.body() == null) {
         frame.release();
       }
@@ -0,0 +1,203 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.celeborn.common.oss;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.UUID;
+
+import org.apache.celeborn.common.CelebornConf;
+import org.apache.celeborn.common.util.JavaUtils;
+
+/**
+ * Object store kept in a local directory, such as a mount of the bucket or a directory shared by
+ * the workers and the clients. The object {@code oss://bucket/key} is the file {@code bucket/key}
+ * under the directory. Objects are written to a temporary file which is then renamed, so readers
+ * never see a partial object, and the parts of a multipart upload are staged under the {@code
+ * .uploads} directory until the upload is completed. Like S3, an upload whose parts but the last
+ * one are smaller than {@code celeborn.storage.oss.minPartSize} fails to complete.
+ */
+public class LocalObjectStore implements ObjectStore {
+  private static final String UPLOADS_DIR = ".uploads";
+
+  private final File root;
+  private final long minPartSize;
+
+  public LocalObjectStore(CelebornConf conf) {
+    if (conf.ossLocalDir().isEmpty()) {
+      throw new IllegalArgumentException(
+          CelebornConf.OSS_LOCAL_DIR().key() + " must be set to use " + getClass().getName());
+    }
+    this.root = new File(conf.ossLocalDir());
+    this.minPartSize = conf.ossMinPartSize();
+  }
+
+  private File file(String path) {
+    int schemeEnd = path.indexOf("://");
+    return new File(root, schemeEnd < 0 ? path : path.substring(schemeEnd + 3));
+  }
+
+  private File uploadDir(String uploadId) {
+    return new File(new File(root, UPLOADS_DIR), uploadId);
+  }
+
+  private void write(File file, ByteBuffer[] data) throws IOException {
+    try (FileChannel channel =
+        FileChannel.open(file.toPath(), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+      for (ByteBuffer buffer : data) {
+        while (buffer.hasRemaining()) {
+          channel.write(buffer);
+        }
+      }
+    }
+  }
+
+  /** Moves the file to the object, replacing the object if it exists. */
+  private void publish(File tmpFile, String path) throws IOException {
+    File target = file(path);
+    Files.createDirectories(target.getParentFile().toPath());
+    Files.move(tmpFile.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  private File newTmpFile() throws IOException {
+    File tmpDir = new File(root, UPLOADS_DIR);
+    Files.createDirectories(tmpDir.toPath());
+    return new File(tmpDir, UUID.randomUUID() + ".tmp");
+  }
+
+  @Override
+  public void putObject(String path, byte[] data) throws IOException {
+    File tmpFile = newTmpFile();
+    write(tmpFile, new ByteBuffer[] {ByteBuffer.wrap(data)});
+    publish(tmpFile, path);
+  }
+
+  @Override
+  public String initiateMultipartUpload(String path) throws IOException {
+    String uploadId = UUID.randomUUID().toString();
+    Files.createDirectories(uploadDir(uploadId).toPath());
+    return uploadId;
+  }
+
+  @Override
+  public String uploadPart(String path, String uploadId, int partNumber, ByteBuffer[] data)
+      throws IOException {
+    File uploadDir = uploadDir(uploadId);
+    if (!uploadDir.isDirectory()) {
+      throw new FileNotFoundException("Upload " + uploadId + " of " + path + " doesn't exist");
+    }
+    String tag = String.valueOf(partNumber);
+    File part = new File(uploadDir, tag);
+    Files.deleteIfExists(part.toPath());
+    write(part, data);
+    return tag;
+  }
+
+  @Override
+  public void completeMultipartUpload(String path, String uploadId, List<String> partTags)
+      throws IOException {
+    File uploadDir = uploadDir(uploadId);
+    for (int i = 0; i < partTags.size() - 1; i++) {
+      long partSize = new File(uploadDir, partTags.get(i)).length();
+      if (partSize < minPartSize) {
+        throw new IOException(
+            "Part "
+                + (i + 1)
+                + " of "
+                + path
+                + " is "
+                + partSize
+                + " bytes, smaller than the minimum part size "
+                + minPartSize);
+      }
+    }
+    File tmpFile = newTmpFile();
+    try (FileChannel channel =
+        FileChannel.open(
+            tmpFile.toPath(), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+      for (String tag : partTags) {
+        try (FileChannel part = FileChannel.open(new File(uploadDir, tag).toPath())) {
+          long position = 0;
+          long size = part.size();
+          while (position < size) {
+            position += part.transferTo(position, size - position, channel);
+          }
+        }
+      }
+    }
+    publish(tmpFile, path);
+    JavaUtils.deleteRecursively(uploadDir);
+  }
+
+  @Override
+  public void abortMultipartUpload(String path, String uploadId) throws IOException {
+    JavaUtils.deleteRecursively(uploadDir(uploadId));
+  }
+
+  @Override
+  public void readObject(String path, long offset, byte[] buffer, int bufferOffset, int length)
+      throws IOException {
+    try (FileChannel channel = FileChannel.open(file(path).toPath())) {
+      ByteBuffer target = ByteBuffer.wrap(buffer, bufferOffset, length);
+      while (target.hasRemaining()) {
+        if (channel.read(target, offset + target.position() - bufferOffset) < 0) {
+          throw new EOFException(
+              "Read " + length + " bytes at " + offset + " beyond the end of " + path);
+        }
+      }
+    } catch (NoSuchFileException e) {
+      throw new FileNotFoundException(path);
+    }
+  }
+
+  @Override
+  public long getObjectLength(String path) throws IOException {
+    File file = file(path);
+    if (!file.isFile()) {
+      throw new FileNotFoundException(path);
+    }
+    return file.length();
+  }
+
+  @Override
+  public boolean exists(String path) {
+    return file(path).isFile();
+  }
+
+  @Override
+  public void deleteObject(String path) throws IOException {
+    Files.deleteIfExists(file(path).toPath());
+  }
+
+  @Override
+  public void deleteDirectory(String path) throws IOException {
+    JavaUtils.deleteRecursively(file(path));
+  }
+
+  @Override
+  public void close() {}
+}
@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.celeborn.common.oss;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import org.apache.celeborn.common.CelebornConf;
+
+/**
+ * An object store such as OSS or S3, used as the OSS storage tier. Objects are addressed by their
+ * full path, e.g. {@code oss://bucket/key}. Large objects are written with multipart uploads, each
+ * part being uploaded by a single request, and read with ranged reads.
+ *
+ * <p>Implementations are created by {@link #instantiate} from the class set by {@code
+ * celeborn.storage.oss.store.class}, through a public constructor taking the {@link CelebornConf},
+ * and must be thread safe.
+ */
+public interface ObjectStore extends Closeable {
+
+  /** Writes a whole object, replacing the object if it exists. */
+  void putObject(String path, byte[] data) throws IOException;
+
+  /** Starts a multipart upload of the object, and returns the id of the upload. */
+  String initiateMultipartUpload(String path) throws IOException;
+
+  /**
+   * Uploads a part of a multipart upload. Parts are numbered from 1, and all the parts but the last
+   * one must be at least the minimum part size of the store.
+   *
+   * @return the tag of the part, passed back when the upload is completed
+   */
+  String uploadPart(String path, String uploadId, int partNumber, ByteBuffer[] data)
+      throws IOException;
+
+  /**
+   * Completes a multipart upload, after which the object is made of its parts in order. Fails if a
+   * part but the last one is smaller than the minimum part size of the store.
+   *
+   * @param partTags the tags of the parts, the tag of part i at index i - 1
+   */
+  void completeMultipartUpload(String path, String uploadId, List<String> partTags)
+      throws IOException;
+
+  /** Aborts a multipart upload and drops the parts uploaded so far. */
+  void abortMultipartUpload(String path, String uploadId) throws IOException;
+
+  /** Reads length bytes of the object from offset into the buffer, with a single ranged read. */
+  void readObject(String path, long offset, byte[] buffer, int bufferOffset, int length)
+      throws IOException;
+
+  /**
+   * Returns the length of the object.
+   *
+   * @throws java.io.FileNotFoundException if the object doesn't exist
+   */
+  long getObjectLength(String path) throws IOException;
+
+  boolean exists(String path) throws IOException;
+
+  /** Deletes the object, nothing happens if it doesn't exist. */
+  void deleteObject(String path) throws IOException;
+
+  /** Deletes all the objects under the directory. */
+  void deleteDirectory(String path) throws IOException;
+
+  static ObjectStore instantiate(CelebornConf conf) throws IOException {
+    String className = conf.ossStoreClass();
+    try {
+      Class<?> clazz =
+          Class.forName(className, true, Thread.currentThread().getContextClassLoader());
+      return (ObjectStore) clazz.getConstructor(CelebornConf.class).newInstance(conf);
+    } catch (InvocationTargetException e) {
+      throw new IOException("Failed to create object store " + className, e.getCause());
+    } catch (ReflectiveOperationException | ClassCastException e) {
+      throw new IOException("Failed to create object store " + className, e);
+    }
+  }
+}
@@ -0,0 +1,55 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.celeborn.common.read;
+
+import java.util.Arrays;
+
+import org.roaringbitmap.RoaringBitmap;
+
+/**
+ * Tracks the batches already read by a reducer, so that batches pushed more than once (e.g. after a
+ * revive or when re-reading a replica) are only consumed once. The batch ids of every mapper are
+ * kept in a {@link RoaringBitmap} indexed by mapId, which avoids boxing the ids and stays compact
+ * since the batch ids of a mapper are increasing. Not thread safe.
+ */
+public class BatchDeduplicator {
+  private RoaringBitmap[] batchesRead;
+
+  public BatchDeduplicator(int numMappers) {
+    batchesRead = new RoaringBitmap[Math.max(numMappers, 1)];
+  }
+
+  /** Returns true if the batch has not been seen before, and marks it as seen. */
+  public boolean add(int mapId, int batchId) {
+    if (mapId >= batchesRead.length) {
+      batchesRead = Arrays.copyOf(batchesRead, Math.max(mapId + 1, batchesRead.length * 2));
+    }
+    RoaringBitmap batches = batchesRead[mapId];
+    if (batches == null) {
+      batches = new RoaringBitmap();
+      batchesRead[mapId] = batches;
+    }
+    return batches.checkedAdd(batchId);
+  }
+
+  public boolean contains(int mapId, int batchId) {
+    return mapId < batchesRead.length
+        && batchesRead[mapId] != null
+        && batchesRead[mapId].contains(batchId);
+  }
+}
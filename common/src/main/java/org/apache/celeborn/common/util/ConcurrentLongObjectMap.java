@@ -0,0 +1,205 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.celeborn.common.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A concurrent map from non-negative long keys to objects. Keys and values are kept in two arrays
+ * with open addressing and linear probing, so an entry costs a long and a reference in the arrays,
+ * instead of a node and a boxed or string key as in a {@link
+ * java.util.concurrent.ConcurrentHashMap}.
+ *
+ * <p>Reads never lock. Writes are serialized on the map. A removed entry keeps its key in the table
+ * with a null value until the table is rebuilt, so that concurrent reads probing past it still find
+ * the entries after it.
+ */
+public class ConcurrentLongObjectMap<V> {
+  private static final long EMPTY = -1L;
+  private static final int MIN_CAPACITY = 16;
+  private static final float LOAD_FACTOR = 0.75f;
+
+  private static final class Table {
+    final AtomicLongArray keys;
+    final AtomicReferenceArray<Object> values;
+    final int mask;
+
+    Table(int capacity) {
+      keys = new AtomicLongArray(capacity);
+      for (int i = 0; i < capacity; i++) {
+        keys.lazySet(i, EMPTY);
+      }
+      values = new AtomicReferenceArray<>(capacity);
+      mask = capacity - 1;
+    }
+  }
+
+  private volatile Table table = new Table(MIN_CAPACITY);
+  private volatile int size;
+  // slots holding a key, including the removed entries, guarded by this
+  private int usedSlots;
+
+  private static int slot(long key, int mask) {
+    long h = key * 0x9E3779B97F4A7C15L;
+    return (int) (h ^ (h >>> 32)) & mask;
+  }
+
+  @SuppressWarnings("unchecked")
+  public V get(long key) {
+    Table t = table;
+    int i = slot(key, t.mask);
+    while (true) {
+      long k = t.keys.get(i);
+      if (k == key) {
+        return (V) t.values.get(i);
+      } else if (k == EMPTY) {
+        return null;
+      }
+      i = (i + 1) & t.mask;
+    }
+  }
+
+  public boolean containsKey(long key) {
+    return get(key) != null;
+  }
+
+  /** Returns the value of the key, or puts the given value if there is none and returns null. */
+  @SuppressWarnings("unchecked")
+  public synchronized V putIfAbsent(long key, V value) {
+    if (key < 0) {
+      throw new IllegalArgumentException("Negative key " + key);
+    }
+    if (value == null) {
+      throw new NullPointerException();
+    }
+    Table t = table;
+    int i = slot(key, t.mask);
+    while (true) {
+      long k = t.keys.get(i);
+      if (k == key) {
+        Object existing = t.values.get(i);
+        if (existing != null) {
+          return (V) existing;
+        }
+        t.values.set(i, value);
+        size++;
+        return null;
+      } else if (k == EMPTY) {
+        break;
+      }
+      i = (i + 1) & t.mask;
+    }
+    if (usedSlots + 1 > (t.mask + 1) * LOAD_FACTOR) {
+      rebuild(size + 1);
+      return putIfAbsent(key, value);
+    }
+    // the value is set after the key, hence a read seeing the key without value misses it
+    t.keys.set(i, key);
+    t.values.set(i, value);
+    usedSlots++;
+    size++;
+    return null;
+  }
+
+  @SuppressWarnings("unchecked")
+  public synchronized V remove(long key) {
+    Table t = table;
+    int i = slot(key, t.mask);
+    while (true) {
+      long k = t.keys.get(i);
+      if (k == key) {
+        Object removed = t.values.getAndSet(i, null);
+        if (removed != null) {
+          size--;
+        }
+        return (V) removed;
+      } else if (k == EMPTY) {
+        return null;
+      }
+      i = (i + 1) & t.mask;
+    }
+  }
+
+  /** Moves the entries into a new table, which drops the keys of the removed entries. */
+  private void rebuild(int expectedSize) {
+    // leaves room for a third of the entries before the next rebuild
+    int capacity = MIN_CAPACITY;
+    while (capacity * LOAD_FACTOR < expectedSize * 1.5) {
+      capacity <<= 1;
+    }
+    Table old = table;
+    Table rebuilt = new Table(capacity);
+    int used = 0;
+    for (int i = 0; i <= old.mask; i++) {
+      Object value = old.values.get(i);
+      if (value != null) {
+        long key = old.keys.get(i);
+        int j = slot(key, rebuilt.mask);
+        while (rebuilt.keys.get(j) != EMPTY) {
+          j = (j + 1) & rebuilt.mask;
+        }
+        rebuilt.keys.lazySet(j, key);
+        rebuilt.values.lazySet(j, value);
+        used++;
+      }
+    }
+    usedSlots = used;
+    // publishing the table through the volatile field makes the entries visible to the reads
+    table = rebuilt;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  @SuppressWarnings("unchecked")
+  public List<V> values() {
+    Table t = table;
+    List<V> values = new ArrayList<>(size);
+    for (int i = 0; i <= t.mask; i++) {
+      Object value = t.values.get(i);
+      if (value != null) {
+        values.add((V) value);
+      }
+    }
+    return values;
+  }
+
+  @Override
+  public String toString() {
+    Table t = table;
+    StringBuilder sb = new StringBuilder("{");
+    for (int i = 0; i <= t.mask; i++) {
+      Object value = t.values.get(i);
+      if (value != null) {
+        if (sb.length() > 1) {
+          sb.append(", ");
+        }
+        sb.append(t.keys.get(i)).append('=').append(value);
+      }
+    }
+    return sb.append('}').toString();
+  }
+}
@@ -60,6 +60,69 @@ public class ShuffleBlockInfoUtils {
     return sortedChunkOffset;
   }
 
+  /**
+   * Groups the blocks of [startMapIndex, endMapIndex) into chunks of about fetchChunkSize bytes.
+   * Each chunk is a list of segments of the unsorted file, adjacent blocks are merged into one
+   * segment.
+   */
+  public static List<List<ShuffleBlockInfo>> getChunkSegmentsFromShuffleBlockInfos(
+      int startMapIndex,
+      int endMapIndex,
+      long fetchChunkSize,
+      Map<Integer, List<ShuffleBlockInfo>> indexMap) {
+    List<List<ShuffleBlockInfo>> chunkSegments = new ArrayList<>();
+    List<ShuffleBlockInfo> currentChunk = null;
+    long currentChunkSize = 0;
+    for (int i = startMapIndex; i < endMapIndex; i++) {
+      List<ShuffleBlockInfo> blockInfos = indexMap.get(i);
+      if (blockInfos != null) {
+        for (ShuffleBlockInfo info : blockInfos) {
+          if (currentChunk == null || currentChunkSize >= fetchChunkSize) {
+            currentChunk = new ArrayList<>();
+            chunkSegments.add(currentChunk);
+            currentChunkSize = 0;
+          }
+          ShuffleBlockInfo lastSegment =
+              currentChunk.isEmpty() ? null : currentChunk.get(currentChunk.size() - 1);
+          if (lastSegment != null && lastSegment.offset + lastSegment.length == info.offset) {
+            lastSegment.length += info.length;
+          } else {
+            ShuffleBlockInfo segment = new ShuffleBlockInfo();
+            segment.offset = info.offset;
+            segment.length = info.length;
+            currentChunk.add(segment);
+          }
+          currentChunkSize += info.length;
+        }
+      }
+    }
+    return chunkSegments;
+  }
+
+  public static ByteBuffer serializeShuffleBlockInfos(
+      Map<Integer, List<ShuffleBlockInfo>> indexMap) {
+    int indexSize = 0;
+    for (Map.Entry<Integer, List<ShuffleBlockInfo>> entry : indexMap.entrySet()) {
+      indexSize += 8;
+      indexSize += entry.getValue().size() * 16;
+    }
+
+    ByteBuffer indexBuf = ByteBuffer.allocate(indexSize);
+    for (Map.Entry<Integer, List<ShuffleBlockInfo>> entry : indexMap.entrySet()) {
+      int mapId = entry.getKey();
+      List<ShuffleBlockInfo> list = entry.getValue();
+      indexBuf.putInt(mapId);
+      indexBuf.putInt(list.size());
+      list.forEach(
+          info -> {
+            indexBuf.putLong(info.offset);
+            indexBuf.putLong(info.length);
+          });
+    }
+    indexBuf.flip();
+    return indexBuf;
+  }
+
   public static Map<Integer, List<ShuffleBlockInfo>> parseShuffleBlockInfosFromByteBuffer(
       byte[] buffer) {
     return parseShuffleBlockInfosFromByteBuffer(ByteBuffer.wrap(buffer));
@@ -20,8 +20,12 @@ package org.apache.celeborn.common.write;
 import java.io.IOException;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
 import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
@@ -38,42 +42,45 @@ public class InFlightRequestTracker {
   private static final Logger logger = LoggerFactory.getLogger(InFlightRequestTracker.class);
 
   private final long waitInflightTimeoutMs;
-  private final long delta;
+  private final long deltaNanos;
   private final PushState pushState;
   private final PushStrategy pushStrategy;
 
   private final AtomicInteger batchId = new AtomicInteger();
-  private final ConcurrentHashMap<String, Set<Integer>> inflightBatchesPerAddress =
+  private final ConcurrentHashMap<String, InFlightBatches> inflightBatchesPerAddress =
       JavaUtils.newConcurrentHashMap();
 
   private final int maxInFlightReqsTotal;
   private final LongAdder totalInflightReqs = new LongAdder();
+  // Waiters blocked by the total limit rather than by the limit of a single address.
+  private final WaitQueue totalWaitQueue = new WaitQueue();
 
   public InFlightRequestTracker(CelebornConf conf, PushState pushState) {
     this.waitInflightTimeoutMs = conf.clientPushLimitInFlightTimeoutMs();
-    this.delta = conf.clientPushLimitInFlightSleepDeltaMs();
+    this.deltaNanos = TimeUnit.MILLISECONDS.toNanos(conf.clientPushLimitInFlightSleepDeltaMs());
     this.pushState = pushState;
     this.pushStrategy = PushStrategy.getStrategy(conf);
     this.maxInFlightReqsTotal = conf.clientPushMaxReqsInFlightTotal();
   }
 
   public void addBatch(int batchId, String hostAndPushPort) {
-    Set<Integer> batchIdSetPerPair =
-        inflightBatchesPerAddress.computeIfAbsent(
-            hostAndPushPort, id -> ConcurrentHashMap.newKeySet());
-    batchIdSetPerPair.add(batchId);
+    getInFlightBatches(hostAndPushPort).batchIds.add(batchId);
     totalInflightReqs.increment();
   }
 
   public void removeBatch(int batchId, String hostAndPushPort) {
-    Set<Integer> batchIdSet = inflightBatchesPerAddress.get(hostAndPushPort);
+    InFlightBatches batches = inflightBatchesPerAddress.get(hostAndPushPort);
     // TODO: Need to debug why batchIdSet will be null.
-    if (batchIdSet != null) {
-      batchIdSet.remove(batchId);
+    if (batches != null) {
+      batches.batchIds.remove(batchId);
     } else {
       logger.warn("BatchIdSet of {} is null.", hostAndPushPort);
     }
     totalInflightReqs.decrement();
+    if (batches != null) {
+      batches.waitQueue.signalAll();
+    }
+    totalWaitQueue.signalAll();
   }
 
   public void onSuccess(String hostAndPushPort) {
@@ -85,8 +92,11 @@ public class InFlightRequestTracker {
   }
 
   public Set<Integer> getBatchIdSetByAddressPair(String hostAndPort) {
-    return inflightBatchesPerAddress.computeIfAbsent(
-        hostAndPort, pair -> ConcurrentHashMap.newKeySet());
+    return getInFlightBatches(hostAndPort).batchIds;
+  }
+
+  private InFlightBatches getInFlightBatches(String hostAndPort) {
+    return inflightBatchesPerAddress.computeIfAbsent(hostAndPort, pair -> new InFlightBatches());
   }
 
   public boolean limitMaxInFlight(String hostAndPushPort) throws IOException {
@@ -97,25 +107,37 @@ public class InFlightRequestTracker {
     pushStrategy.limitPushSpeed(pushState, hostAndPushPort);
     int currentMaxReqsInFlight = pushStrategy.getCurrentMaxReqsInFlight(hostAndPushPort);
 
-    Set batchIdSet = getBatchIdSetByAddressPair(hostAndPushPort);
-    long times = waitInflightTimeoutMs / delta;
+    InFlightBatches batches = getInFlightBatches(hostAndPushPort);
+    Set<Integer> batchIdSet = batches.batchIds;
+    BooleanSupplier addressAvailable = () -> batchIdSet.size() <= currentMaxReqsInFlight;
+    BooleanSupplier totalAvailable = () -> totalInflightReqs.sum() <= maxInFlightReqsTotal;
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(waitInflightTimeoutMs);
+    boolean timeout = false;
     try {
-      while (times > 0) {
-        if (totalInflightReqs.sum() <= maxInFlightReqsTotal
-            && batchIdSet.size() <= currentMaxReqsInFlight) {
+      while (true) {
+        boolean addressLimited = !addressAvailable.getAsBoolean();
+        if (!addressLimited && totalAvailable.getAsBoolean()) {
           break;
         }
         if (pushState.exception.get() != null) {
           throw pushState.exception.get();
         }
-        Thread.sleep(delta);
-        times--;
+        long remaining = deadline - System.nanoTime();
+        if (remaining <= 0) {
+          timeout = true;
+          break;
+        }
+        if (addressLimited) {
+          batches.waitQueue.await(addressAvailable, Math.min(remaining, deltaNanos));
+        } else {
+          totalWaitQueue.await(totalAvailable, Math.min(remaining, deltaNanos));
+        }
       }
     } catch (InterruptedException e) {
       pushState.exception.set(new CelebornIOException(e));
     }
 
-    if (times <= 0) {
+    if (timeout) {
       logger.warn(
           "After waiting for {} ms, "
               + "there are still {} batches in flight "
@@ -131,31 +153,37 @@ public class InFlightRequestTracker {
       throw pushState.exception.get();
     }
 
-    return times <= 0;
+    return timeout;
   }
 
   public boolean limitZeroInFlight() throws IOException {
     if (pushState.exception.get() != null) {
       throw pushState.exception.get();
     }
-    long times = waitInflightTimeoutMs / delta;
+    BooleanSupplier noneInFlight = () -> totalInflightReqs.sum() == 0;
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(waitInflightTimeoutMs);
+    boolean timeout = false;
 
     try {
-      while (times > 0) {
-        if (totalInflightReqs.sum() == 0) {
+      while (true) {
+        if (noneInFlight.getAsBoolean()) {
           break;
         }
         if (pushState.exception.get() != null) {
           throw pushState.exception.get();
         }
-        Thread.sleep(delta);
-        times--;
+        long remaining = deadline - System.nanoTime();
+        if (remaining <= 0) {
+          timeout = true;
+          break;
+        }
+        totalWaitQueue.await(noneInFlight, Math.min(remaining, deltaNanos));
       }
     } catch (InterruptedException e) {
       pushState.exception.set(new CelebornIOException(e));
     }
 
-    if (times <= 0) {
+    if (timeout) {
       logger.error(
           "After waiting for {} ms, "
               + "there are still {} batches in flight "
@@ -170,7 +198,7 @@ public class InFlightRequestTracker {
       throw pushState.exception.get();
     }
 
-    return times <= 0;
+    return timeout;
   }
 
   protected int nextBatchId() {
@@ -180,8 +208,53 @@ public class InFlightRequestTracker {
   public void cleanup() {
     if (!inflightBatchesPerAddress.isEmpty()) {
       logger.warn("Clear {}", this.getClass().getSimpleName());
+      inflightBatchesPerAddress.values().forEach(batches -> batches.waitQueue.signalAll());
       inflightBatchesPerAddress.clear();
     }
+    totalWaitQueue.signalAll();
     pushStrategy.clear();
   }
+
+  /** Batches in flight to one address, along with the push threads waiting for them to drain. */
+  private static class InFlightBatches {
+    final Set<Integer> batchIds = ConcurrentHashMap.newKeySet();
+    final WaitQueue waitQueue = new WaitQueue();
+  }
+
+  /**
+   * Parks push threads until the in flight requests they are waiting for change. Waiters register
+   * themselves before checking their condition, and a signaller publishes its change before
+   * checking for waiters, so a wakeup can't be lost while the signal path stays lock free as long
+   * as nobody is waiting. Each wait is still bounded by the sleep delta, so that exceptions set by
+   * other threads without completing a batch are noticed as promptly as before.
+   */
+  private static class WaitQueue {
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final AtomicInteger waiters = new AtomicInteger();
+
+    void await(BooleanSupplier condition, long nanos) throws InterruptedException {
+      lock.lock();
+      waiters.incrementAndGet();
+      try {
+        if (!condition.getAsBoolean()) {
+          changed.awaitNanos(nanos);
+        }
+      } finally {
+        waiters.decrementAndGet();
+        lock.unlock();
+      }
+    }
+
+    void signalAll() {
+      if (waiters.get() > 0) {
+        lock.lock();
+        try {
+          changed.signalAll();
+        } finally {
+          lock.unlock();
+        }
+      }
+    }
+  }
 }
@@ -470,6 +470,12 @@ class CelebornConf(loadDefaults: Boolean) extends Cloneable with Logging with Se
     get(MAX_CHUNKS_BEING_TRANSFERRED)
   }
 
+  def workerFetchClientMaxBytesBeingTransferred: Option[Long] =
+    get(WORKER_FETCH_CLIENT_MAX_BYTES_BEING_TRANSFERRED)
+
+  def workerFetchApplicationMaxBytesBeingTransferred: Option[Long] =
+    get(WORKER_FETCH_APPLICATION_MAX_BYTES_BEING_TRANSFERRED)
+
   def clientHeartbeatInterval(module: String): Long = {
     val key = CHANNEL_HEARTBEAT_INTERVAL.key.replace("<module>", module)
     getTimeAsMs(key, CHANNEL_HEARTBEAT_INTERVAL.defaultValueString)
@@ -485,6 +491,11 @@ class CelebornConf(loadDefaults: Boolean) extends Cloneable with Logging with Se
     getTimeAsMs(key, PUSH_TIMEOUT_CHECK_INTERVAL.defaultValueString)
   }
 
+  def pushKeyDictionaryEnabled(module: String): Boolean = {
+    val key = PUSH_KEY_DICTIONARY_ENABLED.key.replace("<module>", module)
+    getBoolean(key, PUSH_KEY_DICTIONARY_ENABLED.defaultValue.get)
+  }
+
   def fetchDataTimeoutCheckerThreads(module: String): Int = {
     val key = FETCH_TIMEOUT_CHECK_THREADS.key.replace("<module>", module)
     getInt(key, FETCH_TIMEOUT_CHECK_THREADS.defaultValue.get)
@@ -498,11 +509,18 @@ class CelebornConf(loadDefaults: Boolean) extends Cloneable with Logging with Se
   // //////////////////////////////////////////////////////
   //                      Master                         //
   // //////////////////////////////////////////////////////
+  def masterRpcLanesEnabled: Boolean = get(MASTER_RPC_LANES_ENABLED)
+  def masterRpcLaneThreads: Int = get(MASTER_RPC_LANE_THREADS)
   def masterSlotAssignPolicy: SlotsAssignPolicy =
     SlotsAssignPolicy.valueOf(get(MASTER_SLOT_ASSIGN_POLICY))
 
   def hasHDFSStorage: Boolean =
     get(ACTIVE_STORAGE_TYPES).contains(StorageInfo.Type.HDFS.name()) && get(HDFS_DIR).isDefined
+  def hasOssStorage: Boolean =
+    get(ACTIVE_STORAGE_TYPES).contains(StorageInfo.Type.OSS.name()) && ossDir.nonEmpty
+
+  /** Whether shuffle data can be stored off the local disks, on HDFS or on the object store. */
+  def hasRemoteStorage: Boolean = hasHDFSStorage || hasOssStorage
   def masterSlotAssignLoadAwareDiskGroupNum: Int = get(MASTER_SLOT_ASSIGN_LOADAWARE_DISKGROUP_NUM)
   def masterSlotAssignLoadAwareDiskGroupGradient: Double =
     get(MASTER_SLOT_ASSIGN_LOADAWARE_DISKGROUP_GRADIENT)
@@ -616,6 +634,10 @@ class CelebornConf(loadDefaults: Boolean) extends Cloneable with Logging with Se
   def haMasterRatisSnapshotAutoTriggerThreshold: Long =
     get(HA_MASTER_RATIS_SNAPSHOT_AUTO_TRIGGER_THRESHOLD)
   def haMasterRatisSnapshotRetentionFileNum: Int = get(HA_MASTER_RATIS_SNAPSHOT_RETENTION_FILE_NUM)
+  def haMasterRatisSnapshotChunkSize: Int = get(HA_MASTER_RATIS_SNAPSHOT_CHUNK_SIZE)
+  def haMasterHeartbeatBatchEnabled: Boolean = get(HA_MASTER_HEARTBEAT_BATCH_ENABLED)
+  def haMasterHeartbeatBatchWindow: Long = get(HA_MASTER_HEARTBEAT_BATCH_WINDOW)
+  def haMasterHeartbeatBatchMaxSize: Int = get(HA_MASTER_HEARTBEAT_BATCH_MAX_SIZE)
 
   // //////////////////////////////////////////////////////
   //                      Worker                         //
@@ -640,12 +662,17 @@ class CelebornConf(loadDefaults: Boolean) extends Cloneable with Logging with Se
   def workerCommitThreads: Int =
     if (hasHDFSStorage) Math.max(128, get(WORKER_COMMIT_THREADS)) else get(WORKER_COMMIT_THREADS)
   def workerShuffleCommitTimeout: Long = get(WORKER_SHUFFLE_COMMIT_TIMEOUT)
+  def workerVirtualThreadsEnabled: Boolean = get(WORKER_VIRTUAL_THREADS_ENABLED)
   def minPartitionSizeToEstimate: Long = get(ESTIMATED_PARTITION_SIZE_MIN_SIZE)
   def partitionSorterSortPartitionTimeout: Long = get(PARTITION_SORTER_SORT_TIMEOUT)
   def partitionSorterReservedMemoryPerPartition: Long =
     get(WORKER_PARTITION_SORTER_PER_PARTITION_RESERVED_MEMORY)
   def partitionSorterThreads: Int =
     get(PARTITION_SORTER_THREADS).getOrElse(Runtime.getRuntime.availableProcessors)
+  def partitionSorterIndexOnWriteEnabled: Boolean = get(PARTITION_SORTER_INDEX_ON_WRITE_ENABLED)
+  def partitionSorterCopyThreadsPerDisk: Int = get(PARTITION_SORTER_COPY_THREADS_PER_DISK)
+  def partitionSorterVirtualSortEnabled: Boolean = get(PARTITION_SORTER_VIRTUAL_SORT_ENABLED)
+  def partitionSorterVirtualSortMaxFragments: Int = get(PARTITION_SORTER_VIRTUAL_SORT_MAX_FRAGMENTS)
   def workerPushHeartbeatEnabled: Boolean = get(WORKER_PUSH_HEARTBEAT_ENABLED)
   def workerPushMaxComponents: Int = get(WORKER_PUSH_COMPOSITEBUFFER_MAXCOMPONENTS)
   def workerFetchHeartbeatEnabled: Boolean = get(WORKER_FETCH_HEARTBEAT_ENABLED)
@@ -739,7 +766,16 @@ class CelebornConf(loadDefaults: Boolean) extends Cloneable with Logging with Se
   // //////////////////////////////////////////////////////
   def clientFetchTimeoutMs: Long = get(CLIENT_FETCH_TIMEOUT)
   def clientFetchMaxReqsInFlight: Int = get(CLIENT_FETCH_MAX_REQS_IN_FLIGHT)
+  def clientFetchAdaptiveWindowEnabled: Boolean = get(CLIENT_FETCH_ADAPTIVE_WINDOW_ENABLED)
+  def clientFetchAdaptiveWindowMaxReqsInFlight: Int =
+    get(CLIENT_FETCH_ADAPTIVE_WINDOW_MAX_REQS_IN_FLIGHT)
   def clientFetchMaxRetriesForEachReplica: Int = get(CLIENT_FETCH_MAX_RETRIES_FOR_EACH_REPLICA)
+  def clientFetchPrefetchLocations: Int = get(CLIENT_FETCH_PREFETCH_LOCATIONS)
+  def clientFetchPrefetchMaxBytes: Long = get(CLIENT_FETCH_PREFETCH_MAX_BYTES)
+  def clientFetchPrefetchThreads: Int = get(CLIENT_FETCH_PREFETCH_THREADS)
+  def clientFetchDfsReadThreads: Int = get(CLIENT_FETCH_DFS_READ_THREADS)
+  def clientFetchDfsMaxReadSize: Long = get(CLIENT_FETCH_DFS_MAX_READ_SIZE)
+  def clientFetchDfsMaxReadGap: Long = get(CLIENT_FETCH_DFS_MAX_READ_GAP)
   def clientFetchExcludeWorkerOnFailureEnabled: Boolean =
     get(CLIENT_FETCH_EXCLUDE_WORKER_ON_FAILURE_ENABLED)
   def clientFetchExcludedWorkerExpireTimeout: Long =
@@ -751,6 +787,7 @@ class CelebornConf(loadDefaults: Boolean) extends Cloneable with Logging with Se
   def clientPushReplicateEnabled: Boolean = get(CLIENT_PUSH_REPLICATE_ENABLED)
   def clientPushBufferInitialSize: Int = get(CLIENT_PUSH_BUFFER_INITIAL_SIZE).toInt
   def clientPushBufferMaxSize: Int = get(CLIENT_PUSH_BUFFER_MAX_SIZE).toInt
+  def clientPushPooledBufferEnabled: Boolean = get(CLIENT_PUSH_POOLED_BUFFER_ENABLED)
   def clientPushQueueCapacity: Int = get(CLIENT_PUSH_QUEUE_CAPACITY)
   def clientPushExcludeWorkerOnFailureEnabled: Boolean =
     get(CLIENT_PUSH_EXCLUDE_WORKER_ON_FAILURE_ENABLED)
@@ -802,6 +839,7 @@ class CelebornConf(loadDefaults: Boolean) extends Cloneable with Logging with Se
   def shufflePartitionSplitMode: PartitionSplitMode =
     PartitionSplitMode.valueOf(get(SHUFFLE_PARTITION_SPLIT_MODE))
   def shufflePartitionSplitThreshold: Long = get(SHUFFLE_PARTITION_SPLIT_THRESHOLD)
+  def clientVirtualThreadsEnabled: Boolean = get(CLIENT_VIRTUAL_THREADS_ENABLED)
   def batchHandleChangePartitionEnabled: Boolean = get(CLIENT_BATCH_HANDLE_CHANGE_PARTITION_ENABLED)
   def batchHandleChangePartitionNumThreads: Int = get(CLIENT_BATCH_HANDLE_CHANGE_PARTITION_THREADS)
   def batchHandleChangePartitionRequestInterval: Long =
@@ -862,7 +900,7 @@ class CelebornConf(loadDefaults: Boolean) extends Cloneable with Logging with Se
         (dir, maxCapacity, flushThread, diskType)
       }
     }.getOrElse {
-      if (!hasHDFSStorage) {
+      if (!hasRemoteStorage) {
         val prefix = workerStorageBaseDirPrefix
         val number = workerStorageBaseDirNumber
         (1 to number).map { i =>
@@ -889,6 +927,22 @@ class CelebornConf(loadDefaults: Boolean) extends Cloneable with Logging with Se
     }.getOrElse("")
   }
 
+  def ossDir: String = {
+    get(OSS_DIR).map {
+      ossDir =>
+        if (!Utils.isOssPath(ossDir)) {
+          log.error(s"${OSS_DIR.key} configuration is wrong $ossDir. Disable OSS support.")
+          ""
+        } else {
+          ossDir
+        }
+    }.getOrElse("")
+  }
+
+  def ossStoreClass: String = get(OSS_STORE_CLASS)
+  def ossLocalDir: String = get(OSS_LOCAL_DIR).getOrElse("")
+  def ossMinPartSize: Long = get(OSS_MIN_PART_SIZE)
+
   def workerStorageBaseDirPrefix: String = get(WORKER_STORAGE_BASE_DIR_PREFIX)
   def workerStorageBaseDirNumber: Int = get(WORKER_STORAGE_BASE_DIR_COUNT)
   def creditStreamThreadsPerMountpoint: Int = get(WORKER_BUFFERSTREAM_THREADS_PER_MOUNTPOINT)
@@ -919,11 +973,15 @@ class CelebornConf(loadDefaults: Boolean) extends Cloneable with Logging with Se
   //                      Flusher                        //
   // //////////////////////////////////////////////////////
   def workerFlusherBufferSize: Long = get(WORKER_FLUSHER_BUFFER_SIZE)
+  def workerFlusherBatchMaxTasks: Int = get(WORKER_FLUSHER_BATCH_MAX_TASKS)
   def workerHdfsFlusterBufferSize: Long = get(WORKER_HDFS_FLUSHER_BUFFER_SIZE)
   def workerWriterCloseTimeoutMs: Long = get(WORKER_WRITER_CLOSE_TIMEOUT)
   def workerHddFlusherThreads: Int = get(WORKER_FLUSHER_HDD_THREADS)
   def workerSsdFlusherThreads: Int = get(WORKER_FLUSHER_SSD_THREADS)
   def workerHdfsFlusherThreads: Int = get(WORKER_FLUSHER_HDFS_THREADS)
+  def workerOssFlusherBufferSize: Long = get(WORKER_OSS_FLUSHER_BUFFER_SIZE)
+  def workerOssFlusherThreads: Int = get(WORKER_FLUSHER_OSS_THREADS)
+  def workerStorageOssMinPartitionEpoch: Int = get(WORKER_STORAGE_OSS_MIN_PARTITION_EPOCH)
   def workerCreateWriterMaxAttempts: Int = get(WORKER_WRITER_CREATE_MAX_ATTEMPTS)
 
   // //////////////////////////////////////////////////////
@@ -961,6 +1019,7 @@ class CelebornConf(loadDefaults: Boolean) extends Cloneable with Logging with Se
     get(WORKER_DIRECT_MEMORY_TRIM_FLUSH_WAIT_INTERVAL)
   def workerDirectMemoryRatioForShuffleStorage: Double =
     get(WORKER_DIRECT_MEMORY_RATIO_FOR_SHUFFLE_STORAGE)
+  def workerMemoryFileStorageMaxFileSize: Long = get(WORKER_MEMORY_FILE_STORAGE_MAX_FILE_SIZE)
 
   // //////////////////////////////////////////////////////
   //                  Rate Limit controller              //
@@ -1453,6 +1512,21 @@ object CelebornConf extends Logging {
       .intConf
       .createWithDefault(4)
 
+  val PUSH_KEY_DICTIONARY_ENABLED: ConfigEntry[Boolean] =
+    buildConf("celeborn.<module>.push.keyDictionary.enabled")
+      .categories("network")
+      .doc(
+        "Whether to replace the shuffle key and partition unique ids of pushed data with int ids " +
+          "of a dictionary built per connection, which saves bandwidth and string lookups on the " +
+          "worker for small batches. Requires workers of version 0.4.0 or later. " +
+          s"If setting <module> to `${TransportModuleConstants.DATA_MODULE}`, " +
+          s"it works for shuffle client push data and should be configured on client side. " +
+          s"If setting <module> to `${TransportModuleConstants.PUSH_MODULE}`, " +
+          s"it works for worker replicate data to peer worker and should be configured on worker side.")
+      .version("0.4.0")
+      .booleanConf
+      .createWithDefault(false)
+
   val FETCH_TIMEOUT_CHECK_INTERVAL: ConfigEntry[Long] =
     buildConf("celeborn.<module>.fetch.timeoutCheck.interval")
       .categories("network")
@@ -1801,13 +1875,70 @@ object CelebornConf extends Logging {
       .intConf
       .createWithDefault(3)
 
+  val HA_MASTER_RATIS_SNAPSHOT_CHUNK_SIZE: ConfigEntry[Int] =
+    buildConf("celeborn.master.ha.ratis.snapshot.chunkSize")
+      .categories("ha")
+      .version("0.4.0")
+      .doc("Max number of entries of a metadata section, e.g. registered shuffles or workers, " +
+        "written in one chunk of a Raft snapshot. Snapshots are written and installed chunk " +
+        "by chunk, so that a large cluster is never serialized at once.")
+      .intConf
+      .checkValue(v => v > 0, "Must be positive.")
+      .createWithDefault(1000)
+
+  val HA_MASTER_HEARTBEAT_BATCH_ENABLED: ConfigEntry[Boolean] =
+    buildConf("celeborn.master.ha.heartbeat.batch.enabled")
+      .categories("ha")
+      .version("0.4.0")
+      .doc("Whether the leader merges the heartbeats of workers and applications received " +
+        "within `celeborn.master.ha.heartbeat.batch.window` into a single Raft log entry. " +
+        "Enable it only once all the masters support batched heartbeats.")
+      .booleanConf
+      .createWithDefault(false)
+
+  val HA_MASTER_HEARTBEAT_BATCH_WINDOW: ConfigEntry[Long] =
+    buildConf("celeborn.master.ha.heartbeat.batch.window")
+      .categories("ha")
+      .version("0.4.0")
+      .doc("Time to wait for more heartbeats after the first heartbeat of a batch.")
+      .timeConf(TimeUnit.MILLISECONDS)
+      .createWithDefaultString("10ms")
+
+  val HA_MASTER_HEARTBEAT_BATCH_MAX_SIZE: ConfigEntry[Int] =
+    buildConf("celeborn.master.ha.heartbeat.batch.maxSize")
+      .categories("ha")
+      .version("0.4.0")
+      .doc("Max number of heartbeats in a batch.")
+      .intConf
+      .checkValue(v => v > 0, "Must be positive.")
+      .createWithDefault(512)
+
+  val MASTER_RPC_LANES_ENABLED: ConfigEntry[Boolean] =
+    buildConf("celeborn.master.rpc.lanes.enabled")
+      .categories("master")
+      .version("0.4.0")
+      .doc("Whether the master processes heartbeats and slot requests in their own lanes, each " +
+        "with its own threads, so that slow slot requests never hold back heartbeats.")
+      .booleanConf
+      .createWithDefault(false)
+
+  val MASTER_RPC_LANE_THREADS: ConfigEntry[Int] =
+    buildConf("celeborn.master.rpc.lane.threads")
+      .categories("master")
+      .version("0.4.0")
+      .doc("Number of threads of each lane of the master, when " +
+        s"`${MASTER_RPC_LANES_ENABLED.key}` is true.")
+      .intConf
+      .checkValue(v => v > 0, "Must be positive.")
+      .createWithDefault(4)
+
   val MASTER_SLOT_ASSIGN_POLICY: ConfigEntry[String] =
     buildConf("celeborn.master.slot.assign.policy")
       .withAlternative("celeborn.slots.assign.policy")
       .categories("master")
       .version("0.3.0")
       .doc("Policy for master to assign slots, Celeborn supports two types of policy: roundrobin and loadaware. " +
-        "Loadaware policy will be ignored when `HDFS` is enabled in `celeborn.storage.activeTypes`")
+        "Loadaware policy will be ignored when `HDFS` or `OSS` is enabled in `celeborn.storage.activeTypes`")
       .stringConf
       .transform(_.toUpperCase(Locale.ROOT))
       .checkValues(Set(
@@ -1997,6 +2128,46 @@ object CelebornConf extends Logging {
       .stringConf
       .createOptional
 
+  val OSS_DIR: OptionalConfigEntry[String] =
+    buildConf("celeborn.storage.oss.dir")
+      .categories("worker", "master", "client")
+      .version("0.4.0")
+      .doc("Object store base directory for Celeborn to store shuffle data, e.g. " +
+        "`oss://bucket/celeborn`. The scheme must be `oss` or `s3`.")
+      .stringConf
+      .createOptional
+
+  val OSS_STORE_CLASS: ConfigEntry[String] =
+    buildConf("celeborn.storage.oss.store.class")
+      .categories("worker", "client")
+      .version("0.4.0")
+      .doc("Implementation of `org.apache.celeborn.common.oss.ObjectStore` used to access the " +
+        "object store. The default implementation keeps the objects under " +
+        "`celeborn.storage.oss.local.dir`, e.g. a mount of the bucket shared by the workers " +
+        "and the clients.")
+      .stringConf
+      .createWithDefault("org.apache.celeborn.common.oss.LocalObjectStore")
+
+  val OSS_LOCAL_DIR: OptionalConfigEntry[String] =
+    buildConf("celeborn.storage.oss.local.dir")
+      .categories("worker", "client")
+      .version("0.4.0")
+      .doc("Local directory holding the buckets of the object store, used by " +
+        "`org.apache.celeborn.common.oss.LocalObjectStore`.")
+      .stringConf
+      .createOptional
+
+  val OSS_MIN_PART_SIZE: ConfigEntry[Long] =
+    buildConf("celeborn.storage.oss.minPartSize")
+      .categories("worker")
+      .version("0.4.0")
+      .doc("Minimum size of the parts of a multipart upload to the object store but the last " +
+        "one, e.g. 5m for S3. Workers keep buffering the data of an object until a part of " +
+        "this size can be uploaded, and `org.apache.celeborn.common.oss.LocalObjectStore` " +
+        "rejects smaller parts like a real store.")
+      .bytesConf(ByteUnit.BYTE)
+      .createWithDefaultString("5m")
+
   val WORKER_DISK_RESERVE_SIZE: ConfigEntry[Long] =
     buildConf("celeborn.worker.storage.disk.reserve.size")
       .withAlternative("celeborn.worker.disk.reserve.size")
@@ -2137,6 +2308,16 @@ object CelebornConf extends Logging {
       .intConf
       .createWithDefault(32)
 
+  val WORKER_VIRTUAL_THREADS_ENABLED: ConfigEntry[Boolean] =
+    buildConf("celeborn.worker.virtualThreads.enabled")
+      .categories("worker")
+      .version("0.4.0")
+      .doc("When true and the worker runs on Java 21+, shuffle data files are committed on " +
+        "virtual threads, one per file, instead of on `celeborn.worker.commitFiles.threads` " +
+        "threads. Ignored on older Java versions.")
+      .booleanConf
+      .createWithDefault(false)
+
   val WORKER_SHUFFLE_COMMIT_TIMEOUT: ConfigEntry[Long] =
     buildConf("celeborn.worker.commitFiles.timeout")
       .withAlternative("celeborn.worker.shuffle.commit.timeout")
@@ -2175,6 +2356,51 @@ object CelebornConf extends Logging {
       .bytesConf(ByteUnit.BYTE)
       .createWithDefaultString("1mb")
 
+  val PARTITION_SORTER_INDEX_ON_WRITE_ENABLED: ConfigEntry[Boolean] =
+    buildConf("celeborn.worker.sortPartition.indexOnWrite.enabled")
+      .categories("worker")
+      .doc("Whether reduce partition file writers record the offset and length of each batch " +
+        "per map id while writing, and persist them as a block index when the file is committed. " +
+        "When enabled, the partition sorter uses this index instead of scanning the whole file.")
+      .version("0.4.0")
+      .booleanConf
+      .createWithDefault(true)
+
+  val PARTITION_SORTER_COPY_THREADS_PER_DISK: ConfigEntry[Int] =
+    buildConf("celeborn.worker.sortPartition.copyThreadsPerDisk")
+      .categories("worker")
+      .doc("Max number of threads per disk used to copy blocks into a sorted shuffle file. " +
+        "Adjacent blocks are coalesced into extents and copied with zero-copy transfer; when " +
+        "greater than 1, the extents of one file are copied in parallel into their final " +
+        "positions. It's recommended to set a larger value for SSD and NVMe disks.")
+      .version("0.4.0")
+      .intConf
+      .checkValue(v => v > 0, "Value must be positive.")
+      .createWithDefault(1)
+
+  val PARTITION_SORTER_VIRTUAL_SORT_ENABLED: ConfigEntry[Boolean] =
+    buildConf("celeborn.worker.sortPartition.virtualSort.enabled")
+      .categories("worker")
+      .doc("Whether to serve range reads of a local shuffle file from the unsorted file through " +
+        "an in-memory map id index instead of writing a sorted copy. A physical sort is still " +
+        "done when a requested range has more fragments than " +
+        "`celeborn.worker.sortPartition.virtualSort.maxFragments`, unless a range of the file " +
+        "is served from the unsorted file already: the unsorted file is deleted once sorted, so " +
+        "the further ranges of such a file are served from the unsorted file too.")
+      .version("0.4.0")
+      .booleanConf
+      .createWithDefault(false)
+
+  val PARTITION_SORTER_VIRTUAL_SORT_MAX_FRAGMENTS: ConfigEntry[Int] =
+    buildConf("celeborn.worker.sortPartition.virtualSort.maxFragments")
+      .categories("worker")
+      .doc("Max number of non-contiguous file segments of a requested map range to serve it " +
+        "from the unsorted file when virtual sort is enabled.")
+      .version("0.4.0")
+      .intConf
+      .checkValue(v => v > 0, "Value must be positive.")
+      .createWithDefault(1024)
+
   val WORKER_FLUSHER_BUFFER_SIZE: ConfigEntry[Long] =
     buildConf("celeborn.worker.flusher.buffer.size")
       .categories("worker")
@@ -2191,6 +2417,15 @@ object CelebornConf extends Logging {
       .bytesConf(ByteUnit.BYTE)
       .createWithDefaultString("4m")
 
+  val WORKER_OSS_FLUSHER_BUFFER_SIZE: ConfigEntry[Long] =
+    buildConf("celeborn.worker.flusher.oss.buffer.size")
+      .categories("worker")
+      .version("0.4.0")
+      .doc("Size of buffer used by an OSS flusher. Each flush is uploaded as a part of the " +
+        "object, so it should be at least `celeborn.storage.oss.minPartSize`.")
+      .bytesConf(ByteUnit.BYTE)
+      .createWithDefaultString("8m")
+
   val WORKER_WRITER_CLOSE_TIMEOUT: ConfigEntry[Long] =
     buildConf("celeborn.worker.writer.close.timeout")
       .categories("worker")
@@ -2231,6 +2466,39 @@ object CelebornConf extends Logging {
       .intConf
       .createWithDefault(8)
 
+  val WORKER_FLUSHER_OSS_THREADS: ConfigEntry[Int] =
+    buildConf("celeborn.worker.flusher.oss.threads")
+      .categories("worker")
+      .doc("Flusher's thread count used for uploading data to the object store.")
+      .version("0.4.0")
+      .intConf
+      .createWithDefault(8)
+
+  val WORKER_STORAGE_OSS_MIN_PARTITION_EPOCH: ConfigEntry[Int] =
+    buildConf("celeborn.worker.storage.oss.minPartitionEpoch")
+      .categories("worker")
+      .doc("On workers with local disks, the REDUCE partition locations of this epoch or later " +
+        "are stored on the object store, if OSS is enabled. A partition gets a new epoch each " +
+        "time it is split or revived, so its later epochs are the tail of a large or troubled " +
+        "partition, which is kept off the local disks. 0 keeps all the locations on the local " +
+        "disks.")
+      .version("0.4.0")
+      .intConf
+      .checkValue(v => v >= 0, "Must be non-negative.")
+      .createWithDefault(0)
+
+  val WORKER_FLUSHER_BATCH_MAX_TASKS: ConfigEntry[Int] =
+    buildConf("celeborn.worker.flusher.batch.maxTasks")
+      .categories("worker")
+      .doc("Max number of flush tasks a local disk flusher thread takes from its queue per " +
+        "wakeup. The tasks of the same file are written with one gathering write, which saves " +
+        "system calls when many small partitions are flushed at the same time. " +
+        "1 means that each flush task is written on its own.")
+      .version("0.4.0")
+      .intConf
+      .checkValue(v => v > 0, "Value must be positive.")
+      .createWithDefault(1)
+
   val WORKER_FLUSHER_SHUTDOWN_TIMEOUT: ConfigEntry[Long] =
     buildConf("celeborn.worker.flusher.shutdownTimeout")
       .categories("worker")
@@ -2400,6 +2668,17 @@ object CelebornConf extends Logging {
       .doubleConf
       .createWithDefault(0.0)
 
+  val WORKER_MEMORY_FILE_STORAGE_MAX_FILE_SIZE: ConfigEntry[Long] =
+    buildConf("celeborn.worker.memoryFileStorage.maxFileSize")
+      .categories("worker")
+      .doc("Max size of a reduce partition file kept in the direct memory of the worker, which " +
+        "only takes effect when `celeborn.worker.directMemoryRatioForMemoryShuffleStorage` " +
+        "is positive. A file growing beyond this size, or any file in memory when the worker " +
+        "is under memory pressure, is spilled to its local disk.")
+      .version("0.4.0")
+      .bytesConf(ByteUnit.BYTE)
+      .createWithDefaultString("8MB")
+
   val WORKER_DIRECT_MEMORY_RATIO_PAUSE_RECEIVE: ConfigEntry[Double] =
     buildConf("celeborn.worker.directMemoryRatioToPauseReceive")
       .categories("worker")
@@ -2615,6 +2894,28 @@ object CelebornConf extends Logging {
       .booleanConf
       .createWithDefault(false)
 
+  val WORKER_FETCH_CLIENT_MAX_BYTES_BEING_TRANSFERRED: OptionalConfigEntry[Long] =
+    buildConf("celeborn.worker.fetch.client.maxBytesBeingTransferred")
+      .categories("worker")
+      .version("0.4.0")
+      .doc("The max bytes of the chunks being transferred to a client connection at the same " +
+        "time. Chunks fetched by the connection beyond it fail until some of its chunks are " +
+        "sent, and the client retries them according to its fetch retry configs, so that a " +
+        "single reducer cannot starve the others.")
+      .bytesConf(ByteUnit.BYTE)
+      .createOptional
+
+  val WORKER_FETCH_APPLICATION_MAX_BYTES_BEING_TRANSFERRED: OptionalConfigEntry[Long] =
+    buildConf("celeborn.worker.fetch.application.maxBytesBeingTransferred")
+      .categories("worker")
+      .version("0.4.0")
+      .doc("The max bytes of the chunks being transferred to the clients of an application at " +
+        "the same time. Chunks fetched by the application beyond it fail until some of its " +
+        "chunks are sent, and the clients retry them according to their fetch retry configs, " +
+        "so that a single application cannot starve the others.")
+      .bytesConf(ByteUnit.BYTE)
+      .createOptional
+
   val APPLICATION_HEARTBEAT_INTERVAL: ConfigEntry[Long] =
     buildConf("celeborn.client.application.heartbeatInterval")
       .withAlternative("celeborn.application.heartbeatInterval")
@@ -2696,6 +2997,17 @@ object CelebornConf extends Logging {
       .bytesConf(ByteUnit.BYTE)
       .createWithDefaultString("64k")
 
+  val CLIENT_PUSH_POOLED_BUFFER_ENABLED: ConfigEntry[Boolean] =
+    buildConf("celeborn.client.push.pooledBuffer.enabled")
+      .categories("client")
+      .version("0.4.0")
+      .doc("Whether to build the body of each pushed batch in a buffer from the pooled " +
+        "allocator of the data client, into which the batch is compressed in place. The " +
+        "buffer goes back to the pool once the push of the batch is done. Otherwise each " +
+        "batch is copied into a new heap array.")
+      .booleanConf
+      .createWithDefault(true)
+
   val CLIENT_PUSH_QUEUE_CAPACITY: ConfigEntry[Int] =
     buildConf("celeborn.client.push.queue.capacity")
       .withAlternative("celeborn.push.queue.capacity")
@@ -2836,7 +3148,7 @@ object CelebornConf extends Logging {
     buildConf("celeborn.client.push.limit.inFlight.sleepInterval")
       .withAlternative("celeborn.push.limit.inFlight.sleepInterval")
       .categories("client")
-      .doc("Sleep interval when check netty in-flight requests to be done.")
+      .doc("Max interval to wait before re-checking netty in-flight requests and push failures. Waiting push threads are woken up as soon as an in-flight request is done.")
       .version("0.3.0")
       .timeConf(TimeUnit.MILLISECONDS)
       .createWithDefaultString("50ms")
@@ -2932,6 +3244,27 @@ object CelebornConf extends Logging {
       .intConf
       .createWithDefault(3)
 
+  val CLIENT_FETCH_ADAPTIVE_WINDOW_ENABLED: ConfigEntry[Boolean] =
+    buildConf("celeborn.client.fetch.adaptiveWindow.enabled")
+      .categories("client")
+      .version("0.4.0")
+      .doc("Whether to adapt the amount of in-flight chunk fetch requests of each reader to the " +
+        "round trip time of its chunks. Starting from " +
+        s"`${CLIENT_FETCH_MAX_REQS_IN_FLIGHT.key}`, the window grows while chunks arrive as " +
+        "fast as the quickest recent one, and halves when they take twice as long.")
+      .booleanConf
+      .createWithDefault(false)
+
+  val CLIENT_FETCH_ADAPTIVE_WINDOW_MAX_REQS_IN_FLIGHT: ConfigEntry[Int] =
+    buildConf("celeborn.client.fetch.adaptiveWindow.maxReqsInFlight")
+      .categories("client")
+      .version("0.4.0")
+      .doc("Max amount of in-flight chunk fetch requests of a reader when " +
+        s"`${CLIENT_FETCH_ADAPTIVE_WINDOW_ENABLED.key}` is true.")
+      .intConf
+      .checkValue(v => v > 0, "Value must be positive.")
+      .createWithDefault(16)
+
   val CLIENT_FETCH_MAX_RETRIES_FOR_EACH_REPLICA: ConfigEntry[Int] =
     buildConf("celeborn.client.fetch.maxRetriesForEachReplica")
       .withAlternative("celeborn.fetch.maxRetriesForEachReplica")
@@ -2942,6 +3275,68 @@ object CelebornConf extends Logging {
       .intConf
       .createWithDefault(3)
 
+  val CLIENT_FETCH_PREFETCH_LOCATIONS: ConfigEntry[Int] =
+    buildConf("celeborn.client.fetch.prefetch.locations")
+      .categories("client")
+      .version("0.4.0")
+      .doc("Number of locations after the one being read whose streams are opened, and whose " +
+        "first chunks are fetched, in the background, so that reading a split partition doesn't " +
+        "stall at each location boundary. Only locations stored on worker disks are prefetched. " +
+        "0 disables the look-ahead.")
+      .intConf
+      .checkValue(v => v >= 0, "Value must be non-negative.")
+      .createWithDefault(0)
+
+  val CLIENT_FETCH_PREFETCH_MAX_BYTES: ConfigEntry[Long] =
+    buildConf("celeborn.client.fetch.prefetch.maxBytes")
+      .categories("client")
+      .version("0.4.0")
+      .doc("Max size of the chunks a reducer prefetches from the locations ahead of the one " +
+        s"being read, counted in units of `${SHUFFLE_CHUNK_SIZE.key}`. At least one chunk is " +
+        "prefetched if the look-ahead is enabled.")
+      .bytesConf(ByteUnit.BYTE)
+      .createWithDefaultString("64m")
+
+  val CLIENT_FETCH_PREFETCH_THREADS: ConfigEntry[Int] =
+    buildConf("celeborn.client.fetch.prefetch.threads")
+      .categories("client")
+      .version("0.4.0")
+      .doc("Number of threads used by the shuffle client to open the streams of prefetched " +
+        "locations.")
+      .intConf
+      .checkValue(v => v > 0, "Value must be positive.")
+      .createWithDefault(8)
+
+  val CLIENT_FETCH_DFS_READ_THREADS: ConfigEntry[Int] =
+    buildConf("celeborn.client.fetch.dfs.readThreads")
+      .categories("client")
+      .version("0.4.0")
+      .doc("Number of threads shared by all the readers of a shuffle client to read the chunks " +
+        "of locations stored on HDFS.")
+      .intConf
+      .checkValue(v => v > 0, "Value must be positive.")
+      .createWithDefault(8)
+
+  val CLIENT_FETCH_DFS_MAX_READ_GAP: ConfigEntry[Long] =
+    buildConf("celeborn.client.fetch.dfs.maxReadGap")
+      .categories("client")
+      .version("0.4.0")
+      .doc("Max distance between two ranges of a location on HDFS read by a single positional " +
+        "read. The bytes in between are read and dropped, which is cheaper than another small " +
+        "random read for a narrow range of mappers.")
+      .bytesConf(ByteUnit.BYTE)
+      .createWithDefaultString("256k")
+
+  val CLIENT_FETCH_DFS_MAX_READ_SIZE: ConfigEntry[Long] =
+    buildConf("celeborn.client.fetch.dfs.maxReadSize")
+      .categories("client")
+      .version("0.4.0")
+      .doc("Max size of a single positional read on HDFS. Chunks of a location close to each " +
+        s"other (see `${CLIENT_FETCH_DFS_MAX_READ_GAP.key}`) are read together up to this " +
+        "size, a larger chunk is read on its own.")
+      .bytesConf(ByteUnit.BYTE)
+      .createWithDefaultString("8m")
+
   val CLIENT_FETCH_EXCLUDE_WORKER_ON_FAILURE_ENABLED: ConfigEntry[Boolean] =
     buildConf("celeborn.client.fetch.excludeWorkerOnFailure.enabled")
       .categories("client")
@@ -3080,6 +3475,16 @@ object CelebornConf extends Logging {
       .booleanConf
       .createWithDefault(true)
 
+  val CLIENT_VIRTUAL_THREADS_ENABLED: ConfigEntry[Boolean] =
+    buildConf("celeborn.client.virtualThreads.enabled")
+      .categories("client")
+      .version("0.4.0")
+      .doc("When true and LifecycleManager runs on Java 21+, it handles change partition and " +
+        "commit partition requests in batch, and sends CommitFiles to the workers, on virtual " +
+        "threads instead of on thread pools of bounded size. Ignored on older Java versions.")
+      .booleanConf
+      .createWithDefault(false)
+
   val CLIENT_BATCH_HANDLE_CHANGE_PARTITION_THREADS: ConfigEntry[Int] =
     buildConf("celeborn.client.shuffle.batchHandleChangePartition.threads")
       .withAlternative("celeborn.shuffle.batchHandleChangePartition.threads")
@@ -3695,7 +4100,7 @@ object CelebornConf extends Logging {
     buildConf("celeborn.storage.activeTypes")
       .categories("master", "worker")
       .version("0.3.0")
-      .doc("Enabled storage levels. Available options: HDD,SSD,HDFS. ")
+      .doc("Enabled storage levels. Available options: HDD,SSD,HDFS,OSS. ")
       .stringConf
       .transform(_.toUpperCase(Locale.ROOT))
       .createWithDefault("HDD,SSD")
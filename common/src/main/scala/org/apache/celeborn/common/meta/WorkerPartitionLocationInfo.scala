@@ -19,20 +19,26 @@ package org.apache.celeborn.common.meta
 
 import java.util
 import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicLong
 import java.util.function.BiFunction
 
 import scala.collection.JavaConverters._
 
 import org.apache.celeborn.common.internal.Logging
+import org.apache.celeborn.common.network.protocol.PushKeyDictionary
 import org.apache.celeborn.common.protocol.PartitionLocation
-import org.apache.celeborn.common.util.JavaUtils
+import org.apache.celeborn.common.util.ConcurrentLongObjectMap
 
 class WorkerPartitionLocationInfo extends Logging {
+  import WorkerPartitionLocationInfo._
 
-  // key: ShuffleKey, values: (uniqueId -> PartitionLocation))
-  type PartitionInfo = ConcurrentHashMap[String, ConcurrentHashMap[String, PartitionLocation]]
+  // key: ShuffleKey, values: (location key of uniqueId -> PartitionLocation))
+  type PartitionInfo = ConcurrentHashMap[String, ConcurrentLongObjectMap[PartitionLocation]]
   private val primaryPartitionLocations = new PartitionInfo
   private val replicaPartitionLocations = new PartitionInfo
+  // bumped after locations are removed, which invalidates the locations cached by push key
+  // dictionaries
+  private val removalVersion = new AtomicLong()
 
   def shuffleKeySet: util.HashSet[String] = {
     val shuffleKeySet = new util.HashSet[String]()
@@ -75,6 +81,51 @@ class WorkerPartitionLocationInfo extends Logging {
     locations
   }
 
+  /**
+   * Finds the location of a push whose keys are encoded with a push key dictionary, with the
+   * location cached under the id of the partition unique id in the dictionary.
+   */
+  def getLocation(
+      shuffleKey: String,
+      uniqueId: String,
+      mode: PartitionLocation.Mode,
+      keyDictionary: PushKeyDictionary.Reader,
+      keyId: Int): PartitionLocation = {
+    // read before the lookup, so that a location removed meanwhile is not cached as valid
+    val version = removalVersion.get()
+    val cached = keyDictionary.resolved(keyId, version).asInstanceOf[PartitionLocation]
+    if (cached != null && cached.getMode == mode) {
+      cached
+    } else {
+      val location =
+        if (mode == PartitionLocation.Mode.PRIMARY) {
+          getPrimaryLocation(shuffleKey, uniqueId)
+        } else {
+          getReplicaLocation(shuffleKey, uniqueId)
+        }
+      if (location != null) {
+        keyDictionary.setResolved(keyId, location, version)
+      }
+      location
+    }
+  }
+
+  def getLocations(
+      shuffleKey: String,
+      uniqueIds: Array[String],
+      mode: PartitionLocation.Mode,
+      keyDictionary: PushKeyDictionary.Reader,
+      keyIds: Array[Int]): Array[(String, PartitionLocation)] = {
+    val locations = new Array[(String, PartitionLocation)](uniqueIds.length)
+    var i = 0
+    while (i < uniqueIds.length) {
+      val uniqueId = uniqueIds(i)
+      locations(i) = uniqueId -> getLocation(shuffleKey, uniqueId, mode, keyDictionary, keyIds(i))
+      i += 1
+    }
+    locations
+  }
+
   def getReplicaLocation(shuffleKey: String, uniqueId: String): PartitionLocation = {
     getLocation(shuffleKey, uniqueId, replicaPartitionLocations)
   }
@@ -95,6 +146,7 @@ class WorkerPartitionLocationInfo extends Logging {
   def removeShuffle(shuffleKey: String): Unit = {
     primaryPartitionLocations.remove(shuffleKey)
     replicaPartitionLocations.remove(shuffleKey)
+    removalVersion.incrementAndGet()
   }
 
   def removePrimaryPartitions(
@@ -114,12 +166,10 @@ class WorkerPartitionLocationInfo extends Logging {
       locations: util.List[PartitionLocation],
       partitionInfo: PartitionInfo): Unit = {
     if (locations != null && locations.size() > 0) {
-      partitionInfo.putIfAbsent(
-        shuffleKey,
-        JavaUtils.newConcurrentHashMap[String, PartitionLocation]())
+      partitionInfo.putIfAbsent(shuffleKey, new ConcurrentLongObjectMap[PartitionLocation]())
       val partitionMap = partitionInfo.get(shuffleKey)
       locations.asScala.foreach { loc =>
-        partitionMap.putIfAbsent(loc.getUniqueId, loc)
+        partitionMap.putIfAbsent(locationKey(loc.getId, loc.getEpoch), loc)
       }
     }
   }
@@ -141,7 +191,8 @@ class WorkerPartitionLocationInfo extends Logging {
     val locMap = new util.HashMap[String, Integer]()
     var numSlotsReleased: Int = 0
     uniqueIds.asScala.foreach { id =>
-      val loc = partitionMap.remove(id)
+      val key = locationKey(id)
+      val loc = if (key < 0) null else partitionMap.remove(key)
       if (loc != null) {
         numSlotsReleased += 1
         locMap.compute(
@@ -154,6 +205,9 @@ class WorkerPartitionLocationInfo extends Logging {
       }
     }
 
+    if (numSlotsReleased > 0) {
+      removalVersion.incrementAndGet()
+    }
     // some locations might have no disk hint
     (locMap, numSlotsReleased)
   }
@@ -163,8 +217,9 @@ class WorkerPartitionLocationInfo extends Logging {
       uniqueId: String,
       partitionInfo: PartitionInfo): PartitionLocation = {
     val partitionMap = partitionInfo.get(shuffleKey)
-    if (partitionMap != null) {
-      partitionMap.get(uniqueId)
+    val key = locationKey(uniqueId)
+    if (partitionMap != null && key >= 0) {
+      partitionMap.get(key)
     } else null
   }
 
@@ -178,8 +233,42 @@ class WorkerPartitionLocationInfo extends Logging {
   override def toString: String = {
     s"""
        | Partition Location Info:
-       | primary: ${primaryPartitionLocations.asScala}
-       | replica: ${replicaPartitionLocations.asScala}
+       | primary: ${primaryPartitionLocations.asScala.mapValues(_.values().asScala)}
+       | replica: ${replicaPartitionLocations.asScala.mapValues(_.values().asScala)}
        |""".stripMargin
   }
 }
+
+object WorkerPartitionLocationInfo {
+
+  /** Packs the id and the epoch of a partition location into a non-negative key. */
+  def locationKey(id: Int, epoch: Int): Long = (id.toLong << 32) | (epoch & 0xFFFFFFFFL)
+
+  /**
+   * Returns the key of a partition unique id, i.e. `id-epoch`, without building strings, or -1
+   * if it is malformed.
+   */
+  def locationKey(uniqueId: String): Long = {
+    val separator = uniqueId.indexOf('-')
+    if (separator <= 0 || separator == uniqueId.length - 1) {
+      return -1
+    }
+    val id = parseNonNegativeInt(uniqueId, 0, separator)
+    val epoch = parseNonNegativeInt(uniqueId, separator + 1, uniqueId.length)
+    if (id < 0 || epoch < 0) -1 else locationKey(id.toInt, epoch.toInt)
+  }
+
+  private def parseNonNegativeInt(s: String, start: Int, end: Int): Long = {
+    var value = 0L
+    var i = start
+    while (i < end) {
+      val digit = s.charAt(i) - '0'
+      if (digit < 0 || digit > 9 || value > Int.MaxValue) {
+        return -1
+      }
+      value = value * 10 + digit
+      i += 1
+    }
+    if (value > Int.MaxValue) -1 else value
+  }
+}
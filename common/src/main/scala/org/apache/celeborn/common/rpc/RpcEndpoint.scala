@@ -148,3 +148,28 @@ trait RpcEndpoint {
  * [[ThreadSafeRpcEndpoint]] for different messages.
  */
 private[celeborn] trait ThreadSafeRpcEndpoint extends RpcEndpoint
+
+/**
+ * An [[RpcEndpoint]] whose messages fall into independent lanes, e.g. heartbeats and slot
+ * requests. Every lane has its own inbox processed by its own threads, so that slow messages of a
+ * lane never hold back the messages of the other lanes. The messages of no lane are dispatched as
+ * for any [[RpcEndpoint]].
+ *
+ * The messages of a lane are processed once `onStart` has returned, and may be processed at the
+ * same time as the messages of the other lanes. For a [[ThreadSafeRpcEndpoint]], the messages of
+ * a lane are processed one at a time. The messages left in a lane when the endpoint stops are
+ * dropped.
+ */
+trait MultiLaneRpcEndpoint extends RpcEndpoint {
+
+  /**
+   * The lanes of the endpoint, with the number of threads processing the messages of each lane.
+   */
+  def lanes: Map[String, Int]
+
+  /**
+   * Returns the lane of a message received by `receive` or `receiveAndReply`, None to dispatch
+   * it as usual.
+   */
+  def laneOf(message: Any): Option[String]
+}
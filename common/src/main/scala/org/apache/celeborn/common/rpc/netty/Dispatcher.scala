@@ -42,7 +42,63 @@ private[celeborn] class Dispatcher(nettyEnv: NettyRpcEnv, numUsableCores: Int) e
       val name: String,
       val endpoint: RpcEndpoint,
       val ref: NettyRpcEndpointRef) {
-    val inbox = new Inbox(ref, endpoint)
+    val lanes: Map[String, Lane] = endpoint match {
+      case multiLaneEndpoint: MultiLaneRpcEndpoint =>
+        multiLaneEndpoint.lanes.map { case (lane, numThreads) =>
+          lane -> new Lane(name, lane, numThreads, ref, endpoint)
+        }
+      case _ => Map.empty
+    }
+    val inbox = new Inbox(ref, endpoint, onStarted = () => lanes.values.foreach(_.start()))
+
+    def laneOf(message: InboxMessage): Option[Lane] = endpoint match {
+      case multiLaneEndpoint: MultiLaneRpcEndpoint if lanes.nonEmpty =>
+        message match {
+          case RpcMessage(_, content, _) => multiLaneEndpoint.laneOf(content).flatMap(lanes.get)
+          case OneWayMessage(_, content) => multiLaneEndpoint.laneOf(content).flatMap(lanes.get)
+          case _ => None
+        }
+      case _ => None
+    }
+  }
+
+  /** A lane of a [[MultiLaneRpcEndpoint]], with its inbox and its threads. */
+  private class Lane(
+      endpointName: String,
+      name: String,
+      numThreads: Int,
+      ref: NettyRpcEndpointRef,
+      endpoint: RpcEndpoint) {
+    private val inbox = new Inbox(ref, endpoint, Some(name))
+    private val threadpool =
+      ThreadUtils.newDaemonFixedThreadPool(numThreads, s"dispatcher-$endpointName-$name")
+    private val processTask = new Runnable {
+      override def run(): Unit = inbox.process(Dispatcher.this)
+    }
+
+    def post(message: InboxMessage): Unit = {
+      inbox.post(message)
+      schedule()
+    }
+
+    def start(): Unit = {
+      inbox.start()
+      (0 until numThreads).foreach(_ => schedule())
+    }
+
+    def stop(): Unit = {
+      inbox.stop()
+      schedule()
+      threadpool.shutdown()
+    }
+
+    private def schedule(): Unit = {
+      try {
+        threadpool.execute(processTask)
+      } catch {
+        case _: RejectedExecutionException => // stopped
+      }
+    }
   }
 
   private val endpoints: ConcurrentMap[String, EndpointData] =
@@ -85,6 +141,7 @@ private[celeborn] class Dispatcher(nettyEnv: NettyRpcEnv, numUsableCores: Int) e
   private def unregisterRpcEndpoint(name: String): Unit = {
     val data = endpoints.remove(name)
     if (data != null) {
+      data.lanes.values.foreach(_.stop())
       data.inbox.stop()
       receivers.offer(data) // for the OnStop message
     }
@@ -164,8 +221,13 @@ private[celeborn] class Dispatcher(nettyEnv: NettyRpcEnv, numUsableCores: Int) e
       } else if (data == null) {
         Some(new CelebornException(s"Could not find $endpointName."))
       } else {
-        data.inbox.post(message)
-        receivers.offer(data)
+        data.laneOf(message) match {
+          case Some(lane) =>
+            lane.post(message)
+          case None =>
+            data.inbox.post(message)
+            receivers.offer(data)
+        }
         None
       }
     }
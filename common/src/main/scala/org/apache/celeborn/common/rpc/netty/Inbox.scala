@@ -17,6 +17,7 @@
 
 package org.apache.celeborn.common.rpc.netty
 
+import java.util.concurrent.ConcurrentLinkedQueue
 import javax.annotation.concurrent.GuardedBy
 
 import scala.util.control.NonFatal
@@ -61,20 +62,34 @@ private[celeborn] case class RemoteProcessConnectionError(
 
 /**
  * An inbox that stores messages for an [[RpcEndpoint]] and posts messages to it thread-safely.
+ *
+ * Messages are posted to a lock-free queue, so that posting threads never wait for the threads
+ * processing the messages. Once the endpoint has started, several threads may process its
+ * messages at the same time, unless it is a [[ThreadSafeRpcEndpoint]].
+ *
+ * The inbox of a lane of a `MultiLaneRpcEndpoint` holds the messages of that lane only. It has
+ * no `OnStart` and `OnStop` messages: its messages wait until the endpoint has started, see
+ * [[start]], and are dropped once it is stopped.
  */
 private[celeborn] class Inbox(
     val endpointRef: NettyRpcEndpointRef,
-    val endpoint: RpcEndpoint)
+    val endpoint: RpcEndpoint,
+    val lane: Option[String] = None,
+    onStarted: () => Unit = () => ())
   extends Logging {
 
   inbox => // Give this an alias so we can use it more clearly in closures.
 
-  @GuardedBy("this")
-  protected val messages = new java.util.LinkedList[InboxMessage]()
+  protected val messages = new ConcurrentLinkedQueue[InboxMessage]()
 
   /** True if the inbox (and its associated endpoint) is stopped. */
-  @GuardedBy("this")
-  private var stopped = false
+  @volatile private var stopped = false
+
+  /** True once `onStop` has been called, messages posted later are dropped. */
+  @volatile private var terminated = false
+
+  /** False until the endpoint has started, for the inbox of a lane. */
+  @volatile private var started = lane.isEmpty
 
   /** Allow multiple threads to process messages at the same time. */
   @GuardedBy("this")
@@ -85,7 +100,7 @@ private[celeborn] class Inbox(
   private var numActiveThreads = 0
 
   // OnStart should be the first message to process
-  inbox.synchronized {
+  if (lane.isEmpty) {
     messages.add(OnStart)
   }
 
@@ -93,6 +108,9 @@ private[celeborn] class Inbox(
    * Process stored messages.
    */
   def process(dispatcher: Dispatcher): Unit = {
+    if (!started) {
+      return
+    }
     var message: InboxMessage = null
     inbox.synchronized {
       if (!enableConcurrent && numActiveThreads != 0) {
@@ -106,60 +124,10 @@ private[celeborn] class Inbox(
       }
     }
     while (true) {
-      safelyCall(endpoint) {
-        message match {
-          case RpcMessage(_sender, content, context) =>
-            try {
-              endpoint.receiveAndReply(context).applyOrElse[Any, Unit](
-                content,
-                { msg =>
-                  throw new CelebornException(s"Unsupported message $message from ${_sender}")
-                })
-            } catch {
-              case e: Throwable =>
-                context.sendFailure(e)
-                // Throw the exception -- this exception will be caught by the safelyCall function.
-                // The endpoint's onError function will be called.
-                throw e
-            }
-
-          case OneWayMessage(_sender, content) =>
-            endpoint.receive.applyOrElse[Any, Unit](
-              content,
-              { msg =>
-                throw new CelebornException(s"Unsupported message $message from ${_sender}")
-              })
-
-          case OnStart =>
-            endpoint.onStart()
-            if (!endpoint.isInstanceOf[ThreadSafeRpcEndpoint]) {
-              inbox.synchronized {
-                if (!stopped) {
-                  enableConcurrent = true
-                }
-              }
-            }
-
-          case OnStop =>
-            val activeThreads = inbox.synchronized {
-              inbox.numActiveThreads
-            }
-            assert(
-              activeThreads == 1,
-              s"There should be only a single active thread but found $activeThreads threads.")
-            dispatcher.removeRpcEndpointRef(endpoint)
-            endpoint.onStop()
-            assert(isEmpty, "OnStop should be the last message")
-
-          case RemoteProcessConnected(remoteAddress) =>
-            endpoint.onConnected(remoteAddress)
-
-          case RemoteProcessDisconnected(remoteAddress) =>
-            endpoint.onDisconnected(remoteAddress)
-
-          case RemoteProcessConnectionError(cause, remoteAddress) =>
-            endpoint.onNetworkError(cause, remoteAddress)
-        }
+      if (terminated || (stopped && lane.isDefined)) {
+        onDrop(message)
+      } else {
+        processMessage(dispatcher, message)
       }
 
       inbox.synchronized {
@@ -179,13 +147,85 @@ private[celeborn] class Inbox(
     }
   }
 
-  def post(message: InboxMessage): Unit = inbox.synchronized {
+  private def processMessage(dispatcher: Dispatcher, message: InboxMessage): Unit = {
+    safelyCall(endpoint) {
+      message match {
+        case RpcMessage(_sender, content, context) =>
+          try {
+            endpoint.receiveAndReply(context).applyOrElse[Any, Unit](
+              content,
+              { msg =>
+                throw new CelebornException(s"Unsupported message $message from ${_sender}")
+              })
+          } catch {
+            case e: Throwable =>
+              context.sendFailure(e)
+              // Throw the exception -- this exception will be caught by the safelyCall function.
+              // The endpoint's onError function will be called.
+              throw e
+          }
+
+        case OneWayMessage(_sender, content) =>
+          endpoint.receive.applyOrElse[Any, Unit](
+            content,
+            { msg =>
+              throw new CelebornException(s"Unsupported message $message from ${_sender}")
+            })
+
+        case OnStart =>
+          endpoint.onStart()
+          if (!endpoint.isInstanceOf[ThreadSafeRpcEndpoint]) {
+            inbox.synchronized {
+              if (!stopped) {
+                enableConcurrent = true
+              }
+            }
+          }
+          onStarted()
+
+        case OnStop =>
+          val activeThreads = inbox.synchronized {
+            inbox.numActiveThreads
+          }
+          assert(
+            activeThreads == 1,
+            s"There should be only a single active thread but found $activeThreads threads.")
+          dispatcher.removeRpcEndpointRef(endpoint)
+          endpoint.onStop()
+          terminated = true
+          // Messages posted while the inbox was being stopped are dropped.
+          var dropped = messages.poll()
+          while (dropped != null) {
+            onDrop(dropped)
+            dropped = messages.poll()
+          }
+
+        case RemoteProcessConnected(remoteAddress) =>
+          endpoint.onConnected(remoteAddress)
+
+        case RemoteProcessDisconnected(remoteAddress) =>
+          endpoint.onDisconnected(remoteAddress)
+
+        case RemoteProcessConnectionError(cause, remoteAddress) =>
+          endpoint.onNetworkError(cause, remoteAddress)
+      }
+    }
+  }
+
+  def post(message: InboxMessage): Unit = {
     if (stopped) {
       // We already put "OnStop" into "messages", so we should drop further messages
       onDrop(message)
     } else {
       messages.add(message)
-      false
+    }
+  }
+
+  /** Lets the messages of a lane be processed, once the endpoint has started. */
+  def start(): Unit = inbox.synchronized {
+    if (!stopped) {
+      enableConcurrent = !endpoint.isInstanceOf[ThreadSafeRpcEndpoint]
+      started = true
     }
   }
 
@@ -198,14 +238,14 @@ private[celeborn] class Inbox(
       // safely.
       enableConcurrent = false
       stopped = true
-      messages.add(OnStop)
+      if (lane.isEmpty) {
+        messages.add(OnStop)
+      }
       // Note: The concurrent events in messages will be processed one by one.
     }
   }
 
-  def isEmpty: Boolean = inbox.synchronized {
-    messages.isEmpty
-  }
+  def isEmpty: Boolean = messages.isEmpty
 
   /**
    * Called when we are dropping a message. Test cases override this to test message dropping.
@@ -26,7 +26,7 @@ import scala.collection.JavaConverters._
 import com.google.protobuf.InvalidProtocolBufferException
 
 import org.apache.celeborn.common.identity.UserIdentifier
-import org.apache.celeborn.common.meta.{AppDiskUsage, AppDiskUsageSnapShot, DiskInfo, FileInfo, WorkerInfo}
+import org.apache.celeborn.common.meta.{AppDiskUsage, AppDiskUsageSnapShot, ChunkOffsets, DiskInfo, FileInfo, WorkerInfo}
 import org.apache.celeborn.common.protocol._
 import org.apache.celeborn.common.protocol.PartitionLocation.Mode
 import org.apache.celeborn.common.protocol.message.ControlMessages.WorkerResource
@@ -88,7 +88,12 @@ object PbSerDeUtils {
   def fromPbFileInfo(pbFileInfo: PbFileInfo, userIdentifier: UserIdentifier) =
     new FileInfo(
       pbFileInfo.getFilePath,
-      pbFileInfo.getChunkOffsetsList,
+      if (pbFileInfo.getEncodedChunkOffsets.isEmpty) {
+        // written before chunk offsets were encoded
+        ChunkOffsets.of(pbFileInfo.getChunkOffsetsList)
+      } else {
+        ChunkOffsets.fromByteString(pbFileInfo.getEncodedChunkOffsets)
+      },
       userIdentifier,
       Utils.toPartitionType(pbFileInfo.getPartitionType),
       pbFileInfo.getBufferSize,
@@ -98,7 +103,7 @@ object PbSerDeUtils {
   def toPbFileInfo(fileInfo: FileInfo): PbFileInfo =
     PbFileInfo.newBuilder
       .setFilePath(fileInfo.getFilePath)
-      .addAllChunkOffsets(fileInfo.getChunkOffsets)
+      .setEncodedChunkOffsets(fileInfo.getChunkOffsets.toByteString)
       .setUserIdentifier(toPbUserIdentifier(fileInfo.getUserIdentifier))
       .setPartitionType(fileInfo.getPartitionType.getValue)
       .setBufferSize(fileInfo.getBufferSize)
@@ -25,13 +25,15 @@ import scala.collection.generic.CanBuildFrom
 import scala.concurrent.{Awaitable, ExecutionContext, ExecutionContextExecutor, Future}
 import scala.concurrent.duration.{Duration, FiniteDuration}
 import scala.language.higherKinds
+import scala.util.Try
 import scala.util.control.NonFatal
 
 import com.google.common.util.concurrent.{MoreExecutors, ThreadFactoryBuilder}
 
 import org.apache.celeborn.common.exception.CelebornException
+import org.apache.celeborn.common.internal.Logging
 
-object ThreadUtils {
+object ThreadUtils extends Logging {
 
   private val sameThreadExecutionContext =
     ExecutionContext.fromExecutorService(MoreExecutors.sameThreadExecutor())
@@ -67,7 +69,13 @@ object ThreadUtils {
       prefix: String,
       maxThreadNumber: Int,
       keepAliveSeconds: Int = 60): ThreadPoolExecutor = {
-    val threadFactory = namedThreadFactory(prefix)
+    newCachedThreadPool(namedThreadFactory(prefix), maxThreadNumber, keepAliveSeconds)
+  }
+
+  private def newCachedThreadPool(
+      threadFactory: ThreadFactory,
+      maxThreadNumber: Int,
+      keepAliveSeconds: Int): ThreadPoolExecutor = {
     val threadPool = new ThreadPoolExecutor(
       maxThreadNumber, // corePoolSize: the max number of threads to create before queuing the tasks
       maxThreadNumber, // maximumPoolSize: because we use LinkedBlockingDeque, this one is not used
@@ -79,6 +87,54 @@ object ThreadUtils {
     threadPool
   }
 
+  /**
+   * Create a thread factory of virtual threads named prefix-ID, where ID is a unique, sequentially
+   * assigned integer. Virtual threads come with JDK 21, so the factory is built through reflection
+   * and is None on older JVMs.
+   */
+  def namedVirtualThreadFactory(prefix: String): Option[ThreadFactory] = {
+    Try {
+      val builderClass = Class.forName("java.lang.Thread$Builder$OfVirtual")
+      val builder = classOf[Thread].getMethod("ofVirtual").invoke(null)
+      val namedBuilder = builderClass.getMethod("name", classOf[String], classOf[Long])
+        .invoke(builder, prefix + "-", java.lang.Long.valueOf(0L))
+      builderClass.getMethod("factory").invoke(namedBuilder).asInstanceOf[ThreadFactory]
+    }.toOption
+  }
+
+  /** Whether the JVM runs tasks on virtual threads, i.e. is JDK 21+. */
+  lazy val virtualThreadsSupported: Boolean = namedVirtualThreadFactory("probe").isDefined
+
+  /**
+   * Create an executor for tasks that block most of their time, e.g. on RPCs or flushes. With
+   * `useVirtualThreads` on JDK 21+, each task runs on its own virtual thread, so blocked tasks
+   * never hold back the others and `maxThreadNumber` is not applied. Otherwise it is a cached
+   * thread pool of at most `maxThreadNumber` daemon threads.
+   *
+   * Tasks which may pin their carrier threads, by blocking within synchronized blocks, should set
+   * `boundOnVirtualThreads`: at most `maxThreadNumber` of them then run at a time on virtual
+   * threads, the others waiting in the queue, so that they don't take all the carrier threads.
+   */
+  def newDaemonBlockingTaskExecutor(
+      prefix: String,
+      maxThreadNumber: Int,
+      useVirtualThreads: Boolean,
+      boundOnVirtualThreads: Boolean = false): ExecutorService = {
+    if (useVirtualThreads) {
+      namedVirtualThreadFactory(prefix) match {
+        case Some(threadFactory) if boundOnVirtualThreads =>
+          return newCachedThreadPool(threadFactory, maxThreadNumber, 60)
+        case Some(threadFactory) =>
+          return classOf[Executors].getMethod("newThreadPerTaskExecutor", classOf[ThreadFactory])
+            .invoke(null, threadFactory).asInstanceOf[ExecutorService]
+        case None =>
+          logWarning(s"Virtual threads are not supported by Java " +
+            s"${System.getProperty("java.version")}, $prefix falls back to a pool of $maxThreadNumber threads.")
+      }
+    }
+    newDaemonCachedThreadPool(prefix, maxThreadNumber)
+  }
+
   /**
    * Wrapper over newFixedThreadPool. Thread names are formatted as prefix-ID, where ID is a
    * unique, sequentially assigned integer.
@@ -281,6 +337,8 @@ object ThreadUtils {
    * @param in - the input collection which should be transformed in parallel.
    * @param prefix - the prefix assigned to the underlying thread pool.
    * @param maxThreads - maximum number of thread can be created during execution.
+   * @param useVirtualThreads - whether to apply `f` on virtual threads when supported, in which
+   *                            case `maxThreads` is not applied.
    * @param f - the lambda function will be applied to each element of `in`.
    * @tparam I - the type of elements in the input collection.
    * @tparam O - the type of elements in resulted collection.
@@ -290,11 +348,17 @@ object ThreadUtils {
   def parmap[I, O, Col[X] <: TraversableLike[X, Col[X]]](
       in: Col[I],
       prefix: String,
-      maxThreads: Int)(f: I => O)(implicit
+      maxThreads: Int,
+      useVirtualThreads: Boolean = false)(f: I => O)(implicit
       cbf: CanBuildFrom[Col[I], Future[O], Col[Future[O]]], // For in.map
       cbf2: CanBuildFrom[Col[Future[O]], O, Col[O]] // for Future.sequence
   ): Col[O] = {
-    val pool = newForkJoinPool(prefix, maxThreads)
+    val pool =
+      if (useVirtualThreads && virtualThreadsSupported) {
+        newDaemonBlockingTaskExecutor(prefix, maxThreads, useVirtualThreads)
+      } else {
+        newForkJoinPool(prefix, maxThreads)
+      }
     try {
       implicit val ec = ExecutionContext.fromExecutor(pool)
 
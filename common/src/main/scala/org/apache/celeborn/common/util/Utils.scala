@@ -1020,13 +1020,21 @@ object Utils extends Logging {
 
   val SORTED_SUFFIX = ".sorted"
   val INDEX_SUFFIX = ".index"
+  val SHUFFLE_BLOCK_INDEX_SUFFIX = ".blockIndex"
   val SUFFIX_HDFS_WRITE_SUCCESS = ".success"
   val COMPATIBLE_HDFS_REGEX = "^[a-zA-Z0-9]+://.*"
 
+  val OSS_SCHEMES = Set("oss", "s3")
+
   def isHdfsPath(path: String): Boolean = {
     path.matches(COMPATIBLE_HDFS_REGEX)
   }
 
+  def isOssPath(path: String): Boolean = {
+    val schemeEnd = path.indexOf("://")
+    schemeEnd > 0 && OSS_SCHEMES.contains(path.substring(0, schemeEnd).toLowerCase(Locale.ROOT))
+  }
+
   def getSortedFilePath(path: String): String = {
     path + SORTED_SUFFIX
   }
@@ -1035,6 +1043,10 @@ object Utils extends Logging {
     path + INDEX_SUFFIX
   }
 
+  def getShuffleBlockIndexFilePath(path: String): String = {
+    path + SHUFFLE_BLOCK_INDEX_SUFFIX
+  }
+
   def getWriteSuccessFilePath(path: String): String = {
     path + SUFFIX_HDFS_WRITE_SUCCESS
   }
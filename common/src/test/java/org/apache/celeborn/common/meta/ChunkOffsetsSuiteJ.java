@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.celeborn.common.meta;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ChunkOffsetsSuiteJ {
+
+  @Test
+  public void testAppendAndSerialize() throws Exception {
+    ChunkOffsets chunkOffsets = ChunkOffsets.of(0L);
+    for (int i = 1; i <= 1000; i++) {
+      chunkOffsets.add(i * 8L * 1024 * 1024 + i);
+    }
+    Assert.assertEquals(1001, chunkOffsets.size());
+    Assert.assertEquals(1000 * 8L * 1024 * 1024 + 1000, chunkOffsets.last());
+
+    ChunkOffsets restored = ChunkOffsets.fromByteString(chunkOffsets.toByteString());
+    Assert.assertEquals(chunkOffsets, restored);
+    // deltas of about 8 MiB take 4 bytes each, instead of 8 for the offsets
+    Assert.assertTrue(chunkOffsets.toByteString().size() <= 3 + 1000 * 4);
+
+    Assert.assertEquals(
+        new ChunkOffsets(), ChunkOffsets.fromByteString(new ChunkOffsets().toByteString()));
+  }
+
+  @Test
+  public void testSnapshotsWhileAppending() throws Exception {
+    ChunkOffsets chunkOffsets = new ChunkOffsets();
+    AtomicReference<String> error = new AtomicReference<>();
+    Thread reader =
+        new Thread(
+            () -> {
+              while (chunkOffsets.size() < 100000) {
+                long[] snapshot = chunkOffsets.toArray();
+                for (int i = 0; i < snapshot.length; i++) {
+                  if (snapshot[i] != i) {
+                    error.set("Offset " + i + " is " + snapshot[i]);
+                  }
+                }
+              }
+            });
+    reader.start();
+    for (int i = 0; i < 100000; i++) {
+      chunkOffsets.add(i);
+    }
+    reader.join();
+    Assert.assertNull(error.get());
+  }
+}
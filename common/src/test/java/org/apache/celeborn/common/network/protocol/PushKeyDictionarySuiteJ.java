@@ -0,0 +1,164 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.celeborn.common.network.protocol;
+
+import static org.junit.Assert.*;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.Test;
+
+import org.apache.celeborn.common.network.buffer.NettyManagedBuffer;
+
+public class PushKeyDictionarySuiteJ {
+  private static final String SHUFFLE_KEY = "application_1690000000000_0001-0";
+
+  private static PushData pushData(String shuffleKey, String partitionUniqueId) {
+    return new PushData(
+        (byte) 0, shuffleKey, partitionUniqueId, new NettyManagedBuffer(Unpooled.buffer(0)));
+  }
+
+  private static ByteBuf encode(PushKeyDictionary.KeyedMessage msg, PushKeyDictionary.Writer w) {
+    ByteBuf buf = Unpooled.buffer(msg.maxEncodedLength());
+    msg.encode(buf, w);
+    assertTrue(buf.readableBytes() <= msg.maxEncodedLength());
+    return buf;
+  }
+
+  @Test
+  public void testPushDataKeysDefinedOnce() {
+    PushKeyDictionary.Writer writer = new PushKeyDictionary.Writer();
+    PushKeyDictionary.Reader reader = new PushKeyDictionary.Reader();
+
+    ByteBuf first = encode(pushData(SHUFFLE_KEY, "0-0"), writer);
+    ByteBuf second = encode(pushData(SHUFFLE_KEY, "0-0"), writer);
+    // request id, mode and the two ids
+    assertEquals(8 + 1 + 4 + 4, second.readableBytes());
+    assertTrue(first.readableBytes() > second.readableBytes());
+
+    PushData decoded = PushData.decode(first, true, reader);
+    assertEquals(0, decoded.mode);
+    assertEquals(SHUFFLE_KEY, decoded.shuffleKey);
+    assertEquals("0-0", decoded.partitionUniqueId);
+    assertSame(reader, decoded.keyDictionary);
+
+    PushData decodedAgain = PushData.decode(second, true, reader);
+    assertEquals(SHUFFLE_KEY, decodedAgain.shuffleKey);
+    assertEquals("0-0", decodedAgain.partitionUniqueId);
+    assertEquals(decoded.partitionKeyId, decodedAgain.partitionKeyId);
+  }
+
+  @Test
+  public void testPartitionIdsScopedByShuffleKey() {
+    PushKeyDictionary.Writer writer = new PushKeyDictionary.Writer();
+    PushKeyDictionary.Reader reader = new PushKeyDictionary.Reader();
+
+    PushData first = PushData.decode(encode(pushData(SHUFFLE_KEY, "0-0"), writer), true, reader);
+    PushData other =
+        PushData.decode(encode(pushData(SHUFFLE_KEY + "1", "0-0"), writer), true, reader);
+    assertEquals(SHUFFLE_KEY + "1", other.shuffleKey);
+    assertEquals("0-0", other.partitionUniqueId);
+    assertNotEquals(first.partitionKeyId, other.partitionKeyId);
+  }
+
+  @Test
+  public void testPushMergedData() {
+    PushKeyDictionary.Writer writer = new PushKeyDictionary.Writer();
+    PushKeyDictionary.Reader reader = new PushKeyDictionary.Reader();
+    PushData.decode(encode(pushData(SHUFFLE_KEY, "1-0"), writer), true, reader);
+
+    String[] partitionIds = new String[] {"0-0", "1-0", "0-0", "2-1"};
+    int[] batchOffsets = new int[] {0, 16, 32, 48};
+    PushMergedData merged =
+        new PushMergedData(
+            (byte) 1,
+            SHUFFLE_KEY,
+            partitionIds,
+            batchOffsets,
+            new NettyManagedBuffer(Unpooled.buffer(0)));
+    PushMergedData decoded = PushMergedData.decode(encode(merged, writer), true, reader);
+    assertEquals(1, decoded.mode);
+    assertEquals(SHUFFLE_KEY, decoded.shuffleKey);
+    assertArrayEquals(partitionIds, decoded.partitionUniqueIds);
+    assertArrayEquals(batchOffsets, decoded.batchOffsets);
+    assertEquals(decoded.partitionKeyIds[0], decoded.partitionKeyIds[2]);
+
+    ByteBuf again = encode(merged, writer);
+    assertEquals(
+        8 + 1 + 4 + 4 + 4 * 4 + Encoders.IntArrays.encodedLength(batchOffsets),
+        again.readableBytes());
+    assertArrayEquals(partitionIds, PushMergedData.decode(again, true, reader).partitionUniqueIds);
+  }
+
+  @Test
+  public void testIdsReassignedWhenFull() {
+    PushKeyDictionary.Writer writer = new PushKeyDictionary.Writer(4);
+    PushKeyDictionary.Reader reader = new PushKeyDictionary.Reader();
+    for (int round = 0; round < 3; round++) {
+      for (int partition = 0; partition < 10; partition++) {
+        String uniqueId = partition + "-0";
+        PushData decoded =
+            PushData.decode(encode(pushData(SHUFFLE_KEY, uniqueId), writer), true, reader);
+        assertEquals(SHUFFLE_KEY, decoded.shuffleKey);
+        assertEquals(uniqueId, decoded.partitionUniqueId);
+        assertTrue(decoded.partitionKeyId < 4);
+      }
+    }
+  }
+
+  @Test
+  public void testResolvedDroppedWhenIdRedefined() {
+    PushKeyDictionary.Writer writer = new PushKeyDictionary.Writer(2);
+    PushKeyDictionary.Reader reader = new PushKeyDictionary.Reader();
+    PushData first = PushData.decode(encode(pushData(SHUFFLE_KEY, "0-0"), writer), true, reader);
+    Object location = new Object();
+    reader.setResolved(first.partitionKeyId, location, 1L);
+    assertSame(location, reader.resolved(first.partitionKeyId, 1L));
+    assertNull(reader.resolved(first.partitionKeyId, 2L));
+
+    PushData other = PushData.decode(encode(pushData(SHUFFLE_KEY, "1-0"), writer), true, reader);
+    assertEquals(first.partitionKeyId, other.partitionKeyId);
+    assertNull(reader.resolved(other.partitionKeyId, 1L));
+  }
+
+  @Test
+  public void testUndefinedIdRejected() {
+    ByteBuf buf = Unpooled.buffer();
+    buf.writeLong(0L);
+    buf.writeByte(PushKeyDictionary.ENCODED_FLAG);
+    buf.writeInt(3);
+    buf.writeInt(4);
+    try {
+      PushData.decode(buf, true, new PushKeyDictionary.Reader());
+      fail("Undefined push key should be rejected");
+    } catch (IllegalStateException e) {
+      assertTrue(e.getMessage().contains("not defined"));
+    }
+  }
+
+  @Test
+  public void testPlainEncodingUnchanged() {
+    PushData plain = pushData(SHUFFLE_KEY, "0-0");
+    ByteBuf buf = Unpooled.buffer(plain.encodedLength());
+    plain.encode(buf);
+    PushData decoded = PushData.decode(buf, true, new PushKeyDictionary.Reader());
+    assertEquals(SHUFFLE_KEY, decoded.shuffleKey);
+    assertEquals("0-0", decoded.partitionUniqueId);
+    assertNull(decoded.keyDictionary);
+  }
+}
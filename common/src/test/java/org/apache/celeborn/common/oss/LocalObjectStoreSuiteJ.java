@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.celeborn.common.oss;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.celeborn.common.CelebornConf;
+import org.apache.celeborn.common.util.JavaUtils;
+
+public class LocalObjectStoreSuiteJ {
+  private static final String PATH = "oss://bucket/celeborn/object";
+
+  private File root;
+  private LocalObjectStore store;
+
+  @Before
+  public void setUp() throws IOException {
+    root = Files.createTempDirectory("celeborn-oss-").toFile();
+    CelebornConf conf = new CelebornConf();
+    conf.set(CelebornConf.OSS_LOCAL_DIR().key(), root.getAbsolutePath());
+    conf.set(CelebornConf.OSS_MIN_PART_SIZE().key(), "1k");
+    store = new LocalObjectStore(conf);
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    store.close();
+    JavaUtils.deleteRecursively(root);
+  }
+
+  private String uploadPart(String uploadId, int partNumber, int size) throws IOException {
+    return store.uploadPart(
+        PATH, uploadId, partNumber, new ByteBuffer[] {ByteBuffer.allocate(size)});
+  }
+
+  @Test
+  public void testCompleteWithSmallLastPart() throws IOException {
+    String uploadId = store.initiateMultipartUpload(PATH);
+    String tag1 = uploadPart(uploadId, 1, 1024);
+    String tag2 = uploadPart(uploadId, 2, 10);
+    store.completeMultipartUpload(PATH, uploadId, Arrays.asList(tag1, tag2));
+    Assert.assertEquals(1034, store.getObjectLength(PATH));
+  }
+
+  @Test
+  public void testRejectSmallPart() throws IOException {
+    String uploadId = store.initiateMultipartUpload(PATH);
+    String tag1 = uploadPart(uploadId, 1, 1023);
+    String tag2 = uploadPart(uploadId, 2, 1024);
+    try {
+      store.completeMultipartUpload(PATH, uploadId, Arrays.asList(tag1, tag2));
+      Assert.fail("Parts but the last one must be at least the minimum part size");
+    } catch (IOException e) {
+      Assert.assertTrue(e.getMessage().contains("minimum part size"));
+    }
+    Assert.assertFalse(store.exists(PATH));
+    store.abortMultipartUpload(PATH, uploadId);
+  }
+}
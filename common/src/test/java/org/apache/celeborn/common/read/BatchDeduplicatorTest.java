@@ -0,0 +1,40 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.celeborn.common.read;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BatchDeduplicatorTest {
+
+  @Test
+  public void testAdd() {
+    BatchDeduplicator deduplicator = new BatchDeduplicator(2);
+    Assert.assertTrue(deduplicator.add(0, 1));
+    Assert.assertTrue(deduplicator.add(1, 1));
+    Assert.assertFalse(deduplicator.add(0, 1));
+    Assert.assertTrue(deduplicator.contains(1, 1));
+    Assert.assertFalse(deduplicator.contains(1, 2));
+
+    // mapIds beyond the expected number of mappers are still tracked
+    Assert.assertFalse(deduplicator.contains(10, 1));
+    Assert.assertTrue(deduplicator.add(10, 1));
+    Assert.assertFalse(deduplicator.add(10, 1));
+    Assert.assertTrue(deduplicator.add(10, Integer.MAX_VALUE));
+  }
+}
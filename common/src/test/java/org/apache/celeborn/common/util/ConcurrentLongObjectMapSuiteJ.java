@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.celeborn.common.util;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ConcurrentLongObjectMapSuiteJ {
+
+  @Test
+  public void testPutGetRemove() {
+    ConcurrentLongObjectMap<String> map = new ConcurrentLongObjectMap<>();
+    Assert.assertTrue(map.isEmpty());
+    for (long key = 0; key < 10000; key++) {
+      Assert.assertNull(map.putIfAbsent(key << 32 | key % 7, "v" + key));
+    }
+    Assert.assertEquals(10000, map.size());
+    Assert.assertEquals("v1", map.putIfAbsent(1L << 32 | 1, "other"));
+    for (long key = 0; key < 10000; key++) {
+      Assert.assertEquals("v" + key, map.get(key << 32 | key % 7));
+      Assert.assertNull(map.get(key << 32 | (key % 7 + 1)));
+    }
+    for (long key = 0; key < 10000; key += 2) {
+      Assert.assertEquals("v" + key, map.remove(key << 32 | key % 7));
+      Assert.assertNull(map.remove(key << 32 | key % 7));
+    }
+    Assert.assertEquals(5000, map.size());
+    Assert.assertEquals(5000, map.values().size());
+    for (long key = 0; key < 10000; key++) {
+      Assert.assertEquals(key % 2 == 0 ? null : "v" + key, map.get(key << 32 | key % 7));
+    }
+    // a removed key can be put back
+    Assert.assertNull(map.putIfAbsent(0, "again"));
+    Assert.assertEquals("again", map.get(0));
+  }
+
+  @Test
+  public void testReadsWhileWriting() throws Exception {
+    ConcurrentLongObjectMap<Long> map = new ConcurrentLongObjectMap<>();
+    int stableKeys = 1000;
+    for (long key = 0; key < stableKeys; key++) {
+      map.putIfAbsent(key, key);
+    }
+    AtomicBoolean writing = new AtomicBoolean(true);
+    AtomicReference<String> error = new AtomicReference<>();
+    CountDownLatch readers = new CountDownLatch(4);
+    for (int r = 0; r < 4; r++) {
+      new Thread(
+              () -> {
+                while (writing.get()) {
+                  for (long key = 0; key < stableKeys; key++) {
+                    Long value = map.get(key);
+                    if (value == null || value != key) {
+                      error.set("Key " + key + " has value " + value);
+                    }
+                  }
+                }
+                readers.countDown();
+              })
+          .start();
+    }
+    // rebuilds the table many times while the stable keys are read
+    int kept = 0;
+    for (long key = stableKeys; key < 200000; key++) {
+      map.putIfAbsent(key, key);
+      if (key % 3 != 0) {
+        map.remove(key);
+      } else {
+        kept++;
+      }
+    }
+    writing.set(false);
+    readers.await();
+    Assert.assertNull(error.get());
+    Assert.assertEquals(stableKeys + kept, map.size());
+  }
+}
@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.celeborn.common.write;
+
+import java.io.IOException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.apache.celeborn.common.CelebornConf;
+import org.apache.celeborn.common.exception.CelebornIOException;
+
+public class InFlightRequestTrackerTest {
+
+  private static final String HOST_PORT = "test:9087";
+
+  private PushState newPushState(String timeout) {
+    CelebornConf conf = new CelebornConf();
+    conf.set(CelebornConf.CLIENT_PUSH_MAX_REQS_IN_FLIGHT_PERWORKER().key(), "1");
+    conf.set(CelebornConf.CLIENT_PUSH_LIMIT_IN_FLIGHT_TIMEOUT().key(), timeout);
+    // A large delta makes sure the waiters are woken up by removeBatch rather than by polling.
+    conf.set(CelebornConf.CLIENT_PUSH_LIMIT_IN_FLIGHT_SLEEP_INTERVAL().key(), "60s");
+    return new PushState(conf);
+  }
+
+  @Test
+  public void testRemoveBatchWakesUpWaiters() throws Exception {
+    PushState pushState = newPushState("120s");
+    pushState.addBatch(1, HOST_PORT);
+    pushState.addBatch(2, HOST_PORT);
+
+    Thread remover =
+        new Thread(
+            () -> {
+              try {
+                Thread.sleep(100);
+              } catch (InterruptedException e) {
+                return;
+              }
+              pushState.removeBatch(1, HOST_PORT);
+              pushState.removeBatch(2, HOST_PORT);
+            });
+    long start = System.currentTimeMillis();
+    remover.start();
+    Assert.assertFalse(pushState.limitMaxInFlight(HOST_PORT));
+    Assert.assertFalse(pushState.limitZeroInFlight());
+    Assert.assertTrue(System.currentTimeMillis() - start < 30 * 1000);
+    remover.join();
+  }
+
+  @Test
+  public void testTimeoutAndException() throws Exception {
+    PushState pushState = newPushState("200ms");
+    pushState.addBatch(1, HOST_PORT);
+    pushState.addBatch(2, HOST_PORT);
+    Assert.assertTrue(pushState.limitMaxInFlight(HOST_PORT));
+    Assert.assertTrue(pushState.limitZeroInFlight());
+
+    pushState.exception.set(new CelebornIOException("Push failed"));
+    try {
+      pushState.limitMaxInFlight(HOST_PORT);
+      Assert.fail("limitMaxInFlight should rethrow the push exception");
+    } catch (IOException e) {
+      Assert.assertEquals("Push failed", e.getMessage());
+    }
+  }
+}
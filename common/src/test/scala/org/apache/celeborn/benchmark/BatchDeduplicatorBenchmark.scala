@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.celeborn.benchmark
+
+import java.lang.{Integer => JInteger}
+import java.util.{HashMap => JHashMap, HashSet => JHashSet, Set => JSet}
+
+import org.apache.celeborn.common.read.BatchDeduplicator
+
+/**
+ * Batch de-duplication benchmark of the reducer side, comparing the boxed map of sets used
+ * before with [[BatchDeduplicator]]. Batches of the mappers are interleaved as in a pushed
+ * partition file, and the batch ids of a mapper are increasing with a stride, since a mapper
+ * shares its batch id sequence among all partitions.
+ * To run this benchmark:
+ * {{{
+ *   1. build/sbt "common/test:runMain <this class>"
+ *   2. generate result:
+ *      CELEBORN_GENERATE_BENCHMARK_FILES=1 build/sbt "common/test:runMain <this class>"
+ *      Results will be written to "benchmarks/BatchDeduplicatorBenchmark-results.txt".
+ * }}}
+ */
+object BatchDeduplicatorBenchmark extends BenchmarkBase {
+
+  def test(numMappers: Int, batchesPerMapper: Int, batchIdStride: Int): Unit = {
+    val name = s"$numMappers mappers, $batchesPerMapper batches per mapper"
+    val numBatches = numMappers.toLong * batchesPerMapper
+    runBenchmark(name) {
+      val benchmark = new Benchmark(name, numBatches, output = output)
+      benchmark.addCase("HashMap<Integer, Set<Integer>>", 3) { _: Int =>
+        val batchesRead = new JHashMap[JInteger, JSet[JInteger]]()
+        var batch = 0
+        while (batch < batchesPerMapper) {
+          val batchId = batch * batchIdStride
+          var mapId = 0
+          while (mapId < numMappers) {
+            if (!batchesRead.containsKey(mapId)) {
+              batchesRead.put(mapId, new JHashSet[JInteger]())
+            }
+            val batchSet = batchesRead.get(mapId)
+            if (!batchSet.contains(batchId)) {
+              batchSet.add(batchId)
+            }
+            mapId += 1
+          }
+          batch += 1
+        }
+      }
+
+      benchmark.addCase("BatchDeduplicator", 3) { _: Int =>
+        val deduplicator = new BatchDeduplicator(numMappers)
+        var batch = 0
+        while (batch < batchesPerMapper) {
+          val batchId = batch * batchIdStride
+          var mapId = 0
+          while (mapId < numMappers) {
+            deduplicator.add(mapId, batchId)
+            mapId += 1
+          }
+          batch += 1
+        }
+      }
+      benchmark.run()
+    }
+  }
+
+  override def runBenchmarkSuite(mainArgs: Array[String]): Unit = {
+    test(100, 100000, 1)
+    test(1000, 10000, 200)
+    test(10000, 1000, 2000)
+  }
+}
@@ -0,0 +1,156 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.celeborn.common.meta
+
+import java.lang.management.ManagementFactory
+import java.util.{ArrayList => JArrayList}
+import java.util.concurrent.ConcurrentHashMap
+
+import scala.util.Random
+
+import org.apache.celeborn.benchmark.{Benchmark, BenchmarkBase}
+import org.apache.celeborn.common.protocol.PartitionLocation
+import org.apache.celeborn.common.util.JavaUtils
+
+/**
+ * Benchmark of [[WorkerPartitionLocationInfo]], which keys the locations of a shuffle by the
+ * primitive key of their unique ids, against the former maps keyed by the unique id strings.
+ * Besides the time to look up every location in random order, the heap retained by the maps of
+ * each layout, i.e. excluding the locations themselves, is reported.
+ * To run this benchmark:
+ * {{{
+ *   1. build/sbt "common/test:runMain <this class>"
+ *   2. generate result:
+ *      CELEBORN_GENERATE_BENCHMARK_FILES=1 build/sbt "common/test:runMain <this class>"
+ *      Results will be written to "benchmarks/WorkerPartitionLocationInfoBenchmark-results.txt".
+ * }}}
+ */
+object WorkerPartitionLocationInfoBenchmark extends BenchmarkBase {
+
+  type StringKeyedInfo =
+    ConcurrentHashMap[String, ConcurrentHashMap[String, PartitionLocation]]
+
+  private def locations(
+      numShuffles: Int,
+      partitionsPerShuffle: Int): Seq[(String, JArrayList[PartitionLocation])] = {
+    (0 until numShuffles).map { shuffleId =>
+      val shuffleLocations = new JArrayList[PartitionLocation](partitionsPerShuffle)
+      (0 until partitionsPerShuffle).foreach { id =>
+        shuffleLocations.add(new PartitionLocation(
+          id,
+          0,
+          "localhost",
+          9097,
+          9098,
+          9099,
+          9100,
+          PartitionLocation.Mode.PRIMARY))
+      }
+      s"application_1_0001-$shuffleId" -> shuffleLocations
+    }
+  }
+
+  private def primitiveKeyed(
+      shuffles: Seq[(String, JArrayList[PartitionLocation])]): WorkerPartitionLocationInfo = {
+    val info = new WorkerPartitionLocationInfo
+    shuffles.foreach { case (shuffleKey, shuffleLocations) =>
+      info.addPrimaryPartitions(shuffleKey, shuffleLocations)
+    }
+    info
+  }
+
+  private def stringKeyed(shuffles: Seq[(String, JArrayList[PartitionLocation])])
+      : StringKeyedInfo = {
+    val info = new StringKeyedInfo
+    shuffles.foreach { case (shuffleKey, shuffleLocations) =>
+      val partitionMap = JavaUtils.newConcurrentHashMap[String, PartitionLocation]()
+      shuffleLocations.forEach(location => partitionMap.put(location.getUniqueId, location))
+      info.put(shuffleKey, partitionMap)
+    }
+    info
+  }
+
+  private def usedHeap(): Long = {
+    (0 until 3).foreach(_ => System.gc())
+    ManagementFactory.getMemoryMXBean.getHeapMemoryUsage.getUsed
+  }
+
+  private def retainedBytes(build: () => AnyRef): Long = {
+    val before = usedHeap()
+    val retained = build()
+    val bytes = usedHeap() - before
+    // keeps the maps reachable until measured
+    assert(retained != null)
+    bytes
+  }
+
+  def test(numShuffles: Int, partitionsPerShuffle: Int): Unit = {
+    val numLocations = numShuffles * partitionsPerShuffle
+    val name = s"look up $numLocations locations of $numShuffles shuffles"
+    runBenchmark(name) {
+      val shuffles = locations(numShuffles, partitionsPerShuffle)
+      // pushes come for the partitions of a shuffle in no particular order
+      val uniqueIds =
+        new Random(42).shuffle((0 until partitionsPerShuffle).map(id => s"$id-0")).toArray
+      val primitive = primitiveKeyed(shuffles)
+      val strings = stringKeyed(shuffles)
+
+      val benchmark = new Benchmark(name, numLocations, output = output)
+      benchmark.addCase("string keyed", 5) { _: Int =>
+        shuffles.foreach { case (shuffleKey, _) =>
+          var i = 0
+          while (i < uniqueIds.length) {
+            val partitionMap = strings.get(shuffleKey)
+            if (partitionMap != null) {
+              partitionMap.get(uniqueIds(i))
+            }
+            i += 1
+          }
+        }
+      }
+      benchmark.addCase("primitive keyed", 5) { _: Int =>
+        shuffles.foreach { case (shuffleKey, _) =>
+          var i = 0
+          while (i < uniqueIds.length) {
+            primitive.getPrimaryLocation(shuffleKey, uniqueIds(i))
+            i += 1
+          }
+        }
+      }
+      benchmark.run()
+
+      val stringBytes = retainedBytes(() => stringKeyed(shuffles))
+      val primitiveBytes = retainedBytes(() => primitiveKeyed(shuffles))
+      val summary = new StringBuilder()
+      summary.append(f"string keyed       ${stringBytes / 1024}%10d KB, " +
+        f"${stringBytes.toDouble / numLocations}%.1f bytes per location%n")
+      summary.append(f"primitive keyed    ${primitiveBytes / 1024}%10d KB, " +
+        f"${primitiveBytes.toDouble / numLocations}%.1f bytes per location%n")
+      summary.append(System.lineSeparator())
+      // scalastyle:off println
+      println(summary)
+      // scalastyle:on println
+      output.foreach(_.write(summary.toString.getBytes))
+    }
+  }
+
+  override def runBenchmarkSuite(mainArgs: Array[String]): Unit = {
+    test(1000, 1000)
+    test(10, 100000)
+  }
+}
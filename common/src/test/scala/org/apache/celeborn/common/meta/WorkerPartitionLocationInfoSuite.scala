@@ -64,6 +64,28 @@ class WorkerPartitionLocationInfoSuite extends CelebornFunSuite {
     assertEquals(workerPartitionLocationInfo.isEmpty, true)
   }
 
+  test("look up locations by the key of their unique id") {
+    val shuffleKey = "app_12345_12345_1-0"
+    val locations = new util.ArrayList[PartitionLocation]()
+    (0 until 1000).foreach(id => locations.add(mockPartition(id, id % 3)))
+    val workerPartitionLocationInfo = new WorkerPartitionLocationInfo
+    workerPartitionLocationInfo.addPrimaryPartitions(shuffleKey, locations)
+
+    locations.asScala.foreach { location =>
+      assert(workerPartitionLocationInfo.getPrimaryLocation(shuffleKey, location.getUniqueId)
+        eq location)
+      assert(workerPartitionLocationInfo.getReplicaLocation(shuffleKey, location.getUniqueId)
+        == null)
+    }
+    assert(workerPartitionLocationInfo.getPrimaryLocation(shuffleKey, "0-1") == null)
+    Seq("", "-", "1", "1-", "-1", "1-a", "1-2-3", "99999999999-0").foreach { uniqueId =>
+      assert(WorkerPartitionLocationInfo.locationKey(uniqueId) == -1)
+      assert(workerPartitionLocationInfo.getPrimaryLocation(shuffleKey, uniqueId) == null)
+    }
+    assert(WorkerPartitionLocationInfo.locationKey(s"${Int.MaxValue}-${Int.MaxValue}") ==
+      WorkerPartitionLocationInfo.locationKey(Int.MaxValue, Int.MaxValue))
+  }
+
   private def mockPartition(partitionId: Int, epoch: Int): PartitionLocation = {
     new PartitionLocation(
       partitionId,
@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.celeborn.common.rpc.netty
+
+import java.util.concurrent.{CountDownLatch, TimeUnit}
+
+import scala.collection.JavaConverters._
+import scala.concurrent.Await
+import scala.concurrent.duration._
+
+import org.apache.celeborn.CelebornFunSuite
+import org.apache.celeborn.common.CelebornConf
+import org.apache.celeborn.common.rpc.{MultiLaneRpcEndpoint, RpcCallContext, RpcEnv}
+
+class MultiLaneRpcEndpointSuite extends CelebornFunSuite {
+
+  private class LaneEndpoint(override val rpcEnv: RpcEnv, slowLatch: CountDownLatch)
+    extends MultiLaneRpcEndpoint {
+
+    override def lanes: Map[String, Int] = Map("slow" -> 1, "fast" -> 1)
+
+    override def laneOf(message: Any): Option[String] = message match {
+      case "slow" => Some("slow")
+      case "fast" => Some("fast")
+      case _ => None
+    }
+
+    override def receiveAndReply(context: RpcCallContext): PartialFunction[Any, Unit] = {
+      case "slow" =>
+        slowLatch.await(10, TimeUnit.SECONDS)
+        context.reply("slow")
+      case message: String =>
+        context.reply(message)
+    }
+  }
+
+  test("slow messages of a lane do not hold back other messages") {
+    // a single dispatcher thread for the messages of no lane
+    val conf = new CelebornConf().set(CelebornConf.RPC_DISPATCHER_THREADS.key, "1")
+    val rpcEnv = RpcEnv.create("lanes", "localhost", "localhost", 0, conf, 1)
+    try {
+      val slowLatch = new CountDownLatch(1)
+      val ref = rpcEnv.setupEndpoint("lanes", new LaneEndpoint(rpcEnv, slowLatch))
+      val slowReplies = (0 until 3).map(_ => ref.ask[String]("slow"))
+      // answered while the slow messages wait
+      assert(ref.askSync[String]("fast") === "fast")
+      assert(ref.askSync[String]("default") === "default")
+      assert(slowReplies.forall(!_.isCompleted))
+
+      slowLatch.countDown()
+      slowReplies.foreach(reply => assert(Await.result(reply, 10.seconds) === "slow"))
+    } finally {
+      rpcEnv.shutdown()
+      rpcEnv.awaitTermination()
+    }
+  }
+
+  test("lane threads stop with the endpoint") {
+    val conf = new CelebornConf()
+    val rpcEnv = RpcEnv.create("lanes", "localhost", "localhost", 0, conf, 1)
+    try {
+      val ref = rpcEnv.setupEndpoint("lanes", new LaneEndpoint(rpcEnv, new CountDownLatch(0)))
+      assert(ref.askSync[String]("fast") === "fast")
+      rpcEnv.stop(ref)
+      def laneThreads: Int = Thread.getAllStackTraces.keySet().asScala
+        .count(_.getName.startsWith("dispatcher-lanes-"))
+      val deadline = System.currentTimeMillis() + 10000
+      while (laneThreads > 0 && System.currentTimeMillis() < deadline) {
+        Thread.sleep(100)
+      }
+      assert(laneThreads === 0)
+    } finally {
+      rpcEnv.shutdown()
+      rpcEnv.awaitTermination()
+    }
+  }
+}
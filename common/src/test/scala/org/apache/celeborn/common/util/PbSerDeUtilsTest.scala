@@ -123,6 +123,17 @@ class PbSerDeUtilsTest extends CelebornFunSuite {
     assert(restoredFileInfo.getPartitionType.equals(fileInfo1.getPartitionType))
   }
 
+  test("fromPbFileInfo with chunk offsets not encoded") {
+    val pbFileInfo = PbSerDeUtils.toPbFileInfo(fileInfo1).toBuilder
+      .clearEncodedChunkOffsets()
+      .addAllChunkOffsets(chunkOffsets1)
+      .build()
+    val restoredFileInfo = PbSerDeUtils.fromPbFileInfo(pbFileInfo)
+
+    assert(restoredFileInfo.getChunkOffsets.equals(fileInfo1.getChunkOffsets))
+    assert(restoredFileInfo.numChunks() == 2)
+  }
+
   test("fromAndToPbFileInfoMap") {
     val pbFileInfoMap = PbSerDeUtils.toPbFileInfoMap(fileInfoMap)
     val restoredFileInfoMap = PbSerDeUtils.fromPbFileInfoMap(pbFileInfoMap, cache)
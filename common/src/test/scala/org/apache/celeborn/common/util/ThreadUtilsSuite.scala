@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.celeborn.common.util
+
+import java.util.concurrent.{Callable, TimeUnit}
+import java.util.concurrent.atomic.AtomicInteger
+
+import org.apache.celeborn.CelebornFunSuite
+
+class ThreadUtilsSuite extends CelebornFunSuite {
+
+  private def javaMajorVersion: Int = {
+    val version = System.getProperty("java.specification.version")
+    if (version.startsWith("1.")) version.substring(2).toInt else version.toInt
+  }
+
+  test("blocking task executor runs on virtual threads when supported") {
+    assert(ThreadUtils.virtualThreadsSupported == javaMajorVersion >= 21)
+    val executor = ThreadUtils.newDaemonBlockingTaskExecutor("blocking-task", 2, true)
+    try {
+      val threadName = executor.submit(new Callable[String] {
+        override def call(): String = Thread.currentThread().getName
+      }).get(10, TimeUnit.SECONDS)
+      assert(threadName.startsWith("blocking-task-"))
+    } finally {
+      executor.shutdownNow()
+    }
+  }
+
+  test("bounded blocking task executor runs at most maxThreadNumber tasks at a time") {
+    val executor =
+      ThreadUtils.newDaemonBlockingTaskExecutor(
+        "bounded-task",
+        2,
+        true,
+        boundOnVirtualThreads = true)
+    val running = new AtomicInteger()
+    val maxRunning = new AtomicInteger()
+    try {
+      val futures = (1 to 16).map { _ =>
+        executor.submit(new Runnable {
+          override def run(): Unit = {
+            val numRunning = running.incrementAndGet()
+            maxRunning.accumulateAndGet(numRunning, (a: Int, b: Int) => Math.max(a, b))
+            Thread.sleep(10)
+            running.decrementAndGet()
+          }
+        })
+      }
+      futures.foreach(_.get(10, TimeUnit.SECONDS))
+      assert(maxRunning.get() <= 2)
+    } finally {
+      executor.shutdownNow()
+    }
+  }
+
+  test("parmap on virtual threads") {
+    val squares = ThreadUtils.parmap(1 to 100, "parmap", 2, useVirtualThreads = true) { i =>
+      Thread.sleep(1)
+      i * i
+    }
+    assert(squares == (1 to 100).map(i => i * i))
+  }
+}
@@ -145,6 +145,10 @@ class UtilsSuite extends CelebornFunSuite {
     assert(true == Utils.isHdfsPath(ossPath))
     assert(true == Utils.isHdfsPath(sortedOssPath))
     assert(true == Utils.isHdfsPath(indexOssPath))
+    assert(true == Utils.isOssPath(ossPath))
+    assert(true == Utils.isOssPath("S3://xxxx/xx-xx/x-x-x"))
+    assert(false == Utils.isOssPath(hdfsPath))
+    assert(false == Utils.isOssPath(juicePath))
 
     val localPath = "/xxx/xxx/xx-xx/x-x-x"
     assert(false == Utils.isHdfsPath(localPath))
@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.celeborn.common.write
+
+import java.util.{Arrays => JArrays}
+import java.util.concurrent.{CountDownLatch, Executors, TimeUnit}
+
+import org.apache.celeborn.benchmark.{Benchmark, BenchmarkBase}
+import org.apache.celeborn.common.CelebornConf
+
+/**
+ * Push admission benchmark of [[InFlightRequestTracker]] under contention: several push threads
+ * share one worker address, and every admitted batch is completed by another thread after a
+ * simulated round trip. Besides the throughput table, the latency percentiles of
+ * `limitMaxInFlight` are reported for each case.
+ * To run this benchmark:
+ * {{{
+ *   1. build/sbt "common/test:runMain <this class>"
+ *   2. generate result:
+ *      CELEBORN_GENERATE_BENCHMARK_FILES=1 build/sbt "common/test:runMain <this class>"
+ *      Results will be written to "benchmarks/InFlightRequestTrackerBenchmark-results.txt".
+ * }}}
+ */
+object InFlightRequestTrackerBenchmark extends BenchmarkBase {
+
+  private val hostAndPushPort = "localhost:9092"
+  private val maxInFlight = 8
+  private val roundTripMicros = 500L
+
+  private def admit(threads: Int, pushesPerThread: Int): Array[Long] = {
+    val conf = new CelebornConf()
+      .set(CelebornConf.CLIENT_PUSH_MAX_REQS_IN_FLIGHT_PERWORKER.key, maxInFlight.toString)
+    val pushState = new PushState(conf)
+    val completer = Executors.newScheduledThreadPool(2)
+    val pushers = Executors.newFixedThreadPool(threads)
+    val latencies = new Array[Long](threads * pushesPerThread)
+    val done = new CountDownLatch(threads)
+    (0 until threads).foreach { t =>
+      pushers.submit(new Runnable {
+        override def run(): Unit = {
+          var i = 0
+          while (i < pushesPerThread) {
+            val start = System.nanoTime()
+            pushState.limitMaxInFlight(hostAndPushPort)
+            latencies(t * pushesPerThread + i) = System.nanoTime() - start
+            val batchId = pushState.nextBatchId()
+            pushState.addBatch(batchId, hostAndPushPort)
+            completer.schedule(
+              new Runnable {
+                override def run(): Unit = pushState.removeBatch(batchId, hostAndPushPort)
+              },
+              roundTripMicros,
+              TimeUnit.MICROSECONDS)
+            i += 1
+          }
+          done.countDown()
+        }
+      })
+    }
+    done.await()
+    pushState.limitZeroInFlight()
+    pushers.shutdown()
+    completer.shutdown()
+    latencies
+  }
+
+  private def percentile(sorted: Array[Long], p: Double): Double = {
+    sorted(math.min(sorted.length - 1, (sorted.length * p).toInt)) / 1000.0
+  }
+
+  def test(threads: Int, pushesPerThread: Int): Unit = {
+    val name = s"limitMaxInFlight with $threads push threads"
+    runBenchmark(name) {
+      val benchmark = new Benchmark(name, threads * pushesPerThread, output = output)
+      var latencies: Array[Long] = null
+      benchmark.addCase("push admission", 3) { _: Int =>
+        latencies = admit(threads, pushesPerThread)
+      }
+      benchmark.run()
+
+      JArrays.sort(latencies)
+      val summary = f"Admission latency(us): p50 ${percentile(latencies, 0.5)}%.1f, " +
+        f"p99 ${percentile(latencies, 0.99)}%.1f, p999 ${percentile(latencies, 0.999)}%.1f%n"
+      // scalastyle:off println
+      println(summary)
+      // scalastyle:on println
+      output.foreach(_.write(summary.getBytes))
+    }
+  }
+
+  override def runBenchmarkSuite(mainArgs: Array[String]): Unit = {
+    test(4, 2000)
+    test(16, 500)
+    test(64, 125)
+  }
+}
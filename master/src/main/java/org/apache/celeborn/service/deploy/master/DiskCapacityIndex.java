@@ -0,0 +1,271 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.celeborn.service.deploy.master;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.celeborn.common.meta.DiskInfo;
+import org.apache.celeborn.common.meta.DiskStatus;
+import org.apache.celeborn.common.meta.WorkerInfo;
+import org.apache.celeborn.common.util.JavaUtils;
+
+/**
+ * Healthy disks of the workers, from which the {@link SlotsAllocator} offers slots. The disks of a
+ * worker are indexed when slots are first offered on it, and refreshed by its heartbeats, so that
+ * offering slots neither rebuilds the disk lists of every worker nor holds the lock of the workers.
+ *
+ * <p>The slots left on a disk are counted down while slots are offered on it, hence concurrent
+ * offers never give away the same slots. A heartbeat sets the count to the slots the worker reports
+ * less the slots offered which the worker has not reserved yet, i.e. the offers made in the last
+ * offerExpireMs which are not part of the growth of its active slots. The disks are sorted by load
+ * again only if a heartbeat changes the disks of a worker or their load materially.
+ */
+public class DiskCapacityIndex {
+
+  // relative change of the flush or fetch time of a disk which changes the load order
+  private static final double LOAD_CHANGE_RATIO = 0.1;
+
+  static class DiskCapacity {
+    final WorkerInfo worker;
+    final DiskInfo diskInfo;
+    volatile long actualUsableSpace;
+    // the times the disks are sorted by, as of the last material change
+    volatile long avgFlushTime;
+    volatile long avgFetchTime;
+    // guarded by this
+    private long availableSlots;
+    private long reportedActiveSlots;
+    private long outstandingOffers;
+    private long lastOfferTime;
+
+    DiskCapacity(WorkerInfo worker, DiskInfo diskInfo) {
+      this.worker = worker;
+      this.diskInfo = diskInfo;
+      actualUsableSpace = diskInfo.actualUsableSpace();
+      avgFlushTime = diskInfo.avgFlushTime();
+      avgFetchTime = diskInfo.avgFetchTime();
+      availableSlots = diskInfo.availableSlots();
+      reportedActiveSlots = diskInfo.activeSlots();
+    }
+
+    synchronized long availableSlots() {
+      return availableSlots;
+    }
+
+    synchronized boolean tryReserve() {
+      if (availableSlots <= 0) {
+        return false;
+      }
+      availableSlots--;
+      outstandingOffers++;
+      lastOfferTime = System.currentTimeMillis();
+      return true;
+    }
+
+    synchronized void release() {
+      availableSlots++;
+      if (outstandingOffers > 0) {
+        outstandingOffers--;
+      }
+    }
+
+    /**
+     * Refreshes the disk from the disk info a heartbeat has updated.
+     *
+     * @return whether the load of the disk changed materially
+     */
+    synchronized boolean refresh(long offerExpireMs) {
+      long reserved = Math.max(0, diskInfo.activeSlots() - reportedActiveSlots);
+      reportedActiveSlots = diskInfo.activeSlots();
+      if (System.currentTimeMillis() - lastOfferTime > offerExpireMs) {
+        outstandingOffers = 0;
+      } else {
+        outstandingOffers = Math.max(0, outstandingOffers - reserved);
+      }
+      availableSlots = diskInfo.availableSlots() - outstandingOffers;
+      actualUsableSpace = diskInfo.actualUsableSpace();
+      if (loadChanged(avgFlushTime, diskInfo.avgFlushTime())
+          || loadChanged(avgFetchTime, diskInfo.avgFetchTime())) {
+        avgFlushTime = diskInfo.avgFlushTime();
+        avgFetchTime = diskInfo.avgFetchTime();
+        return true;
+      }
+      return false;
+    }
+
+    private static boolean loadChanged(long oldTime, long newTime) {
+      return Math.abs(newTime - oldTime) > Math.max(oldTime, newTime) * LOAD_CHANGE_RATIO;
+    }
+  }
+
+  /** The disks of all the indexed workers sorted by load, as of a version of the index. */
+  private static class LoadOrder {
+    final long version;
+    final double flushTimeWeight;
+    final double fetchTimeWeight;
+    final List<DiskCapacity> disks;
+
+    LoadOrder(
+        long version, double flushTimeWeight, double fetchTimeWeight, List<DiskCapacity> disks) {
+      this.version = version;
+      this.flushTimeWeight = flushTimeWeight;
+      this.fetchTimeWeight = fetchTimeWeight;
+      this.disks = disks;
+    }
+  }
+
+  private final ConcurrentHashMap<WorkerInfo, List<DiskCapacity>> workerDisks =
+      JavaUtils.newConcurrentHashMap();
+  private final AtomicLong version = new AtomicLong();
+  private volatile LoadOrder loadOrder;
+  private final long offerExpireMs;
+
+  /**
+   * @param offerExpireMs time after the last offer on a disk after which the offers not reserved
+   *     yet are not expected to be reserved anymore
+   */
+  public DiskCapacityIndex(long offerExpireMs) {
+    this.offerExpireMs = offerExpireMs;
+  }
+
+  /** Returns an index of the given workers, for a single offer. */
+  public static DiskCapacityIndex of(List<WorkerInfo> workers) {
+    DiskCapacityIndex index = new DiskCapacityIndex(0);
+    workers.forEach(index::update);
+    return index;
+  }
+
+  /** Refreshes the disks of a worker, after its disks have been updated. */
+  public void update(WorkerInfo worker) {
+    List<DiskCapacity> previousDisks = workerDisks.get(worker);
+    if (previousDisks == null) {
+      workerDisks.put(worker, indexDisks(worker));
+      version.incrementAndGet();
+      return;
+    }
+    // the disk infos of a worker are updated in place by its heartbeats
+    Map<DiskInfo, DiskCapacity> previous = new IdentityHashMap<>();
+    previousDisks.forEach(disk -> previous.put(disk.diskInfo, disk));
+    List<DiskCapacity> disks = indexDisks(worker, previous);
+    boolean changed = disks.size() != previousDisks.size();
+    for (DiskCapacity disk : disks) {
+      if (previous.get(disk.diskInfo) != disk) {
+        changed = true;
+      } else if (disk.refresh(offerExpireMs)) {
+        changed = true;
+      }
+    }
+    workerDisks.put(worker, disks);
+    if (changed) {
+      version.incrementAndGet();
+    }
+  }
+
+  public void remove(WorkerInfo worker) {
+    if (workerDisks.remove(worker) != null) {
+      version.incrementAndGet();
+    }
+  }
+
+  public void clear() {
+    workerDisks.clear();
+    version.incrementAndGet();
+  }
+
+  private static List<DiskCapacity> indexDisks(WorkerInfo worker) {
+    return indexDisks(worker, Collections.emptyMap());
+  }
+
+  private static List<DiskCapacity> indexDisks(
+      WorkerInfo worker, Map<DiskInfo, DiskCapacity> previous) {
+    if (worker.diskInfos() == null || worker.diskInfos().isEmpty()) {
+      return Collections.emptyList();
+    }
+    List<DiskCapacity> disks = new ArrayList<>(worker.diskInfos().size());
+    for (DiskInfo diskInfo : worker.diskInfos().values()) {
+      if (diskInfo.status().equals(DiskStatus.HEALTHY)) {
+        DiskCapacity disk = previous.get(diskInfo);
+        disks.add(disk != null ? disk : new DiskCapacity(worker, diskInfo));
+      }
+    }
+    return disks;
+  }
+
+  List<DiskCapacity> disks(WorkerInfo worker) {
+    List<DiskCapacity> disks = workerDisks.get(worker);
+    if (disks == null) {
+      disks =
+          workerDisks.computeIfAbsent(
+              worker,
+              w -> {
+                version.incrementAndGet();
+                return indexDisks(w);
+              });
+    }
+    return disks;
+  }
+
+  /**
+   * Returns the disks of the given workers with more than minimumUsableSpace bytes, from the least
+   * to the most loaded one. The order of all the disks is kept until the index changes, so that a
+   * burst of offers sorts the disks once.
+   */
+  List<DiskCapacity> disksByLoad(
+      Collection<WorkerInfo> workers,
+      long minimumUsableSpace,
+      double flushTimeWeight,
+      double fetchTimeWeight) {
+    workers.forEach(this::disks);
+    long currentVersion = version.get();
+    LoadOrder order = loadOrder;
+    if (order == null
+        || order.version != currentVersion
+        || order.flushTimeWeight != flushTimeWeight
+        || order.fetchTimeWeight != fetchTimeWeight) {
+      List<DiskCapacity> allDisks = new ArrayList<>();
+      workerDisks.values().forEach(allDisks::addAll);
+      // the loads are taken once, as heartbeats may change them while sorting
+      Map<DiskCapacity, Double> loads = new IdentityHashMap<>();
+      allDisks.forEach(
+          disk ->
+              loads.put(
+                  disk, disk.avgFlushTime * flushTimeWeight + disk.avgFetchTime * fetchTimeWeight));
+      allDisks.sort(Comparator.comparingDouble(loads::get));
+      order = new LoadOrder(currentVersion, flushTimeWeight, fetchTimeWeight, allDisks);
+      loadOrder = order;
+    }
+    Set<WorkerInfo> selectedWorkers = new HashSet<>(workers);
+    List<DiskCapacity> disks = new ArrayList<>();
+    for (DiskCapacity disk : order.disks) {
+      if (disk.actualUsableSpace > minimumUsableSpace && selectedWorkers.contains(disk.worker)) {
+        disks.add(disk);
+      }
+    }
+    return disks;
+  }
+}
@@ -18,6 +18,7 @@
 package org.apache.celeborn.service.deploy.master;
 
 import java.util.*;
+import java.util.function.Function;
 
 import scala.Tuple2;
 
@@ -26,21 +27,34 @@ import org.roaringbitmap.RoaringBitmap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import org.apache.celeborn.common.meta.DiskInfo;
-import org.apache.celeborn.common.meta.DiskStatus;
 import org.apache.celeborn.common.meta.WorkerInfo;
 import org.apache.celeborn.common.protocol.PartitionLocation;
 import org.apache.celeborn.common.protocol.StorageInfo;
+import org.apache.celeborn.service.deploy.master.DiskCapacityIndex.DiskCapacity;
 
 public class SlotsAllocator {
+  /** A disk slots are offered on, and how many slots an offer may still take on it. */
   static class UsableDiskInfo {
-    DiskInfo diskInfo;
+    DiskCapacity disk;
     long usableSlots;
 
-    UsableDiskInfo(DiskInfo diskInfo, long usableSlots) {
-      this.diskInfo = diskInfo;
+    UsableDiskInfo(DiskCapacity disk, long usableSlots) {
+      this.disk = disk;
       this.usableSlots = usableSlots;
     }
+
+    boolean tryReserve() {
+      if (usableSlots <= 0 || !disk.tryReserve()) {
+        return false;
+      }
+      usableSlots--;
+      return true;
+    }
+
+    void release() {
+      usableSlots++;
+      disk.release();
+    }
   }
 
   private static final Logger logger = LoggerFactory.getLogger(SlotsAllocator.class);
@@ -54,6 +68,21 @@ public class SlotsAllocator {
           List<Integer> partitionIds,
           boolean shouldReplicate,
           boolean shouldRackAware) {
+    return offerSlotsRoundRobin(
+        workers, partitionIds, shouldReplicate, shouldRackAware, DiskCapacityIndex.of(workers));
+  }
+
+  /**
+   * Offers slots on the disks of the workers in turn. The slots are taken from the disks of the
+   * index, which concurrent offers share.
+   */
+  public static Map<WorkerInfo, Tuple2<List<PartitionLocation>, List<PartitionLocation>>>
+      offerSlotsRoundRobin(
+          List<WorkerInfo> workers,
+          List<Integer> partitionIds,
+          boolean shouldReplicate,
+          boolean shouldRackAware,
+          DiskCapacityIndex diskIndex) {
     if (partitionIds.isEmpty()) {
       return new HashMap<>();
     }
@@ -62,20 +91,21 @@ public class SlotsAllocator {
     }
     Map<WorkerInfo, Tuple2<List<PartitionLocation>, List<PartitionLocation>>> slots =
         new HashMap<>();
+    // the disks of the workers visited, not limited by the offer
     Map<WorkerInfo, List<UsableDiskInfo>> restrictions = new HashMap<>();
-    for (WorkerInfo worker : workers) {
-      List<UsableDiskInfo> usableDisks =
-          restrictions.computeIfAbsent(worker, v -> new ArrayList<>());
-      for (Map.Entry<String, DiskInfo> diskInfoEntry : worker.diskInfos().entrySet()) {
-        if (diskInfoEntry.getValue().status().equals(DiskStatus.HEALTHY)) {
-          usableDisks.add(
-              new UsableDiskInfo(
-                  diskInfoEntry.getValue(), diskInfoEntry.getValue().availableSlots()));
-        }
-      }
-    }
+    Function<WorkerInfo, List<UsableDiskInfo>> usableDisks =
+        worker ->
+            restrictions.computeIfAbsent(
+                worker,
+                w -> {
+                  List<UsableDiskInfo> disks = new ArrayList<>();
+                  for (DiskCapacity disk : diskIndex.disks(w)) {
+                    disks.add(new UsableDiskInfo(disk, Long.MAX_VALUE));
+                  }
+                  return disks;
+                });
     List<Integer> remain =
-        roundRobin(slots, partitionIds, workers, restrictions, shouldReplicate, shouldRackAware);
+        roundRobin(slots, partitionIds, workers, usableDisks, shouldReplicate, shouldRackAware);
     if (!remain.isEmpty()) {
       remain = roundRobin(slots, remain, workers, null, shouldReplicate, shouldRackAware);
     }
@@ -86,6 +116,30 @@ public class SlotsAllocator {
     return slots;
   }
 
+  public static Map<WorkerInfo, Tuple2<List<PartitionLocation>, List<PartitionLocation>>>
+      offerSlotsLoadAware(
+          List<WorkerInfo> workers,
+          List<Integer> partitionIds,
+          boolean shouldReplicate,
+          boolean shouldRackAware,
+          long minimumUsableSize,
+          int diskGroupCount,
+          double diskGroupGradient,
+          double flushTimeWeight,
+          double fetchTimeWeight) {
+    return offerSlotsLoadAware(
+        workers,
+        partitionIds,
+        shouldReplicate,
+        shouldRackAware,
+        minimumUsableSize,
+        diskGroupCount,
+        diskGroupGradient,
+        flushTimeWeight,
+        fetchTimeWeight,
+        DiskCapacityIndex.of(workers));
+  }
+
   /**
    * It assumes that all disks whose available space is greater than the minimum space are divided
    * into multiple groups. A faster group will allocate more allocations than a slower group by
@@ -101,7 +155,8 @@ public class SlotsAllocator {
           int diskGroupCount,
           double diskGroupGradient,
           double flushTimeWeight,
-          double fetchTimeWeight) {
+          double fetchTimeWeight,
+          DiskCapacityIndex diskIndex) {
     if (partitionIds.isEmpty()) {
       return new HashMap<>();
     }
@@ -109,30 +164,19 @@ public class SlotsAllocator {
       return new HashMap<>();
     }
 
-    List<DiskInfo> usableDisks = new ArrayList<>();
-    Map<DiskInfo, WorkerInfo> diskToWorkerMap = new HashMap<>();
-
-    workers.forEach(
-        i ->
-            i.diskInfos()
-                .forEach(
-                    (key, diskInfo) -> {
-                      diskToWorkerMap.put(diskInfo, i);
-                      if (diskInfo.actualUsableSpace() > minimumUsableSize
-                          && diskInfo.status().equals(DiskStatus.HEALTHY)) {
-                        usableDisks.add(diskInfo);
-                      }
-                    }));
+    List<DiskCapacity> usableDisks =
+        diskIndex.disksByLoad(workers, minimumUsableSize, flushTimeWeight, fetchTimeWeight);
 
     Set<WorkerInfo> usableWorkers = new HashSet<>();
-    for (DiskInfo disk : usableDisks) {
-      usableWorkers.add(diskToWorkerMap.get(disk));
+    for (DiskCapacity disk : usableDisks) {
+      usableWorkers.add(disk.worker);
     }
     if ((shouldReplicate && usableWorkers.size() <= 1) || usableDisks.isEmpty()) {
       logger.warn(
           "offer slots for {} fallback to roundrobin because there is no usable disks",
           StringUtils.join(partitionIds, ','));
-      return offerSlotsRoundRobin(workers, partitionIds, shouldReplicate, shouldRackAware);
+      return offerSlotsRoundRobin(
+          workers, partitionIds, shouldReplicate, shouldRackAware, diskIndex);
     }
 
     if (!initialized) {
@@ -141,8 +185,7 @@ public class SlotsAllocator {
 
     Map<WorkerInfo, List<UsableDiskInfo>> restriction =
         getRestriction(
-            placeDisksToGroups(usableDisks, diskGroupCount, flushTimeWeight, fetchTimeWeight),
-            diskToWorkerMap,
+            placeDisksToGroups(usableDisks, diskGroupCount),
             shouldReplicate ? partitionIds.size() * 2 : partitionIds.size());
 
     Map<WorkerInfo, Tuple2<List<PartitionLocation>, List<PartitionLocation>>> slots =
@@ -152,7 +195,7 @@ public class SlotsAllocator {
             slots,
             partitionIds,
             new ArrayList<>(restriction.keySet()),
-            restriction,
+            worker -> restriction.getOrDefault(worker, Collections.emptyList()),
             shouldReplicate,
             shouldRackAware);
     if (!remainPartitions.isEmpty()) {
@@ -171,28 +214,37 @@ public class SlotsAllocator {
     return slots;
   }
 
-  private static StorageInfo getStorageInfo(
-      List<WorkerInfo> workers,
-      int workerIndex,
-      Map<WorkerInfo, List<UsableDiskInfo>> restrictions,
+  /** Reserves a slot on the next disk of the worker which has one, returns null if none has. */
+  private static UsableDiskInfo reserveDisk(
+      WorkerInfo worker,
+      Function<WorkerInfo, List<UsableDiskInfo>> usableDisks,
       Map<WorkerInfo, Integer> workerDiskIndex) {
-    WorkerInfo selectedWorker = workers.get(workerIndex);
-    List<UsableDiskInfo> usableDiskInfos = restrictions.get(selectedWorker);
-    int diskIndex = workerDiskIndex.computeIfAbsent(selectedWorker, v -> 0);
-    while (usableDiskInfos.get(diskIndex).usableSlots <= 0) {
-      diskIndex = (diskIndex + 1) % usableDiskInfos.size();
+    List<UsableDiskInfo> usableDiskInfos = usableDisks.apply(worker);
+    int numDisks = usableDiskInfos.size();
+    if (numDisks == 0) {
+      return null;
+    }
+    int startIndex = workerDiskIndex.getOrDefault(worker, 0);
+    for (int i = 0; i < numDisks; i++) {
+      int diskIndex = (startIndex + i) % numDisks;
+      UsableDiskInfo usableDiskInfo = usableDiskInfos.get(diskIndex);
+      if (usableDiskInfo.tryReserve()) {
+        workerDiskIndex.put(worker, (diskIndex + 1) % numDisks);
+        return usableDiskInfo;
+      }
     }
-    usableDiskInfos.get(diskIndex).usableSlots--;
-    StorageInfo storageInfo = new StorageInfo(usableDiskInfos.get(diskIndex).diskInfo.mountPoint());
-    workerDiskIndex.put(selectedWorker, (diskIndex + 1) % usableDiskInfos.size());
-    return storageInfo;
+    return null;
   }
 
+  /**
+   * Offers the slots on the workers in turn. If usableDisks is not null, the slots are taken from
+   * the disks it returns for a worker, otherwise they are not assigned any disk.
+   */
   private static List<Integer> roundRobin(
       Map<WorkerInfo, Tuple2<List<PartitionLocation>, List<PartitionLocation>>> slots,
       List<Integer> partitionIds,
       List<WorkerInfo> workers,
-      Map<WorkerInfo, List<UsableDiskInfo>> restrictions,
+      Function<WorkerInfo, List<UsableDiskInfo>> usableDisks,
       boolean shouldReplicate,
       boolean shouldRackAware) {
     // workerInfo -> (diskIndexForPrimary, diskIndexForReplica)
@@ -207,31 +259,37 @@ public class SlotsAllocator {
 
       int partitionId = iter.next();
       StorageInfo storageInfo = new StorageInfo();
-      if (restrictions != null) {
-        while (!haveUsableSlots(restrictions, workers, nextPrimayInd)) {
+      UsableDiskInfo primaryDisk = null;
+      if (usableDisks != null) {
+        while ((primaryDisk =
+                reserveDisk(workers.get(nextPrimayInd), usableDisks, workerDiskIndexForPrimary))
+            == null) {
           nextPrimayInd = (nextPrimayInd + 1) % workers.size();
           if (nextPrimayInd == primaryIndex) {
             break outer;
           }
         }
-        storageInfo =
-            getStorageInfo(workers, nextPrimayInd, restrictions, workerDiskIndexForPrimary);
+        storageInfo = new StorageInfo(primaryDisk.disk.diskInfo.mountPoint());
       }
       PartitionLocation primaryPartition =
           createLocation(partitionId, workers.get(nextPrimayInd), null, storageInfo, true);
 
       if (shouldReplicate) {
         int nextReplicaInd = (nextPrimayInd + 1) % workers.size();
-        if (restrictions != null) {
-          while (!haveUsableSlots(restrictions, workers, nextReplicaInd)
-              || !satisfyRackAware(shouldRackAware, workers, nextPrimayInd, nextReplicaInd)) {
+        if (usableDisks != null) {
+          UsableDiskInfo replicaDisk;
+          while (!satisfyRackAware(shouldRackAware, workers, nextPrimayInd, nextReplicaInd)
+              || (replicaDisk =
+                      reserveDisk(
+                          workers.get(nextReplicaInd), usableDisks, workerDiskIndexForReplica))
+                  == null) {
             nextReplicaInd = (nextReplicaInd + 1) % workers.size();
             if (nextReplicaInd == nextPrimayInd) {
+              primaryDisk.release();
               break outer;
             }
           }
-          storageInfo =
-              getStorageInfo(workers, nextReplicaInd, restrictions, workerDiskIndexForReplica);
+          storageInfo = new StorageInfo(replicaDisk.disk.diskInfo.mountPoint());
         } else if (shouldRackAware) {
           while (!satisfyRackAware(true, workers, nextPrimayInd, nextReplicaInd)) {
             nextReplicaInd = (nextReplicaInd + 1) % workers.size();
@@ -261,11 +319,6 @@ public class SlotsAllocator {
     return partitionIdList;
   }
 
-  private static boolean haveUsableSlots(
-      Map<WorkerInfo, List<UsableDiskInfo>> restrictions, List<WorkerInfo> workers, int index) {
-    return restrictions.get(workers.get(index)).stream().mapToLong(i -> i.usableSlots).sum() > 0;
-  }
-
   private static boolean satisfyRackAware(
       boolean shouldRackAware, List<WorkerInfo> workers, int primaryIndex, int nextReplicaInd) {
     return !shouldRackAware
@@ -291,24 +344,15 @@ public class SlotsAllocator {
     initialized = true;
   }
 
-  private static List<List<DiskInfo>> placeDisksToGroups(
-      List<DiskInfo> usableDisks,
-      int diskGroupCount,
-      double flushTimeWeight,
-      double fetchTimeWeight) {
-    List<List<DiskInfo>> diskGroups = new ArrayList<>();
-    usableDisks.sort(
-        (o1, o2) -> {
-          double delta =
-              (o1.avgFlushTime() * flushTimeWeight + o1.avgFetchTime() * fetchTimeWeight)
-                  - (o2.avgFlushTime() * flushTimeWeight + o2.avgFetchTime() * fetchTimeWeight);
-          return delta < 0 ? -1 : (delta > 0 ? 1 : 0);
-        });
+  /** Splits the disks, sorted from the least to the most loaded one, into groups. */
+  private static List<List<DiskCapacity>> placeDisksToGroups(
+      List<DiskCapacity> usableDisks, int diskGroupCount) {
+    List<List<DiskCapacity>> diskGroups = new ArrayList<>();
     int diskCount = usableDisks.size();
     int startIndex = 0;
     int groupSizeSize = (int) Math.ceil(usableDisks.size() / (double) diskGroupCount);
     for (int i = 0; i < diskGroupCount; i++) {
-      List<DiskInfo> diskList = new ArrayList<>();
+      List<DiskCapacity> diskList = new ArrayList<>();
       if (startIndex >= usableDisks.size()) {
         continue;
       }
@@ -325,13 +369,13 @@ public class SlotsAllocator {
   }
 
   private static Map<WorkerInfo, List<UsableDiskInfo>> getRestriction(
-      List<List<DiskInfo>> groups, Map<DiskInfo, WorkerInfo> diskWorkerMap, int partitionCnt) {
+      List<List<DiskCapacity>> groups, int partitionCnt) {
     int groupSize = groups.size();
     long[] groupAllocations = new long[groupSize];
     Map<WorkerInfo, List<UsableDiskInfo>> restrictions = new HashMap<>();
     long[] groupAvailableSlots = new long[groupSize];
     for (int i = 0; i < groupSize; i++) {
-      for (DiskInfo disk : groups.get(i)) {
+      for (DiskCapacity disk : groups.get(i)) {
         groupAvailableSlots[i] += disk.availableSlots();
       }
     }
@@ -370,12 +414,12 @@ public class SlotsAllocator {
     for (int i = 0; i < groups.size(); i++) {
       int disksInsideGroup = groups.get(i).size();
       long groupRequired = groupAllocations[i] + groupLeft;
-      for (DiskInfo disk : groups.get(i)) {
+      for (DiskCapacity disk : groups.get(i)) {
         if (groupRequired <= 0) {
           break;
         }
         List<UsableDiskInfo> diskAllocation =
-            restrictions.computeIfAbsent(diskWorkerMap.get(disk), v -> new ArrayList<>());
+            restrictions.computeIfAbsent(disk.worker, v -> new ArrayList<>());
         long allocated =
             (int) Math.ceil((groupAllocations[i] + groupLeft) / (double) disksInsideGroup);
         if (allocated > disk.availableSlots()) {
@@ -394,24 +438,24 @@ public class SlotsAllocator {
       StringBuilder sb = new StringBuilder();
       for (int i = 0; i < groups.size(); i++) {
         sb.append("| group ").append(i).append(" ");
-        for (DiskInfo diskInfo : groups.get(i)) {
-          WorkerInfo workerInfo = diskWorkerMap.get(diskInfo);
+        for (DiskCapacity disk : groups.get(i)) {
+          WorkerInfo workerInfo = disk.worker;
           String workerHost = workerInfo.host();
           long allocation = 0;
           if (restrictions.get(workerInfo) != null) {
             for (UsableDiskInfo usableInfo : restrictions.get(workerInfo)) {
-              if (usableInfo.diskInfo.equals(diskInfo)) {
+              if (usableInfo.disk == disk) {
                 allocation = usableInfo.usableSlots;
               }
             }
           }
           sb.append(workerHost)
               .append("-")
-              .append(diskInfo.mountPoint())
+              .append(disk.diskInfo.mountPoint())
               .append(" flushtime:")
-              .append(diskInfo.avgFlushTime())
+              .append(disk.avgFlushTime)
               .append(" fetchtime:")
-              .append(diskInfo.avgFetchTime())
+              .append(disk.avgFetchTime)
               .append(" allocation: ")
               .append(allocation)
               .append(" ");
@@ -18,11 +18,18 @@
 package org.apache.celeborn.service.deploy.master.clustermeta;
 
 import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -31,6 +38,7 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
 import java.util.stream.Collectors;
 
 import scala.Option;
@@ -50,11 +58,15 @@ import org.apache.celeborn.common.rpc.RpcEnv;
 import org.apache.celeborn.common.util.JavaUtils;
 import org.apache.celeborn.common.util.PbSerDeUtils;
 import org.apache.celeborn.common.util.Utils;
+import org.apache.celeborn.service.deploy.master.DiskCapacityIndex;
 import org.apache.celeborn.service.deploy.master.network.CelebornRackResolver;
 
 public abstract class AbstractMetaManager implements IMetadataHandler {
   private static final Logger LOG = LoggerFactory.getLogger(AbstractMetaManager.class);
 
+  // starts a chunked snapshot, it can't start a PbSnapshotMetaInfo written at once
+  private static final int CHUNKED_SNAPSHOT_MAGIC = 0x43534e50;
+
   // Metadata for master service
   public final Set<String> registeredShuffle = ConcurrentHashMap.newKeySet();
   public final Set<String> hostnameSet = ConcurrentHashMap.newKeySet();
@@ -64,6 +76,8 @@ public abstract class AbstractMetaManager implements IMetadataHandler {
   public final Set<WorkerInfo> excludedWorkers = ConcurrentHashMap.newKeySet();
   public final Set<WorkerInfo> shutdownWorkers = ConcurrentHashMap.newKeySet();
   public final Set<WorkerInfo> workerLostEvents = ConcurrentHashMap.newKeySet();
+  // disks of the workers which slots are offered on, refreshed by the heartbeats
+  public DiskCapacityIndex diskCapacityIndex;
 
   protected RpcEnv rpcEnv;
   protected CelebornConf conf;
@@ -142,6 +156,7 @@ public abstract class AbstractMetaManager implements IMetadataHandler {
       workers.remove(worker);
       lostWorkers.put(worker, System.currentTimeMillis());
     }
+    diskCapacityIndex.remove(worker);
     excludedWorkers.remove(worker);
     workerLostEvents.remove(worker);
   }
@@ -154,6 +169,7 @@ public abstract class AbstractMetaManager implements IMetadataHandler {
       workers.remove(worker);
       lostWorkers.put(worker, System.currentTimeMillis());
     }
+    diskCapacityIndex.remove(worker);
     excludedWorkers.remove(worker);
   }
 
@@ -177,14 +193,16 @@ public abstract class AbstractMetaManager implements IMetadataHandler {
       workerInfo.ifPresent(
           info -> {
             info.updateThenGetDiskInfos(disks, Option.apply(estimatedPartitionSize));
+            diskCapacityIndex.update(info);
             info.updateThenGetUserResourceConsumption(userResourceConsumption);
             availableSlots.set(info.totalAvailableSlots());
             info.lastHeartbeat_$eq(time);
           });
     }
     appDiskUsageMetric.update(estimatedAppDiskUsage);
-    // If using HDFSONLY mode, workers with empty disks should not be put into excluded worker list.
-    if (!excludedWorkers.contains(worker) && (disks.isEmpty() && !conf.hasHDFSStorage())) {
+    // If using HDFSONLY or OSS only mode, workers with empty disks should not be put into excluded
+    // worker list.
+    if (!excludedWorkers.contains(worker) && (disks.isEmpty() && !conf.hasRemoteStorage())) {
       LOG.debug("Worker: {} num total slots is 0, add to excluded list", worker);
       excludedWorkers.add(worker);
     } else if (availableSlots.get() > 0) {
@@ -212,59 +230,104 @@ public abstract class AbstractMetaManager implements IMetadataHandler {
         workers.add(workerInfo);
         shutdownWorkers.remove(workerInfo);
         lostWorkers.remove(workerInfo);
+        diskCapacityIndex.update(workerInfo);
       }
     }
   }
 
   /**
-   * Used for ratis state machine to take snapshot
+   * Used for ratis state machine to take snapshot. The snapshot is written as a sequence of
+   * length-delimited {@link PbSnapshotMetaInfo} chunks after {@link #CHUNKED_SNAPSHOT_MAGIC}: the
+   * first chunk holds the scalars and the small sections, the following ones hold at most {@link
+   * CelebornConf#haMasterRatisSnapshotChunkSize()} entries of the large sections each.
    *
    * @param file
    * @throws IOException
    */
   public void writeMetaInfoToFile(File file) throws IOException, RuntimeException {
-    byte[] snapshotBytes =
-        PbSerDeUtils.toPbSnapshotMetaInfo(
-                estimatedPartitionSize,
-                registeredShuffle,
-                hostnameSet,
-                excludedWorkers,
-                workerLostEvents,
-                appHeartbeatTime,
-                workers,
-                partitionTotalWritten.sum(),
-                partitionTotalFileCount.sum(),
-                appDiskUsageMetric.snapShots(),
-                appDiskUsageMetric.currentSnapShot().get(),
-                lostWorkers,
-                shutdownWorkers)
-            .toByteArray();
-    Files.write(file.toPath(), snapshotBytes);
+    List<WorkerInfo> workersSnapshot;
+    synchronized (workers) {
+      workersSnapshot = new ArrayList<>(workers);
+    }
+    int chunkSize = conf.haMasterRatisSnapshotChunkSize();
+    try (DataOutputStream out =
+        new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file.toPath())))) {
+      out.writeInt(CHUNKED_SNAPSHOT_MAGIC);
+      PbSerDeUtils.toPbSnapshotMetaInfo(
+              estimatedPartitionSize,
+              Collections.emptySet(),
+              Collections.emptySet(),
+              excludedWorkers,
+              workerLostEvents,
+              Collections.emptyMap(),
+              Collections.emptyList(),
+              partitionTotalWritten.sum(),
+              partitionTotalFileCount.sum(),
+              appDiskUsageMetric.snapShots(),
+              appDiskUsageMetric.currentSnapShot().get(),
+              lostWorkers,
+              shutdownWorkers)
+          .writeDelimitedTo(out);
+      writeSnapshotChunks(
+          out, registeredShuffle, chunkSize, PbSnapshotMetaInfo.Builder::addRegisteredShuffle);
+      writeSnapshotChunks(out, hostnameSet, chunkSize, PbSnapshotMetaInfo.Builder::addHostnameSet);
+      writeSnapshotChunks(
+          out,
+          appHeartbeatTime.entrySet(),
+          chunkSize,
+          (builder, entry) -> builder.putAppHeartbeatTime(entry.getKey(), entry.getValue()));
+      writeSnapshotChunks(
+          out,
+          workersSnapshot,
+          chunkSize,
+          (builder, worker) -> builder.addWorkers(PbSerDeUtils.toPbWorkerInfo(worker, true)));
+    }
+  }
+
+  private static <T> void writeSnapshotChunks(
+      OutputStream out,
+      Collection<T> entries,
+      int chunkSize,
+      BiConsumer<PbSnapshotMetaInfo.Builder, T> addEntry)
+      throws IOException {
+    PbSnapshotMetaInfo.Builder builder = PbSnapshotMetaInfo.newBuilder();
+    int chunkEntries = 0;
+    for (T entry : entries) {
+      addEntry.accept(builder, entry);
+      if (++chunkEntries == chunkSize) {
+        builder.build().writeDelimitedTo(out);
+        builder = PbSnapshotMetaInfo.newBuilder();
+        chunkEntries = 0;
+      }
+    }
+    if (chunkEntries > 0) {
+      builder.build().writeDelimitedTo(out);
+    }
   }
 
   /**
-   * Used for ratis state machine to load snapshot
+   * Used for ratis state machine to load snapshot. Chunked snapshots are restored chunk by chunk,
+   * snapshots written as a single {@link PbSnapshotMetaInfo} are restored as well.
    *
    * @param file
    * @throws IOException
    */
   public void restoreMetaFromFile(File file) throws IOException {
     try (BufferedInputStream in = new BufferedInputStream(new FileInputStream(file))) {
-      PbSnapshotMetaInfo snapshotMetaInfo = PbSnapshotMetaInfo.parseFrom(in);
-
-      estimatedPartitionSize = snapshotMetaInfo.getEstimatedPartitionSize();
-
-      registeredShuffle.addAll(snapshotMetaInfo.getRegisteredShuffleList());
-      hostnameSet.addAll(snapshotMetaInfo.getHostnameSetList());
-      excludedWorkers.addAll(
-          snapshotMetaInfo.getExcludedWorkersList().stream()
-              .map(PbSerDeUtils::fromPbWorkerInfo)
-              .collect(Collectors.toSet()));
-      workerLostEvents.addAll(
-          snapshotMetaInfo.getWorkerLostEventsList().stream()
-              .map(PbSerDeUtils::fromPbWorkerInfo)
-              .collect(Collectors.toSet()));
-      appHeartbeatTime.putAll(snapshotMetaInfo.getAppHeartbeatTimeMap());
+      diskCapacityIndex.clear();
+      Set<WorkerInfo> restoredWorkers = new LinkedHashSet<>();
+      if (isChunkedSnapshot(in)) {
+        restoreSnapshotHeader(PbSnapshotMetaInfo.parseDelimitedFrom(in));
+        PbSnapshotMetaInfo chunk;
+        while ((chunk = PbSnapshotMetaInfo.parseDelimitedFrom(in)) != null) {
+          restoreSnapshotChunk(chunk, restoredWorkers);
+        }
+      } else {
+        PbSnapshotMetaInfo snapshotMetaInfo = PbSnapshotMetaInfo.parseFrom(in);
+        restoreSnapshotHeader(snapshotMetaInfo);
+        restoreSnapshotChunk(snapshotMetaInfo, restoredWorkers);
+      }
+      workers.addAll(restoredWorkers);
 
       registeredShuffle.forEach(
           shuffleKey -> {
@@ -273,44 +336,6 @@ public abstract class AbstractMetaManager implements IMetadataHandler {
               appHeartbeatTime.put(appId, System.currentTimeMillis());
             }
           });
-
-      workers.addAll(
-          snapshotMetaInfo.getWorkersList().stream()
-              .map(PbSerDeUtils::fromPbWorkerInfo)
-              .collect(Collectors.toSet())
-              .stream()
-              .map(
-                  workerInfo -> {
-                    // Reset worker's network location with current master's configuration.
-                    workerInfo.networkLocation_$eq(
-                        rackResolver.resolve(workerInfo.host()).getNetworkLocation());
-                    return workerInfo;
-                  })
-              .collect(Collectors.toSet()));
-
-      snapshotMetaInfo
-          .getLostWorkersMap()
-          .entrySet()
-          .forEach(
-              entry -> lostWorkers.put(WorkerInfo.fromUniqueId(entry.getKey()), entry.getValue()));
-
-      shutdownWorkers.addAll(
-          snapshotMetaInfo.getShutdownWorkersList().stream()
-              .map(PbSerDeUtils::fromPbWorkerInfo)
-              .collect(Collectors.toSet()));
-
-      partitionTotalWritten.reset();
-      partitionTotalWritten.add(snapshotMetaInfo.getPartitionTotalWritten());
-      partitionTotalFileCount.reset();
-      partitionTotalFileCount.add(snapshotMetaInfo.getPartitionTotalFileCount());
-      appDiskUsageMetric.restoreFromSnapshot(
-          snapshotMetaInfo.getAppDiskUsageMetricSnapshotsList().stream()
-              .map(PbSerDeUtils::fromPbAppDiskUsageSnapshot)
-              .toArray(AppDiskUsageSnapShot[]::new));
-      appDiskUsageMetric.currentSnapShot_$eq(
-          new AtomicReference<AppDiskUsageSnapShot>(
-              PbSerDeUtils.fromPbAppDiskUsageSnapshot(
-                  snapshotMetaInfo.getCurrentAppDiskUsageMetricsSnapshot())));
     } catch (Exception e) {
       throw new IOException(e);
     }
@@ -324,6 +349,74 @@ public abstract class AbstractMetaManager implements IMetadataHandler {
     registeredShuffle.forEach(shuffle -> LOG.info("RegisteredShuffle {}", shuffle));
   }
 
+  private static boolean isChunkedSnapshot(BufferedInputStream in) throws IOException {
+    in.mark(Integer.BYTES);
+    byte[] magic = new byte[Integer.BYTES];
+    int read = 0;
+    int n;
+    while (read < magic.length && (n = in.read(magic, read, magic.length - read)) > 0) {
+      read += n;
+    }
+    if (read == magic.length && ByteBuffer.wrap(magic).getInt() == CHUNKED_SNAPSHOT_MAGIC) {
+      return true;
+    }
+    in.reset();
+    return false;
+  }
+
+  private void restoreSnapshotHeader(PbSnapshotMetaInfo snapshotMetaInfo) {
+    estimatedPartitionSize = snapshotMetaInfo.getEstimatedPartitionSize();
+
+    excludedWorkers.addAll(
+        snapshotMetaInfo.getExcludedWorkersList().stream()
+            .map(PbSerDeUtils::fromPbWorkerInfo)
+            .collect(Collectors.toSet()));
+    workerLostEvents.addAll(
+        snapshotMetaInfo.getWorkerLostEventsList().stream()
+            .map(PbSerDeUtils::fromPbWorkerInfo)
+            .collect(Collectors.toSet()));
+
+    snapshotMetaInfo
+        .getLostWorkersMap()
+        .entrySet()
+        .forEach(
+            entry -> lostWorkers.put(WorkerInfo.fromUniqueId(entry.getKey()), entry.getValue()));
+
+    shutdownWorkers.addAll(
+        snapshotMetaInfo.getShutdownWorkersList().stream()
+            .map(PbSerDeUtils::fromPbWorkerInfo)
+            .collect(Collectors.toSet()));
+
+    partitionTotalWritten.reset();
+    partitionTotalWritten.add(snapshotMetaInfo.getPartitionTotalWritten());
+    partitionTotalFileCount.reset();
+    partitionTotalFileCount.add(snapshotMetaInfo.getPartitionTotalFileCount());
+    appDiskUsageMetric.restoreFromSnapshot(
+        snapshotMetaInfo.getAppDiskUsageMetricSnapshotsList().stream()
+            .map(PbSerDeUtils::fromPbAppDiskUsageSnapshot)
+            .toArray(AppDiskUsageSnapShot[]::new));
+    appDiskUsageMetric.currentSnapShot_$eq(
+        new AtomicReference<AppDiskUsageSnapShot>(
+            PbSerDeUtils.fromPbAppDiskUsageSnapshot(
+                snapshotMetaInfo.getCurrentAppDiskUsageMetricsSnapshot())));
+  }
+
+  private void restoreSnapshotChunk(
+      PbSnapshotMetaInfo snapshotMetaInfo, Set<WorkerInfo> restoredWorkers) {
+    registeredShuffle.addAll(snapshotMetaInfo.getRegisteredShuffleList());
+    hostnameSet.addAll(snapshotMetaInfo.getHostnameSetList());
+    appHeartbeatTime.putAll(snapshotMetaInfo.getAppHeartbeatTimeMap());
+    snapshotMetaInfo.getWorkersList().stream()
+        .map(PbSerDeUtils::fromPbWorkerInfo)
+        .forEach(
+            workerInfo -> {
+              // Reset worker's network location with current master's configuration.
+              workerInfo.networkLocation_$eq(
+                  rackResolver.resolve(workerInfo.host()).getNetworkLocation());
+              restoredWorkers.add(workerInfo);
+            });
+  }
+
   public void updateMetaByReportWorkerUnavailable(List<WorkerInfo> failedWorkers) {
     synchronized (this.workers) {
       shutdownWorkers.addAll(failedWorkers);
@@ -349,6 +442,10 @@ public abstract class AbstractMetaManager implements IMetadataHandler {
         Utils.bytesToString(estimatedPartitionSize));
     workers.stream()
         .filter(worker -> !excludedWorkers.contains(worker))
-        .forEach(workerInfo -> workerInfo.updateDiskMaxSlots(estimatedPartitionSize));
+        .forEach(
+            workerInfo -> {
+              workerInfo.updateDiskMaxSlots(estimatedPartitionSize);
+              diskCapacityIndex.update(workerInfo);
+            });
   }
 }
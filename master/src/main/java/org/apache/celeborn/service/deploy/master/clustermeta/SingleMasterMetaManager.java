@@ -30,6 +30,7 @@ import org.apache.celeborn.common.meta.DiskInfo;
 import org.apache.celeborn.common.meta.WorkerInfo;
 import org.apache.celeborn.common.quota.ResourceConsumption;
 import org.apache.celeborn.common.rpc.RpcEnv;
+import org.apache.celeborn.service.deploy.master.DiskCapacityIndex;
 import org.apache.celeborn.service.deploy.master.network.CelebornRackResolver;
 
 public class SingleMasterMetaManager extends AbstractMetaManager {
@@ -42,6 +43,8 @@ public class SingleMasterMetaManager extends AbstractMetaManager {
     this.estimatedPartitionSize = initialEstimatedPartitionSize;
     this.appDiskUsageMetric = new AppDiskUsageMetric(conf);
     this.rackResolver = new CelebornRackResolver(conf);
+    // the workers reserve the slots offered on them before their heartbeats time out
+    this.diskCapacityIndex = new DiskCapacityIndex(conf.workerHeartbeatTimeout());
   }
 
   @Override
@@ -17,8 +17,11 @@
 
 package org.apache.celeborn.service.deploy.master.clustermeta.ha;
 
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
@@ -33,6 +36,7 @@ import org.apache.celeborn.common.meta.DiskInfo;
 import org.apache.celeborn.common.meta.WorkerInfo;
 import org.apache.celeborn.common.quota.ResourceConsumption;
 import org.apache.celeborn.common.rpc.RpcEnv;
+import org.apache.celeborn.service.deploy.master.DiskCapacityIndex;
 import org.apache.celeborn.service.deploy.master.clustermeta.AbstractMetaManager;
 import org.apache.celeborn.service.deploy.master.clustermeta.MetaUtil;
 import org.apache.celeborn.service.deploy.master.clustermeta.ResourceProtos;
@@ -44,6 +48,12 @@ public class HAMasterMetaManager extends AbstractMetaManager {
   private static final Logger LOG = LoggerFactory.getLogger(HAMasterMetaManager.class);
 
   protected HARaftServer ratisServer;
+  private final HeartbeatBatcher heartbeatBatcher;
+  // request ids of the applied app heartbeats and their times. The heartbeats in a batch bypass the
+  // Raft retry cache, so the state machine recognizes retried app heartbeats by their ids instead,
+  // for as long as the retry cache would
+  private final LinkedHashMap<String, Long> appliedAppHeartbeats = new LinkedHashMap<>();
+  private final long appliedAppHeartbeatsExpiryMs;
 
   public HAMasterMetaManager(RpcEnv rpcEnv, CelebornConf conf) {
     this.rpcEnv = rpcEnv;
@@ -52,6 +62,18 @@ public class HAMasterMetaManager extends AbstractMetaManager {
     this.estimatedPartitionSize = initialEstimatedPartitionSize;
     this.appDiskUsageMetric = new AppDiskUsageMetric(conf);
     this.rackResolver = new CelebornRackResolver(conf);
+    this.diskCapacityIndex = new DiskCapacityIndex(conf.workerHeartbeatTimeout());
+    this.appliedAppHeartbeatsExpiryMs =
+        TimeUnit.SECONDS.toMillis(conf.haMasterRatisRetryCacheExpiryTime());
+    if (conf.haMasterHeartbeatBatchEnabled()) {
+      this.heartbeatBatcher =
+          new HeartbeatBatcher(
+              request -> ratisServer.submitRequest(request),
+              conf.haMasterHeartbeatBatchWindow(),
+              conf.haMasterHeartbeatBatchMaxSize());
+    } else {
+      this.heartbeatBatcher = null;
+    }
   }
 
   public HARaftServer getRatisServer() {
@@ -62,6 +84,33 @@ public class HAMasterMetaManager extends AbstractMetaManager {
     this.ratisServer = ratisServer;
   }
 
+  public void stop() {
+    if (heartbeatBatcher != null) {
+      heartbeatBatcher.stop();
+    }
+  }
+
+  /**
+   * Called by the state machine before applying an app heartbeat, returns false if the heartbeat
+   * was applied already. Heartbeats older than the expiry relative to this one are forgotten, the
+   * times being those of the log so that all the masters forget the same heartbeats.
+   */
+  synchronized boolean markAppHeartbeatApplied(String requestId, long time) {
+    Iterator<Long> times = appliedAppHeartbeats.values().iterator();
+    while (times.hasNext() && times.next() < time - appliedAppHeartbeatsExpiryMs) {
+      times.remove();
+    }
+    return appliedAppHeartbeats.putIfAbsent(requestId, time) == null;
+  }
+
+  private void submitHeartbeat(ResourceRequest request) {
+    if (heartbeatBatcher != null) {
+      heartbeatBatcher.submit(request);
+    } else {
+      ratisServer.submitRequest(request);
+    }
+  }
+
   @Override
   public void handleRequestSlots(
       String shuffleKey,
@@ -136,7 +185,7 @@ public class HAMasterMetaManager extends AbstractMetaManager {
   public void handleAppHeartbeat(
       String appId, long totalWritten, long fileCount, long time, String requestId) {
     try {
-      ratisServer.submitRequest(
+      submitHeartbeat(
           ResourceRequest.newBuilder()
               .setCmdType(Type.AppHeartbeat)
               .setRequestId(requestId)
@@ -228,7 +277,7 @@ public class HAMasterMetaManager extends AbstractMetaManager {
       long time,
       String requestId) {
     try {
-      ratisServer.submitRequest(
+      submitHeartbeat(
           ResourceRequest.newBuilder()
               .setCmdType(Type.WorkerHeartbeat)
               .setRequestId(requestId)
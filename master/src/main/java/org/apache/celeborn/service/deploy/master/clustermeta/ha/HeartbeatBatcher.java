@@ -0,0 +1,154 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.celeborn.service.deploy.master.clustermeta.ha;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.celeborn.common.client.MasterClient;
+import org.apache.celeborn.common.exception.CelebornRuntimeException;
+import org.apache.celeborn.common.util.ThreadUtils;
+import org.apache.celeborn.service.deploy.master.clustermeta.ResourceProtos;
+import org.apache.celeborn.service.deploy.master.clustermeta.ResourceProtos.ResourceRequest;
+import org.apache.celeborn.service.deploy.master.clustermeta.ResourceProtos.ResourceResponse;
+
+/**
+ * Group commit of heartbeats. The heartbeats submitted while a batch is being committed, or within
+ * the window after the first one, are proposed together as a single {@link
+ * ResourceProtos.Type#BatchHeartbeat} request, which the state machine applies in one go. Each
+ * submitter waits for the batch holding its heartbeat and gets the response to its heartbeat.
+ */
+class HeartbeatBatcher {
+  private static final Logger LOG = LoggerFactory.getLogger(HeartbeatBatcher.class);
+
+  private static class PendingHeartbeat {
+    final ResourceRequest request;
+    final CompletableFuture<ResourceResponse> response = new CompletableFuture<>();
+
+    PendingHeartbeat(ResourceRequest request) {
+      this.request = request;
+    }
+  }
+
+  private final Function<ResourceRequest, ResourceResponse> submitter;
+  private final long windowNanos;
+  private final int maxBatchSize;
+  private final LinkedBlockingQueue<PendingHeartbeat> pendingHeartbeats =
+      new LinkedBlockingQueue<>();
+  private final ExecutorService committer;
+
+  HeartbeatBatcher(
+      Function<ResourceRequest, ResourceResponse> submitter, long windowMs, int maxBatchSize) {
+    this.submitter = submitter;
+    this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMs);
+    this.maxBatchSize = maxBatchSize;
+    this.committer = ThreadUtils.newDaemonSingleThreadExecutor("master-heartbeat-batcher");
+    committer.submit(this::commitBatches);
+  }
+
+  /** Submits a heartbeat and waits until the batch holding it is applied. */
+  ResourceResponse submit(ResourceRequest request) throws CelebornRuntimeException {
+    PendingHeartbeat heartbeat = new PendingHeartbeat(request);
+    pendingHeartbeats.add(heartbeat);
+    try {
+      return heartbeat.response.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new CelebornRuntimeException("Interrupted while waiting for heartbeat batch.", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof CelebornRuntimeException) {
+        throw (CelebornRuntimeException) cause;
+      }
+      throw new CelebornRuntimeException(cause.getMessage(), cause);
+    }
+  }
+
+  private void commitBatches() {
+    List<PendingHeartbeat> batch = new ArrayList<>(maxBatchSize);
+    while (!Thread.currentThread().isInterrupted()) {
+      try {
+        batch.add(pendingHeartbeats.take());
+        long deadline = System.nanoTime() + windowNanos;
+        while (batch.size() < maxBatchSize) {
+          long remaining = deadline - System.nanoTime();
+          PendingHeartbeat heartbeat =
+              remaining > 0
+                  ? pendingHeartbeats.poll(remaining, TimeUnit.NANOSECONDS)
+                  : pendingHeartbeats.poll();
+          if (heartbeat == null) {
+            break;
+          }
+          batch.add(heartbeat);
+        }
+        commit(batch);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } finally {
+        batch.forEach(
+            heartbeat ->
+                heartbeat.response.completeExceptionally(
+                    new CelebornRuntimeException("Heartbeat batcher is stopped.")));
+        batch.clear();
+      }
+    }
+  }
+
+  private void commit(List<PendingHeartbeat> batch) {
+    try {
+      if (batch.size() == 1) {
+        // a heartbeat alone is proposed as it is
+        batch.get(0).response.complete(submitter.apply(batch.get(0).request));
+        return;
+      }
+      ResourceProtos.BatchHeartbeatRequest.Builder heartbeats =
+          ResourceProtos.BatchHeartbeatRequest.newBuilder();
+      batch.forEach(heartbeat -> heartbeats.addRequests(heartbeat.request));
+      ResourceResponse response =
+          submitter.apply(
+              ResourceRequest.newBuilder()
+                  .setCmdType(ResourceProtos.Type.BatchHeartbeat)
+                  .setRequestId(MasterClient.genRequestId())
+                  .setBatchHeartbeatRequest(heartbeats)
+                  .build());
+      LOG.debug("Committed a batch of {} heartbeats.", batch.size());
+      for (int i = 0; i < batch.size(); i++) {
+        batch
+            .get(i)
+            .response
+            .complete(
+                i < response.getBatchResponsesCount() ? response.getBatchResponses(i) : response);
+      }
+    } catch (Throwable e) {
+      batch.forEach(heartbeat -> heartbeat.response.completeExceptionally(e));
+    }
+  }
+
+  void stop() {
+    committer.shutdownNow();
+  }
+}
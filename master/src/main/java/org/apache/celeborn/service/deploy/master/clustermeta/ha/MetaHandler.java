@@ -122,6 +122,11 @@ public class MetaHandler {
           long time = request.getAppHeartbeatRequest().getTime();
           long totalWritten = request.getAppHeartbeatRequest().getTotalWritten();
           long fileCount = request.getAppHeartbeatRequest().getFileCount();
+          if (!metaSystem.markAppHeartbeatApplied(request.getRequestId(), time)) {
+            // the totals of a retried heartbeat are counted already
+            LOG.debug("Skip retried app heartbeat {} for {}", request.getRequestId(), appId);
+            break;
+          }
           metaSystem.updateAppHeartbeatMeta(appId, time, totalWritten, fileCount);
           break;
 
@@ -226,6 +231,15 @@ public class MetaHandler {
           metaSystem.updatePartitionSize();
           break;
 
+        case BatchHeartbeat:
+          List<ResourceProtos.ResourceRequest> heartbeats =
+              request.getBatchHeartbeatRequest().getRequestsList();
+          LOG.debug("Handle batch of {} heartbeats", heartbeats.size());
+          for (ResourceProtos.ResourceRequest heartbeat : heartbeats) {
+            responseBuilder.addBatchResponses(handleWriteRequest(heartbeat));
+          }
+          break;
+
         default:
           throw new IOException("Can not parse this command!" + request);
       }
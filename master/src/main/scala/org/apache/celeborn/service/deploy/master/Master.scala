@@ -48,7 +48,7 @@ import org.apache.celeborn.service.deploy.master.clustermeta.ha.{HAHelper, HAMas
 private[celeborn] class Master(
     override val conf: CelebornConf,
     val masterArgs: MasterArguments)
-  extends HttpService with RpcEndpoint with Logging {
+  extends HttpService with MultiLaneRpcEndpoint with Logging {
 
   @volatile private var stopped = false
 
@@ -101,6 +101,7 @@ private[celeborn] class Master(
   private val appHeartbeatTimeoutMs = conf.appHeartbeatTimeoutMs
   private val hdfsExpireDirsTimeoutMS = conf.hdfsExpireDirsTimeoutMS
   private val hasHDFSStorage = conf.hasHDFSStorage
+  private val hasRemoteStorage = conf.hasRemoteStorage
 
   private val quotaManager = QuotaManager.instantiate(conf)
   private val masterResourceConsumptionInterval = conf.masterResourceConsumptionInterval
@@ -215,6 +216,9 @@ private[celeborn] class Master(
       checkForHDFSRemnantDirsTimeOutTask.cancel(true)
     }
     forwardMessageThread.shutdownNow()
+    if (conf.haEnabled) {
+      statusSystem.asInstanceOf[HAMasterMetaManager].stop()
+    }
     logInfo("Celeborn Master is stopped.")
   }
 
@@ -253,6 +257,22 @@ private[celeborn] class Master(
         handleWorkerLost(null, host, rpcPort, pushPort, fetchPort, replicatePort, requestId))
   }
 
+  override def lanes: Map[String, Int] = {
+    if (conf.masterRpcLanesEnabled) {
+      Map(
+        Master.HEARTBEAT_LANE -> conf.masterRpcLaneThreads,
+        Master.SLOTS_LANE -> conf.masterRpcLaneThreads)
+    } else {
+      Map.empty
+    }
+  }
+
+  override def laneOf(message: Any): Option[String] = message match {
+    case _: HeartbeatFromWorker | _: HeartbeatFromApplication => Some(Master.HEARTBEAT_LANE)
+    case _: RequestSlots | _: ReleaseSlots => Some(Master.SLOTS_LANE)
+    case _ => None
+  }
+
   override def receiveAndReply(context: RpcCallContext): PartialFunction[Any, Unit] = {
     case HeartbeatFromApplication(
           appId,
@@ -565,25 +585,26 @@ private[celeborn] class Master(
     // offer slots
     val slots =
       masterSource.sample(MasterSource.OFFER_SLOTS_TIME, s"offerSlots-${Random.nextInt()}") {
-        statusSystem.workers.synchronized {
-          if (slotsAssignPolicy == SlotsAssignPolicy.LOADAWARE && !hasHDFSStorage) {
-            SlotsAllocator.offerSlotsLoadAware(
-              availableWorkers,
-              requestSlots.partitionIdList,
-              requestSlots.shouldReplicate,
-              requestSlots.shouldRackAware,
-              diskReserveSize,
-              slotsAssignLoadAwareDiskGroupNum,
-              slotsAssignLoadAwareDiskGroupGradient,
-              loadAwareFlushTimeWeight,
-              loadAwareFetchTimeWeight)
-          } else {
-            SlotsAllocator.offerSlotsRoundRobin(
-              availableWorkers,
-              requestSlots.partitionIdList,
-              requestSlots.shouldReplicate,
-              requestSlots.shouldRackAware)
-          }
+        // the disk capacity index lets concurrent requests offer slots without the workers lock
+        if (slotsAssignPolicy == SlotsAssignPolicy.LOADAWARE && !hasRemoteStorage) {
+          SlotsAllocator.offerSlotsLoadAware(
+            availableWorkers,
+            requestSlots.partitionIdList,
+            requestSlots.shouldReplicate,
+            requestSlots.shouldRackAware,
+            diskReserveSize,
+            slotsAssignLoadAwareDiskGroupNum,
+            slotsAssignLoadAwareDiskGroupGradient,
+            loadAwareFlushTimeWeight,
+            loadAwareFetchTimeWeight,
+            statusSystem.diskCapacityIndex)
+        } else {
+          SlotsAllocator.offerSlotsRoundRobin(
+            availableWorkers,
+            requestSlots.partitionIdList,
+            requestSlots.shouldReplicate,
+            requestSlots.shouldRackAware,
+            statusSystem.diskCapacityIndex)
         }
       }
 
@@ -894,6 +915,9 @@ private[celeborn] class Master(
 }
 
 private[deploy] object Master extends Logging {
+  val HEARTBEAT_LANE = "heartbeat"
+  val SLOTS_LANE = "slots"
+
   def main(args: Array[String]): Unit = {
     val conf = new CelebornConf()
     val masterArgs = new MasterArguments(args, conf)
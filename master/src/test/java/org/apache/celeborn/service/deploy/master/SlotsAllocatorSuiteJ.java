@@ -328,4 +328,127 @@ public class SlotsAllocatorSuiteJ {
     final boolean shouldReplicate = true;
     checkSlotsOnHDFS(workers, partitionIds, shouldReplicate, true);
   }
+
+  private WorkerInfo workerWithSlots(String host, long slotsPerDisk) {
+    Map<String, DiskInfo> disks = new HashMap<>();
+    for (int i = 1; i <= 2; i++) {
+      DiskInfo diskInfo = new DiskInfo("/mnt/disk" + i, 100 * 1024 * 1024 * 1024L, 0, 0, 0);
+      diskInfo.maxSlots_$eq(slotsPerDisk);
+      disks.put(diskInfo.mountPoint(), diskInfo);
+    }
+    return new WorkerInfo(host, 9, 10, 110, 113, disks, null);
+  }
+
+  @Test
+  public void testConcurrentOffersShareDiskCapacity() throws Exception {
+    List<WorkerInfo> workers = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      workers.add(workerWithSlots("host" + i, 100));
+    }
+    DiskCapacityIndex diskIndex = new DiskCapacityIndex(60 * 1000);
+    List<Integer> partitionIds = new ArrayList<>();
+    for (int i = 0; i < 50; i++) {
+      partitionIds.add(i);
+    }
+
+    int numThreads = 8;
+    Map<String, Integer> slotsOnDisks = new HashMap<>();
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < numThreads; t++) {
+      Thread thread =
+          new Thread(
+              () -> {
+                Map<WorkerInfo, Tuple2<List<PartitionLocation>, List<PartitionLocation>>> slots =
+                    SlotsAllocator.offerSlotsRoundRobin(
+                        workers, partitionIds, true, false, diskIndex);
+                synchronized (slotsOnDisks) {
+                  SlotsAllocator.slotsToDiskAllocations(slots)
+                      .forEach(
+                          (worker, disks) ->
+                              disks.forEach(
+                                  (disk, count) ->
+                                      slotsOnDisks.merge(
+                                          worker.host() + disk, count, Integer::sum)));
+                }
+              });
+      threads.add(thread);
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    // 8 offers of 100 slots on 8 disks of 100 slots, the disks are never given more than they have
+    int totalSlots = 0;
+    for (int count : slotsOnDisks.values()) {
+      totalSlots += count;
+    }
+    Assert.assertEquals(numThreads * partitionIds.size() * 2, totalSlots);
+    for (WorkerInfo worker : workers) {
+      for (DiskCapacityIndex.DiskCapacity disk : diskIndex.disks(worker)) {
+        int offered = slotsOnDisks.getOrDefault(worker.host() + disk.diskInfo.mountPoint(), 0);
+        Assert.assertEquals(100, offered + disk.availableSlots());
+      }
+    }
+
+    // a heartbeat before the worker reserves the slots keeps the slots offered
+    WorkerInfo worker = workers.get(0);
+    diskIndex.update(worker);
+    for (DiskCapacityIndex.DiskCapacity disk : diskIndex.disks(worker)) {
+      int offered = slotsOnDisks.getOrDefault(worker.host() + disk.diskInfo.mountPoint(), 0);
+      Assert.assertEquals(100 - offered, disk.availableSlots());
+    }
+
+    // a heartbeat after the worker reserves the slots takes the slots it reports
+    for (DiskCapacityIndex.DiskCapacity disk : diskIndex.disks(worker)) {
+      int offered = slotsOnDisks.getOrDefault(worker.host() + disk.diskInfo.mountPoint(), 0);
+      disk.diskInfo.activeSlots_$eq(offered - 10);
+    }
+    diskIndex.update(worker);
+    for (DiskCapacityIndex.DiskCapacity disk : diskIndex.disks(worker)) {
+      int offered = slotsOnDisks.getOrDefault(worker.host() + disk.diskInfo.mountPoint(), 0);
+      Assert.assertEquals(100 - offered, disk.availableSlots());
+      disk.diskInfo.activeSlots_$eq(offered);
+    }
+    diskIndex.update(worker);
+    for (DiskCapacityIndex.DiskCapacity disk : diskIndex.disks(worker)) {
+      int offered = slotsOnDisks.getOrDefault(worker.host() + disk.diskInfo.mountPoint(), 0);
+      Assert.assertEquals(100 - offered, disk.availableSlots());
+      disk.diskInfo.activeSlots_$eq(0);
+    }
+
+    // offers not reserved in time are given back
+    DiskCapacityIndex expiringIndex = new DiskCapacityIndex(-1);
+    SlotsAllocator.offerSlotsRoundRobin(workers, partitionIds, true, false, expiringIndex);
+    expiringIndex.update(worker);
+    for (DiskCapacityIndex.DiskCapacity disk : expiringIndex.disks(worker)) {
+      Assert.assertEquals(100, disk.availableSlots());
+    }
+  }
+
+  @Test
+  public void testHeartbeatKeepsLoadOrder() {
+    WorkerInfo worker = workerWithSlots("host", 100);
+    DiskCapacityIndex diskIndex = new DiskCapacityIndex(60 * 1000);
+    List<WorkerInfo> workers = Collections.singletonList(worker);
+    for (DiskInfo diskInfo : worker.diskInfos().values()) {
+      diskInfo.avgFlushTime_$eq(1000);
+    }
+    List<DiskCapacityIndex.DiskCapacity> disks = diskIndex.disksByLoad(workers, 0, 1, 0);
+
+    // a slight change of the load keeps the disks sorted
+    for (DiskInfo diskInfo : worker.diskInfos().values()) {
+      diskInfo.avgFlushTime_$eq(1050);
+    }
+    diskIndex.update(worker);
+    Assert.assertSame(disks.get(0), diskIndex.disksByLoad(workers, 0, 1, 0).get(0));
+    Assert.assertEquals(1000, disks.get(0).avgFlushTime);
+
+    // a material change sorts the disks again
+    DiskInfo slowest = disks.get(0).diskInfo;
+    slowest.avgFlushTime_$eq(5000);
+    diskIndex.update(worker);
+    List<DiskCapacityIndex.DiskCapacity> sorted = diskIndex.disksByLoad(workers, 0, 1, 0);
+    Assert.assertSame(slowest, sorted.get(sorted.size() - 1).diskInfo);
+  }
 }
@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.celeborn.service.deploy.master.clustermeta.ha;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.apache.celeborn.common.CelebornConf;
+import org.apache.celeborn.common.client.MasterClient;
+import org.apache.celeborn.common.exception.CelebornRuntimeException;
+import org.apache.celeborn.service.deploy.master.clustermeta.ResourceProtos;
+import org.apache.celeborn.service.deploy.master.clustermeta.ResourceProtos.ResourceRequest;
+import org.apache.celeborn.service.deploy.master.clustermeta.ResourceProtos.ResourceResponse;
+
+public class HeartbeatBatcherSuiteJ {
+
+  private ResourceRequest appHeartbeat(String appId) {
+    return ResourceRequest.newBuilder()
+        .setCmdType(ResourceProtos.Type.AppHeartbeat)
+        .setRequestId(MasterClient.genRequestId())
+        .setAppHeartbeatRequest(
+            ResourceProtos.AppHeartbeatRequest.newBuilder()
+                .setAppId(appId)
+                .setTime(System.currentTimeMillis())
+                .setTotalWritten(10)
+                .setFileCount(1)
+                .build())
+        .build();
+  }
+
+  @Test
+  public void testBatchConcurrentHeartbeats() throws Exception {
+    HAMasterMetaManager metaSystem = new HAMasterMetaManager(null, new CelebornConf());
+    MetaHandler handler = new MetaHandler(metaSystem);
+    AtomicInteger proposals = new AtomicInteger();
+    // applies the proposals right away, like a single master
+    HeartbeatBatcher batcher =
+        new HeartbeatBatcher(
+            request -> {
+              proposals.incrementAndGet();
+              return handler.handleWriteRequest(request);
+            },
+            100,
+            512);
+
+    int numApps = 16;
+    ExecutorService executor = Executors.newFixedThreadPool(numApps);
+    List<Future<ResourceResponse>> responses = new ArrayList<>();
+    for (int i = 0; i < numApps; i++) {
+      ResourceRequest heartbeat = appHeartbeat("app" + i);
+      responses.add(executor.submit(() -> batcher.submit(heartbeat)));
+    }
+    for (Future<ResourceResponse> response : responses) {
+      Assert.assertTrue(response.get().getSuccess());
+      Assert.assertEquals(ResourceProtos.Type.AppHeartbeat, response.get().getCmdType());
+    }
+    executor.shutdown();
+    batcher.stop();
+
+    Assert.assertTrue(proposals.get() < numApps);
+    Assert.assertEquals(numApps, metaSystem.appHeartbeatTime.size());
+    Assert.assertEquals(numApps * 10, metaSystem.partitionTotalWritten.sum());
+  }
+
+  @Test
+  public void testRetriedAppHeartbeat() {
+    HAMasterMetaManager metaSystem = new HAMasterMetaManager(null, new CelebornConf());
+    MetaHandler handler = new MetaHandler(metaSystem);
+    ResourceRequest heartbeat = appHeartbeat("app");
+    ResourceRequest batch =
+        ResourceRequest.newBuilder()
+            .setCmdType(ResourceProtos.Type.BatchHeartbeat)
+            .setRequestId(MasterClient.genRequestId())
+            .setBatchHeartbeatRequest(
+                ResourceProtos.BatchHeartbeatRequest.newBuilder()
+                    .addRequests(heartbeat)
+                    .addRequests(appHeartbeat("app")))
+            .build();
+    Assert.assertTrue(handler.handleWriteRequest(batch).getSuccess());
+    // the retry of a batched heartbeat, which is not in the retry cache, is not counted again
+    Assert.assertTrue(handler.handleWriteRequest(heartbeat).getSuccess());
+    Assert.assertEquals(20, metaSystem.partitionTotalWritten.sum());
+    Assert.assertEquals(2, metaSystem.partitionTotalFileCount.sum());
+    metaSystem.stop();
+  }
+
+  @Test
+  public void testBatchFailure() throws Exception {
+    HeartbeatBatcher batcher =
+        new HeartbeatBatcher(
+            request -> {
+              throw new CelebornRuntimeException("not leader");
+            },
+            10,
+            512);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    List<Future<ResourceResponse>> responses = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      ResourceRequest heartbeat = appHeartbeat("app" + i);
+      responses.add(executor.submit(() -> batcher.submit(heartbeat)));
+    }
+    for (Future<ResourceResponse> response : responses) {
+      try {
+        response.get();
+        Assert.fail("Heartbeats of a failed batch should fail");
+      } catch (ExecutionException e) {
+        Assert.assertTrue(e.getCause() instanceof CelebornRuntimeException);
+        Assert.assertEquals("not leader", e.getCause().getMessage());
+      }
+    }
+    executor.shutdown();
+    batcher.stop();
+  }
+}
@@ -19,6 +19,7 @@ package org.apache.celeborn.service.deploy.master.clustermeta.ha;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -44,6 +45,7 @@ import org.apache.celeborn.common.meta.DiskInfo;
 import org.apache.celeborn.common.meta.WorkerInfo;
 import org.apache.celeborn.common.quota.ResourceConsumption;
 import org.apache.celeborn.common.util.JavaUtils;
+import org.apache.celeborn.common.util.PbSerDeUtils;
 import org.apache.celeborn.common.util.Utils;
 import org.apache.celeborn.service.deploy.master.clustermeta.ResourceProtos;
 import org.apache.celeborn.service.deploy.master.clustermeta.ResourceProtos.RequestSlotsRequest;
@@ -297,4 +299,70 @@ public class MasterStateMachineSuiteJ extends RatisBaseSuiteJ {
         originCurrentSnapshot, masterStatusSystem.appDiskUsageMetric.currentSnapShot().get());
     Assert.assertEquals(originSnapshots, masterStatusSystem.appDiskUsageMetric.snapShots());
   }
+
+  private HAMasterMetaManager metaManagerWithEntries(CelebornConf conf) {
+    HAMasterMetaManager masterStatusSystem = new HAMasterMetaManager(null, conf);
+    for (int i = 0; i < 5; i++) {
+      masterStatusSystem.registeredShuffle.add("app" + i + "-0");
+      masterStatusSystem.appHeartbeatTime.put("app" + i, 1000L + i);
+      masterStatusSystem.hostnameSet.add("client" + i);
+      masterStatusSystem.workers.add(new WorkerInfo("host" + i, 1, 2, 3, 4));
+    }
+    masterStatusSystem.excludedWorkers.add(new WorkerInfo("host0", 1, 2, 3, 4));
+    masterStatusSystem.estimatedPartitionSize = 1024;
+    return masterStatusSystem;
+  }
+
+  private void assertRestored(HAMasterMetaManager masterStatusSystem) {
+    Assert.assertEquals(1024, masterStatusSystem.estimatedPartitionSize);
+    Assert.assertEquals(5, masterStatusSystem.registeredShuffle.size());
+    Assert.assertEquals(5, masterStatusSystem.appHeartbeatTime.size());
+    Assert.assertEquals(1004L, (long) masterStatusSystem.appHeartbeatTime.get("app4"));
+    Assert.assertEquals(5, masterStatusSystem.hostnameSet.size());
+    Assert.assertEquals(5, masterStatusSystem.workers.size());
+    Assert.assertEquals(1, masterStatusSystem.excludedWorkers.size());
+  }
+
+  @Test
+  public void testChunkedSnapshot() throws IOException {
+    CelebornConf conf = new CelebornConf();
+    conf.set(CelebornConf.HA_MASTER_RATIS_SNAPSHOT_CHUNK_SIZE().key(), "2");
+    File tmpFile = File.createTempFile("chunked", "snapshot");
+    tmpFile.deleteOnExit();
+    metaManagerWithEntries(conf).writeMetaInfoToFile(tmpFile);
+
+    HAMasterMetaManager restored = new HAMasterMetaManager(null, conf);
+    restored.restoreMetaFromFile(tmpFile);
+    assertRestored(restored);
+  }
+
+  @Test
+  public void testRestoreSingleMessageSnapshot() throws IOException {
+    CelebornConf conf = new CelebornConf();
+    HAMasterMetaManager masterStatusSystem = metaManagerWithEntries(conf);
+    File tmpFile = File.createTempFile("single", "snapshot");
+    tmpFile.deleteOnExit();
+    // the format of the snapshots written before they were chunked
+    Files.write(
+        tmpFile.toPath(),
+        PbSerDeUtils.toPbSnapshotMetaInfo(
+                masterStatusSystem.estimatedPartitionSize,
+                masterStatusSystem.registeredShuffle,
+                masterStatusSystem.hostnameSet,
+                masterStatusSystem.excludedWorkers,
+                masterStatusSystem.workerLostEvents,
+                masterStatusSystem.appHeartbeatTime,
+                masterStatusSystem.workers,
+                0L,
+                0L,
+                masterStatusSystem.appDiskUsageMetric.snapShots(),
+                masterStatusSystem.appDiskUsageMetric.currentSnapShot().get(),
+                masterStatusSystem.lostWorkers,
+                masterStatusSystem.shutdownWorkers)
+            .toByteArray());
+
+    HAMasterMetaManager restored = new HAMasterMetaManager(null, conf);
+    restored.restoreMetaFromFile(tmpFile);
+    assertRestored(restored);
+  }
 }
@@ -0,0 +1,168 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.celeborn.service.deploy.master
+
+import java.lang.management.ManagementFactory
+import java.util.{ArrayList => JArrayList, HashMap => JHashMap, List => JList, Map => JMap}
+import java.util.Random
+
+import scala.collection.JavaConverters._
+
+import org.apache.celeborn.benchmark.{Benchmark, BenchmarkBase}
+import org.apache.celeborn.common.meta.{DiskInfo, WorkerInfo}
+import org.apache.celeborn.common.protocol.PartitionLocation
+
+/**
+ * Benchmark of [[SlotsAllocator]] on synthetic clusters, offering the slots of a shuffle with and
+ * without replication and rack awareness. Besides the time table, the balance of each case, i.e.
+ * the standard deviation of the slots offered on the disks of the cluster, and the bytes
+ * allocated by a single offer are reported.
+ * To run this benchmark:
+ * {{{
+ *   1. build/sbt "master/test:runMain <this class>"
+ *   2. generate result:
+ *      CELEBORN_GENERATE_BENCHMARK_FILES=1 build/sbt "master/test:runMain <this class>"
+ *      Results will be written to "benchmarks/SlotsAllocatorBenchmark-results.txt".
+ * }}}
+ */
+object SlotsAllocatorBenchmark extends BenchmarkBase {
+
+  private val numRacks = 10
+  private val diskSize = 10L * 1024 * 1024 * 1024 * 1024
+  private val minimumUsableSize = 5L * 1024 * 1024 * 1024
+  private val diskGroupCount = 5
+  private val diskGroupGradient = 0.1
+  private val flushTimeWeight = 0.0
+  private val fetchTimeWeight = 1.0
+
+  type Slots = JMap[WorkerInfo, (JList[PartitionLocation], JList[PartitionLocation])]
+
+  private def cluster(numWorkers: Int, disksPerWorker: Int): JList[WorkerInfo] = {
+    val random = new Random(42)
+    val workers = new JArrayList[WorkerInfo](numWorkers)
+    (0 until numWorkers).foreach { i =>
+      val disks = new JHashMap[String, DiskInfo]()
+      (0 until disksPerWorker).foreach { d =>
+        val diskInfo = new DiskInfo(
+          s"/mnt/disk$d",
+          diskSize,
+          random.nextInt(1000000),
+          random.nextInt(1000000),
+          0)
+        // enough slots for the offers of a whole run on the shared index
+        diskInfo.maxSlots = Int.MaxValue
+        disks.put(diskInfo.mountPoint, diskInfo)
+      }
+      val worker = new WorkerInfo(s"host$i", 9097, 9098, 9099, 9100, disks, null)
+      worker.networkLocation = s"/rack-${i % numRacks}"
+      workers.add(worker)
+    }
+    workers
+  }
+
+  private def roundRobin(
+      workers: JList[WorkerInfo],
+      partitionIds: JList[Integer],
+      shouldReplicate: Boolean,
+      shouldRackAware: Boolean): () => Slots = { () =>
+    SlotsAllocator.offerSlotsRoundRobin(workers, partitionIds, shouldReplicate, shouldRackAware)
+  }
+
+  private def loadAware(
+      workers: JList[WorkerInfo],
+      partitionIds: JList[Integer],
+      shouldReplicate: Boolean,
+      shouldRackAware: Boolean,
+      diskIndex: DiskCapacityIndex): () => Slots = { () =>
+    SlotsAllocator.offerSlotsLoadAware(
+      workers,
+      partitionIds,
+      shouldReplicate,
+      shouldRackAware,
+      minimumUsableSize,
+      diskGroupCount,
+      diskGroupGradient,
+      flushTimeWeight,
+      fetchTimeWeight,
+      if (diskIndex == null) DiskCapacityIndex.of(workers) else diskIndex)
+  }
+
+  private def slotsStdDev(workers: JList[WorkerInfo], slots: Slots): Double = {
+    val allocations = SlotsAllocator.slotsToDiskAllocations(slots)
+    val slotsPerDisk = workers.asScala.flatMap { worker =>
+      val offered = allocations.getOrDefault(worker, new JHashMap[String, Integer]())
+      worker.diskInfos.keySet.asScala.toSeq.map(disk => offered.getOrDefault(disk, 0).toDouble)
+    }
+    val mean = slotsPerDisk.sum / slotsPerDisk.size
+    math.sqrt(slotsPerDisk.map(s => (s - mean) * (s - mean)).sum / slotsPerDisk.size)
+  }
+
+  private def allocatedBytes(offer: () => Slots): Long = {
+    val threadMXBean =
+      ManagementFactory.getThreadMXBean.asInstanceOf[com.sun.management.ThreadMXBean]
+    val threadId = Thread.currentThread().getId
+    val before = threadMXBean.getThreadAllocatedBytes(threadId)
+    offer()
+    threadMXBean.getThreadAllocatedBytes(threadId) - before
+  }
+
+  def test(numWorkers: Int, disksPerWorker: Int, numPartitions: Int): Unit = {
+    val name = s"offer $numPartitions partitions on $numWorkers workers with " +
+      s"$disksPerWorker disks"
+    runBenchmark(name) {
+      val workers = cluster(numWorkers, disksPerWorker)
+      val partitionIds = new JArrayList[Integer](numPartitions)
+      (0 until numPartitions).foreach(i => partitionIds.add(i))
+      val sharedIndex = DiskCapacityIndex.of(workers)
+
+      val cases = Seq(
+        "round robin" -> roundRobin(workers, partitionIds, false, false),
+        "round robin, replicate" -> roundRobin(workers, partitionIds, true, false),
+        "round robin, replicate, rack aware" -> roundRobin(workers, partitionIds, true, true),
+        "load aware" -> loadAware(workers, partitionIds, false, false, null),
+        "load aware, replicate" -> loadAware(workers, partitionIds, true, false, null),
+        "load aware, replicate, rack aware" -> loadAware(workers, partitionIds, true, true, null),
+        "load aware, replicate, shared index" ->
+          loadAware(workers, partitionIds, true, false, sharedIndex))
+
+      val benchmark = new Benchmark(name, numPartitions, output = output)
+      cases.foreach { case (caseName, offer) =>
+        benchmark.addCase(caseName, 5) { _: Int => offer() }
+      }
+      benchmark.run()
+
+      val summary = new StringBuilder()
+      cases.foreach { case (caseName, offer) =>
+        summary.append(
+          f"$caseName%-40s slots per disk stddev ${slotsStdDev(workers, offer())}%.2f" +
+            f", allocated ${allocatedBytes(offer) / 1024}%d KB per offer%n")
+      }
+      summary.append(System.lineSeparator())
+      // scalastyle:off println
+      println(summary)
+      // scalastyle:on println
+      output.foreach(_.write(summary.toString.getBytes))
+    }
+  }
+
+  override def runBenchmarkSuite(mainArgs: Array[String]): Unit = {
+    test(100, 1, 1000)
+    test(1000, 12, 10000)
+    test(5000, 24, 100000)
+  }
+}
@@ -65,7 +65,7 @@ public class MemoryManager {
   private final AtomicLong diskBufferCounter = new AtomicLong(0);
   private final LongAdder pausePushDataCounter = new LongAdder();
   private final LongAdder pausePushDataAndReplicateCounter = new LongAdder();
-  private ServingState servingState = ServingState.NONE_PAUSED;
+  private volatile ServingState servingState = ServingState.NONE_PAUSED;
   private boolean underPressure;
 
   // For credit stream
@@ -81,6 +81,7 @@ public class MemoryManager {
   private CreditStreamManager creditStreamManager = null;
 
   private long memoryShuffleStorageThreshold = 0;
+  private final AtomicLong memoryFileStorageCounter = new AtomicLong(0);
 
   public static MemoryManager initialize(CelebornConf conf) {
     if (_INSTANCE == null) {
@@ -181,12 +182,14 @@ public class MemoryManager {
     reportService.scheduleWithFixedDelay(
         () ->
             logger.info(
-                "Direct memory usage: {}/{}, disk buffer size: {}, sort memory size: {}, read buffer size: {}",
+                "Direct memory usage: {}/{}, disk buffer size: {}, sort memory size: {}, "
+                    + "read buffer size: {}, memory file storage size: {}",
                 Utils.bytesToString(getNettyUsedDirectMemory()),
                 Utils.bytesToString(maxDirectorMemory),
                 Utils.bytesToString(diskBufferCounter.get()),
                 Utils.bytesToString(sortMemoryCounter.get()),
-                Utils.bytesToString(readBufferCounter.get())),
+                Utils.bytesToString(readBufferCounter.get()),
+                Utils.bytesToString(memoryFileStorageCounter.get())),
         reportInterval,
         reportInterval,
         TimeUnit.SECONDS);
@@ -308,6 +311,36 @@ public class MemoryManager {
     diskBufferCounter.addAndGet(size * -1);
   }
 
+  public boolean memoryFileStorageEnabled() {
+    return memoryShuffleStorageThreshold > 0;
+  }
+
+  /**
+   * Reserves memory to keep shuffle data of the given size in memory, which fails if the memory for
+   * shuffle storage runs out or the worker is under memory pressure.
+   */
+  public boolean reserveMemoryFileStorage(long size) {
+    if (servingState != ServingState.NONE_PAUSED) {
+      return false;
+    }
+    long used;
+    do {
+      used = memoryFileStorageCounter.get();
+      if (used + size > memoryShuffleStorageThreshold) {
+        return false;
+      }
+    } while (!memoryFileStorageCounter.compareAndSet(used, used + size));
+    return true;
+  }
+
+  public void releaseMemoryFileStorage(long size) {
+    memoryFileStorageCounter.addAndGet(-size);
+  }
+
+  public long getMemoryFileStorageUsed() {
+    return memoryFileStorageCounter.get();
+  }
+
   public long getNettyUsedDirectMemory() {
     long usedDirectMemory = PlatformDependent.usedDirectMemory();
     assert usedDirectMemory != -1;
@@ -21,9 +21,11 @@ import java.util.Random;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
+import io.netty.channel.Channel;
 import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.commons.lang3.tuple.Pair;
 import org.slf4j.Logger;
@@ -47,28 +49,55 @@ public class ChunkStreamManager {
   // ShuffleKey -> StreamId
   protected final ConcurrentHashMap<String, Set<Long>> shuffleStreamIds;
 
+  // The chunks being transferred, and the bytes of them being transferred to each client and each
+  // application. A client or an application is dropped once none of its chunks is being sent.
+  private final LongAdder chunksBeingTransferred = new LongAdder();
+  protected final ConcurrentHashMap<Channel, Long> clientBytesBeingTransferred;
+  protected final ConcurrentHashMap<String, Long> applicationBytesBeingTransferred;
+
   /** State of a single stream. */
   protected static class StreamState {
     final FileManagedBuffers buffers;
     final String shuffleKey;
+    final String appId;
     final TimeWindow fetchTimeMetric;
 
     // Used to keep track of the number of chunks being transferred and not finished yet.
-    volatile long chunksBeingTransferred = 0L;
+    final AtomicLong chunksBeingTransferred = new AtomicLong();
 
     StreamState(String shuffleKey, FileManagedBuffers buffers, TimeWindow fetchTimeMetric) {
       this.buffers = Preconditions.checkNotNull(buffers);
       this.shuffleKey = shuffleKey;
+      int shuffleIdIndex = shuffleKey.lastIndexOf('-');
+      this.appId = shuffleIdIndex > 0 ? shuffleKey.substring(0, shuffleIdIndex) : shuffleKey;
       this.fetchTimeMetric = fetchTimeMetric;
     }
   }
 
+  /**
+   * A chunk being sent to a client, accounted to the stream, the client and the application until
+   * it is sent, even if the stream is removed meanwhile.
+   */
+  public static class ChunkTransfer {
+    private final StreamState streamState;
+    private final Channel client;
+    private final long bytes;
+
+    private ChunkTransfer(StreamState streamState, Channel client, long bytes) {
+      this.streamState = streamState;
+      this.client = client;
+      this.bytes = bytes;
+    }
+  }
+
   public ChunkStreamManager() {
     // For debugging purposes, start with a random stream id to help identifying different streams.
     // This does not need to be globally unique, only unique to this class.
     nextStreamId = new AtomicLong((long) new Random().nextInt(Integer.MAX_VALUE) * 1000);
     streams = JavaUtils.newConcurrentHashMap();
     shuffleStreamIds = JavaUtils.newConcurrentHashMap();
+    clientBytesBeingTransferred = JavaUtils.newConcurrentHashMap();
+    applicationBytesBeingTransferred = JavaUtils.newConcurrentHashMap();
   }
 
   public ManagedBuffer getChunk(long streamId, int chunkIndex, int offset, int len) {
@@ -111,26 +140,50 @@ public class ChunkStreamManager {
     return ImmutablePair.of(streamId, chunkIndex);
   }
 
-  public void chunkBeingSent(long streamId) {
+  public ChunkTransfer chunkBeingSent(long streamId, Channel client, long bytes) {
     StreamState streamState = streams.get(streamId);
-    if (streamState != null) {
-      streamState.chunksBeingTransferred++;
-    }
+    ChunkTransfer transfer = new ChunkTransfer(streamState, client, bytes);
+    updateBeingTransferred(transfer, 1, bytes);
+    return transfer;
   }
 
-  public void chunkSent(long streamId) {
-    StreamState streamState = streams.get(streamId);
-    if (streamState != null) {
-      streamState.chunksBeingTransferred--;
+  public void chunkSent(ChunkTransfer transfer) {
+    updateBeingTransferred(transfer, -1, -transfer.bytes);
+  }
+
+  private void updateBeingTransferred(ChunkTransfer transfer, int chunks, long bytes) {
+    chunksBeingTransferred.add(chunks);
+    if (transfer.streamState != null) {
+      transfer.streamState.chunksBeingTransferred.addAndGet(chunks);
+      addBytes(applicationBytesBeingTransferred, transfer.streamState.appId, bytes);
     }
+    addBytes(clientBytesBeingTransferred, transfer.client, bytes);
+  }
+
+  private static <K> void addBytes(
+      ConcurrentHashMap<K, Long> bytesBeingTransferred, K key, long bytes) {
+    bytesBeingTransferred.compute(
+        key,
+        (k, current) -> {
+          long updated = current == null ? bytes : current + bytes;
+          return updated == 0 ? null : updated;
+        });
   }
 
   public long chunksBeingTransferred() {
-    long sum = 0L;
-    for (StreamState streamState : streams.values()) {
-      sum += streamState.chunksBeingTransferred;
-    }
-    return sum;
+    return chunksBeingTransferred.sum();
+  }
+
+  public long clientBytesBeingTransferred(Channel client) {
+    return clientBytesBeingTransferred.getOrDefault(client, 0L);
+  }
+
+  /** The bytes being transferred to the clients of the application the stream belongs to. */
+  public long applicationBytesBeingTransferred(long streamId) {
+    StreamState streamState = streams.get(streamId);
+    return streamState == null
+        ? 0L
+        : applicationBytesBeingTransferred.getOrDefault(streamState.appId, 0L);
   }
 
   /**
@@ -23,11 +23,13 @@ import java.nio.channels.FileChannel;
 import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
 
 import javax.annotation.concurrent.GuardedBy;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
 import org.roaringbitmap.RoaringBitmap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -54,6 +56,8 @@ public abstract class FileWriter implements DeviceObserver {
   private static final long WAIT_INTERVAL_MS = 5;
 
   protected final FileInfo fileInfo;
+  // upload of a file stored on the object store, null otherwise
+  protected MultipartUpload multipartUpload;
   private FileChannel channel;
   private volatile boolean closed;
   private volatile boolean destroyed;
@@ -66,10 +70,20 @@ public abstract class FileWriter implements DeviceObserver {
   @GuardedBy("flushLock")
   private CompositeByteBuf flushBuffer;
 
+  // data kept in memory instead of being flushed, null once the file is spilled to disk
+  @GuardedBy("flushLock")
+  private CompositeByteBuf memoryBuffer;
+
   private final Object flushLock = new Object();
+  // held while closing or destroying the file, a lock rather than a monitor as closing waits for
+  // the pending writes and flushes, which would pin the carrier of a virtual thread
+  protected final ReentrantLock closeLock = new ReentrantLock();
   private final long writerCloseTimeoutMs;
+  private final long memoryFileMaxSize;
 
   protected final long flusherBufferSize;
+  // parts of an upload but the last one are at least this size
+  private final long ossMinPartSize;
 
   protected final DeviceMonitor deviceMonitor;
   protected final AbstractSource source; // metrics
@@ -102,7 +116,13 @@ public abstract class FileWriter implements DeviceObserver {
     this.splitMode = splitMode;
     this.partitionType = partitionType;
     this.rangeReadFilter = rangeReadFilter;
-    if (!fileInfo.isHdfs()) {
+    this.memoryFileMaxSize = conf.workerMemoryFileStorageMaxFileSize();
+    this.ossMinPartSize = conf.ossMinPartSize();
+    if (fileInfo.isOss()) {
+      // each flush is a part of the upload
+      this.flusherBufferSize = conf.workerOssFlusherBufferSize();
+      multipartUpload = new MultipartUpload(StorageManager.objectStore(), fileInfo.getFilePath());
+    } else if (!fileInfo.isHdfs()) {
       this.flusherBufferSize = conf.workerFlusherBufferSize();
       channel = FileChannelUtils.createWritableFileChannel(fileInfo.getFilePath());
     } else {
@@ -128,6 +148,13 @@ public abstract class FileWriter implements DeviceObserver {
       this.mapIdBitMap = new RoaringBitmap();
     }
     takeBuffer();
+    if (partitionType == PartitionType.REDUCE
+        && channel != null
+        && MemoryManager.instance().memoryFileStorageEnabled()) {
+      // the components are the pooled direct buffers of the pushed data
+      memoryBuffer = Unpooled.compositeBuffer(Integer.MAX_VALUE);
+      fileInfo.setMemoryBuffer(memoryBuffer);
+    }
   }
 
   public FileInfo getFileInfo() {
@@ -151,16 +178,38 @@ public abstract class FileWriter implements DeviceObserver {
     // flushBuffer == null here means writer already closed
     if (flushBuffer != null) {
       int numBytes = flushBuffer.readableBytes();
+      if (multipartUpload != null && !finalFlush && numBytes < ossMinPartSize) {
+        // keep buffering, the store rejects small parts but the last one
+        return;
+      }
       if (numBytes != 0) {
         notifier.checkException();
-        notifier.numPendingFlushes.incrementAndGet();
-        FlushTask task = null;
-        if (channel != null) {
-          task = new LocalFlushTask(flushBuffer, channel, notifier);
-        } else if (fileInfo.isHdfs()) {
-          task = new HdfsFlushTask(flushBuffer, fileInfo.getHdfsPath(), notifier);
+        if (memoryBuffer != null
+            && (fileInfo.getFileLength() + numBytes > memoryFileMaxSize
+                || !MemoryManager.instance().reserveMemoryFileStorage(numBytes))) {
+          spillMemoryBuffer();
+        }
+        if (memoryBuffer != null) {
+          // The pushed data are slices of the whole pushed body, so they are copied to keep in
+          // memory no more than the reserved bytes. Returning the flush buffer releases them.
+          ByteBuf data = flusher.allocator().directBuffer(numBytes, numBytes);
+          data.writeBytes(flushBuffer, flushBuffer.readerIndex(), numBytes);
+          memoryBuffer.addComponent(true, data);
+          flusher.returnBuffer(flushBuffer);
+        } else {
+          notifier.numPendingFlushes.incrementAndGet();
+          FlushTask task = null;
+          if (channel != null) {
+            task = new LocalFlushTask(flushBuffer, channel, notifier);
+          } else if (fileInfo.isHdfs()) {
+            task = new HdfsFlushTask(flushBuffer, fileInfo.getHdfsPath(), notifier);
+          } else if (multipartUpload != null) {
+            task =
+                new OssFlushTask(
+                    flushBuffer, multipartUpload, multipartUpload.nextPartNumber(), notifier);
+          }
+          addTask(task);
         }
-        addTask(task);
         flushBuffer = null;
         fileInfo.updateBytesFlushed(numBytes);
         if (!finalFlush) {
@@ -170,6 +219,59 @@ public abstract class FileWriter implements DeviceObserver {
     }
   }
 
+  /**
+   * Writes the data kept in memory to the file, and drops it from memory. While the writer is open
+   * the data is flushed by the flusher ahead of the flushes to come, otherwise it is written
+   * through a new channel.
+   */
+  @GuardedBy("flushLock")
+  private void spillMemoryBuffer() throws IOException {
+    int numBytes = memoryBuffer.readableBytes();
+    if (flushBuffer != null) {
+      CompositeByteBuf spillBuffer = flusher.takeBuffer();
+      // readers keep their retained slices readable until they are sent
+      fileInfo.removeMemoryBuffer();
+      spillBuffer.addComponent(true, memoryBuffer);
+      memoryBuffer = null;
+      // the bytes wait for a flush again
+      MemoryManager.instance().releaseMemoryFileStorage(numBytes);
+      MemoryManager.instance().incrementDiskBuffer(numBytes);
+      Optional.ofNullable(CongestionController.instance())
+          .ifPresent(
+              congestionController ->
+                  congestionController.produceBytes(fileInfo.getUserIdentifier(), numBytes));
+      notifier.numPendingFlushes.incrementAndGet();
+      addTask(new LocalFlushTask(spillBuffer, channel, notifier));
+    } else {
+      try (FileChannel spillChannel =
+          FileChannelUtils.createWritableFileChannel(fileInfo.getFilePath())) {
+        LocalFlushTask.writeFully(spillChannel, memoryBuffer.nioBuffers());
+      }
+      releaseMemoryBuffer();
+    }
+    logger.debug("Spilled {} bytes of {} from memory to disk", numBytes, fileInfo.getFilePath());
+  }
+
+  @GuardedBy("flushLock")
+  private void releaseMemoryBuffer() {
+    if (memoryBuffer != null) {
+      // readers keep their retained slices readable until they are sent
+      fileInfo.removeMemoryBuffer();
+      MemoryManager.instance().releaseMemoryFileStorage(memoryBuffer.readableBytes());
+      memoryBuffer.release();
+      memoryBuffer = null;
+    }
+  }
+
+  /** Spills the file to disk if it is kept in memory, e.g. before the file is sorted. */
+  public void spillMemoryFile() throws IOException {
+    synchronized (flushLock) {
+      if (memoryBuffer != null) {
+        spillMemoryBuffer();
+      }
+    }
+  }
+
   /** assume data size is less than chunk capacity */
   public void write(ByteBuf data) throws IOException {
     if (closed) {
@@ -213,6 +315,7 @@ public abstract class FileWriter implements DeviceObserver {
         flush(false);
       }
 
+      onDataAppended(data, fileInfo.getFileLength() + flushBuffer.readableBytes());
       data.retain();
       flushBuffer.addComponent(true, data);
     }
@@ -220,6 +323,15 @@ public abstract class FileWriter implements DeviceObserver {
     numPendingWrites.decrementAndGet();
   }
 
+  /**
+   * Called under the flush lock before data is appended to the flush buffer.
+   *
+   * @param data the batches to be appended
+   * @param position the offset in the file at which data will be written
+   */
+  @GuardedBy("flushLock")
+  protected void onDataAppended(ByteBuf data, long position) {}
+
   public RoaringBitmap getMapIdBitMap() {
     return mapIdBitMap;
   }
@@ -227,10 +339,15 @@ public abstract class FileWriter implements DeviceObserver {
   public StorageInfo getStorageInfo() {
     if (flusher instanceof LocalFlusher) {
       LocalFlusher localFlusher = (LocalFlusher) flusher;
+      if (fileInfo.isMemoryResident()) {
+        return new StorageInfo(StorageInfo.Type.MEMORY, localFlusher.mountPoint(), true);
+      }
       return new StorageInfo(localFlusher.diskType(), localFlusher.mountPoint(), true);
     } else {
       if (deleted) {
         return null;
+      } else if (fileInfo.isOss()) {
+        return new StorageInfo(StorageInfo.Type.OSS, true, fileInfo.getFilePath());
       } else {
         return new StorageInfo(StorageInfo.Type.HDFS, true, fileInfo.getFilePath());
       }
@@ -244,80 +361,102 @@ public abstract class FileWriter implements DeviceObserver {
     void run() throws IOException;
   }
 
-  protected synchronized long close(
+  protected long close(
       RunnableWithIOException tryClose,
       RunnableWithIOException streamClose,
       RunnableWithIOException finalClose)
       throws IOException {
-    if (closed) {
-      String msg = "FileWriter has already closed! fileName " + fileInfo.getFilePath();
-      logger.error(msg);
-      throw new AlreadyClosedException(msg);
-    }
-
+    closeLock.lock();
     try {
-      waitOnNoPending(numPendingWrites);
-      closed = true;
-
-      synchronized (flushLock) {
-        if (flushBuffer.readableBytes() > 0) {
-          flush(true);
-        }
+      if (closed) {
+        String msg = "FileWriter has already closed! fileName " + fileInfo.getFilePath();
+        logger.error(msg);
+        throw new AlreadyClosedException(msg);
       }
 
-      tryClose.run();
-      waitOnNoPending(notifier.numPendingFlushes);
-    } finally {
-      returnBuffer();
       try {
-        if (channel != null) {
-          channel.close();
+        waitOnNoPending(numPendingWrites);
+        closed = true;
+
+        synchronized (flushLock) {
+          if (flushBuffer.readableBytes() > 0) {
+            flush(true);
+          }
         }
-        if (fileInfo.isHdfs()) {
-          streamClose.run();
+
+        tryClose.run();
+        waitOnNoPending(notifier.numPendingFlushes);
+      } finally {
+        returnBuffer();
+        try {
+          if (channel != null) {
+            channel.close();
+          }
+          if (fileInfo.isHdfs() || fileInfo.isOss()) {
+            streamClose.run();
+          }
+        } catch (IOException e) {
+          logger.warn("close file writer {} failed", this, e);
         }
-      } catch (IOException e) {
-        logger.warn("close file writer {} failed", this, e);
-      }
 
-      finalClose.run();
+        finalClose.run();
 
-      // unregister from DeviceMonitor
-      if (!fileInfo.isHdfs()) {
-        logger.debug("file info {} register from device monitor", fileInfo);
-        deviceMonitor.unregisterFileWriter(this);
+        // unregister from DeviceMonitor
+        if (!fileInfo.isHdfs() && !fileInfo.isOss()) {
+          logger.debug("file info {} register from device monitor", fileInfo);
+          deviceMonitor.unregisterFileWriter(this);
+        }
       }
+      return fileInfo.getFileLength();
+    } finally {
+      closeLock.unlock();
     }
-    return fileInfo.getFileLength();
   }
 
-  public synchronized void destroy(IOException ioException) {
-    if (!closed) {
-      closed = true;
-      if (!notifier.hasException()) {
-        notifier.setException(ioException);
-      }
-      returnBuffer();
-      try {
-        if (channel != null) {
-          channel.close();
+  public void destroy(IOException ioException) {
+    closeLock.lock();
+    try {
+      if (!closed) {
+        closed = true;
+        if (!notifier.hasException()) {
+          notifier.setException(ioException);
+        }
+        returnBuffer();
+        try {
+          if (channel != null) {
+            channel.close();
+          }
+        } catch (IOException e) {
+          logger.warn(
+              "Close channel failed for file {} caused by {}.",
+              fileInfo.getFilePath(),
+              e.getMessage());
         }
-      } catch (IOException e) {
-        logger.warn(
-            "Close channel failed for file {} caused by {}.",
-            fileInfo.getFilePath(),
-            e.getMessage());
       }
-    }
 
-    if (!destroyed) {
-      destroyed = true;
-      fileInfo.deleteAllFiles(StorageManager.hadoopFs());
+      if (!destroyed) {
+        destroyed = true;
+        synchronized (flushLock) {
+          releaseMemoryBuffer();
+        }
+        if (multipartUpload != null) {
+          try {
+            multipartUpload.abort();
+          } catch (IOException e) {
+            logger.warn("Abort upload of {} failed.", fileInfo.getFilePath(), e);
+          }
+          fileInfo.deleteAllObjects(StorageManager.objectStore());
+        } else {
+          fileInfo.deleteAllFiles(StorageManager.hadoopFs());
+        }
 
-      // unregister from DeviceMonitor
-      if (!fileInfo.isHdfs()) {
-        deviceMonitor.unregisterFileWriter(this);
+        // unregister from DeviceMonitor
+        if (!fileInfo.isHdfs() && !fileInfo.isOss()) {
+          deviceMonitor.unregisterFileWriter(this);
+        }
       }
+    } finally {
+      closeLock.unlock();
     }
   }
 
@@ -401,6 +540,9 @@ public abstract class FileWriter implements DeviceObserver {
 
   public void flushOnMemoryPressure() throws IOException {
     synchronized (flushLock) {
+      if (memoryBuffer != null) {
+        spillMemoryBuffer();
+      }
       flush(false);
     }
   }
@@ -124,7 +124,7 @@ public final class MapPartitionFileWriter extends FileWriter {
   }
 
   @Override
-  public synchronized long close() throws IOException {
+  public long close() throws IOException {
     return super.close(
         () -> {
           flushIndex();
@@ -158,9 +158,14 @@ public final class MapPartitionFileWriter extends FileWriter {
         });
   }
 
-  public synchronized void destroy(IOException ioException) {
-    destroyIndex();
-    super.destroy(ioException);
+  public void destroy(IOException ioException) {
+    closeLock.lock();
+    try {
+      destroyIndex();
+      super.destroy(ioException);
+    } finally {
+      closeLock.unlock();
+    }
   }
 
   public void pushDataHandShake(int numSubpartitions, int bufferSize) {
@@ -234,7 +239,7 @@ public final class MapPartitionFileWriter extends FileWriter {
     Arrays.fill(numSubpartitionBytes, 0);
   }
 
-  private synchronized void destroyIndex() {
+  private void destroyIndex() {
     try {
       if (indexChannel != null) {
         indexChannel.close();
@@ -0,0 +1,93 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.celeborn.service.deploy.worker.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.concurrent.GuardedBy;
+
+import org.apache.celeborn.common.oss.ObjectStore;
+
+/**
+ * Multipart upload of a file to the object store, each flush of the file being uploaded as a part,
+ * which is at least the minimum part size of the store but for the final flush. The parts are
+ * numbered when their flush tasks are created and uploaded in order by the flusher thread of the
+ * file, the upload is completed or aborted when the file is closed.
+ */
+final class MultipartUpload {
+  private final ObjectStore objectStore;
+  private final String path;
+  private final String uploadId;
+
+  // number of the parts handed to flush tasks, guarded by the flush lock of the writer
+  private int numParts = 0;
+
+  @GuardedBy("this")
+  private final List<String> partTags = new ArrayList<>();
+
+  @GuardedBy("this")
+  private boolean finished = false;
+
+  MultipartUpload(ObjectStore objectStore, String path) throws IOException {
+    this.objectStore = objectStore;
+    this.path = path;
+    this.uploadId = objectStore.initiateMultipartUpload(path);
+  }
+
+  int nextPartNumber() {
+    return ++numParts;
+  }
+
+  void uploadPart(int partNumber, ByteBuffer[] data) throws IOException {
+    String tag = objectStore.uploadPart(path, uploadId, partNumber, data);
+    synchronized (this) {
+      if (partNumber != partTags.size() + 1) {
+        throw new IOException("Part " + partNumber + " of " + path + " is uploaded out of order");
+      }
+      partTags.add(tag);
+    }
+  }
+
+  synchronized void complete() throws IOException {
+    if (finished) {
+      return;
+    }
+    if (partTags.size() != numParts) {
+      throw new IOException(
+          "Only " + partTags.size() + " of the " + numParts + " parts of " + path + " uploaded");
+    }
+    finished = true;
+    if (partTags.isEmpty()) {
+      // stores don't complete uploads without parts
+      objectStore.abortMultipartUpload(path, uploadId);
+      objectStore.putObject(path, new byte[0]);
+    } else {
+      objectStore.completeMultipartUpload(path, uploadId, partTags);
+    }
+  }
+
+  synchronized void abort() throws IOException {
+    if (!finished) {
+      finished = true;
+      objectStore.abortMultipartUpload(path, uploadId);
+    }
+  }
+}
@@ -22,6 +22,8 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -30,7 +32,9 @@ import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -48,6 +52,7 @@ import org.slf4j.LoggerFactory;
 
 import org.apache.celeborn.common.CelebornConf;
 import org.apache.celeborn.common.identity.UserIdentifier;
+import org.apache.celeborn.common.meta.ChunkOffsets;
 import org.apache.celeborn.common.meta.FileInfo;
 import org.apache.celeborn.common.metrics.source.AbstractSource;
 import org.apache.celeborn.common.unsafe.Platform;
@@ -72,6 +77,13 @@ public class PartitionFilesSorter extends ShuffleRecoverHelper {
       JavaUtils.newConcurrentHashMap();
   private final ConcurrentHashMap<String, Map<String, Map<Integer, List<ShuffleBlockInfo>>>>
       cachedIndexMaps = JavaUtils.newConcurrentHashMap();
+  // Files with ranges served by virtual sort, which are never sorted physically as sorting deletes
+  // the unsorted file. Guarded by the sorting set of the shuffle.
+  private final ConcurrentHashMap<String, Set<String>> virtuallySortedShuffleFiles =
+      JavaUtils.newConcurrentHashMap();
+  // Block index of unsorted files which are served by virtual sort
+  private final ConcurrentHashMap<String, Map<String, Map<Integer, List<ShuffleBlockInfo>>>>
+      cachedUnsortedIndexMaps = JavaUtils.newConcurrentHashMap();
   private final LinkedBlockingQueue<FileSorter> shuffleSortTaskDeque = new LinkedBlockingQueue<>();
 
   private final AtomicInteger sortedFileCount = new AtomicInteger();
@@ -79,6 +91,9 @@ public class PartitionFilesSorter extends ShuffleRecoverHelper {
   protected final long sortTimeout;
   protected final long shuffleChunkSize;
   protected final long reservedMemoryPerPartition;
+  protected final int copyThreadsPerDisk;
+  protected final boolean virtualSortEnabled;
+  protected final int virtualSortMaxFragments;
   private boolean gracefulShutdown;
   private long partitionSorterShutdownAwaitTime;
   private DB sortedFilesDb;
@@ -87,6 +102,8 @@ public class PartitionFilesSorter extends ShuffleRecoverHelper {
   protected final AbstractSource source;
 
   private final ExecutorService fileSorterExecutors;
+  private final ConcurrentHashMap<String, ExecutorService> blockCopyExecutors =
+      JavaUtils.newConcurrentHashMap();
   private final Thread fileSorterSchedulerThread;
 
   public PartitionFilesSorter(
@@ -94,6 +111,9 @@ public class PartitionFilesSorter extends ShuffleRecoverHelper {
     this.sortTimeout = conf.partitionSorterSortPartitionTimeout();
     this.shuffleChunkSize = conf.shuffleChunkSize();
     this.reservedMemoryPerPartition = conf.partitionSorterReservedMemoryPerPartition();
+    this.copyThreadsPerDisk = conf.partitionSorterCopyThreadsPerDisk();
+    this.virtualSortEnabled = conf.partitionSorterVirtualSortEnabled();
+    this.virtualSortMaxFragments = conf.partitionSorterVirtualSortMaxFragments();
     this.partitionSorterShutdownAwaitTime =
         conf.workerGracefulShutdownPartitionSorterCloseAwaitTimeMs();
     this.source = source;
@@ -172,6 +192,15 @@ public class PartitionFilesSorter extends ShuffleRecoverHelper {
     String sortedFilePath = Utils.getSortedFilePath(fileInfo.getFilePath());
     String indexFilePath = Utils.getIndexFilePath(fileInfo.getFilePath());
 
+    FileInfo virtualSortedFileInfo = null;
+    if (virtualSortEnabled
+        && !fileInfo.isHdfs()
+        && !sorted.contains(fileId)
+        && !sorting.contains(fileId)) {
+      virtualSortedFileInfo =
+          resolveVirtualSorted(shuffleKey, fileId, fileInfo, startMapIndex, endMapIndex);
+    }
+
     synchronized (sorting) {
       if (sorted.contains(fileId)) {
         return resolve(
@@ -183,6 +212,24 @@ public class PartitionFilesSorter extends ShuffleRecoverHelper {
             startMapIndex,
             endMapIndex);
       }
+      if (virtualSortedFileInfo != null && !sorting.contains(fileId)) {
+        Set<String> virtuallySorted =
+            virtuallySortedShuffleFiles.computeIfAbsent(
+                shuffleKey, v -> ConcurrentHashMap.newKeySet());
+        // once a stream reads the unsorted file, which sorting would delete, the file is served
+        // by virtual sort only, whatever the fragments of the range
+        int fragments = numFragments(virtualSortedFileInfo);
+        if (fragments <= virtualSortMaxFragments || virtuallySorted.contains(fileId)) {
+          virtuallySorted.add(fileId);
+          return virtualSortedFileInfo;
+        }
+        logger.debug(
+            "Range [{}, {}) of {} has {} fragments, sort it physically.",
+            startMapIndex,
+            endMapIndex,
+            fileId,
+            fragments);
+      }
       if (!sorting.contains(fileId)) {
         try {
           FileSorter fileSorter = new FileSorter(fileInfo, fileId, shuffleKey);
@@ -234,8 +281,10 @@ public class PartitionFilesSorter extends ShuffleRecoverHelper {
   public void cleanup(HashSet<String> expiredShuffleKeys) {
     for (String expiredShuffleKey : expiredShuffleKeys) {
       sortingShuffleFiles.remove(expiredShuffleKey);
+      virtuallySortedShuffleFiles.remove(expiredShuffleKey);
       deleteSortedShuffleFiles(expiredShuffleKey);
       cachedIndexMaps.remove(expiredShuffleKey);
+      cachedUnsortedIndexMaps.remove(expiredShuffleKey);
     }
   }
 
@@ -276,7 +325,10 @@ public class PartitionFilesSorter extends ShuffleRecoverHelper {
         }
       }
     }
+    blockCopyExecutors.values().forEach(ExecutorService::shutdownNow);
+    blockCopyExecutors.clear();
     cachedIndexMaps.clear();
+    cachedUnsortedIndexMaps.clear();
   }
 
   private void reloadAndCleanSortedShuffleFiles(DB db) {
@@ -350,29 +402,10 @@ public class PartitionFilesSorter extends ShuffleRecoverHelper {
       indexFileChannel = FileChannelUtils.createWritableFileChannel(indexFilePath);
     }
 
-    int indexSize = 0;
-    for (Map.Entry<Integer, List<ShuffleBlockInfo>> entry : indexMap.entrySet()) {
-      indexSize += 8;
-      indexSize += entry.getValue().size() * 16;
-    }
-
-    ByteBuffer indexBuf = ByteBuffer.allocate(indexSize);
-    for (Map.Entry<Integer, List<ShuffleBlockInfo>> entry : indexMap.entrySet()) {
-      int mapId = entry.getKey();
-      List<ShuffleBlockInfo> list = entry.getValue();
-      indexBuf.putInt(mapId);
-      indexBuf.putInt(list.size());
-      list.forEach(
-          info -> {
-            indexBuf.putLong(info.offset);
-            indexBuf.putLong(info.length);
-          });
-    }
-
-    indexBuf.flip();
+    ByteBuffer indexBuf = ShuffleBlockInfoUtils.serializeShuffleBlockInfos(indexMap);
     if (isHdfs) {
       // Direct byte buffer has no array, so can not invoke indexBuf.array() here.
-      byte[] tmpBuf = new byte[indexSize];
+      byte[] tmpBuf = new byte[indexBuf.remaining()];
       indexBuf.get(tmpBuf);
       hdfsIndexOutput.write(tmpBuf);
       hdfsIndexOutput.close();
@@ -417,12 +450,17 @@ public class PartitionFilesSorter extends ShuffleRecoverHelper {
   private long transferStreamFully(
       FSDataInputStream origin, FSDataOutputStream sorted, long offset, long length)
       throws IOException {
-    // Worker read a shuffle block whose size is 256K by default.
-    // So there is no need to worry about integer overflow.
-    byte[] buffer = new byte[Math.toIntExact(length)];
-    origin.readFully(offset, buffer);
-    sorted.write(buffer);
-    return length;
+    // An extent may span many shuffle blocks, so copy it through a buffer bounded by
+    // the memory reserved for sorting this partition.
+    byte[] buffer = new byte[(int) Math.min(length, reservedMemoryPerPartition)];
+    long transferredSize = 0;
+    while (transferredSize != length) {
+      int toRead = (int) Math.min(length - transferredSize, buffer.length);
+      origin.readFully(offset + transferredSize, buffer, 0, toRead);
+      sorted.write(buffer, 0, toRead);
+      transferredSize += toRead;
+    }
+    return transferredSize;
   }
 
   private long transferChannelFully(
@@ -437,6 +475,146 @@ public class PartitionFilesSorter extends ShuffleRecoverHelper {
     return transferredSize;
   }
 
+  protected Map<Integer, List<ShuffleBlockInfo>> readIndex(String indexFilePath, boolean isHdfs)
+      throws IOException {
+    FileChannel indexChannel = null;
+    FSDataInputStream hdfsIndexStream = null;
+    int indexSize;
+    try {
+      if (isHdfs) {
+        hdfsIndexStream = StorageManager.hadoopFs().open(new Path(indexFilePath));
+        indexSize = (int) StorageManager.hadoopFs().getFileStatus(new Path(indexFilePath)).getLen();
+      } else {
+        indexChannel = FileChannelUtils.openReadableFileChannel(indexFilePath);
+        File indexFile = new File(indexFilePath);
+        indexSize = (int) indexFile.length();
+      }
+      ByteBuffer indexBuf = ByteBuffer.allocate(indexSize);
+      if (isHdfs) {
+        readStreamFully(hdfsIndexStream, indexBuf, indexFilePath);
+      } else {
+        readChannelFully(indexChannel, indexBuf, indexFilePath);
+      }
+      indexBuf.rewind();
+      return ShuffleBlockInfoUtils.parseShuffleBlockInfosFromByteBuffer(indexBuf);
+    } finally {
+      IOUtils.closeQuietly(indexChannel, null);
+      IOUtils.closeQuietly(hdfsIndexStream, null);
+    }
+  }
+
+  /**
+   * Loads the block index recorded by ReducePartitionFileWriter, returns null if it does not exist
+   * or does not cover the whole file.
+   */
+  protected Map<Integer, List<ShuffleBlockInfo>> readShuffleBlockIndex(
+      String originFilePath, boolean isHdfs, long originFileLen) {
+    String shuffleBlockIndexPath = Utils.getShuffleBlockIndexFilePath(originFilePath);
+    try {
+      boolean exists;
+      if (isHdfs) {
+        exists = StorageManager.hadoopFs().exists(new Path(shuffleBlockIndexPath));
+      } else {
+        exists = new File(shuffleBlockIndexPath).exists();
+      }
+      if (!exists) {
+        return null;
+      }
+      Map<Integer, List<ShuffleBlockInfo>> blockInfos =
+          new TreeMap<>(readIndex(shuffleBlockIndexPath, isHdfs));
+      long indexedLen = 0;
+      for (List<ShuffleBlockInfo> blocks : blockInfos.values()) {
+        for (ShuffleBlockInfo block : blocks) {
+          indexedLen += block.length;
+        }
+      }
+      if (indexedLen != originFileLen) {
+        logger.warn(
+            "Block index {} covers {} bytes but file length is {}, fall back to scan.",
+            shuffleBlockIndexPath,
+            indexedLen,
+            originFileLen);
+        return null;
+      }
+      return blockInfos;
+    } catch (Exception e) {
+      logger.warn("Read block index {} failed, fall back to scan.", shuffleBlockIndexPath, e);
+      return null;
+    }
+  }
+
+  /** Builds the block index of a local unsorted file by reading only the batch headers. */
+  protected Map<Integer, List<ShuffleBlockInfo>> scanShuffleBlockHeaders(
+      String originFilePath, long originFileLen) throws IOException {
+    Map<Integer, List<ShuffleBlockInfo>> blockInfos = new TreeMap<>();
+    ByteBuffer headerBuf = ByteBuffer.allocate(16);
+    try (FileChannel channel = FileChannelUtils.openReadableFileChannel(originFilePath)) {
+      long index = 0;
+      while (index < originFileLen) {
+        headerBuf.clear();
+        while (headerBuf.hasRemaining()) {
+          if (channel.read(headerBuf, index + headerBuf.position()) == -1) {
+            throw new IOException(
+                "Unexpected EOF, file name : " + originFilePath + " position :" + index);
+          }
+        }
+        byte[] batchHeader = headerBuf.array();
+        int mapId = Platform.getInt(batchHeader, Platform.BYTE_ARRAY_OFFSET);
+        int compressedSize = Platform.getInt(batchHeader, Platform.BYTE_ARRAY_OFFSET + 12);
+        ShuffleBlockInfo blockInfo = new ShuffleBlockInfo();
+        blockInfo.offset = index;
+        blockInfo.length = 16 + compressedSize;
+        blockInfos.computeIfAbsent(mapId, v -> new ArrayList<>()).add(blockInfo);
+        index += blockInfo.length;
+      }
+    }
+    return blockInfos;
+  }
+
+  /** Serves the range from the unsorted file through its block index. */
+  private FileInfo resolveVirtualSorted(
+      String shuffleKey, String fileId, FileInfo fileInfo, int startMapIndex, int endMapIndex)
+      throws IOException {
+    Map<String, Map<Integer, List<ShuffleBlockInfo>>> cacheMap =
+        cachedUnsortedIndexMaps.computeIfAbsent(shuffleKey, v -> JavaUtils.newConcurrentHashMap());
+    Map<Integer, List<ShuffleBlockInfo>> indexMap = cacheMap.get(fileId);
+    if (indexMap == null) {
+      indexMap = readShuffleBlockIndex(fileInfo.getFilePath(), false, fileInfo.getFileLength());
+      if (indexMap == null) {
+        try {
+          indexMap = scanShuffleBlockHeaders(fileInfo.getFilePath(), fileInfo.getFileLength());
+        } catch (IOException e) {
+          logger.error("Read block headers of " + fileInfo.getFilePath() + " error, detail: ", e);
+          throw new IOException("Read block headers of shuffle file failed.", e);
+        }
+      }
+      cacheMap.put(fileId, indexMap);
+    }
+
+    List<List<ShuffleBlockInfo>> chunkSegments =
+        ShuffleBlockInfoUtils.getChunkSegmentsFromShuffleBlockInfos(
+            startMapIndex, endMapIndex, shuffleChunkSize, indexMap);
+    ChunkOffsets chunkOffsets = new ChunkOffsets();
+    long chunkOffset = 0;
+    chunkOffsets.add(chunkOffset);
+    for (List<ShuffleBlockInfo> segments : chunkSegments) {
+      for (ShuffleBlockInfo segment : segments) {
+        chunkOffset += segment.length;
+      }
+      chunkOffsets.add(chunkOffset);
+    }
+    return new FileInfo(
+        fileInfo.getFilePath(), chunkOffsets, chunkSegments, fileInfo.getUserIdentifier());
+  }
+
+  private static int numFragments(FileInfo virtualSortedFileInfo) {
+    int fragments = 0;
+    for (List<ShuffleBlockInfo> segments : virtualSortedFileInfo.getChunkSegments()) {
+      fragments += segments.size();
+    }
+    return fragments;
+  }
+
   public FileInfo resolve(
       String shuffleKey,
       String fileId,
@@ -451,37 +629,14 @@ public class PartitionFilesSorter extends ShuffleRecoverHelper {
         && cachedIndexMaps.get(shuffleKey).containsKey(fileId)) {
       indexMap = cachedIndexMaps.get(shuffleKey).get(fileId);
     } else {
-      FileChannel indexChannel = null;
-      FSDataInputStream hdfsIndexStream = null;
-      boolean isHdfs = Utils.isHdfsPath(indexFilePath);
-      int indexSize = 0;
       try {
-        if (isHdfs) {
-          hdfsIndexStream = StorageManager.hadoopFs().open(new Path(indexFilePath));
-          indexSize =
-              (int) StorageManager.hadoopFs().getFileStatus(new Path(indexFilePath)).getLen();
-        } else {
-          indexChannel = FileChannelUtils.openReadableFileChannel(indexFilePath);
-          File indexFile = new File(indexFilePath);
-          indexSize = (int) indexFile.length();
-        }
-        ByteBuffer indexBuf = ByteBuffer.allocate(indexSize);
-        if (isHdfs) {
-          readStreamFully(hdfsIndexStream, indexBuf, indexFilePath);
-        } else {
-          readChannelFully(indexChannel, indexBuf, indexFilePath);
-        }
-        indexBuf.rewind();
-        indexMap = ShuffleBlockInfoUtils.parseShuffleBlockInfosFromByteBuffer(indexBuf);
+        indexMap = readIndex(indexFilePath, Utils.isHdfsPath(indexFilePath));
         Map<String, Map<Integer, List<ShuffleBlockInfo>>> cacheMap =
             cachedIndexMaps.computeIfAbsent(shuffleKey, v -> JavaUtils.newConcurrentHashMap());
         cacheMap.put(fileId, indexMap);
       } catch (Exception e) {
         logger.error("Read sorted shuffle file index " + indexFilePath + " error, detail: ", e);
         throw new IOException("Read sorted shuffle file index failed.", e);
-      } finally {
-        IOUtils.closeQuietly(indexChannel, null);
-        IOUtils.closeQuietly(hdfsIndexStream, null);
       }
     }
     return new FileInfo(
@@ -495,10 +650,12 @@ public class PartitionFilesSorter extends ShuffleRecoverHelper {
     private final String originFilePath;
     private final String sortedFilePath;
     private final String indexFilePath;
+    private final String shuffleBlockIndexPath;
     private final long originFileLen;
     private final String fileId;
     private final String shuffleKey;
     private final boolean isHdfs;
+    private final String mountPoint;
 
     private FSDataInputStream hdfsOriginInput = null;
     private FSDataOutputStream hdfsSortedOutput = null;
@@ -509,10 +666,12 @@ public class PartitionFilesSorter extends ShuffleRecoverHelper {
       this.originFilePath = fileInfo.getFilePath();
       this.sortedFilePath = Utils.getSortedFilePath(originFilePath);
       this.isHdfs = fileInfo.isHdfs();
+      this.mountPoint = fileInfo.getMountPoint() == null ? "" : fileInfo.getMountPoint();
       this.originFileLen = fileInfo.getFileLength();
       this.fileId = fileId;
       this.shuffleKey = shuffleKey;
       this.indexFilePath = Utils.getIndexFilePath(originFilePath);
+      this.shuffleBlockIndexPath = Utils.getShuffleBlockIndexFilePath(originFilePath);
       if (!isHdfs) {
         File sortedFile = new File(this.sortedFilePath);
         if (sortedFile.exists()) {
@@ -538,35 +697,16 @@ public class PartitionFilesSorter extends ShuffleRecoverHelper {
       try {
         initializeFiles();
 
-        Map<Integer, List<ShuffleBlockInfo>> originShuffleBlockInfos = new TreeMap<>();
-        Map<Integer, List<ShuffleBlockInfo>> sortedBlockInfoMap = new HashMap<>();
-
-        int batchHeaderLen = 16;
-        int reserveMemory = (int) reservedMemoryPerPartition;
-        ByteBuffer headerBuf = ByteBuffer.allocate(batchHeaderLen);
-        ByteBuffer paddingBuf = ByteBuffer.allocateDirect(reserveMemory);
-
-        long index = 0;
-        while (index != originFileLen) {
-          long blockStartIndex = index;
-          readBufferFully(headerBuf);
-          byte[] batchHeader = headerBuf.array();
-          headerBuf.rewind();
-
-          int mapId = Platform.getInt(batchHeader, Platform.BYTE_ARRAY_OFFSET);
-          final int compressedSize = Platform.getInt(batchHeader, Platform.BYTE_ARRAY_OFFSET + 12);
-
-          List<ShuffleBlockInfo> singleMapIdShuffleBlockList =
-              originShuffleBlockInfos.computeIfAbsent(mapId, v -> new ArrayList<>());
-          ShuffleBlockInfo blockInfo = new ShuffleBlockInfo();
-          blockInfo.offset = blockStartIndex;
-          blockInfo.length = compressedSize + 16;
-          singleMapIdShuffleBlockList.add(blockInfo);
-
-          index += batchHeaderLen + compressedSize;
-          paddingBuf.clear();
-          readBufferBySize(paddingBuf, compressedSize);
+        Map<Integer, List<ShuffleBlockInfo>> originShuffleBlockInfos =
+            readShuffleBlockIndex(originFilePath, isHdfs, originFileLen);
+        if (originShuffleBlockInfos == null) {
+          originShuffleBlockInfos = scanShuffleBlockInfos();
         }
+        Map<Integer, List<ShuffleBlockInfo>> sortedBlockInfoMap = new HashMap<>();
+        // Blocks which are adjacent in both the origin and the sorted file are coalesced
+        // into one extent, so that each extent can be copied with a single transfer.
+        List<BlockExtent> extents = new ArrayList<>();
+        BlockExtent lastExtent = null;
 
         long fileIndex = 0;
         for (Map.Entry<Integer, List<ShuffleBlockInfo>> originBlockInfoEntry :
@@ -581,12 +721,20 @@ public class PartitionFilesSorter extends ShuffleRecoverHelper {
             sortedBlock.offset = fileIndex;
             sortedBlock.length = length;
             sortedShuffleBlocks.add(sortedBlock);
-            fileIndex += transferBlock(offset, length);
+            if (lastExtent != null && lastExtent.originOffset + lastExtent.length == offset) {
+              lastExtent.length += length;
+            } else {
+              lastExtent = new BlockExtent(offset, fileIndex, length);
+              extents.add(lastExtent);
+            }
+            fileIndex += length;
           }
           sortedBlockInfoMap.put(mapId, sortedShuffleBlocks);
         }
 
-        memoryManager.releaseSortMemory(reserveMemory);
+        transferExtents(extents, fileIndex);
+
+        memoryManager.releaseSortMemory(reservedMemoryPerPartition);
 
         writeIndex(sortedBlockInfoMap, indexFilePath, isHdfs);
         updateSortedShuffleFiles(shuffleKey, fileId, originFileLen);
@@ -605,6 +753,37 @@ public class PartitionFilesSorter extends ShuffleRecoverHelper {
       source.stopTimer(WorkerSource.SORT_TIME(), fileId);
     }
 
+    private Map<Integer, List<ShuffleBlockInfo>> scanShuffleBlockInfos() throws IOException {
+      Map<Integer, List<ShuffleBlockInfo>> originShuffleBlockInfos = new TreeMap<>();
+
+      int batchHeaderLen = 16;
+      ByteBuffer headerBuf = ByteBuffer.allocate(batchHeaderLen);
+      ByteBuffer paddingBuf = ByteBuffer.allocateDirect((int) reservedMemoryPerPartition);
+
+      long index = 0;
+      while (index != originFileLen) {
+        long blockStartIndex = index;
+        readBufferFully(headerBuf);
+        byte[] batchHeader = headerBuf.array();
+        headerBuf.rewind();
+
+        int mapId = Platform.getInt(batchHeader, Platform.BYTE_ARRAY_OFFSET);
+        final int compressedSize = Platform.getInt(batchHeader, Platform.BYTE_ARRAY_OFFSET + 12);
+
+        List<ShuffleBlockInfo> singleMapIdShuffleBlockList =
+            originShuffleBlockInfos.computeIfAbsent(mapId, v -> new ArrayList<>());
+        ShuffleBlockInfo blockInfo = new ShuffleBlockInfo();
+        blockInfo.offset = blockStartIndex;
+        blockInfo.length = compressedSize + 16;
+        singleMapIdShuffleBlockList.add(blockInfo);
+
+        index += batchHeaderLen + compressedSize;
+        paddingBuf.clear();
+        readBufferBySize(paddingBuf, compressedSize);
+      }
+      return originShuffleBlockInfos;
+    }
+
     private void initializeFiles() throws IOException {
       if (isHdfs) {
         hdfsOriginInput = StorageManager.hadoopFs().open(new Path(originFilePath));
@@ -639,6 +818,58 @@ public class PartitionFilesSorter extends ShuffleRecoverHelper {
       }
     }
 
+    private void transferExtents(List<BlockExtent> extents, long totalLength)
+        throws IOException, InterruptedException {
+      if (isHdfs || copyThreadsPerDisk <= 1 || extents.size() <= 1) {
+        for (BlockExtent extent : extents) {
+          transferBlock(extent.originOffset, extent.length);
+        }
+        return;
+      }
+
+      // Split the extents into groups of roughly equal size. Extents of a group are contiguous
+      // in the sorted file, so each group is written sequentially through its own channel.
+      ExecutorService copyExecutor =
+          blockCopyExecutors.computeIfAbsent(
+              mountPoint,
+              v ->
+                  ThreadUtils.newDaemonCachedThreadPool(
+                      "worker-file-sorter-copy", copyThreadsPerDisk, 60));
+      long groupSize = (totalLength + copyThreadsPerDisk - 1) / copyThreadsPerDisk;
+      List<Future<?>> futures = new ArrayList<>();
+      int groupStart = 0;
+      long groupLength = 0;
+      for (int i = 0; i < extents.size(); i++) {
+        groupLength += extents.get(i).length;
+        if (groupLength >= groupSize || i == extents.size() - 1) {
+          List<BlockExtent> group = extents.subList(groupStart, i + 1);
+          futures.add(copyExecutor.submit(() -> transferExtentGroup(group)));
+          groupStart = i + 1;
+          groupLength = 0;
+        }
+      }
+      try {
+        for (Future<?> future : futures) {
+          future.get();
+        }
+      } catch (ExecutionException e) {
+        futures.forEach(future -> future.cancel(true));
+        throw new IOException("Copy blocks to " + sortedFilePath + " failed.", e.getCause());
+      }
+    }
+
+    private Void transferExtentGroup(List<BlockExtent> group) throws IOException {
+      try (FileChannel targetChannel =
+          FileChannel.open(Paths.get(sortedFilePath), StandardOpenOption.WRITE)) {
+        targetChannel.position(group.get(0).sortedOffset);
+        for (BlockExtent extent : group) {
+          transferChannelFully(
+              originFileChannel, targetChannel, extent.originOffset, extent.length);
+        }
+      }
+      return null;
+    }
+
     private void deleteOriginFiles() throws IOException {
       boolean deleteSuccess = false;
       if (isHdfs) {
@@ -649,6 +880,11 @@ public class PartitionFilesSorter extends ShuffleRecoverHelper {
       if (!deleteSuccess) {
         logger.warn("Clean origin file failed, origin file is : {}", originFilePath);
       }
+      if (isHdfs) {
+        StorageManager.hadoopFs().delete(new Path(shuffleBlockIndexPath), false);
+      } else {
+        new File(shuffleBlockIndexPath).delete();
+      }
     }
 
     protected void readChannelBySize(
@@ -688,4 +924,16 @@ public class PartitionFilesSorter extends ShuffleRecoverHelper {
       }
     }
   }
+
+  static class BlockExtent {
+    final long originOffset;
+    final long sortedOffset;
+    long length;
+
+    BlockExtent(long originOffset, long sortedOffset, long length) {
+      this.originOffset = originOffset;
+      this.sortedOffset = sortedOffset;
+      this.length = length;
+    }
+  }
 }
@@ -18,7 +18,14 @@
 package org.apache.celeborn.service.deploy.worker.storage;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
+import io.netty.buffer.ByteBuf;
 import org.apache.hadoop.fs.FSDataOutputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -26,18 +33,31 @@ import org.slf4j.LoggerFactory;
 import org.apache.celeborn.common.CelebornConf;
 import org.apache.celeborn.common.meta.FileInfo;
 import org.apache.celeborn.common.metrics.source.AbstractSource;
+import org.apache.celeborn.common.oss.ObjectStore;
 import org.apache.celeborn.common.protocol.PartitionSplitMode;
 import org.apache.celeborn.common.protocol.PartitionType;
+import org.apache.celeborn.common.unsafe.Platform;
+import org.apache.celeborn.common.util.ShuffleBlockInfoUtils;
+import org.apache.celeborn.common.util.ShuffleBlockInfoUtils.ShuffleBlockInfo;
+import org.apache.celeborn.common.util.Utils;
 
 /*
- * reduce partition file writer, it will create chunk index
+ * reduce partition file writer, it will create chunk index and, if enabled,
+ * the per map id block index used by PartitionFilesSorter
  */
 public final class ReducePartitionFileWriter extends FileWriter {
   private static final Logger logger = LoggerFactory.getLogger(ReducePartitionFileWriter.class);
 
+  private static final int BATCH_HEADER_SIZE = 16;
+
   private long nextBoundary;
   private final long shuffleChunkSize;
 
+  private final boolean indexOnWrite;
+  // guarded by flushLock, null if the block index is disabled or invalid
+  private Map<Integer, List<ShuffleBlockInfo>> shuffleBlockInfos;
+  private final byte[] batchHeader = new byte[BATCH_HEADER_SIZE];
+
   public ReducePartitionFileWriter(
       FileInfo fileInfo,
       Flusher flusher,
@@ -60,6 +80,42 @@ public final class ReducePartitionFileWriter extends FileWriter {
         rangeReadFilter);
     this.shuffleChunkSize = conf.shuffleChunkSize();
     this.nextBoundary = this.shuffleChunkSize;
+    // objects are not sorted, range reads of an object use its block index
+    this.indexOnWrite = conf.partitionSorterIndexOnWriteEnabled() || fileInfo.isOss();
+    if (indexOnWrite) {
+      this.shuffleBlockInfos = new HashMap<>();
+    }
+  }
+
+  @Override
+  protected void onDataAppended(ByteBuf data, long position) {
+    if (shuffleBlockInfos == null) {
+      return;
+    }
+    int startIndex = data.readerIndex();
+    int endIndex = startIndex + data.readableBytes();
+    int index = startIndex;
+    while (index + BATCH_HEADER_SIZE <= endIndex) {
+      data.getBytes(index, batchHeader);
+      int mapId = Platform.getInt(batchHeader, Platform.BYTE_ARRAY_OFFSET);
+      int compressedSize = Platform.getInt(batchHeader, Platform.BYTE_ARRAY_OFFSET + 12);
+      if (compressedSize < 0 || compressedSize > endIndex - index - BATCH_HEADER_SIZE) {
+        break;
+      }
+      ShuffleBlockInfo blockInfo = new ShuffleBlockInfo();
+      blockInfo.offset = position + (index - startIndex);
+      blockInfo.length = BATCH_HEADER_SIZE + compressedSize;
+      shuffleBlockInfos.computeIfAbsent(mapId, v -> new ArrayList<>()).add(blockInfo);
+      index += blockInfo.length;
+    }
+    if (index != endIndex) {
+      // Data is not made of complete batches, fall back to scanning the file when sorting.
+      logger.warn(
+          "Stop recording block index for {}, unexpected batch boundary at {}",
+          fileInfo.getFilePath(),
+          position + (index - startIndex));
+      shuffleBlockInfos = null;
+    }
   }
 
   protected void flush(boolean finalFlush) throws IOException {
@@ -87,28 +143,83 @@ public final class ReducePartitionFileWriter extends FileWriter {
     return fileInfo.getLastChunkOffset() == fileInfo.getFileLength();
   }
 
-  public synchronized long close() throws IOException {
+  public long close() throws IOException {
     return super.close(
         () -> {
           if (!isChunkOffsetValid()) {
             maybeSetChunkOffsets(true);
           }
+          if (!fileInfo.isHdfs() && !fileInfo.isOss()) {
+            writeShuffleBlockIndex();
+          }
         },
         () -> {
-          if (StorageManager.hadoopFs().exists(fileInfo.getHdfsPeerWriterSuccessPath())) {
+          if (fileInfo.isOss()) {
+            completeUpload();
+          } else if (StorageManager.hadoopFs().exists(fileInfo.getHdfsPeerWriterSuccessPath())) {
             StorageManager.hadoopFs().delete(fileInfo.getHdfsPath(), false);
             deleted = true;
           } else {
             StorageManager.hadoopFs().create(fileInfo.getHdfsWriterSuccessPath()).close();
             FSDataOutputStream indexOutputStream =
                 StorageManager.hadoopFs().create(fileInfo.getHdfsIndexPath());
-            indexOutputStream.writeInt(fileInfo.getChunkOffsets().size());
-            for (Long offset : fileInfo.getChunkOffsets()) {
+            long[] chunkOffsets = fileInfo.getChunkOffsets().toArray();
+            indexOutputStream.writeInt(chunkOffsets.length);
+            for (long offset : chunkOffsets) {
               indexOutputStream.writeLong(offset);
             }
             indexOutputStream.close();
+            writeShuffleBlockIndex();
           }
         },
         () -> {});
   }
+
+  /**
+   * Completes the upload of the file, unless the peer has already uploaded its replica, and writes
+   * the chunk offsets and the block index of the file as sidecar objects.
+   */
+  private void completeUpload() throws IOException {
+    ObjectStore objectStore = StorageManager.objectStore();
+    String filePath = fileInfo.getFilePath();
+    if (notifier.hasException()
+        || objectStore.exists(Utils.getWriteSuccessFilePath(Utils.getPeerPath(filePath)))) {
+      multipartUpload.abort();
+      deleted = true;
+      return;
+    }
+    multipartUpload.complete();
+    objectStore.putObject(Utils.getWriteSuccessFilePath(filePath), new byte[0]);
+    long[] chunkOffsets = fileInfo.getChunkOffsets().toArray();
+    ByteBuffer indexBuf = ByteBuffer.allocate(4 + 8 * chunkOffsets.length);
+    indexBuf.putInt(chunkOffsets.length);
+    for (long offset : chunkOffsets) {
+      indexBuf.putLong(offset);
+    }
+    objectStore.putObject(fileInfo.getIndexPath(), indexBuf.array());
+    writeShuffleBlockIndex();
+  }
+
+  private void writeShuffleBlockIndex() throws IOException {
+    if (shuffleBlockInfos == null) {
+      return;
+    }
+    ByteBuffer indexBuf = ShuffleBlockInfoUtils.serializeShuffleBlockInfos(shuffleBlockInfos);
+    shuffleBlockInfos = null;
+    if (fileInfo.isOss()) {
+      StorageManager.objectStore().putObject(fileInfo.getShuffleBlockIndexPath(), indexBuf.array());
+    } else if (fileInfo.isHdfs()) {
+      FSDataOutputStream blockIndexOutputStream =
+          StorageManager.hadoopFs().create(fileInfo.getHdfsShuffleBlockIndexPath());
+      blockIndexOutputStream.write(indexBuf.array(), 0, indexBuf.limit());
+      blockIndexOutputStream.close();
+    } else {
+      FileChannel blockIndexChannel =
+          FileChannelUtils.createWritableFileChannel(fileInfo.getShuffleBlockIndexPath());
+      while (indexBuf.hasRemaining()) {
+        blockIndexChannel.write(indexBuf);
+      }
+      blockIndexChannel.close();
+    }
+  }
 }
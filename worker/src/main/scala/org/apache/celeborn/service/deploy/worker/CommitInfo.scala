@@ -17,9 +17,42 @@
 
 package org.apache.celeborn.service.deploy.worker
 
+import java.util.{ArrayList => JArrayList}
+
+import scala.collection.JavaConverters._
+
 import org.apache.celeborn.common.protocol.message.ControlMessages.CommitFilesResponse
 
-class CommitInfo(var response: CommitFilesResponse, var status: Int)
+class CommitInfo(var response: CommitFilesResponse, var status: Int) {
+  // callbacks of the CommitFiles retried while the commit is in process
+  private val finishCallbacks = new JArrayList[CommitFilesResponse => Unit]()
+
+  /**
+   * Calls back with the response once the commit is finished, right away if it is finished
+   * already, so that no thread waits for the commit.
+   */
+  def whenFinished(callback: CommitFilesResponse => Unit): Unit = {
+    val finishedResponse = synchronized {
+      if (status != CommitInfo.COMMIT_FINISHED) {
+        finishCallbacks.add(callback)
+        return
+      }
+      response
+    }
+    callback(finishedResponse)
+  }
+
+  def finish(finishedResponse: CommitFilesResponse): Unit = {
+    val callbacks = synchronized {
+      response = finishedResponse
+      status = CommitInfo.COMMIT_FINISHED
+      val pending = new JArrayList[CommitFilesResponse => Unit](finishCallbacks)
+      finishCallbacks.clear()
+      pending
+    }
+    callbacks.asScala.foreach(_(finishedResponse))
+  }
+}
 
 object CommitInfo {
   val COMMIT_NOTSTARTED: Int = 0
@@ -56,7 +56,7 @@ private[deploy] class Controller(
   var workerInfo: WorkerInfo = _
   var partitionLocationInfo: WorkerPartitionLocationInfo = _
   var timer: HashedWheelTimer = _
-  var commitThreadPool: ThreadPoolExecutor = _
+  var commitThreadPool: ExecutorService = _
   var asyncReplyPool: ScheduledExecutorService = _
   val minPartitionSizeToEstimate = conf.minPartitionSizeToEstimate
   var shutdown: AtomicBoolean = _
@@ -145,7 +145,7 @@ private[deploy] class Controller(
       return
     }
 
-    if (storageManager.healthyWorkingDirs().size <= 0 && !conf.hasHDFSStorage) {
+    if (storageManager.healthyWorkingDirs().size <= 0 && !conf.hasRemoteStorage) {
       val msg = "Local storage has no available dirs!"
       logError(s"[handleReserveSlots] $msg")
       context.reply(ReserveSlotsResponse(StatusCode.NO_AVAILABLE_WORKING_DIR, msg))
@@ -286,7 +286,7 @@ private[deploy] class Controller(
                 val bytes = fileWriter.close()
                 if (bytes > 0L) {
                   if (fileWriter.getStorageInfo == null) {
-                    // Only HDFS can be null, means that this partition location is deleted.
+                    // Only HDFS or OSS can be null, means that this partition location is deleted.
                     logDebug(s"Location $uniqueId is deleted.")
                   } else {
                     committedStorageInfos.put(uniqueId, fileWriter.getStorageInfo)
@@ -358,21 +358,6 @@ private[deploy] class Controller(
     epochCommitMap.putIfAbsent(epoch, new CommitInfo(null, CommitInfo.COMMIT_NOTSTARTED))
     val commitInfo = epochCommitMap.get(epoch)
 
-    def waitForCommitFinish(): Unit = {
-      val delta = 100
-      var times = 0
-      while (delta * times < shuffleCommitTimeout) {
-        commitInfo.synchronized {
-          if (commitInfo.status == CommitInfo.COMMIT_FINISHED) {
-            context.reply(commitInfo.response)
-            return
-          }
-        }
-        Thread.sleep(delta)
-        times += 1
-      }
-    }
-
     commitInfo.synchronized {
       if (commitInfo.status == CommitInfo.COMMIT_FINISHED) {
         logInfo(s"${shuffleKey} CommitFinished, just return the response")
@@ -380,11 +365,8 @@ private[deploy] class Controller(
         return
       } else if (commitInfo.status == CommitInfo.COMMIT_INPROCESS) {
         logInfo(s"${shuffleKey} CommitFiles inprogress, wait for finish")
-        commitThreadPool.submit(new Runnable {
-          override def run(): Unit = {
-            waitForCommitFinish()
-          }
-        })
+        // the commit is bounded by shuffleCommitTimeout, after which it finishes with failure
+        commitInfo.whenFinished(response => context.reply(response))
         return
       } else {
         logInfo(s"Start commitFiles for ${shuffleKey}")
@@ -520,10 +502,7 @@ private[deploy] class Controller(
       if (testRetryCommitFiles) {
         Thread.sleep(5000)
       }
-      commitInfo.synchronized {
-        commitInfo.response = response
-        commitInfo.status = CommitInfo.COMMIT_FINISHED
-      }
+      commitInfo.finish(response)
       context.reply(response)
 
       workerSource.stopTimer(WorkerSource.COMMIT_FILES_TIME, shuffleKey)
@@ -562,16 +541,12 @@ private[deploy] class Controller(
                 case throwable: Throwable =>
                   logError("While handling commitFiles, exception occurs.", throwable)
               }
-              commitInfo.synchronized {
-                commitInfo.response = CommitFilesResponse(
-                  StatusCode.COMMIT_FILE_EXCEPTION,
-                  List.empty.asJava,
-                  List.empty.asJava,
-                  primaryIds,
-                  replicaIds)
-
-                commitInfo.status = CommitInfo.COMMIT_FINISHED
-              }
+              commitInfo.finish(CommitFilesResponse(
+                StatusCode.COMMIT_FILE_EXCEPTION,
+                List.empty.asJava,
+                List.empty.asJava,
+                primaryIds,
+                replicaIds))
             } else {
               // finish, cancel timeout job first.
               timeout.cancel()
@@ -27,7 +27,7 @@ import com.google.common.base.Throwables
 import io.netty.util.concurrent.{Future, GenericFutureListener}
 
 import org.apache.celeborn.common.CelebornConf
-import org.apache.celeborn.common.CelebornConf.MAX_CHUNKS_BEING_TRANSFERRED
+import org.apache.celeborn.common.CelebornConf.{MAX_CHUNKS_BEING_TRANSFERRED, WORKER_FETCH_APPLICATION_MAX_BYTES_BEING_TRANSFERRED, WORKER_FETCH_CLIENT_MAX_BYTES_BEING_TRANSFERRED}
 import org.apache.celeborn.common.internal.Logging
 import org.apache.celeborn.common.meta.{FileInfo, FileManagedBuffers}
 import org.apache.celeborn.common.network.buffer.NioManagedBuffer
@@ -45,6 +45,10 @@ class FetchHandler(val conf: CelebornConf, val transportConf: TransportConf)
 
   val chunkStreamManager = new ChunkStreamManager()
   val maxChunkBeingTransferred: Option[Long] = conf.shuffleIoMaxChunksBeingTransferred
+  val clientMaxBytesBeingTransferred: Option[Long] =
+    conf.workerFetchClientMaxBytesBeingTransferred
+  val applicationMaxBytesBeingTransferred: Option[Long] =
+    conf.workerFetchApplicationMaxBytesBeingTransferred
 
   val creditStreamManager = new CreditStreamManager(
     conf.partitionReadBuffersMin,
@@ -123,7 +127,12 @@ class FetchHandler(val conf: CelebornConf, val transportConf: TransportConf)
         case PartitionType.REDUCE =>
           val startMapIndex = msg.asInstanceOf[OpenStream].startMapIndex
           val endMapIndex = msg.asInstanceOf[OpenStream].endMapIndex
-          if (endMapIndex != Integer.MAX_VALUE) {
+          // range reads of an object use its block index, the object is not sorted
+          if (endMapIndex != Integer.MAX_VALUE && !fileInfo.isOss) {
+            if (fileInfo.isMemoryResident) {
+              // the sorter reads the file from disk
+              storageManager.spillMemoryFile(fileInfo)
+            }
             fileInfo = partitionsSorter.getSortedFileInfo(
               shuffleKey,
               fileName,
@@ -133,7 +142,7 @@ class FetchHandler(val conf: CelebornConf, val transportConf: TransportConf)
           }
           logDebug(s"Received chunk fetch request $shuffleKey $fileName " +
             s"$startMapIndex $endMapIndex get file info $fileInfo")
-          if (fileInfo.isHdfs) {
+          if (fileInfo.isHdfs || fileInfo.isOss) {
             val streamHandle = new StreamHandle(0, 0)
             client.getChannel.writeAndFlush(new RpcResponse(
               request.requestId,
@@ -219,7 +228,7 @@ class FetchHandler(val conf: CelebornConf, val transportConf: TransportConf)
       s" to fetch block ${req.streamChunkSlice}")
 
     maxChunkBeingTransferred.foreach { threshold =>
-      val chunksBeingTransferred = chunkStreamManager.chunksBeingTransferred // take high cpu usage
+      val chunksBeingTransferred = chunkStreamManager.chunksBeingTransferred
       if (chunksBeingTransferred > threshold) {
         val message = "Worker is too busy. The number of chunks being transferred " +
           s"$chunksBeingTransferred exceeds ${MAX_CHUNKS_BEING_TRANSFERRED.key} " +
@@ -229,6 +238,34 @@ class FetchHandler(val conf: CelebornConf, val transportConf: TransportConf)
         return
       }
     }
+    // a client or an application is refused more chunks until some of its chunks are sent
+    clientMaxBytesBeingTransferred.foreach { threshold =>
+      val bytesBeingTransferred = chunkStreamManager.clientBytesBeingTransferred(client.getChannel)
+      if (bytesBeingTransferred >= threshold) {
+        val message = s"Client ${NettyUtils.getRemoteAddress(client.getChannel)} is fetching " +
+          "too much. The bytes being transferred to it " +
+          s"${Utils.bytesToString(bytesBeingTransferred)} reach " +
+          s"${WORKER_FETCH_CLIENT_MAX_BYTES_BEING_TRANSFERRED.key} " +
+          s"${Utils.bytesToString(threshold)}."
+        logWarning(message)
+        client.getChannel.writeAndFlush(new ChunkFetchFailure(req.streamChunkSlice, message))
+        return
+      }
+    }
+    applicationMaxBytesBeingTransferred.foreach { threshold =>
+      val bytesBeingTransferred =
+        chunkStreamManager.applicationBytesBeingTransferred(req.streamChunkSlice.streamId)
+      if (bytesBeingTransferred >= threshold) {
+        val message = s"Application of stream ${req.streamChunkSlice.streamId} is fetching too " +
+          "much. The bytes being transferred to it " +
+          s"${Utils.bytesToString(bytesBeingTransferred)} reach " +
+          s"${WORKER_FETCH_APPLICATION_MAX_BYTES_BEING_TRANSFERRED.key} " +
+          s"${Utils.bytesToString(threshold)}."
+        logWarning(message)
+        client.getChannel.writeAndFlush(new ChunkFetchFailure(req.streamChunkSlice, message))
+        return
+      }
+    }
 
     workerSource.startTimer(WorkerSource.FETCH_CHUNK_TIME, req.toString)
     val fetchTimeMetric = chunkStreamManager.getFetchTimeMetric(req.streamChunkSlice.streamId)
@@ -239,11 +276,15 @@ class FetchHandler(val conf: CelebornConf, val transportConf: TransportConf)
         req.streamChunkSlice.chunkIndex,
         req.streamChunkSlice.offset,
         req.streamChunkSlice.len)
-      chunkStreamManager.chunkBeingSent(req.streamChunkSlice.streamId)
+      val transfer =
+        chunkStreamManager.chunkBeingSent(
+          req.streamChunkSlice.streamId,
+          client.getChannel,
+          buf.size())
       client.getChannel.writeAndFlush(new ChunkFetchSuccess(req.streamChunkSlice, buf))
         .addListener(new GenericFutureListener[Future[_ >: Void]] {
           override def operationComplete(future: Future[_ >: Void]): Unit = {
-            chunkStreamManager.chunkSent(req.streamChunkSlice.streamId)
+            chunkStreamManager.chunkSent(transfer)
             if (fetchTimeMetric != null) {
               fetchTimeMetric.update(System.nanoTime() - fetchBeginTime)
             }
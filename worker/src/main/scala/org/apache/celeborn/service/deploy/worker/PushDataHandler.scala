@@ -38,7 +38,7 @@ import org.apache.celeborn.common.protocol.message.StatusCode
 import org.apache.celeborn.common.unsafe.Platform
 import org.apache.celeborn.common.util.Utils
 import org.apache.celeborn.service.deploy.worker.congestcontrol.CongestionController
-import org.apache.celeborn.service.deploy.worker.storage.{FileWriter, HdfsFlusher, LocalFlusher, MapPartitionFileWriter, StorageManager}
+import org.apache.celeborn.service.deploy.worker.storage.{FileWriter, LocalFlusher, MapPartitionFileWriter, StorageManager}
 
 class PushDataHandler extends BaseMessageHandler with Logging {
 
@@ -162,7 +162,14 @@ class PushDataHandler extends BaseMessageHandler with Logging {
 
     // find FileWriter responsible for the data
     val location =
-      if (isPrimary) {
+      if (pushData.keyDictionary != null) {
+        partitionLocationInfo.getLocation(
+          shuffleKey,
+          pushData.partitionUniqueId,
+          mode,
+          pushData.keyDictionary,
+          pushData.partitionKeyId)
+      } else if (isPrimary) {
         partitionLocationInfo.getPrimaryLocation(shuffleKey, pushData.partitionUniqueId)
       } else {
         partitionLocationInfo.getReplicaLocation(shuffleKey, pushData.partitionUniqueId)
@@ -420,7 +427,14 @@ class PushDataHandler extends BaseMessageHandler with Logging {
     }
 
     val partitionIdToLocations =
-      if (isPrimary) {
+      if (pushMergedData.keyDictionary != null) {
+        partitionLocationInfo.getLocations(
+          shuffleKey,
+          pushMergedData.partitionUniqueIds,
+          mode,
+          pushMergedData.keyDictionary,
+          pushMergedData.partitionKeyIds)
+      } else if (isPrimary) {
         partitionLocationInfo.getPrimaryLocations(shuffleKey, pushMergedData.partitionUniqueIds)
       } else {
         partitionLocationInfo.getReplicaLocations(shuffleKey, pushMergedData.partitionUniqueIds)
@@ -759,7 +773,14 @@ class PushDataHandler extends BaseMessageHandler with Logging {
 
     // find FileWriter responsible for the data
     val location =
-      if (isPrimary) {
+      if (pushData.keyDictionary != null) {
+        partitionLocationInfo.getLocation(
+          shuffleKey,
+          pushData.partitionUniqueId,
+          mode,
+          pushData.keyDictionary,
+          pushData.partitionKeyId)
+      } else if (isPrimary) {
         partitionLocationInfo.getPrimaryLocation(shuffleKey, pushData.partitionUniqueId)
       } else {
         partitionLocationInfo.getReplicaLocation(shuffleKey, pushData.partitionUniqueId)
@@ -1065,7 +1086,7 @@ class PushDataHandler extends BaseMessageHandler with Logging {
   }
 
   private def checkDiskFull(fileWriter: FileWriter): Boolean = {
-    if (fileWriter.flusher.isInstanceOf[HdfsFlusher]) {
+    if (!fileWriter.flusher.isInstanceOf[LocalFlusher]) {
       return false
     }
     val diskFull = workerInfo.diskInfos
@@ -243,8 +243,12 @@ private[celeborn] class Worker(
 
   val replicateThreadPool: ThreadPoolExecutor =
     ThreadUtils.newDaemonCachedThreadPool("worker-replicate-data", conf.workerReplicateThreads)
-  val commitThreadPool: ThreadPoolExecutor =
-    ThreadUtils.newDaemonCachedThreadPool("Worker-CommitFiles", conf.workerCommitThreads)
+  // closing a file writer may block while holding its flush lock
+  val commitThreadPool: ExecutorService = ThreadUtils.newDaemonBlockingTaskExecutor(
+    "Worker-CommitFiles",
+    conf.workerCommitThreads,
+    conf.workerVirtualThreadsEnabled,
+    boundOnVirtualThreads = true)
   val asyncReplyPool: ScheduledExecutorService =
     ThreadUtils.newDaemonSingleThreadScheduledExecutor("async-reply")
   val timer = new HashedWheelTimer()
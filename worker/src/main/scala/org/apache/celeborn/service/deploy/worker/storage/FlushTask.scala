@@ -17,6 +17,7 @@
 
 package org.apache.celeborn.service.deploy.worker.storage
 
+import java.nio.ByteBuffer
 import java.nio.channels.FileChannel
 
 import io.netty.buffer.{ByteBufUtil, CompositeByteBuf}
@@ -30,13 +31,22 @@ abstract private[worker] class FlushTask(
 
 private[worker] class LocalFlushTask(
     buffer: CompositeByteBuf,
-    fileChannel: FileChannel,
+    val fileChannel: FileChannel,
     notifier: FlushNotifier) extends FlushTask(buffer, notifier) {
   override def flush(): Unit = {
-    val buffers = buffer.nioBuffers()
-    for (buffer <- buffers) {
-      while (buffer.hasRemaining) {
-        fileChannel.write(buffer)
+    LocalFlushTask.writeFully(fileChannel, buffer.nioBuffers())
+  }
+}
+
+private[worker] object LocalFlushTask {
+
+  /** Writes the buffers with gathering writes, i.e. one writev call for all of them if possible. */
+  def writeFully(fileChannel: FileChannel, buffers: Array[ByteBuffer]): Unit = {
+    var offset = 0
+    while (offset < buffers.length) {
+      fileChannel.write(buffers, offset, buffers.length - offset)
+      while (offset < buffers.length && !buffers(offset).hasRemaining) {
+        offset += 1
       }
     }
   }
@@ -52,3 +62,13 @@ private[worker] class HdfsFlushTask(
     hdfsStream.close()
   }
 }
+
+private[worker] class OssFlushTask(
+    buffer: CompositeByteBuf,
+    upload: MultipartUpload,
+    partNumber: Int,
+    notifier: FlushNotifier) extends FlushTask(buffer, notifier) {
+  override def flush(): Unit = {
+    upload.uploadPart(partNumber, buffer.nioBuffers())
+  }
+}
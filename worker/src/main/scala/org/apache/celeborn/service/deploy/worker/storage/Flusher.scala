@@ -18,11 +18,14 @@
 package org.apache.celeborn.service.deploy.worker.storage
 
 import java.io.IOException
-import java.nio.channels.ClosedByInterruptException
+import java.nio.ByteBuffer
+import java.nio.channels.{ClosedByInterruptException, FileChannel}
+import java.util
 import java.util.concurrent.{LinkedBlockingQueue, TimeUnit}
 import java.util.concurrent.atomic.{AtomicBoolean, AtomicLongArray}
 
 import scala.collection.JavaConverters._
+import scala.collection.mutable.ArrayBuffer
 import scala.util.Random
 
 import io.netty.buffer.{CompositeByteBuf, PooledByteBufAllocator, Unpooled}
@@ -40,7 +43,8 @@ abstract private[worker] class Flusher(
     val threadCount: Int,
     val allocator: PooledByteBufAllocator,
     val maxComponents: Int,
-    flushTimeMetric: TimeWindow) extends Logging {
+    flushTimeMetric: TimeWindow,
+    val maxBatchTasks: Int = 1) extends Logging {
   protected lazy val flusherId: Int = System.identityHashCode(this)
   protected val workingQueues = new Array[LinkedBlockingQueue[FlushTask]](threadCount)
   protected val bufferQueue = new LinkedBlockingQueue[CompositeByteBuf]()
@@ -60,29 +64,19 @@ abstract private[worker] class Flusher(
       workingQueues(index) = new LinkedBlockingQueue[FlushTask]()
       workers(index) = new Thread(s"$this-$index") {
         override def run(): Unit = {
+          val batch = new util.ArrayList[FlushTask](maxBatchTasks)
           while (!stopFlag.get()) {
             val task = workingQueues(index).take()
-            val key = s"Flusher-$this-${Random.nextInt()}"
-            workerSource.sample(WorkerSource.FLUSH_DATA_TIME, key) {
-              if (!task.notifier.hasException) {
-                try {
-                  val flushBeginTime = System.nanoTime()
-                  lastBeginFlushTime.set(index, flushBeginTime)
-                  task.flush()
-                  if (flushTimeMetric != null) {
-                    val delta = System.nanoTime() - flushBeginTime
-                    flushTimeMetric.update(delta)
-                  }
-                } catch {
-                  case _: ClosedByInterruptException =>
-                  case e: IOException =>
-                    task.notifier.setException(e)
-                    processIOException(e, DiskStatus.READ_OR_WRITE_FAILURE)
-                }
-                lastBeginFlushTime.set(index, -1)
+            if (maxBatchTasks > 1) {
+              batch.add(task)
+              workingQueues(index).drainTo(batch, maxBatchTasks - 1)
+              try {
+                flushBatch(index, batch)
+              } finally {
+                batch.clear()
               }
-              returnBuffer(task.buffer)
-              task.notifier.numPendingFlushes.decrementAndGet()
+            } else {
+              flushTask(index, task)
             }
           }
         }
@@ -97,6 +91,83 @@ abstract private[worker] class Flusher(
     }
   }
 
+  private def flushTask(index: Int, task: FlushTask): Unit = {
+    val key = s"Flusher-$this-${Random.nextInt()}"
+    workerSource.sample(WorkerSource.FLUSH_DATA_TIME, key) {
+      if (!task.notifier.hasException) {
+        try {
+          val flushBeginTime = System.nanoTime()
+          lastBeginFlushTime.set(index, flushBeginTime)
+          task.flush()
+          if (flushTimeMetric != null) {
+            val delta = System.nanoTime() - flushBeginTime
+            flushTimeMetric.update(delta)
+          }
+        } catch {
+          case _: ClosedByInterruptException =>
+          case e: IOException =>
+            task.notifier.setException(e)
+            processIOException(e, DiskStatus.READ_OR_WRITE_FAILURE)
+        }
+        lastBeginFlushTime.set(index, -1)
+      }
+      returnBuffer(task.buffer)
+      task.notifier.numPendingFlushes.decrementAndGet()
+    }
+  }
+
+  /**
+   * Flushes the tasks taken in one wakeup. The tasks of a file are always queued to the same
+   * worker, so the tasks of each file are in order and are written with one gathering write.
+   */
+  private def flushBatch(index: Int, tasks: util.ArrayList[FlushTask]): Unit = {
+    val tasksByFile = new util.LinkedHashMap[FileChannel, ArrayBuffer[LocalFlushTask]]()
+    tasks.asScala.foreach {
+      case task: LocalFlushTask if !task.notifier.hasException =>
+        var fileTasks = tasksByFile.get(task.fileChannel)
+        if (fileTasks == null) {
+          fileTasks = new ArrayBuffer[LocalFlushTask](1)
+          tasksByFile.put(task.fileChannel, fileTasks)
+        }
+        fileTasks += task
+      case task: LocalFlushTask =>
+        returnBuffer(task.buffer)
+        task.notifier.numPendingFlushes.decrementAndGet()
+      case task =>
+        flushTask(index, task)
+    }
+    tasksByFile.asScala.foreach { case (fileChannel, fileTasks) =>
+      val key = s"Flusher-$this-${Random.nextInt()}"
+      workerSource.sample(WorkerSource.FLUSH_DATA_TIME, key) {
+        try {
+          val flushBeginTime = System.nanoTime()
+          lastBeginFlushTime.set(index, flushBeginTime)
+          if (fileTasks.size == 1) {
+            fileTasks.head.flush()
+          } else {
+            val buffers = new ArrayBuffer[ByteBuffer]()
+            fileTasks.foreach(task => buffers ++= task.buffer.nioBuffers())
+            LocalFlushTask.writeFully(fileChannel, buffers.toArray)
+          }
+          if (flushTimeMetric != null) {
+            val delta = System.nanoTime() - flushBeginTime
+            flushTimeMetric.update(delta)
+          }
+        } catch {
+          case _: ClosedByInterruptException =>
+          case e: IOException =>
+            fileTasks.foreach(_.notifier.setException(e))
+            processIOException(e, DiskStatus.READ_OR_WRITE_FAILURE)
+        }
+        lastBeginFlushTime.set(index, -1)
+        fileTasks.foreach { task =>
+          returnBuffer(task.buffer)
+          task.notifier.numPendingFlushes.decrementAndGet()
+        }
+      }
+    }
+  }
+
   def getWorkerIndex: Int = synchronized {
     nextWorkerIndex = (nextWorkerIndex + 1) % threadCount
     nextWorkerIndex
@@ -153,12 +224,14 @@ private[worker] class LocalFlusher(
     maxComponents: Int,
     val mountPoint: String,
     val diskType: StorageInfo.Type,
-    timeWindow: TimeWindow) extends Flusher(
+    timeWindow: TimeWindow,
+    maxBatchTasks: Int) extends Flusher(
     workerSource,
     threadCount,
     allocator,
     maxComponents,
-    timeWindow)
+    timeWindow,
+    maxBatchTasks)
   with DeviceObserver with Logging {
 
   deviceMonitor.registerFlusher(this)
@@ -204,3 +277,21 @@ final private[worker] class HdfsFlusher(
   }
 
 }
+
+final private[worker] class OssFlusher(
+    workerSource: AbstractSource,
+    ossFlusherThreads: Int,
+    allocator: PooledByteBufAllocator,
+    maxComponents: Int) extends Flusher(
+    workerSource,
+    ossFlusherThreads,
+    allocator,
+    maxComponents,
+    null) with Logging {
+  override def toString: String = s"OssFlusher@$flusherId"
+
+  override def processIOException(e: IOException, deviceErrorType: DiskStatus): Unit = {
+    // the failure of an upload only fails its file
+    logError(s"$this write failed, reason $deviceErrorType, exception: $e")
+  }
+}
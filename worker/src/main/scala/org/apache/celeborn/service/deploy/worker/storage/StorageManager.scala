@@ -40,6 +40,7 @@ import org.apache.celeborn.common.internal.Logging
 import org.apache.celeborn.common.meta.{DeviceInfo, DiskInfo, DiskStatus, FileInfo, TimeWindow}
 import org.apache.celeborn.common.metrics.source.AbstractSource
 import org.apache.celeborn.common.network.util.{NettyUtils, TransportConf}
+import org.apache.celeborn.common.oss.ObjectStore
 import org.apache.celeborn.common.protocol.{PartitionLocation, PartitionSplitMode, PartitionType}
 import org.apache.celeborn.common.quota.ResourceConsumption
 import org.apache.celeborn.common.util.{CelebornExitKind, CelebornHadoopUtils, JavaUtils, PbSerDeUtils, ThreadUtils, Utils}
@@ -54,6 +55,7 @@ final private[worker] class StorageManager(conf: CelebornConf, workerSource: Abs
     JavaUtils.newConcurrentHashMap[File, ConcurrentHashMap[String, FileWriter]]()
 
   val hasHDFSStorage = conf.hasHDFSStorage
+  val hasOssStorage = conf.hasOssStorage
 
   // (deviceName -> deviceInfo) and (mount point -> diskInfo)
   val (deviceInfos, diskInfos) = {
@@ -62,7 +64,7 @@ final private[worker] class StorageManager(conf: CelebornConf, workerSource: Abs
         (new File(workdir, conf.workerWorkingDir), maxSpace, flusherThread, storageType)
       }
 
-    if (workingDirInfos.size <= 0 && !hasHDFSStorage) {
+    if (workingDirInfos.size <= 0 && !conf.hasRemoteStorage) {
       throw new IOException("Empty working directory configuration!")
     }
 
@@ -116,7 +118,8 @@ final private[worker] class StorageManager(conf: CelebornConf, workerSource: Abs
           conf.workerPushMaxComponents,
           diskInfo.mountPoint,
           diskInfo.storageType,
-          diskInfo.flushTimeMetrics)
+          diskInfo.flushTimeMetrics,
+          conf.workerFlusherBatchMaxTasks)
         flushers.put(diskInfo.mountPoint, flusher)
         totalThread = totalThread + diskInfo.threadCount
       }
@@ -144,7 +147,26 @@ final private[worker] class StorageManager(conf: CelebornConf, workerSource: Abs
       (None, 0)
     }
 
-  def totalFlusherThread: Int = _totalLocalFlusherThread + _totalHdfsFlusherThread
+  val ossDir = conf.ossDir
+  val ossWriters = JavaUtils.newConcurrentHashMap[String, FileWriter]()
+  private val ossMinPartitionEpoch = conf.workerStorageOssMinPartitionEpoch
+  val (ossFlusher, _totalOssFlusherThread) =
+    if (hasOssStorage) {
+      logInfo(s"Initialize OSS support with path ${ossDir}")
+      StorageManager.objectStore = ObjectStore.instantiate(conf)
+      (
+        Some(new OssFlusher(
+          workerSource,
+          conf.workerOssFlusherThreads,
+          byteBufAllocator,
+          conf.workerPushMaxComponents)),
+        conf.workerOssFlusherThreads)
+    } else {
+      (None, 0)
+    }
+
+  def totalFlusherThread: Int =
+    _totalLocalFlusherThread + _totalHdfsFlusherThread + _totalOssFlusherThread
 
   override def notifyError(mountPoint: String, diskStatus: DiskStatus): Unit = this.synchronized {
     if (diskStatus == DiskStatus.CRITICAL_ERROR) {
@@ -254,6 +276,15 @@ final private[worker] class StorageManager(conf: CelebornConf, workerSource: Abs
         JavaUtils.newConcurrentHashMap[String, FileWriter]()
     }
 
+  /**
+   * Whether a location is stored on the object store although the worker has local disks, i.e.
+   * it is a late epoch of a partition which has been split or revived many times.
+   */
+  private def placeOnOss(location: PartitionLocation, partitionType: PartitionType): Boolean = {
+    ossFlusher.nonEmpty && partitionType == PartitionType.REDUCE &&
+    ossMinPartitionEpoch > 0 && location.getEpoch >= ossMinPartitionEpoch
+  }
+
   @throws[IOException]
   def createWriter(
       appId: String,
@@ -264,7 +295,7 @@ final private[worker] class StorageManager(conf: CelebornConf, workerSource: Abs
       partitionType: PartitionType,
       rangeReadFilter: Boolean,
       userIdentifier: UserIdentifier): FileWriter = {
-    if (healthyWorkingDirs().size <= 0 && !hasHDFSStorage) {
+    if (healthyWorkingDirs().size <= 0 && !conf.hasRemoteStorage) {
       throw new IOException("No available working dirs!")
     }
 
@@ -282,11 +313,33 @@ final private[worker] class StorageManager(conf: CelebornConf, workerSource: Abs
             s" working dirs. diskInfo $diskInfo")
           healthyWorkingDirs()
         }
-      if (dirs.isEmpty && hdfsFlusher.isEmpty) {
+      if (dirs.isEmpty && hdfsFlusher.isEmpty && ossFlusher.isEmpty) {
         throw new IOException(s"No available disks! suggested mountPoint $suggestedMountPoint")
       }
       val shuffleKey = Utils.makeShuffleKey(appId, shuffleId)
-      if (dirs.isEmpty) {
+      if ((dirs.isEmpty && hdfsFlusher.isEmpty) || placeOnOss(location, partitionType)) {
+        val fileInfo = new FileInfo(
+          s"$ossDir/${conf.workerWorkingDir}/$appId/$shuffleId/$fileName",
+          userIdentifier,
+          partitionType,
+          true)
+        val ossWriter = partitionType match {
+          case PartitionType.REDUCE => new ReducePartitionFileWriter(
+              fileInfo,
+              ossFlusher.get,
+              workerSource,
+              conf,
+              deviceMonitor,
+              splitThreshold,
+              splitMode,
+              rangeReadFilter)
+          case _ => throw new UnsupportedOperationException(s"Not support $partitionType on OSS")
+        }
+
+        fileInfos.computeIfAbsent(shuffleKey, newMapFunc).put(fileName, fileInfo)
+        ossWriters.put(fileInfo.getFilePath, ossWriter)
+        return ossWriter
+      } else if (dirs.isEmpty) {
         val shuffleDir =
           new Path(new Path(hdfsDir, conf.workerWorkingDir), s"$appId/$shuffleId")
         FileSystem.mkdirs(StorageManager.hadoopFs, shuffleDir, hdfsPermission)
@@ -439,6 +492,12 @@ final private[worker] class StorageManager(conf: CelebornConf, workerSource: Abs
           s"Destroy FileWriter ${hdfsFileWriter} caused by shuffle ${shuffleKey} expired."))
         hdfsWriters.remove(fileInfo.getFilePath)
       }
+    } else if (fileInfo.isOss) {
+      val ossFileWriter = ossWriters.remove(fileInfo.getFilePath)
+      if (ossFileWriter != null) {
+        ossFileWriter.destroy(new IOException(
+          s"Destroy FileWriter ${ossFileWriter} caused by shuffle ${shuffleKey} expired."))
+      }
     } else {
       val workingDir =
         fileInfo.getFile.getParentFile.getParentFile.getParentFile
@@ -456,6 +515,29 @@ final private[worker] class StorageManager(conf: CelebornConf, workerSource: Abs
     isHdfsExpired
   }
 
+  def spillMemoryFile(fileInfo: FileInfo): Unit = {
+    val workingDir = fileInfo.getFile.getParentFile.getParentFile.getParentFile
+    val writers = workingDirWriters.get(workingDir)
+    if (writers != null) {
+      val fileWriter = writers.get(fileInfo.getFilePath)
+      if (fileWriter != null) {
+        fileWriter.spillMemoryFile()
+      }
+    }
+  }
+
+  private def spillMemoryFiles(): Unit = {
+    workingDirWriters.values().asScala.foreach { writers =>
+      writers.values().asScala.foreach { writer =>
+        try {
+          writer.spillMemoryFile()
+        } catch {
+          case e: IOException => logWarning(s"Spill memory file of $writer failed.", e)
+        }
+      }
+    }
+  }
+
   def cleanupExpiredShuffleKey(expiredShuffleKeys: util.HashSet[String]): Unit = {
     expiredShuffleKeys.asScala.foreach { shuffleKey =>
       logInfo(s"Cleanup expired shuffle $shuffleKey.")
@@ -486,6 +568,14 @@ final private[worker] class StorageManager(conf: CelebornConf, workerSource: Abs
             case e: Exception => logWarning("Clean expired HDFS shuffle failed.", e)
           }
         }
+        if (removedFileInfos != null && removedFileInfos.values().asScala.exists(_.isOss)) {
+          try {
+            StorageManager.objectStore.deleteDirectory(
+              s"$ossDir/${conf.workerWorkingDir}/$appId/$shuffleId")
+          } catch {
+            case e: Exception => logWarning("Clean expired OSS shuffle failed.", e)
+          }
+        }
       }
     }
   }
@@ -607,6 +697,8 @@ final private[worker] class StorageManager(conf: CelebornConf, workerSource: Abs
     if (db != null) {
       if (exitKind == CelebornExitKind.WORKER_GRACEFUL_SHUTDOWN) {
         try {
+          // files kept in memory are recovered from disk
+          spillMemoryFiles()
           updateFileInfosInDB()
           db.close()
         } catch {
@@ -624,6 +716,9 @@ final private[worker] class StorageManager(conf: CelebornConf, workerSource: Abs
       if (exitKind != CelebornExitKind.WORKER_GRACEFUL_SHUTDOWN) {
         cleanupExpiredShuffleKey(shuffleKeySet())
       }
+    }
+    // workers storing on HDFS or OSS only have no disk operators
+    if (null != diskOperators && !diskOperators.isEmpty) {
       ThreadUtils.parmap(
         diskOperators.asScala.toMap,
         "ShutdownDiskOperators",
@@ -666,6 +761,11 @@ final private[worker] class StorageManager(conf: CelebornConf, workerSource: Abs
         u.flushOnMemoryPressure();
       }
     })
+    ossWriters.forEach(new BiConsumer[String, FileWriter] {
+      override def accept(t: String, u: FileWriter): Unit = {
+        u.flushOnMemoryPressure();
+      }
+    })
   }
 
   override def onPause(moduleName: String): Unit = {}
@@ -724,7 +824,8 @@ final private[worker] class StorageManager(conf: CelebornConf, workerSource: Abs
           // collect resource consumed by each user on this worker
           val resourceConsumption = {
             val userFileInfos = userWithFileInfoList.map(_._2)
-            val diskFileInfos = userFileInfos.filter(!_.isHdfs)
+            val diskFileInfos =
+              userFileInfos.filter(fileInfo => !fileInfo.isHdfs && !fileInfo.isOss)
             val hdfsFileInfos = userFileInfos.filter(_.isHdfs)
 
             val diskBytesWritten = diskFileInfos.map(_.getFileLength).sum
@@ -741,4 +842,5 @@ final private[worker] class StorageManager(conf: CelebornConf, workerSource: Abs
 
 object StorageManager {
   var hadoopFs: FileSystem = _
+  var objectStore: ObjectStore = _
 }
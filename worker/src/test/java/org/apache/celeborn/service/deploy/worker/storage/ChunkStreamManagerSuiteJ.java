@@ -20,6 +20,7 @@ package org.apache.celeborn.service.deploy.worker.storage;
 import java.util.Arrays;
 import java.util.HashSet;
 
+import io.netty.channel.Channel;
 import org.junit.Assert;
 import org.junit.Test;
 import org.mockito.Mockito;
@@ -62,4 +63,43 @@ public class ChunkStreamManagerSuiteJ {
     manager.cleanupExpiredShuffleKey(new HashSet<>(Arrays.asList("shuffleKey3")));
     Assert.assertEquals(manager.numStreamStates(), manager.numShuffleSteams());
   }
+
+  @Test
+  public void testChunksBeingTransferred() {
+    ChunkStreamManager manager = new ChunkStreamManager();
+    Channel client1 = Mockito.mock(Channel.class);
+    Channel client2 = Mockito.mock(Channel.class);
+
+    long stream1 = manager.registerStream("app-1-0", Mockito.mock(FileManagedBuffers.class), null);
+    long stream2 = manager.registerStream("app-1-1", Mockito.mock(FileManagedBuffers.class), null);
+    long stream3 = manager.registerStream("app2-0", Mockito.mock(FileManagedBuffers.class), null);
+
+    ChunkStreamManager.ChunkTransfer transfer1 = manager.chunkBeingSent(stream1, client1, 100);
+    ChunkStreamManager.ChunkTransfer transfer2 = manager.chunkBeingSent(stream2, client1, 200);
+    ChunkStreamManager.ChunkTransfer transfer3 = manager.chunkBeingSent(stream3, client2, 400);
+    Assert.assertEquals(3, manager.chunksBeingTransferred());
+    Assert.assertEquals(300, manager.clientBytesBeingTransferred(client1));
+    Assert.assertEquals(400, manager.clientBytesBeingTransferred(client2));
+    // streams of the shuffles of an application share its bytes
+    Assert.assertEquals(300, manager.applicationBytesBeingTransferred(stream1));
+    Assert.assertEquals(300, manager.applicationBytesBeingTransferred(stream2));
+    Assert.assertEquals(400, manager.applicationBytesBeingTransferred(stream3));
+
+    manager.chunkSent(transfer2);
+    Assert.assertEquals(2, manager.chunksBeingTransferred());
+    Assert.assertEquals(100, manager.clientBytesBeingTransferred(client1));
+    Assert.assertEquals(100, manager.applicationBytesBeingTransferred(stream1));
+
+    // chunks of removed streams are accounted until they are sent
+    manager.cleanupExpiredShuffleKey(new HashSet<>(Arrays.asList("app-1-0", "app2-0")));
+    Assert.assertEquals(2, manager.chunksBeingTransferred());
+    manager.chunkSent(transfer1);
+    manager.chunkSent(transfer3);
+    Assert.assertEquals(0, manager.chunksBeingTransferred());
+    Assert.assertEquals(0, manager.clientBytesBeingTransferred(client1));
+    Assert.assertEquals(0, manager.clientBytesBeingTransferred(client2));
+    Assert.assertEquals(0, manager.applicationBytesBeingTransferred(stream2));
+    Assert.assertTrue(manager.clientBytesBeingTransferred.isEmpty());
+    Assert.assertTrue(manager.applicationBytesBeingTransferred.isEmpty());
+  }
 }
@@ -17,6 +17,7 @@
 
 package org.apache.celeborn.service.deploy.worker.storage;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.fail;
@@ -26,6 +27,7 @@ import java.io.IOException;
 import java.net.InetAddress;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
@@ -124,7 +126,8 @@ public class FileWriterSuiteJ {
             256,
             "disk1",
             StorageInfo.Type.HDD,
-            null);
+            null,
+            1);
 
     CelebornConf conf = new CelebornConf();
     conf.set(CelebornConf.WORKER_DIRECT_MEMORY_RATIO_PAUSE_RECEIVE().key(), "0.8");
@@ -132,7 +135,8 @@ public class FileWriterSuiteJ {
     conf.set(CelebornConf.WORKER_DIRECT_MEMORY_RATIO_RESUME().key(), "0.5");
     conf.set(CelebornConf.PARTITION_SORTER_DIRECT_MEMORY_RATIO_THRESHOLD().key(), "0.6");
     conf.set(CelebornConf.WORKER_DIRECT_MEMORY_RATIO_FOR_READ_BUFFER().key(), "0.1");
-    conf.set(CelebornConf.WORKER_DIRECT_MEMORY_RATIO_FOR_SHUFFLE_STORAGE().key(), "0.1");
+    // files are written to disk, see MemoryFileWriterSuiteJ for files kept in memory
+    conf.set(CelebornConf.WORKER_DIRECT_MEMORY_RATIO_FOR_SHUFFLE_STORAGE().key(), "0.0");
     conf.set(CelebornConf.WORKER_DIRECT_MEMORY_CHECK_INTERVAL().key(), "10");
     conf.set(CelebornConf.WORKER_DIRECT_MEMORY_REPORT_INTERVAL().key(), "10");
     conf.set(CelebornConf.WORKER_READBUFFER_ALLOCATIONWAIT().key(), "10ms");
@@ -381,6 +385,76 @@ public class FileWriterSuiteJ {
     assertEquals(length.get(), bytesWritten);
   }
 
+  @Test
+  public void testBatchedFlush() throws Exception {
+    LocalFlusher batchedFlusher =
+        new LocalFlusher(
+            source,
+            DeviceMonitor$.MODULE$.EmptyMonitor(),
+            1,
+            NettyUtils.getPooledByteBufAllocator(new TransportConf("test", CONF), null, true),
+            256,
+            "disk3",
+            StorageInfo.Type.HDD,
+            null,
+            8);
+    // flush every few KiBs, so that the queue holds tasks of several files at once
+    CelebornConf conf = CONF.clone();
+    conf.set(CelebornConf.WORKER_FLUSHER_BUFFER_SIZE().key(), "4k");
+
+    final int numWriters = 8;
+    List<File> files = new ArrayList<>();
+    List<FileWriter> fileWriters = new ArrayList<>();
+    List<ByteBuffer> expected = new ArrayList<>();
+    for (int i = 0; i < numWriters; i++) {
+      File file = getTemporaryFile();
+      files.add(file);
+      fileWriters.add(
+          new ReducePartitionFileWriter(
+              new FileInfo(file, userIdentifier),
+              batchedFlusher,
+              source,
+              conf,
+              DeviceMonitor$.MODULE$.EmptyMonitor(),
+              SPLIT_THRESHOLD,
+              splitMode,
+              false));
+      expected.add(ByteBuffer.allocate(64 * 1024));
+    }
+
+    List<Future<?>> futures = new ArrayList<>();
+    ExecutorService es = ThreadUtils.newDaemonFixedThreadPool(numWriters, "FileWriter-UT-batch");
+    for (int i = 0; i < numWriters; i++) {
+      final int writerIndex = i;
+      futures.add(
+          es.submit(
+              () -> {
+                ByteBuffer written = expected.get(writerIndex);
+                while (written.remaining() >= 1024) {
+                  byte[] bytes = new byte[ThreadLocalRandom.current().nextInt(1, 1024)];
+                  ThreadLocalRandom.current().nextBytes(bytes);
+                  written.put(bytes);
+                  fileWriters.get(writerIndex).write(Unpooled.wrappedBuffer(bytes));
+                }
+                return null;
+              }));
+    }
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    es.shutdown();
+
+    for (int i = 0; i < numWriters; i++) {
+      ByteBuffer written = expected.get(i);
+      written.flip();
+      assertEquals(written.remaining(), fileWriters.get(i).close());
+      byte[] expectedBytes = new byte[written.remaining()];
+      written.get(expectedBytes);
+      assertArrayEquals(expectedBytes, Files.readAllBytes(files.get(i).toPath()));
+    }
+    batchedFlusher.stopAndCleanFlusher();
+  }
+
   @Test
   public void testHugeBufferQueueSize() throws IOException {
     File file = getTemporaryFile();
@@ -395,7 +469,8 @@ public class FileWriterSuiteJ {
             256,
             "disk2",
             StorageInfo.Type.HDD,
-            null);
+            null,
+            1);
   }
 
   @Test
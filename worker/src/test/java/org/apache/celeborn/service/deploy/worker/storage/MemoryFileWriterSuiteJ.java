@@ -0,0 +1,273 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.celeborn.service.deploy.worker.storage;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.UUID;
+
+import scala.Function0;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import org.apache.celeborn.common.CelebornConf;
+import org.apache.celeborn.common.identity.UserIdentifier;
+import org.apache.celeborn.common.meta.FileInfo;
+import org.apache.celeborn.common.meta.FileManagedBuffers;
+import org.apache.celeborn.common.network.buffer.FileSegmentManagedBuffer;
+import org.apache.celeborn.common.network.buffer.ManagedBuffer;
+import org.apache.celeborn.common.network.buffer.NettyManagedBuffer;
+import org.apache.celeborn.common.network.util.NettyUtils;
+import org.apache.celeborn.common.network.util.TransportConf;
+import org.apache.celeborn.common.protocol.PartitionSplitMode;
+import org.apache.celeborn.common.protocol.StorageInfo;
+import org.apache.celeborn.common.util.JavaUtils;
+import org.apache.celeborn.common.util.Utils;
+import org.apache.celeborn.service.deploy.worker.WorkerSource;
+import org.apache.celeborn.service.deploy.worker.memory.MemoryManager;
+
+public class MemoryFileWriterSuiteJ {
+
+  private static final CelebornConf CONF = new CelebornConf();
+  private static final long SPLIT_THRESHOLD = 256 * 1024 * 1024L;
+  private static final int MAX_FILE_SIZE = 64 * 1024;
+
+  private static File tempDir = null;
+  private static LocalFlusher localFlusher = null;
+  private static WorkerSource source = null;
+
+  private final UserIdentifier userIdentifier = new UserIdentifier("mock-tenantId", "mock-name");
+  private final TransportConf transportConf = new TransportConf("shuffle", CONF);
+
+  @BeforeClass
+  public static void beforeAll() {
+    tempDir = Utils.createTempDir(System.getProperty("java.io.tmpdir"), "celeborn");
+    CONF.set(CelebornConf.SHUFFLE_CHUNK_SIZE().key(), "4k");
+    CONF.set(CelebornConf.WORKER_FLUSHER_BUFFER_SIZE().key(), "1k");
+    CONF.set(CelebornConf.WORKER_MEMORY_FILE_STORAGE_MAX_FILE_SIZE().key(), "64k");
+
+    source = Mockito.mock(WorkerSource.class);
+    Mockito.doAnswer(
+            invocationOnMock -> {
+              Function0<?> function = (Function0<?>) invocationOnMock.getArguments()[2];
+              return function.apply();
+            })
+        .when(source)
+        .sample(Mockito.anyString(), Mockito.anyString(), Mockito.any(Function0.class));
+    localFlusher =
+        new LocalFlusher(
+            source,
+            DeviceMonitor$.MODULE$.EmptyMonitor(),
+            1,
+            NettyUtils.getPooledByteBufAllocator(new TransportConf("test", CONF), null, true),
+            256,
+            "disk1",
+            StorageInfo.Type.HDD,
+            null,
+            1);
+
+    CelebornConf conf = new CelebornConf();
+    conf.set(CelebornConf.WORKER_DIRECT_MEMORY_RATIO_PAUSE_RECEIVE().key(), "0.8");
+    conf.set(CelebornConf.WORKER_DIRECT_MEMORY_RATIO_PAUSE_REPLICATE().key(), "0.9");
+    conf.set(CelebornConf.WORKER_DIRECT_MEMORY_RATIO_RESUME().key(), "0.5");
+    conf.set(CelebornConf.PARTITION_SORTER_DIRECT_MEMORY_RATIO_THRESHOLD().key(), "0.6");
+    conf.set(CelebornConf.WORKER_DIRECT_MEMORY_RATIO_FOR_READ_BUFFER().key(), "0.1");
+    conf.set(CelebornConf.WORKER_DIRECT_MEMORY_RATIO_FOR_SHUFFLE_STORAGE().key(), "0.1");
+    conf.set(CelebornConf.WORKER_DIRECT_MEMORY_CHECK_INTERVAL().key(), "10");
+    conf.set(CelebornConf.WORKER_DIRECT_MEMORY_REPORT_INTERVAL().key(), "10");
+    conf.set(CelebornConf.WORKER_READBUFFER_ALLOCATIONWAIT().key(), "10ms");
+    MemoryManager.initialize(conf);
+  }
+
+  @AfterClass
+  public static void afterAll() throws IOException {
+    if (tempDir != null) {
+      JavaUtils.deleteRecursively(tempDir);
+      tempDir = null;
+    }
+  }
+
+  @Test
+  public void testServeFromMemoryAndSpill() throws IOException {
+    FileInfo fileInfo = new FileInfo(getTemporaryFile(), userIdentifier);
+    FileWriter fileWriter = createWriter(fileInfo);
+    long storageUsed = MemoryManager.instance().getMemoryFileStorageUsed();
+
+    byte[] data = write(fileWriter, 40, 512);
+    assertEquals(data.length, fileWriter.close());
+
+    // the committed file is kept in memory only
+    assertTrue(fileInfo.isMemoryResident());
+    assertEquals(StorageInfo.Type.MEMORY, fileWriter.getStorageInfo().getType());
+    assertEquals(0, fileInfo.getFile().length());
+    assertEquals(storageUsed + data.length, MemoryManager.instance().getMemoryFileStorageUsed());
+    FileManagedBuffers buffers = new FileManagedBuffers(fileInfo, transportConf);
+    assertArrayEquals(data, readChunks(fileInfo, buffers, NettyManagedBuffer.class));
+
+    fileWriter.spillMemoryFile();
+
+    assertFalse(fileInfo.isMemoryResident());
+    assertEquals(StorageInfo.Type.HDD, fileWriter.getStorageInfo().getType());
+    assertEquals(storageUsed, MemoryManager.instance().getMemoryFileStorageUsed());
+    assertArrayEquals(data, Files.readAllBytes(fileInfo.getFile().toPath()));
+    // streams opened before the spill read the file from disk from now on
+    assertArrayEquals(data, readChunks(fileInfo, buffers, FileSegmentManagedBuffer.class));
+  }
+
+  @Test
+  public void testKeepCopyOfPushedData() throws IOException {
+    FileInfo fileInfo = new FileInfo(getTemporaryFile(), userIdentifier);
+    FileWriter fileWriter = createWriter(fileInfo);
+    long storageUsed = MemoryManager.instance().getMemoryFileStorageUsed();
+
+    // a small partition of a large merged push
+    byte[] data = new byte[4 * 512];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = (byte) i;
+    }
+    ByteBuf body = Unpooled.buffer(64 * 1024).writeBytes(data).writerIndex(64 * 1024);
+    for (int i = 0; i < 4; i++) {
+      fileWriter.incrementPendingWrites();
+      fileWriter.write(body.slice(i * 512, 512));
+    }
+    assertEquals(data.length, fileWriter.close());
+
+    assertTrue(fileInfo.isMemoryResident());
+    assertEquals(1, body.refCnt());
+    assertEquals(storageUsed + data.length, MemoryManager.instance().getMemoryFileStorageUsed());
+    assertArrayEquals(
+        data,
+        readChunks(
+            fileInfo, new FileManagedBuffers(fileInfo, transportConf), NettyManagedBuffer.class));
+    body.release();
+    fileWriter.destroy(new IOException("Destroy FileWriter " + fileWriter));
+  }
+
+  @Test
+  public void testSpillLargeFileWhileWriting() throws IOException {
+    FileInfo fileInfo = new FileInfo(getTemporaryFile(), userIdentifier);
+    FileWriter fileWriter = createWriter(fileInfo);
+    long storageUsed = MemoryManager.instance().getMemoryFileStorageUsed();
+
+    byte[] data = write(fileWriter, 3 * MAX_FILE_SIZE / 512, 512);
+    assertEquals(data.length, fileWriter.close());
+
+    assertFalse(fileInfo.isMemoryResident());
+    assertEquals(StorageInfo.Type.HDD, fileWriter.getStorageInfo().getType());
+    assertEquals(storageUsed, MemoryManager.instance().getMemoryFileStorageUsed());
+    assertArrayEquals(data, Files.readAllBytes(fileInfo.getFile().toPath()));
+    assertArrayEquals(
+        data,
+        readChunks(
+            fileInfo,
+            new FileManagedBuffers(fileInfo, transportConf),
+            FileSegmentManagedBuffer.class));
+  }
+
+  @Test
+  public void testSpillOnMemoryPressure() throws IOException {
+    FileInfo fileInfo = new FileInfo(getTemporaryFile(), userIdentifier);
+    FileWriter fileWriter = createWriter(fileInfo);
+    long storageUsed = MemoryManager.instance().getMemoryFileStorageUsed();
+
+    byte[] head = write(fileWriter, 20, 512);
+    assertTrue(fileInfo.isMemoryResident());
+    fileWriter.flushOnMemoryPressure();
+    assertFalse(fileInfo.isMemoryResident());
+    assertEquals(storageUsed, MemoryManager.instance().getMemoryFileStorageUsed());
+
+    byte[] tail = write(fileWriter, 20, 512);
+    assertEquals(head.length + tail.length, fileWriter.close());
+
+    byte[] data = new byte[head.length + tail.length];
+    System.arraycopy(head, 0, data, 0, head.length);
+    System.arraycopy(tail, 0, data, head.length, tail.length);
+    assertArrayEquals(data, Files.readAllBytes(fileInfo.getFile().toPath()));
+  }
+
+  @Test
+  public void testDestroyReleasesMemory() throws IOException {
+    FileInfo fileInfo = new FileInfo(getTemporaryFile(), userIdentifier);
+    FileWriter fileWriter = createWriter(fileInfo);
+    long storageUsed = MemoryManager.instance().getMemoryFileStorageUsed();
+
+    write(fileWriter, 10, 512);
+    fileWriter.close();
+    assertTrue(fileInfo.isMemoryResident());
+
+    fileWriter.destroy(new IOException("Destroy FileWriter " + fileWriter));
+    assertFalse(fileInfo.isMemoryResident());
+    assertEquals(storageUsed, MemoryManager.instance().getMemoryFileStorageUsed());
+  }
+
+  private FileWriter createWriter(FileInfo fileInfo) throws IOException {
+    return new ReducePartitionFileWriter(
+        fileInfo,
+        localFlusher,
+        source,
+        CONF,
+        DeviceMonitor$.MODULE$.EmptyMonitor(),
+        SPLIT_THRESHOLD,
+        PartitionSplitMode.HARD,
+        false);
+  }
+
+  private byte[] write(FileWriter fileWriter, int numBatches, int batchSize) throws IOException {
+    byte[] data = new byte[numBatches * batchSize];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = (byte) i;
+    }
+    for (int i = 0; i < numBatches; i++) {
+      fileWriter.incrementPendingWrites();
+      fileWriter.write(Unpooled.wrappedBuffer(data, i * batchSize, batchSize));
+    }
+    return data;
+  }
+
+  private byte[] readChunks(
+      FileInfo fileInfo, FileManagedBuffers buffers, Class<? extends ManagedBuffer> bufferClass)
+      throws IOException {
+    ByteBuffer data = ByteBuffer.allocate((int) fileInfo.getFileLength());
+    for (int i = 0; i < buffers.numChunks(); i++) {
+      ManagedBuffer chunk = buffers.chunk(i, 0, Integer.MAX_VALUE);
+      assertEquals(bufferClass, chunk.getClass());
+      data.put(chunk.nioByteBuffer());
+      chunk.release();
+    }
+    assertEquals(data.capacity(), data.position());
+    return data.array();
+  }
+
+  private File getTemporaryFile() throws IOException {
+    File file = new File(tempDir, UUID.randomUUID().toString());
+    file.createNewFile();
+    return file;
+  }
+}
@@ -24,10 +24,15 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Random;
 
+import io.netty.buffer.Unpooled;
 import org.junit.Assert;
 import org.junit.Ignore;
 import org.junit.Test;
@@ -37,9 +42,17 @@ import org.slf4j.LoggerFactory;
 
 import org.apache.celeborn.common.CelebornConf;
 import org.apache.celeborn.common.identity.UserIdentifier;
+import org.apache.celeborn.common.meta.ChunkOffsets;
 import org.apache.celeborn.common.meta.FileInfo;
+import org.apache.celeborn.common.meta.FileManagedBuffers;
+import org.apache.celeborn.common.network.util.NettyUtils;
+import org.apache.celeborn.common.network.util.TransportConf;
+import org.apache.celeborn.common.protocol.PartitionSplitMode;
+import org.apache.celeborn.common.protocol.StorageInfo;
 import org.apache.celeborn.common.unsafe.Platform;
 import org.apache.celeborn.common.util.CelebornExitKind;
+import org.apache.celeborn.common.util.ShuffleBlockInfoUtils;
+import org.apache.celeborn.common.util.ShuffleBlockInfoUtils.ShuffleBlockInfo;
 import org.apache.celeborn.common.util.Utils;
 import org.apache.celeborn.service.deploy.worker.WorkerSource;
 import org.apache.celeborn.service.deploy.worker.memory.MemoryManager;
@@ -53,26 +66,64 @@ public class PartitionFilesSorterSuiteJ {
   public final int CHUNK_SIZE = 8 * 1024 * 1024;
   private String originFileName;
   private long originFileLen;
+  private Map<Integer, Long> mapIdBytes;
+  private Map<Integer, List<ShuffleBlockInfo>> originBlockInfos;
   private FileWriter fileWriter;
+  private static LocalFlusher localFlusher;
   private long sortTimeout = 16 * 1000;
   private UserIdentifier userIdentifier = new UserIdentifier("mock-tenantId", "mock-name");
 
   public void prepare(boolean largefile) throws IOException {
-    byte[] batchHeader = new byte[16];
+    prepare(largefile, false);
+  }
+
+  public void prepare(boolean largefile, boolean writeBlockIndex) throws IOException {
+    CelebornConf conf = new CelebornConf();
+    conf.set(CelebornConf.WORKER_DIRECT_MEMORY_RATIO_PAUSE_RECEIVE().key(), "0.8");
+    conf.set(CelebornConf.WORKER_DIRECT_MEMORY_RATIO_PAUSE_REPLICATE().key(), "0.9");
+    conf.set(CelebornConf.WORKER_DIRECT_MEMORY_RATIO_RESUME().key(), "0.5");
+    conf.set(CelebornConf.PARTITION_SORTER_DIRECT_MEMORY_RATIO_THRESHOLD().key(), "0.6");
+    conf.set(CelebornConf.WORKER_DIRECT_MEMORY_RATIO_FOR_READ_BUFFER().key(), "0.1");
+    // files are written to disk before they are sorted
+    conf.set(CelebornConf.WORKER_DIRECT_MEMORY_RATIO_FOR_SHUFFLE_STORAGE().key(), "0.0");
+    conf.set(CelebornConf.WORKER_DIRECT_MEMORY_CHECK_INTERVAL().key(), "10");
+    conf.set(CelebornConf.WORKER_DIRECT_MEMORY_REPORT_INTERVAL().key(), "10");
+    conf.set(CelebornConf.WORKER_READBUFFER_ALLOCATIONWAIT().key(), "10ms");
+    MemoryManager.initialize(conf);
+
     Random random = new Random();
     shuffleFile = File.createTempFile("Celeborn", "sort-suite");
 
     originFileName = shuffleFile.getAbsolutePath();
     fileInfo = new FileInfo(shuffleFile, userIdentifier);
-    FileOutputStream fileOutputStream = new FileOutputStream(shuffleFile);
-    FileChannel channel = fileOutputStream.getChannel();
+    FileChannel channel = null;
+    if (writeBlockIndex) {
+      // the block index is recorded by the writer and written when it is closed
+      conf.set(CelebornConf.PARTITION_SORTER_INDEX_ON_WRITE_ENABLED().key(), "true");
+      fileWriter =
+          new ReducePartitionFileWriter(
+              fileInfo,
+              getFlusher(conf),
+              new WorkerSource(conf),
+              conf,
+              DeviceMonitor$.MODULE$.EmptyMonitor(),
+              Long.MAX_VALUE,
+              PartitionSplitMode.SOFT,
+              false);
+    } else {
+      channel = new FileOutputStream(shuffleFile).getChannel();
+    }
     Map<Integer, Integer> batchIds = new HashMap<>();
+    Map<Integer, List<ShuffleBlockInfo>> blockInfos = new HashMap<>();
+    originBlockInfos = blockInfos;
+    mapIdBytes = new HashMap<>();
 
     int maxMapId = 50;
     int mapCount = 1000;
     if (largefile) {
       mapCount = 15000;
     }
+    long position = 0;
     for (int i = 0; i < mapCount; i++) {
       int mapId = random.nextInt(maxMapId);
       int currentAttemptId = 0;
@@ -88,44 +139,63 @@ public class PartitionFilesSorterSuiteJ {
                 return v;
               });
       int dataSize = random.nextInt(192 * 1024) + 65525;
+      byte[] batch = new byte[16 + dataSize];
+      ShuffleBlockInfo blockInfo = new ShuffleBlockInfo();
+      blockInfo.offset = position;
+      blockInfo.length = batch.length;
+      blockInfos.computeIfAbsent(mapId, v -> new ArrayList<>()).add(blockInfo);
+      mapIdBytes.merge(mapId, blockInfo.length, Long::sum);
+      position += batch.length;
+      Platform.putInt(batch, Platform.BYTE_ARRAY_OFFSET, mapId);
+      Platform.putInt(batch, Platform.BYTE_ARRAY_OFFSET + 4, currentAttemptId);
+      Platform.putInt(batch, Platform.BYTE_ARRAY_OFFSET + 8, batchId);
+      Platform.putInt(batch, Platform.BYTE_ARRAY_OFFSET + 12, dataSize);
       byte[] mockedData = new byte[dataSize];
-      Platform.putInt(batchHeader, Platform.BYTE_ARRAY_OFFSET, mapId);
-      Platform.putInt(batchHeader, Platform.BYTE_ARRAY_OFFSET + 4, currentAttemptId);
-      Platform.putInt(batchHeader, Platform.BYTE_ARRAY_OFFSET + 8, batchId);
-      Platform.putInt(batchHeader, Platform.BYTE_ARRAY_OFFSET + 12, dataSize);
-      ByteBuffer buf1 = ByteBuffer.wrap(batchHeader);
-      while (buf1.hasRemaining()) {
-        channel.write(buf1);
-      }
       random.nextBytes(mockedData);
-      ByteBuffer buf2 = ByteBuffer.wrap(mockedData);
-      while (buf2.hasRemaining()) {
-        channel.write(buf2);
+      System.arraycopy(mockedData, 0, batch, 16, dataSize);
+      if (writeBlockIndex) {
+        fileWriter.write(Unpooled.wrappedBuffer(batch));
+      } else {
+        ByteBuffer buf = ByteBuffer.wrap(batch);
+        while (buf.hasRemaining()) {
+          channel.write(buf);
+        }
       }
     }
-    originFileLen = channel.size();
-    fileInfo.getChunkOffsets().add(originFileLen);
-    fileInfo.updateBytesFlushed((int) originFileLen);
+    originFileLen = position;
+    if (writeBlockIndex) {
+      Assert.assertEquals(originFileLen, fileWriter.close());
+      Assert.assertTrue(new File(fileInfo.getShuffleBlockIndexPath()).exists());
+    } else {
+      channel.close();
+      fileInfo.getChunkOffsets().add(originFileLen);
+      fileInfo.updateBytesFlushed((int) originFileLen);
+      fileWriter = Mockito.mock(FileWriter.class);
+      when(fileWriter.getFile()).thenAnswer(i -> shuffleFile);
+      when(fileWriter.getFileInfo()).thenAnswer(i -> fileInfo);
+    }
     System.out.println(
         shuffleFile.getAbsolutePath()
             + " filelen "
             + (double) originFileLen / 1024 / 1024.0
             + "MB");
+  }
 
-    CelebornConf conf = new CelebornConf();
-    conf.set(CelebornConf.WORKER_DIRECT_MEMORY_RATIO_PAUSE_RECEIVE().key(), "0.8");
-    conf.set(CelebornConf.WORKER_DIRECT_MEMORY_RATIO_PAUSE_REPLICATE().key(), "0.9");
-    conf.set(CelebornConf.WORKER_DIRECT_MEMORY_RATIO_RESUME().key(), "0.5");
-    conf.set(CelebornConf.PARTITION_SORTER_DIRECT_MEMORY_RATIO_THRESHOLD().key(), "0.6");
-    conf.set(CelebornConf.WORKER_DIRECT_MEMORY_RATIO_FOR_READ_BUFFER().key(), "0.1");
-    conf.set(CelebornConf.WORKER_DIRECT_MEMORY_RATIO_FOR_SHUFFLE_STORAGE().key(), "0.1");
-    conf.set(CelebornConf.WORKER_DIRECT_MEMORY_CHECK_INTERVAL().key(), "10");
-    conf.set(CelebornConf.WORKER_DIRECT_MEMORY_REPORT_INTERVAL().key(), "10");
-    conf.set(CelebornConf.WORKER_READBUFFER_ALLOCATIONWAIT().key(), "10ms");
-    MemoryManager.initialize(conf);
-    fileWriter = Mockito.mock(FileWriter.class);
-    when(fileWriter.getFile()).thenAnswer(i -> shuffleFile);
-    when(fileWriter.getFileInfo()).thenAnswer(i -> fileInfo);
+  private static synchronized LocalFlusher getFlusher(CelebornConf conf) {
+    if (localFlusher == null) {
+      localFlusher =
+          new LocalFlusher(
+              new WorkerSource(conf),
+              DeviceMonitor$.MODULE$.EmptyMonitor(),
+              1,
+              NettyUtils.getPooledByteBufAllocator(new TransportConf("test", conf), null, true),
+              256,
+              "disk1",
+              StorageInfo.Type.HDD,
+              null,
+              1);
+    }
+    return localFlusher;
   }
 
   public void clean() {
@@ -147,6 +217,137 @@ public class PartitionFilesSorterSuiteJ {
     clean();
   }
 
+  @Test
+  public void testSmallFileWithBlockIndex() throws InterruptedException, IOException {
+    prepare(false, true);
+    CelebornConf conf = new CelebornConf();
+    PartitionFilesSorter partitionFilesSorter =
+        new PartitionFilesSorter(MemoryManager.instance(), conf, new WorkerSource(conf));
+    FileInfo info =
+        partitionFilesSorter.getSortedFileInfo(
+            "application-1", originFileName, fileWriter.getFileInfo(), 5, 10);
+    long expectedBytes = 0;
+    for (int mapId = 5; mapId < 10; mapId++) {
+      expectedBytes += mapIdBytes.getOrDefault(mapId, 0L);
+    }
+    ChunkOffsets chunkOffsets = info.getChunkOffsets();
+    Assert.assertTrue(info.numChunks() > 0);
+    Assert.assertEquals(
+        expectedBytes, chunkOffsets.get(chunkOffsets.size() - 1) - chunkOffsets.get(0));
+    Assert.assertEquals(originFileLen, new File(info.getFilePath()).length());
+    Assert.assertFalse(new File(fileInfo.getShuffleBlockIndexPath()).exists());
+    new File(info.getFilePath()).delete();
+    new File(fileInfo.getIndexPath()).delete();
+    clean();
+  }
+
+  @Test
+  public void testParallelCopy() throws InterruptedException, IOException {
+    prepare(false, true);
+    File originCopy = File.createTempFile("Celeborn", "sort-suite-origin");
+    Files.copy(shuffleFile.toPath(), originCopy.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    CelebornConf conf = new CelebornConf();
+    conf.set(CelebornConf.PARTITION_SORTER_COPY_THREADS_PER_DISK().key(), "4");
+    PartitionFilesSorter partitionFilesSorter =
+        new PartitionFilesSorter(MemoryManager.instance(), conf, new WorkerSource(conf));
+    FileInfo info =
+        partitionFilesSorter.getSortedFileInfo(
+            "application-1", originFileName, fileWriter.getFileInfo(), 0, 50);
+    Assert.assertTrue(info.numChunks() > 0);
+
+    byte[] origin = Files.readAllBytes(originCopy.toPath());
+    byte[] sorted = Files.readAllBytes(new File(info.getFilePath()).toPath());
+    Assert.assertEquals(origin.length, sorted.length);
+    Map<Integer, List<ShuffleBlockInfo>> sortedBlockInfos =
+        ShuffleBlockInfoUtils.parseShuffleBlockInfosFromByteBuffer(
+            Files.readAllBytes(new File(fileInfo.getIndexPath()).toPath()));
+    for (Map.Entry<Integer, List<ShuffleBlockInfo>> entry : originBlockInfos.entrySet()) {
+      List<ShuffleBlockInfo> sortedBlocks = sortedBlockInfos.get(entry.getKey());
+      Assert.assertEquals(entry.getValue().size(), sortedBlocks.size());
+      for (int i = 0; i < sortedBlocks.size(); i++) {
+        ShuffleBlockInfo originBlock = entry.getValue().get(i);
+        ShuffleBlockInfo sortedBlock = sortedBlocks.get(i);
+        Assert.assertEquals(originBlock.length, sortedBlock.length);
+        Assert.assertEquals(
+            ByteBuffer.wrap(origin, (int) originBlock.offset, (int) originBlock.length),
+            ByteBuffer.wrap(sorted, (int) sortedBlock.offset, (int) sortedBlock.length));
+      }
+    }
+    partitionFilesSorter.close(CelebornExitKind.EXIT_IMMEDIATELY());
+    originCopy.delete();
+    new File(info.getFilePath()).delete();
+    new File(fileInfo.getIndexPath()).delete();
+    clean();
+  }
+
+  @Test
+  public void testVirtualSort() throws IOException {
+    prepare(false);
+    CelebornConf conf = new CelebornConf();
+    conf.set(CelebornConf.PARTITION_SORTER_VIRTUAL_SORT_ENABLED().key(), "true");
+    conf.set(CelebornConf.PARTITION_SORTER_VIRTUAL_SORT_MAX_FRAGMENTS().key(), "100000");
+    PartitionFilesSorter partitionFilesSorter =
+        new PartitionFilesSorter(MemoryManager.instance(), conf, new WorkerSource(conf));
+    FileInfo info =
+        partitionFilesSorter.getSortedFileInfo(
+            "application-1", originFileName, fileWriter.getFileInfo(), 5, 10);
+    Assert.assertEquals(originFileName, info.getFilePath());
+    Assert.assertNotNull(info.getChunkSegments());
+    Assert.assertFalse(new File(Utils.getSortedFilePath(originFileName)).exists());
+
+    byte[] origin = Files.readAllBytes(shuffleFile.toPath());
+    ByteBuffer expected = ByteBuffer.allocate(origin.length);
+    for (int mapId = 5; mapId < 10; mapId++) {
+      for (ShuffleBlockInfo block : originBlockInfos.getOrDefault(mapId, new ArrayList<>())) {
+        expected.put(origin, (int) block.offset, (int) block.length);
+      }
+    }
+    expected.flip();
+    ByteBuffer actual = ByteBuffer.allocate(expected.remaining());
+    FileManagedBuffers buffers =
+        new FileManagedBuffers(info, new TransportConf("shuffle", new CelebornConf()));
+    for (int i = 0; i < buffers.numChunks(); i++) {
+      actual.put(buffers.chunk(i, 0, Integer.MAX_VALUE).nioByteBuffer());
+    }
+    actual.flip();
+    Assert.assertEquals(expected, actual);
+
+    conf.set(CelebornConf.PARTITION_SORTER_VIRTUAL_SORT_MAX_FRAGMENTS().key(), "1");
+    // Once a range of the file is served by virtual sort, the file is not sorted physically, as
+    // that would delete the unsorted file, even for ranges exceeding max fragments.
+    PartitionFilesSorter virtualSorter =
+        new PartitionFilesSorter(MemoryManager.instance(), conf, new WorkerSource(conf));
+    FileInfo emptyInfo =
+        virtualSorter.getSortedFileInfo(
+            "application-1", originFileName, fileWriter.getFileInfo(), 50, 51);
+    Assert.assertEquals(0, emptyInfo.numChunks());
+    FileInfo fragmentedInfo =
+        virtualSorter.getSortedFileInfo(
+            "application-1", originFileName, fileWriter.getFileInfo(), 5, 10);
+    Assert.assertEquals(originFileName, fragmentedInfo.getFilePath());
+    Assert.assertNotNull(fragmentedInfo.getChunkSegments());
+    Assert.assertFalse(new File(Utils.getSortedFilePath(originFileName)).exists());
+
+    // Otherwise a range exceeding max fragments falls back to physical sort, which deletes the
+    // unsorted file and its block index.
+    PartitionFilesSorter physicalSorter =
+        new PartitionFilesSorter(MemoryManager.instance(), conf, new WorkerSource(conf));
+    FileInfo sortedInfo =
+        physicalSorter.getSortedFileInfo(
+            "application-1", originFileName, fileWriter.getFileInfo(), 5, 10);
+    Assert.assertNull(sortedInfo.getChunkSegments());
+    Assert.assertEquals(Utils.getSortedFilePath(originFileName), sortedInfo.getFilePath());
+    Assert.assertEquals(originFileLen, new File(sortedInfo.getFilePath()).length());
+    Assert.assertFalse(shuffleFile.exists());
+    Assert.assertFalse(new File(fileInfo.getShuffleBlockIndexPath()).exists());
+    partitionFilesSorter.close(CelebornExitKind.EXIT_IMMEDIATELY());
+    virtualSorter.close(CelebornExitKind.EXIT_IMMEDIATELY());
+    physicalSorter.close(CelebornExitKind.EXIT_IMMEDIATELY());
+    new File(sortedInfo.getFilePath()).delete();
+    new File(fileInfo.getIndexPath()).delete();
+    clean();
+  }
+
   @Test
   @Ignore
   public void testLargeFile() throws InterruptedException, IOException {
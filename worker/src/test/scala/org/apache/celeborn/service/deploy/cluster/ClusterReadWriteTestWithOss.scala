@@ -0,0 +1,122 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.celeborn.service.deploy.cluster
+
+import java.io.{ByteArrayOutputStream, File, InputStream}
+import java.nio.ByteBuffer
+import java.nio.file.Files
+
+import scala.util.Random
+
+import org.junit.Assert
+import org.scalatest.BeforeAndAfterAll
+import org.scalatest.funsuite.AnyFunSuite
+
+import org.apache.celeborn.client.{LifecycleManager, ShuffleClientImpl}
+import org.apache.celeborn.common.CelebornConf
+import org.apache.celeborn.common.identity.UserIdentifier
+import org.apache.celeborn.common.internal.Logging
+import org.apache.celeborn.common.protocol.CompressionCodec
+import org.apache.celeborn.common.util.JavaUtils
+import org.apache.celeborn.service.deploy.MiniClusterFeature
+
+/** Workers without local disks store the shuffle data on an object store kept in a local dir. */
+class ClusterReadWriteTestWithOss extends AnyFunSuite
+  with Logging with MiniClusterFeature with BeforeAndAfterAll {
+  val masterPort = 19099
+  val ossLocalDir: File = Files.createTempDirectory("celeborn-oss-").toFile
+
+  private def ossConf: Map[String, String] = Map(
+    CelebornConf.ACTIVE_STORAGE_TYPES.key -> "OSS",
+    CelebornConf.OSS_DIR.key -> "oss://bucket/celeborn",
+    CelebornConf.OSS_LOCAL_DIR.key -> ossLocalDir.getAbsolutePath)
+
+  override def beforeAll(): Unit = {
+    val masterConf = Map(
+      "celeborn.master.host" -> "localhost",
+      "celeborn.master.port" -> masterPort.toString) ++ ossConf
+    val workerConf = Map(
+      "celeborn.master.endpoints" -> s"localhost:$masterPort",
+      CelebornConf.WORKER_STORAGE_DIRS.key -> "",
+      CelebornConf.SHUFFLE_CHUNK_SIZE.key -> "16k",
+      CelebornConf.WORKER_OSS_FLUSHER_BUFFER_SIZE.key -> "64k",
+      CelebornConf.OSS_MIN_PART_SIZE.key -> "32k") ++ ossConf
+    logInfo("test initialized , setup Celeborn mini cluster")
+    setUpMiniCluster(masterConf, workerConf)
+  }
+
+  override def afterAll(): Unit = {
+    logInfo("all test complete , stop Celeborn mini cluster")
+    shutdownMiniCluster()
+    JavaUtils.deleteRecursively(ossLocalDir)
+  }
+
+  private val batchSize = 8 * 1024
+
+  /** Reads the batches of the partition, which may come in any order. */
+  private def readBatches(inputStream: InputStream): Set[ByteBuffer] = {
+    val outputStream = new ByteArrayOutputStream()
+    val buffer = new Array[Byte](4096)
+    var read = inputStream.read(buffer)
+    while (read != -1) {
+      outputStream.write(buffer, 0, read)
+      read = inputStream.read(buffer)
+    }
+    inputStream.close()
+    val bytes = outputStream.toByteArray
+    Assert.assertEquals(0, bytes.length % batchSize)
+    bytes.grouped(batchSize).map(ByteBuffer.wrap).toSet
+  }
+
+  test("test MiniCluster read write on object store") {
+    val APP = "app-oss"
+    val clientConf = new CelebornConf()
+      .set(CelebornConf.MASTER_ENDPOINTS.key, s"localhost:$masterPort")
+      .set(CelebornConf.SHUFFLE_COMPRESSION_CODEC.key, CompressionCodec.LZ4.name)
+      .set(CelebornConf.CLIENT_PUSH_REPLICATE_ENABLED.key, "true")
+      .set(CelebornConf.SHUFFLE_CHUNK_SIZE.key, "16k")
+    ossConf.foreach { case (key, value) => clientConf.set(key, value) }
+    val lifecycleManager = new LifecycleManager(APP, clientConf)
+    val shuffleClient = new ShuffleClientImpl(APP, clientConf, UserIdentifier("mock", "mock"))
+    shuffleClient.setupLifecycleManagerRef(lifecycleManager.self)
+
+    // incompressible batches, so that each object is uploaded in several parts
+    val random = new Random(42)
+    val batches = (0 until 2).map { mapId =>
+      (0 until 32).map { _ =>
+        val batch = new Array[Byte](batchSize)
+        random.nextBytes(batch)
+        shuffleClient.pushData(1, mapId, 0, 0, batch, 0, batch.length, 2, 1)
+        batch
+      }
+    }
+    shuffleClient.mapperEnd(1, 0, 0, 2)
+    shuffleClient.mapperEnd(1, 1, 0, 2)
+
+    val expected = batches.map(_.map(ByteBuffer.wrap).toSet)
+    Assert.assertEquals(
+      expected(0) ++ expected(1),
+      readBatches(shuffleClient.readPartition(1, 0, 0, 0, Integer.MAX_VALUE)))
+    // range reads take the blocks of their maps out of the object
+    Assert.assertEquals(expected(0), readBatches(shuffleClient.readPartition(1, 0, 0, 0, 1)))
+    Assert.assertEquals(expected(1), readBatches(shuffleClient.readPartition(1, 0, 0, 1, 2)))
+
+    shuffleClient.shutdown()
+    lifecycleManager.rpcEnv.shutdown()
+  }
+}
@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.celeborn.service.deploy.cluster
+
+import java.io.ByteArrayOutputStream
+import java.util.Arrays
+
+import scala.util.Random
+
+import org.junit.Assert
+import org.scalatest.BeforeAndAfterAll
+import org.scalatest.funsuite.AnyFunSuite
+
+import org.apache.celeborn.client.{LifecycleManager, ShuffleClientImpl}
+import org.apache.celeborn.common.CelebornConf
+import org.apache.celeborn.common.identity.UserIdentifier
+import org.apache.celeborn.common.internal.Logging
+import org.apache.celeborn.common.protocol.{CompressionCodec, PartitionSplitMode}
+import org.apache.celeborn.service.deploy.MiniClusterFeature
+
+class ClusterReadWriteTestWithPrefetch extends AnyFunSuite
+  with Logging with MiniClusterFeature with BeforeAndAfterAll {
+  val masterPort = 19098
+
+  override def beforeAll(): Unit = {
+    val masterConf = Map(
+      "celeborn.master.host" -> "localhost",
+      "celeborn.master.port" -> masterPort.toString)
+    val workerConf = Map(
+      "celeborn.master.endpoints" -> s"localhost:$masterPort",
+      CelebornConf.SHUFFLE_CHUNK_SIZE.key -> "16k",
+      CelebornConf.WORKER_FLUSHER_BUFFER_SIZE.key -> "16k")
+    logInfo("test initialized , setup Celeborn mini cluster")
+    setUpMiniCluster(masterConf, workerConf)
+  }
+
+  override def afterAll(): Unit = {
+    logInfo("all test complete , stop Celeborn mini cluster")
+    shutdownMiniCluster()
+  }
+
+  test("test MiniCluster read split partition with prefetch") {
+    val APP = "app-prefetch"
+    val clientConf = new CelebornConf()
+      .set(CelebornConf.MASTER_ENDPOINTS.key, s"localhost:$masterPort")
+      .set(CelebornConf.SHUFFLE_COMPRESSION_CODEC.key, CompressionCodec.LZ4.name)
+      .set(CelebornConf.SHUFFLE_PARTITION_SPLIT_THRESHOLD.key, "64k")
+      .set(CelebornConf.SHUFFLE_PARTITION_SPLIT_MODE.key, PartitionSplitMode.HARD.name)
+      .set(CelebornConf.SHUFFLE_CHUNK_SIZE.key, "16k")
+      .set(CelebornConf.CLIENT_FETCH_PREFETCH_LOCATIONS.key, "2")
+      .set(CelebornConf.CLIENT_FETCH_PREFETCH_MAX_BYTES.key, "64k")
+    val lifecycleManager = new LifecycleManager(APP, clientConf)
+    val shuffleClient = new ShuffleClientImpl(APP, clientConf, UserIdentifier("mock", "mock"))
+    shuffleClient.setupLifecycleManagerRef(lifecycleManager.self)
+
+    // incompressible batches, so that the partition is split into several locations
+    val random = new Random(42)
+    val batches = (0 until 64).map { _ =>
+      val batch = new Array[Byte](8 * 1024)
+      random.nextBytes(batch)
+      batch
+    }
+    batches.foreach { batch =>
+      shuffleClient.pushData(1, 0, 0, 0, batch, 0, batch.length, 1, 1)
+    }
+    shuffleClient.mapperEnd(1, 0, 0, 1)
+
+    val inputStream = shuffleClient.readPartition(1, 0, 0, 0, Integer.MAX_VALUE)
+    val outputStream = new ByteArrayOutputStream()
+    val buffer = new Array[Byte](4096)
+    var read = inputStream.read(buffer)
+    while (read != -1) {
+      outputStream.write(buffer, 0, read)
+      read = inputStream.read(buffer)
+    }
+    inputStream.close()
+
+    val readBytes = outputStream.toByteArray
+    val expected = Array.concat(batches: _*)
+    // the locations are read in random order
+    Arrays.sort(readBytes)
+    Arrays.sort(expected)
+    Assert.assertArrayEquals(expected, readBytes)
+
+    shuffleClient.shutdown()
+    lifecycleManager.rpcEnv.shutdown()
+  }
+}
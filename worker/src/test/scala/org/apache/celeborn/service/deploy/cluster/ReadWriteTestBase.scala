@@ -36,12 +36,14 @@ trait ReadWriteTestBase extends AnyFunSuite
   with Logging with MiniClusterFeature with BeforeAndAfterAll {
   val masterPort = 19097
 
+  protected def extraConf: Map[String, String] = Map.empty
+
   override def beforeAll(): Unit = {
     val masterConf = Map(
       "celeborn.master.host" -> "localhost",
       "celeborn.master.port" -> masterPort.toString)
     val workerConf = Map(
-      "celeborn.master.endpoints" -> s"localhost:$masterPort")
+      "celeborn.master.endpoints" -> s"localhost:$masterPort") ++ extraConf
     logInfo("test initialized , setup Celeborn mini cluster")
     setUpMiniCluster(masterConf, workerConf)
   }
@@ -60,6 +62,7 @@ trait ReadWriteTestBase extends AnyFunSuite
       .set(CelebornConf.CLIENT_PUSH_REPLICATE_ENABLED.key, "true")
       .set(CelebornConf.CLIENT_PUSH_BUFFER_MAX_SIZE.key, "256K")
       .set("celeborn.data.io.numConnectionsPerPeer", "1")
+    extraConf.foreach { case (key, value) => clientConf.set(key, value) }
     val lifecycleManager = new LifecycleManager(APP, clientConf)
     val shuffleClient = new ShuffleClientImpl(APP, clientConf, UserIdentifier("mock", "mock"))
     shuffleClient.setupLifecycleManagerRef(lifecycleManager.self)
@@ -18,6 +18,7 @@
 package org.apache.celeborn.service.deploy.worker.storage
 
 import java.io.File
+import java.nio.file.Files
 import java.util
 import java.util.{HashSet => JHashSet}
 
@@ -30,7 +31,7 @@ import org.scalatest.funsuite.AnyFunSuite
 
 import org.apache.celeborn.common.CelebornConf
 import org.apache.celeborn.common.identity.UserIdentifier
-import org.apache.celeborn.common.protocol.{PartitionLocation, PartitionSplitMode, PartitionType}
+import org.apache.celeborn.common.protocol.{PartitionLocation, PartitionSplitMode, PartitionType, StorageInfo}
 import org.apache.celeborn.common.util.{CelebornExitKind, JavaUtils}
 import org.apache.celeborn.service.deploy.worker.{Worker, WorkerArguments}
 
@@ -113,4 +114,38 @@ class WorkerSuite extends AnyFunSuite with BeforeAndAfterEach {
     }
     Assert.assertEquals(1, allWriters.size())
   }
+
+  test("place late epochs on the object store") {
+    val ossLocalDir = Files.createTempDirectory("celeborn-oss-").toFile
+    val ossConf = conf.clone
+      .set(CelebornConf.WORKER_STORAGE_DIRS.key, "/tmp")
+      .set(CelebornConf.ACTIVE_STORAGE_TYPES.key, "HDD,OSS")
+      .set(CelebornConf.OSS_DIR.key, "oss://bucket/celeborn")
+      .set(CelebornConf.OSS_LOCAL_DIR.key, ossLocalDir.getAbsolutePath)
+      .set(CelebornConf.WORKER_STORAGE_OSS_MIN_PARTITION_EPOCH.key, "2")
+    worker = new Worker(ossConf, new WorkerArguments(Array(), ossConf))
+    try {
+      val writers = (0 until 3).map { epoch =>
+        val location =
+          new PartitionLocation(0, epoch, "12", 0, 0, 0, 0, PartitionLocation.Mode.PRIMARY)
+        worker.storageManager.createWriter(
+          "3",
+          3,
+          location,
+          100000,
+          PartitionSplitMode.SOFT,
+          PartitionType.REDUCE,
+          false,
+          new UserIdentifier("1", "2"))
+      }
+      Assert.assertEquals(
+        Seq(StorageInfo.Type.HDD, StorageInfo.Type.HDD, StorageInfo.Type.OSS),
+        writers.map(_.getStorageInfo.getType))
+      Assert.assertEquals(1, worker.storageManager.ossWriters.size())
+      worker.cleanup(new JHashSet[String](util.Arrays.asList("3-3")))
+      Assert.assertEquals(0, worker.storageManager.ossWriters.size())
+    } finally {
+      JavaUtils.deleteRecursively(ossLocalDir)
+    }
+  }
 }